@@ -157,7 +157,7 @@ public final class StandardTokenizer extends Tokenizer {
     skippedPositions = 0;
 
     while(true) {
-      int tokenType = scanner.getNextToken();
+      int tokenType = scanner.getNextTokenFast();
 
       if (tokenType == StandardTokenizerImpl.YYEOF) {
         return false;
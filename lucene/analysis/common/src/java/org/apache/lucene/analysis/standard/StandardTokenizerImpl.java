@@ -466,6 +466,110 @@ public final class StandardTokenizerImpl {
      zzBuffer = newZzBuffer;
    }
 
+  /* Word break properties of ASCII chars, for getNextTokenFast(); other
+     ASCII chars never belong to a token */
+  private static final byte ASCII_LETTER = 1;
+  private static final byte ASCII_NUMERIC = 2;
+  private static final byte ASCII_EXTEND_NUM_LET = 3;
+  private static final byte ASCII_MID_LETTER = 4;
+  private static final byte ASCII_MID_NUM = 8;
+  private static final byte[] ASCII_WORD_BREAK = new byte[128];
+  static {
+    for (char c = 'a'; c <= 'z'; ++c) {
+      ASCII_WORD_BREAK[c] = ASCII_LETTER;
+      ASCII_WORD_BREAK[Character.toUpperCase(c)] = ASCII_LETTER;
+    }
+    for (char c = '0'; c <= '9'; ++c) {
+      ASCII_WORD_BREAK[c] = ASCII_NUMERIC;
+    }
+    ASCII_WORD_BREAK['_'] = ASCII_EXTEND_NUM_LET;
+    ASCII_WORD_BREAK[':'] = ASCII_MID_LETTER;
+    ASCII_WORD_BREAK[','] = ASCII_MID_NUM;
+    ASCII_WORD_BREAK[';'] = ASCII_MID_NUM;
+    // MidNumLet and Single_Quote
+    ASCII_WORD_BREAK['.'] = ASCII_MID_LETTER | ASCII_MID_NUM;
+    ASCII_WORD_BREAK['\''] = ASCII_MID_LETTER | ASCII_MID_NUM;
+  }
+
+  /**
+   * Returns the next token, like {@link #getNextToken()}.
+   * <p>
+   * Runs of ASCII text that are already buffered are matched with a table of
+   * the word break properties of ASCII chars, which is much cheaper than the
+   * Unicode tables of the generated scanner. This falls back to
+   * {@link #getNextToken()} as soon as a token may depend on a non-ASCII char,
+   * or on chars that are not buffered yet, so the tokens are the same.
+   */
+  public final int getNextTokenFast() throws java.io.IOException {
+    final char[] buffer = zzBuffer;
+    final int end = zzEndRead;
+    // start of the text that is not scanned yet
+    int start = zzMarkedPos;
+    scan: while (start < end) {
+      final char first = buffer[start];
+      if (first >= 128) {
+        break;
+      }
+      final byte firstClass = ASCII_WORD_BREAK[first];
+      if (firstClass == ASCII_EXTEND_NUM_LET) {
+        // ExtendNumLet only starts a token if followed by a letter or digit
+        int next = start + 1;
+        while (next < end && buffer[next] == '_') {
+          ++next;
+        }
+        if (next == end || buffer[next] >= 128) {
+          break;
+        }
+        final byte nextClass = ASCII_WORD_BREAK[buffer[next]];
+        if (nextClass != ASCII_LETTER && nextClass != ASCII_NUMERIC) {
+          start = next;
+          continue;
+        }
+      } else if (firstClass != ASCII_LETTER && firstClass != ASCII_NUMERIC) {
+        ++start;
+        continue;
+      }
+
+      int pos = start;
+      byte last = 0;
+      boolean numeric = true;
+      while (true) {
+        if (pos == end || buffer[pos] >= 128) {
+          break scan;
+        }
+        final byte cls = ASCII_WORD_BREAK[buffer[pos]];
+        if (cls == ASCII_LETTER || cls == ASCII_NUMERIC || cls == ASCII_EXTEND_NUM_LET) {
+          // UAX#29 WB5, WB8, WB9, WB10, WB13a, WB13b
+          numeric &= cls != ASCII_LETTER;
+          last = cls;
+          ++pos;
+        } else if ((last == ASCII_LETTER && (cls & ASCII_MID_LETTER) != 0)
+            || (last == ASCII_NUMERIC && (cls & ASCII_MID_NUM) != 0)) {
+          // UAX#29 WB6, WB7, WB11, WB12
+          if (pos + 1 == end || buffer[pos + 1] >= 128) {
+            break scan;
+          }
+          if (ASCII_WORD_BREAK[buffer[pos + 1]] != last) {
+            break;
+          }
+          pos += 2;
+        } else {
+          break;
+        }
+      }
+
+      yychar += start - zzStartRead;
+      zzStartRead = start;
+      zzCurrentPos = zzMarkedPos = pos;
+      return numeric ? NUMERIC_TYPE : WORD_TYPE;
+    }
+
+    // skip what was scanned, and let the generated scanner match the next token
+    yychar += start - zzStartRead;
+    zzStartRead = zzCurrentPos = zzMarkedPos = start;
+    return getNextToken();
+  }
+
 
   /**
    * Creates a new scanner
@@ -25,10 +25,12 @@ import java.util.Random;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.BaseTokenStreamTestCase;
 import org.apache.lucene.analysis.MockGraphTokenFilter;
+import org.apache.lucene.analysis.MockReaderWrapper;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.standard.WordBreakTestUnicode_6_1_0;
 import org.apache.lucene.analysis.standard.std40.StandardTokenizer40;
+import org.apache.lucene.util.LineFileDocs;
 import org.apache.lucene.util.TestUtil;
 import org.apache.lucene.util.Version;
 
@@ -375,6 +377,52 @@ public class TestStandardAnalyzer extends BaseTokenStreamTestCase {
 
 
 
+  /** checks that the ASCII fast path of the scanner finds the same tokens as the generated scanner */
+  private void assertSameTokens(String text) throws IOException {
+    final long seed = random().nextLong();
+    final int bufferSize = random().nextBoolean() ? StandardAnalyzer.DEFAULT_MAX_TOKEN_LENGTH : TestUtil.nextInt(random(), 1, 50);
+    StandardTokenizerImpl expected = new StandardTokenizerImpl(new MockReaderWrapper(new Random(seed), new StringReader(text)));
+    StandardTokenizerImpl actual = new StandardTokenizerImpl(new MockReaderWrapper(new Random(seed), new StringReader(text)));
+    expected.setBufferSize(bufferSize);
+    actual.setBufferSize(bufferSize);
+    while (true) {
+      final int type = expected.getNextToken();
+      assertEquals(text, type, actual.getNextTokenFast());
+      if (type == StandardTokenizerImpl.YYEOF) {
+        break;
+      }
+      assertEquals(text, expected.yychar(), actual.yychar());
+      assertEquals(text, expected.yytext(), actual.yytext());
+    }
+    assertEquals(text, expected.yychar() + expected.yylength(), actual.yychar() + actual.yylength());
+  }
+
+  public void testFastPath() throws Exception {
+    final String chars = "aZ09_.:,;'\" \t\n-/#\u00e9\u0301\u00ad\u05d0\u30a2\uff11";
+    final int iters = atLeast(1000);
+    for (int i = 0; i < iters; ++i) {
+      final StringBuilder sb = new StringBuilder();
+      final int length = random().nextInt(300);
+      for (int j = 0; j < length; ++j) {
+        if (random().nextInt(20) == 0) {
+          sb.append(TestUtil.randomUnicodeString(random(), 2));
+        } else {
+          sb.append(chars.charAt(random().nextInt(chars.length())));
+        }
+      }
+      assertSameTokens(sb.toString());
+    }
+  }
+
+  public void testFastPathLineFileDocs() throws Exception {
+    LineFileDocs docs = new LineFileDocs(random());
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; ++i) {
+      assertSameTokens(docs.nextDoc().get("body"));
+    }
+    docs.close();
+  }
+
   /** blast some random strings through the analyzer */
   public void testRandomStrings() throws Exception {
     Analyzer analyzer = new StandardAnalyzer();
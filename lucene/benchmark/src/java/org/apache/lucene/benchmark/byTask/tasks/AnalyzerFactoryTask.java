@@ -53,6 +53,9 @@ import java.util.regex.Pattern;
  *       <li><b>Required</b>: <code>name:<i>analyzer-factory-name</i></code></li>
  *       <li>Optional: <tt>positionIncrementGap:<i>int value</i></tt> (default: 0)</li>
  *       <li>Optional: <tt>offsetGap:<i>int value</i></tt> (default: 1)</li>
+ *       <li>Optional: <tt>pooledComponents:<i>int value</i></tt>, to share up to this many
+ *           idle components between threads with a {@link org.apache.lucene.analysis.PooledReuseStrategy}
+ *           (default: components are reused per thread)</li>
  *     </ul>
  *   </li>
  *   <li>zero or more CharFilterFactory's, followed by</li>
@@ -90,6 +93,7 @@ public class AnalyzerFactoryTask extends PerfTask {
   String factoryName = null;
   Integer positionIncrementGap = null;
   Integer offsetGap = null;
+  Integer pooledComponents = null;
   private List<CharFilterFactory> charFilterFactories = new ArrayList<>();
   private TokenizerFactory tokenizerFactory = null;
   private List<TokenFilterFactory> tokenFilterFactories = new ArrayList<>();
@@ -108,7 +112,7 @@ public class AnalyzerFactoryTask extends PerfTask {
    * Analysis component factory names may optionally include the "Factory" suffix.
    *
    * @param params analysis pipeline specification: name, (optional) positionIncrementGap,
-   *               (optional) offsetGap, 0+ CharFilterFactory's, 1 TokenizerFactory,
+   *               (optional) offsetGap, (optional) pooledComponents, 0+ CharFilterFactory's, 1 TokenizerFactory,
    *               and 0+ TokenFilterFactory's
    */
   @Override
@@ -137,7 +141,8 @@ public class AnalyzerFactoryTask extends PerfTask {
               final String argName = stok.sval;
               if ( ! argName.equalsIgnoreCase("name")
                   && ! argName.equalsIgnoreCase("positionIncrementGap")
-                  && ! argName.equalsIgnoreCase("offsetGap")) {
+                  && ! argName.equalsIgnoreCase("offsetGap")
+                  && ! argName.equalsIgnoreCase("pooledComponents")) {
                 throw new RuntimeException
                     ("Line #" + lineno(stok) + ": Missing 'name' param to AnalyzerFactory: '" + params + "'");
               }
@@ -174,6 +179,8 @@ public class AnalyzerFactoryTask extends PerfTask {
                       positionIncrementGap = intArgValue;
                     } else if (argName.equalsIgnoreCase("offsetGap")) {
                       offsetGap = intArgValue;
+                    } else if (argName.equalsIgnoreCase("pooledComponents")) {
+                      pooledComponents = intArgValue;
                     }
                   }
                   break;
@@ -190,7 +197,8 @@ public class AnalyzerFactoryTask extends PerfTask {
               final String argName = stok.sval;
 
               if (argName.equalsIgnoreCase("positionIncrementGap")
-                  || argName.equalsIgnoreCase("offsetGap")) {
+                  || argName.equalsIgnoreCase("offsetGap")
+                  || argName.equalsIgnoreCase("pooledComponents")) {
                 stok.nextToken();
                 if (stok.ttype != ':') {
                   throw new RuntimeException
@@ -216,6 +224,8 @@ public class AnalyzerFactoryTask extends PerfTask {
                       positionIncrementGap = intArgValue;
                     } else if (argName.equalsIgnoreCase("offsetGap")) {
                       offsetGap = intArgValue;
+                    } else if (argName.equalsIgnoreCase("pooledComponents")) {
+                      pooledComponents = intArgValue;
                     }
                     break;
                   }
@@ -276,6 +286,7 @@ public class AnalyzerFactoryTask extends PerfTask {
         (charFilterFactories, tokenizerFactory, tokenFilterFactories);
     analyzerFactory.setPositionIncrementGap(positionIncrementGap);
     analyzerFactory.setOffsetGap(offsetGap);
+    analyzerFactory.setPooledComponents(pooledComponents);
     getRunData().getAnalyzerFactories().put(factoryName, analyzerFactory);
   }
 
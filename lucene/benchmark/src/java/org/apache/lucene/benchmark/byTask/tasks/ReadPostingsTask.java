@@ -0,0 +1,107 @@
+package org.apache.lucene.benchmark.byTask.tasks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.benchmark.byTask.PerfRunData;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+
+/**
+ * Iterates over the docs and freqs of all terms of all fields, to measure
+ * how fast postings decode. Every visited posting counts as a record, so
+ * the reported rec/s is the number of decoded postings per second. It also
+ * prints the size of the postings files of the index, which is most useful
+ * with <code>compound=false</code>.
+ *
+ * <p>Note: This task reuses the reader if it is already open.
+ * Otherwise a reader is opened at start and closed at the end.
+ * </p>
+ */
+public class ReadPostingsTask extends PerfTask {
+
+  // keeps freqs from being optimized away
+  private long sumFreqs;
+
+  public ReadPostingsTask(PerfRunData runData) {
+    super(runData);
+  }
+
+  @Override
+  public int doLogic() throws Exception {
+    IndexReader reader = getRunData().getIndexReader();
+    final boolean closeReader;
+    if (reader == null) {
+      reader = DirectoryReader.open(getRunData().getDirectory());
+      closeReader = true;
+    } else {
+      closeReader = false;
+    }
+
+    printPostingsSizes(getRunData().getDirectory());
+
+    int res = 0;
+    try {
+      PostingsEnum postings = null;
+      for (LeafReaderContext context : reader.leaves()) {
+        final Fields fields = context.reader().fields();
+        for (String field : fields) {
+          final Terms terms = fields.terms(field);
+          if (terms == null) {
+            continue;
+          }
+          final TermsEnum termsEnum = terms.iterator();
+          while (termsEnum.next() != null) {
+            postings = termsEnum.postings(postings, PostingsEnum.FREQS);
+            for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+              sumFreqs += postings.freq();
+              res++;
+            }
+          }
+        }
+      }
+    } finally {
+      if (closeReader) {
+        reader.close();
+      } else {
+        reader.decRef();
+      }
+    }
+    return res;
+  }
+
+  private static void printPostingsSizes(Directory dir) throws Exception {
+    long docBytes = 0, posBytes = 0, payBytes = 0;
+    for (String file : dir.listAll()) {
+      if (file.endsWith(".doc")) {
+        docBytes += dir.fileLength(file);
+      } else if (file.endsWith(".pos")) {
+        posBytes += dir.fileLength(file);
+      } else if (file.endsWith(".pay")) {
+        payBytes += dir.fileLength(file);
+      }
+    }
+    System.out.println("--> postings bytes: doc=" + docBytes + " pos=" + posBytes + " pay=" + payBytes);
+  }
+}
@@ -18,6 +18,7 @@ package org.apache.lucene.benchmark.byTask.utils;
  */
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.PooledReuseStrategy;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.util.CharFilterFactory;
@@ -38,6 +39,7 @@ public final class AnalyzerFactory {
   private String name = null;
   private Integer positionIncrementGap = null;
   private Integer offsetGap = null;
+  private Integer pooledComponents = null;
 
   public AnalyzerFactory(List<CharFilterFactory> charFilterFactories,
                          TokenizerFactory tokenizerFactory,
@@ -60,8 +62,14 @@ public final class AnalyzerFactory {
     this.offsetGap = offsetGap;
   }
 
+  public void setPooledComponents(Integer pooledComponents) {
+    this.pooledComponents = pooledComponents;
+  }
+
   public Analyzer create() {
-    return new Analyzer() {
+    final Analyzer.ReuseStrategy reuseStrategy = null == pooledComponents
+        ? Analyzer.GLOBAL_REUSE_STRATEGY : new PooledReuseStrategy(pooledComponents);
+    return new Analyzer(reuseStrategy) {
       private final Integer positionIncrementGap = AnalyzerFactory.this.positionIncrementGap;
       private final Integer offsetGap = AnalyzerFactory.this.offsetGap;
 
@@ -117,6 +125,11 @@ public final class AnalyzerFactory {
       sb.append(offsetGap);
       sb.append(", ");
     }
+    if (null != pooledComponents) {
+      sb.append("pooledComponents:");
+      sb.append(pooledComponents);
+      sb.append(", ");
+    }
     for (CharFilterFactory charFilterFactory: charFilterFactories) {
       sb.append(charFilterFactory);
       sb.append(", ");
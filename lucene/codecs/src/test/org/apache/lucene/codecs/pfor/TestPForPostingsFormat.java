@@ -0,0 +1,157 @@
+package org.apache.lucene.codecs.pfor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.PostingsWriterBase;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsWriter;
+import org.apache.lucene.codecs.lucene50.Lucene50PostingsWriter;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.BasePostingsFormatTestCase;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogMergePolicy;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.TestUtil;
+
+/**
+ * Tests PForPostingsFormat
+ */
+public class TestPForPostingsFormat extends BasePostingsFormatTestCase {
+  private final Codec codec = TestUtil.alwaysPostingsFormat(new PForPostingsFormat());
+
+  @Override
+  protected Codec getCodec() {
+    return codec;
+  }
+
+  /** Same name as {@link PForPostingsFormat}, so that segments are read back
+   *  with it, but blocks are written with plain frame of reference, that is
+   *  the first version of the Lucene50 postings. */
+  private static final class ForWriterPostingsFormat extends PostingsFormat {
+    ForWriterPostingsFormat() {
+      super("PFor");
+    }
+
+    @Override
+    public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+      PostingsWriterBase postingsWriter = new Lucene50PostingsWriter(state, false);
+      boolean success = false;
+      try {
+        FieldsConsumer ret = new BlockTreeTermsWriter(state, postingsWriter,
+                                                      BlockTreeTermsWriter.DEFAULT_MIN_BLOCK_SIZE,
+                                                      BlockTreeTermsWriter.DEFAULT_MAX_BLOCK_SIZE);
+        success = true;
+        return ret;
+      } finally {
+        if (!success) {
+          IOUtils.closeWhileHandlingException(postingsWriter);
+        }
+      }
+    }
+
+    @Override
+    public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+      return new PForPostingsFormat().fieldsProducer(state);
+    }
+  }
+
+  private static Directory index(Analyzer analyzer, PostingsFormat format, long seed) throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
+    iwc.setCodec(TestUtil.alwaysPostingsFormat(format));
+    iwc.setUseCompoundFile(false);
+    LogMergePolicy mp = newLogMergePolicy();
+    mp.setNoCFSRatio(0.0);
+    // keeps docs in order, so that both indexes have the same doc IDs
+    iwc.setMergePolicy(mp);
+    IndexWriter w = new IndexWriter(dir, iwc);
+
+    FieldType ft = new FieldType(TextField.TYPE_NOT_STORED);
+    ft.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+    Random random = new Random(seed);
+    final int numDocs = atLeast(random, 2000);
+    for (int i = 0; i < numDocs; i++) {
+      StringBuilder body = new StringBuilder();
+      final int numTokens = TestUtil.nextInt(random, 1, 20);
+      for (int j = 0; j < numTokens; j++) {
+        // skewed term frequencies, and an occasional rare term, so that
+        // blocks have outliers in their deltas, freqs and positions
+        final int term = random.nextInt(10) == 0 ? 100 + random.nextInt(1000) : random.nextInt(1 + random.nextInt(10));
+        body.append("t").append(term).append(' ');
+      }
+      Document doc = new Document();
+      doc.add(new Field("body", body.toString(), ft));
+      w.addDocument(doc);
+      if (random.nextInt(500) == 0) {
+        w.commit();
+      }
+    }
+    w.forceMerge(TestUtil.nextInt(random, 1, 3));
+    w.close();
+    return dir;
+  }
+
+  private static void assertDocVersion(Directory dir, int expectedVersion) throws IOException {
+    int numDocFiles = 0;
+    for (String file : dir.listAll()) {
+      if (file.endsWith(".doc")) {
+        try (IndexInput in = dir.openInput(file, IOContext.READONCE)) {
+          assertEquals(file, expectedVersion, CodecUtil.checkHeader(in, "Lucene50PostingsWriterDoc", 0, Integer.MAX_VALUE));
+        }
+        numDocFiles++;
+      }
+    }
+    assertTrue(numDocFiles > 0);
+  }
+
+  /** Segments whose blocks were written with plain frame of reference
+   *  must still read back the same postings. */
+  public void testReadForBlocks() throws Exception {
+    final long seed = random().nextLong();
+    final Analyzer analyzer = new MockAnalyzer(random());
+    Directory forDir = index(analyzer, new ForWriterPostingsFormat(), seed);
+    Directory pforDir = index(analyzer, new PForPostingsFormat(), seed);
+    assertDocVersion(forDir, 0);
+    assertDocVersion(pforDir, 1);
+
+    DirectoryReader forReader = DirectoryReader.open(forDir);
+    DirectoryReader pforReader = DirectoryReader.open(pforDir);
+    assertReaderEquals("For vs PFor blocks", forReader, pforReader);
+    IOUtils.close(forReader, pforReader, analyzer, forDir, pforDir);
+  }
+}
@@ -143,7 +143,7 @@ public abstract class Analyzer implements Closeable {
       reuseStrategy.setReusableComponents(this, fieldName, components);
     }
     components.setReader(r);
-    return components.getTokenStream();
+    return reuseStrategy.getTokenStream(this, fieldName, components);
   }
   
   /**
@@ -182,7 +182,7 @@ public abstract class Analyzer implements Closeable {
 
     components.setReader(r);
     components.reusableStringReader = strReader;
-    return components.getTokenStream();
+    return reuseStrategy.getTokenStream(this, fieldName, components);
   }
     
   /**
@@ -370,6 +370,22 @@ public abstract class Analyzer implements Closeable {
      */
     public abstract void setReusableComponents(Analyzer analyzer, String fieldName, TokenStreamComponents components);
 
+    /**
+     * Returns the {@link TokenStream} that {@link Analyzer#tokenStream(String, Reader)}
+     * hands out for the given components, once their reader is set. Strategies
+     * that lend components out may return a stream that takes them back when it
+     * is closed. The default implementation returns
+     * {@link TokenStreamComponents#getTokenStream()}.
+     *
+     * @param analyzer Analyzer the components were created for
+     * @param fieldName Name of the field the components are used for
+     * @param components TokenStreamComponents that are about to be consumed
+     * @return the TokenStream to hand out to the consumer
+     */
+    protected TokenStream getTokenStream(Analyzer analyzer, String fieldName, TokenStreamComponents components) {
+      return components.getTokenStream();
+    }
+
     /**
      * Returns the currently stored value.
      *
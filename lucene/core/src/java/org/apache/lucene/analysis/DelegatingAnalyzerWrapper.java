@@ -87,6 +87,16 @@ public abstract class DelegatingAnalyzerWrapper extends AnalyzerWrapper {
         fallbackStrategy.setReusableComponents(analyzer, fieldName, components);
       }
     }
+
+    @Override
+    protected TokenStream getTokenStream(Analyzer analyzer, String fieldName, TokenStreamComponents components) {
+      if (analyzer == wrapper) {
+        final Analyzer wrappedAnalyzer = wrapper.getWrappedAnalyzer(fieldName);
+        return wrappedAnalyzer.getReuseStrategy().getTokenStream(wrappedAnalyzer, fieldName, components);
+      } else {
+        return fallbackStrategy.getTokenStream(analyzer, fieldName, components);
+      }
+    }
   };
   
 }
\ No newline at end of file
@@ -0,0 +1,311 @@
+package org.apache.lucene.analysis;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.lucene.analysis.Analyzer.ReuseStrategy;
+import org.apache.lucene.analysis.Analyzer.TokenStreamComponents;
+import org.apache.lucene.store.AlreadyClosedException;
+
+/**
+ * A {@link ReuseStrategy} that lends {@link TokenStreamComponents} out of a
+ * bounded pool instead of keeping them per thread.
+ * <p>
+ * The default strategies keep components in a thread local, so that
+ * applications which analyze from many short-lived threads create new
+ * components for almost every thread, which is costly for analyzers with
+ * heavy filters. With this strategy, {@link Analyzer#tokenStream(String, String)}
+ * takes idle components from the pool, and closing the returned
+ * {@link TokenStream} puts them back, whatever the thread. Components are
+ * only created when the pool is empty, and discarded when it is full.
+ * The pool is lock-free.
+ * <p>
+ * Consumers must {@link TokenStream#close() close} the returned streams, as
+ * the {@link TokenStream} workflow requires: components whose stream is never
+ * closed are not returned to the pool.
+ * <p>
+ * The pools are kept per analyzer, and dropped after it is closed. The
+ * counts of reused, created and discarded components are summed over all
+ * analyzers that use this strategy, e.g. a wrapper and the analyzer it wraps.
+ * <pre class="prettyprint">
+ * Analyzer analyzer = new Analyzer(new PooledReuseStrategy(16)) {
+ *  {@literal @Override}
+ *   protected TokenStreamComponents createComponents(String fieldName) {
+ *     ...
+ *   }
+ * };
+ * </pre>
+ * @lucene.experimental
+ */
+public final class PooledReuseStrategy extends ReuseStrategy {
+
+  private final int maxPooledComponents;
+  private final boolean perField;
+
+  // The pools are kept per analyzer, since analyzer wrappers commonly reuse
+  // the strategy of the analyzer they wrap. Each thread caches the pools of
+  // an analyzer in its stored value, so this map is only looked up once per
+  // thread and analyzer:
+  private final Map<Analyzer,Pools> pools = new WeakHashMap<>();
+
+  private final AtomicLong reusedCount = new AtomicLong();
+  private final AtomicLong createdCount = new AtomicLong();
+  private final AtomicLong discardedCount = new AtomicLong();
+
+  /**
+   * Creates a strategy that reuses the same components for every field,
+   * like {@link Analyzer#GLOBAL_REUSE_STRATEGY}.
+   * @param maxPooledComponents maximum number of idle components to keep
+   */
+  public PooledReuseStrategy(int maxPooledComponents) {
+    this(maxPooledComponents, false);
+  }
+
+  /**
+   * Creates a strategy.
+   * @param maxPooledComponents maximum number of idle components to keep,
+   *   per field if <code>perField</code> is true
+   * @param perField whether to keep a pool per field name, like
+   *   {@link Analyzer#PER_FIELD_REUSE_STRATEGY}, or a single pool for every field
+   */
+  public PooledReuseStrategy(int maxPooledComponents, boolean perField) {
+    if (maxPooledComponents < 1) {
+      throw new IllegalArgumentException("maxPooledComponents must be at least 1, got " + maxPooledComponents);
+    }
+    this.maxPooledComponents = maxPooledComponents;
+    this.perField = perField;
+  }
+
+  private static final class Pools {
+    // pool of every field, or null if there is a pool per field
+    final AtomicReferenceArray<ReleasingTokenFilter> shared;
+    final ConcurrentMap<String,AtomicReferenceArray<ReleasingTokenFilter>> perField;
+
+    Pools(int maxPooledComponents, boolean perField) {
+      if (perField) {
+        this.shared = null;
+        this.perField = new ConcurrentHashMap<>();
+      } else {
+        this.shared = new AtomicReferenceArray<>(maxPooledComponents);
+        this.perField = null;
+      }
+    }
+  }
+
+  // The stored value of each thread
+  private static final class ThreadState {
+    final Pools pools;
+    // stream of the components that the last call to getReusableComponents
+    // took from the pool, until getTokenStream hands it out
+    ReleasingTokenFilter leased;
+
+    ThreadState(Pools pools) {
+      this.pools = pools;
+    }
+  }
+
+  private ThreadState getThreadState(Analyzer analyzer) {
+    ThreadState state = (ThreadState) getStoredValue(analyzer);
+    if (state == null) {
+      state = new ThreadState(getPools(analyzer));
+      setStoredValue(analyzer, state);
+    }
+    return state;
+  }
+
+  private Pools getPools(Analyzer analyzer) {
+    synchronized (pools) {
+      Pools analyzerPools = pools.get(analyzer);
+      if (analyzerPools == null) {
+        // drop the pools of closed analyzers, as pooled components may keep
+        // their analyzer reachable
+        for (Iterator<Analyzer> it = pools.keySet().iterator(); it.hasNext(); ) {
+          if (isClosed(it.next())) {
+            it.remove();
+          }
+        }
+        analyzerPools = new Pools(maxPooledComponents, perField);
+        pools.put(analyzer, analyzerPools);
+      }
+      return analyzerPools;
+    }
+  }
+
+  private boolean isClosed(Analyzer analyzer) {
+    try {
+      getStoredValue(analyzer);
+      return false;
+    } catch (AlreadyClosedException e) {
+      return true;
+    }
+  }
+
+  private AtomicReferenceArray<ReleasingTokenFilter> getPool(Pools pools, String fieldName) {
+    if (perField == false) {
+      return pools.shared;
+    }
+    AtomicReferenceArray<ReleasingTokenFilter> pool = pools.perField.get(fieldName);
+    if (pool == null) {
+      pool = new AtomicReferenceArray<>(maxPooledComponents);
+      final AtomicReferenceArray<ReleasingTokenFilter> existing = pools.perField.putIfAbsent(fieldName, pool);
+      if (existing != null) {
+        pool = existing;
+      }
+    }
+    return pool;
+  }
+
+  @Override
+  public TokenStreamComponents getReusableComponents(Analyzer analyzer, String fieldName) {
+    final ThreadState state = getThreadState(analyzer);
+    final AtomicReferenceArray<ReleasingTokenFilter> pool = getPool(state.pools, fieldName);
+    for (int i = 0; i < maxPooledComponents; ++i) {
+      final ReleasingTokenFilter stream = pool.get(i);
+      if (stream != null && pool.compareAndSet(i, stream, null)) {
+        stream.leased = true;
+        state.leased = stream;
+        reusedCount.incrementAndGet();
+        return stream.components;
+      }
+    }
+    state.leased = null;
+    return null;
+  }
+
+  @Override
+  public void setReusableComponents(Analyzer analyzer, String fieldName, TokenStreamComponents components) {
+    // components are only pooled once their stream is closed
+    createdCount.incrementAndGet();
+  }
+
+  @Override
+  protected TokenStream getTokenStream(Analyzer analyzer, String fieldName, TokenStreamComponents components) {
+    final ThreadState state = getThreadState(analyzer);
+    ReleasingTokenFilter stream = state.leased;
+    state.leased = null;
+    if (stream == null || stream.components != components) {
+      // new components
+      stream = new ReleasingTokenFilter(components, getPool(state.pools, fieldName));
+      stream.leased = true;
+    }
+    return stream;
+  }
+
+  private void release(AtomicReferenceArray<ReleasingTokenFilter> pool, ReleasingTokenFilter stream) {
+    for (int i = 0; i < maxPooledComponents; ++i) {
+      if (pool.get(i) == null && pool.compareAndSet(i, null, stream)) {
+        return;
+      }
+    }
+    discardedCount.incrementAndGet();
+  }
+
+  /** Returns how many times idle components were taken from the pool. */
+  public long getReusedCount() {
+    return reusedCount.get();
+  }
+
+  /** Returns how many components were created because the pool was empty. */
+  public long getCreatedCount() {
+    return createdCount.get();
+  }
+
+  /** Returns how many components were dropped because the pool was full when they were released. */
+  public long getDiscardedCount() {
+    return discardedCount.get();
+  }
+
+  /** Returns the number of idle components currently pooled for the given analyzer, over all fields. */
+  public int getPooledCount(Analyzer analyzer) {
+    final Pools analyzerPools;
+    synchronized (pools) {
+      analyzerPools = pools.get(analyzer);
+    }
+    int count = 0;
+    if (analyzerPools == null) {
+      return count;
+    } else if (perField) {
+      for (AtomicReferenceArray<ReleasingTokenFilter> pool : analyzerPools.perField.values()) {
+        count += count(pool);
+      }
+    } else {
+      count += count(analyzerPools.shared);
+    }
+    return count;
+  }
+
+  private static int count(AtomicReferenceArray<ReleasingTokenFilter> pool) {
+    int count = 0;
+    for (int i = 0; i < pool.length(); ++i) {
+      if (pool.get(i) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return "PooledReuseStrategy(maxPooledComponents=" + maxPooledComponents + ",perField=" + perField + ")";
+  }
+
+  /**
+   * Wraps the sink of pooled components, and returns them to their pool once
+   * the whole chain is closed, so that another thread cannot see them
+   * half-closed.
+   */
+  private final class ReleasingTokenFilter extends TokenFilter {
+    final TokenStreamComponents components;
+    private final AtomicReferenceArray<ReleasingTokenFilter> pool;
+    // only accessed by the thread that leased the components; the pool's
+    // volatile accesses publish it to the next one
+    boolean leased;
+
+    ReleasingTokenFilter(TokenStreamComponents components, AtomicReferenceArray<ReleasingTokenFilter> pool) {
+      super(components.getTokenStream());
+      this.components = components;
+      this.pool = pool;
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+      return input.incrementToken();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        // closing twice must not return the components twice
+        if (leased) {
+          leased = false;
+          release(pool, this);
+        }
+      }
+    }
+  }
+}
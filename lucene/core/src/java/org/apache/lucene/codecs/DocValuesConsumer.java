@@ -67,6 +67,9 @@ import org.apache.lucene.util.packed.PackedInts;
  * @lucene.experimental
  */
 public abstract class DocValuesConsumer implements Closeable {
+
+  /** Number of numeric values that are decoded at once when merging. */
+  private static final int NUMERIC_MERGE_BUFFER_SIZE = 128;
   
   /** Sole constructor. (For invocation by subclass 
    *  constructors, typically implicit.) */
@@ -263,6 +266,10 @@ public abstract class DocValuesConsumer implements Closeable {
                           Bits currentLiveDocs;
                           Bits currentDocsWithField;
                           boolean nextIsSet;
+                          // values are decoded in bulk for the docs in [bufferStart, bufferEnd)
+                          final long[] buffer = new long[NUMERIC_MERGE_BUFFER_SIZE];
+                          int bufferStart;
+                          int bufferEnd;
 
                           @Override
                           public boolean hasNext() {
@@ -299,12 +306,17 @@ public abstract class DocValuesConsumer implements Closeable {
                                   currentMaxDoc = mergeState.maxDocs[readerUpto];
                                 }
                                 docIDUpto = 0;
+                                bufferStart = bufferEnd = 0;
                                 continue;
                               }
 
                               if (currentLiveDocs == null || currentLiveDocs.get(docIDUpto)) {
+                                if (docIDUpto >= bufferEnd) {
+                                  bufferStart = docIDUpto;
+                                  bufferEnd = bufferStart + currentValues.get(bufferStart, buffer, 0, Math.min(currentMaxDoc - bufferStart, buffer.length));
+                                }
                                 nextIsSet = true;
-                                nextValue = currentValues.get(docIDUpto);
+                                nextValue = buffer[docIDUpto - bufferStart];
                                 if (nextValue == 0 && currentDocsWithField.get(docIDUpto) == false) {
                                   nextHasValue = false;
                                 } else {
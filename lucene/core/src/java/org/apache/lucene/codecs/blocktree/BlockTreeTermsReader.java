@@ -37,6 +37,7 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.PrefixQuery;  // javadocs
 import org.apache.lucene.search.TermRangeQuery;  // javadocs
 import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
 import org.apache.lucene.util.BytesRef;
@@ -137,10 +138,53 @@ public final class BlockTreeTermsReader extends FieldsProducer {
 
   final boolean anyAutoPrefixTerms;
 
-  /** Sole constructor. */
+  /** Open input to the terms index file (_X.tip), only kept
+   *  open if at least one field reads its index off-heap. */
+  private final IndexInput indexIn;
+
+  /**
+   * Controls, per field, whether the terms index FST is loaded on the
+   * heap or read in place from the terms index file.
+   *
+   * @lucene.experimental
+   */
+  public enum FSTLoadMode {
+    /** Always load the terms index on the heap. */
+    ON_HEAP,
+    /** Always read the terms index directly from the terms
+     *  index file. This should only be used with a memory-mapped
+     *  directory such as {@link MMapDirectory}, otherwise every
+     *  arc lookup goes to the file system. */
+    OFF_HEAP,
+    /** Read the terms index off-heap if the terms index file is
+     *  memory-mapped, by an {@link MMapDirectory} or through a
+     *  compound file opened from one, and the field's terms are
+     *  unique per document, such as primary keys: their terms
+     *  indexes are the largest and their lookups rarely share
+     *  prefixes. Other fields are loaded on the heap. */
+    AUTO
+  }
+
+  /** {@link FieldInfo} attribute that records the {@link FSTLoadMode}
+   *  of a field when it was written. Readers that are opened with
+   *  {@link FSTLoadMode#AUTO} load the field's terms index with it.
+   *  @lucene.experimental */
+  public static final String FST_LOAD_MODE_KEY = BlockTreeTermsReader.class.getSimpleName() + ".fstLoadMode";
+
+  /** Create a new reader that loads terms indexes with
+   *  {@link FSTLoadMode#AUTO}. */
   public BlockTreeTermsReader(PostingsReaderBase postingsReader, SegmentReadState state) throws IOException {
+    this(postingsReader, state, FSTLoadMode.AUTO);
+  }
+
+  /** Create a new reader that loads terms indexes according
+   *  to the given {@link FSTLoadMode}, or, if it is
+   *  {@link FSTLoadMode#AUTO}, to the mode recorded for the field
+   *  under {@link #FST_LOAD_MODE_KEY} if any. */
+  public BlockTreeTermsReader(PostingsReaderBase postingsReader, SegmentReadState state, FSTLoadMode fstLoadMode) throws IOException {
     boolean success = false;
     IndexInput indexIn = null;
+    boolean anyOffHeap = false;
     
     this.postingsReader = postingsReader;
     this.segment = state.segmentInfo.name;
@@ -186,6 +230,7 @@ public final class BlockTreeTermsReader extends FieldsProducer {
       // Read per-field details
       seekDir(termsIn, dirOffset);
       seekDir(indexIn, indexDirOffset);
+      final boolean mmapped = MMapDirectory.isMapped(indexIn);
 
       final int numFields = termsIn.readVInt();
       if (numFields < 0) {
@@ -228,15 +273,45 @@ public final class BlockTreeTermsReader extends FieldsProducer {
           throw new CorruptIndexException("invalid sumTotalTermFreq: " + sumTotalTermFreq + " sumDocFreq: " + sumDocFreq, termsIn);
         }
         final long indexStartFP = indexIn.readVLong();
-        FieldReader previous = fields.put(fieldInfo.name,       
-                                          new FieldReader(this, fieldInfo, numTerms, rootCode, sumTotalTermFreq, sumDocFreq, docCount,
-                                                          indexStartFP, longsSize, indexIn, minTerm, maxTerm));
+        FSTLoadMode fieldLoadMode = fstLoadMode;
+        final String recordedLoadMode = fieldInfo.getAttribute(FST_LOAD_MODE_KEY);
+        if (fstLoadMode == FSTLoadMode.AUTO && recordedLoadMode != null) {
+          try {
+            fieldLoadMode = FSTLoadMode.valueOf(recordedLoadMode);
+          } catch (IllegalArgumentException e) {
+            throw new CorruptIndexException("invalid fstLoadMode for field: " + fieldInfo.name + ", fstLoadMode=" + recordedLoadMode, termsIn, e);
+          }
+        }
+        final boolean offHeapIndex;
+        switch (fieldLoadMode) {
+          case ON_HEAP:
+            offHeapIndex = false;
+            break;
+          case OFF_HEAP:
+            offHeapIndex = true;
+            break;
+          case AUTO:
+            offHeapIndex = mmapped && numTerms == docCount && sumDocFreq == docCount;
+            break;
+          default:
+            throw new AssertionError();
+        }
+        final FieldReader fieldReader = new FieldReader(this, fieldInfo, numTerms, rootCode, sumTotalTermFreq, sumDocFreq, docCount,
+                                                        indexStartFP, longsSize, indexIn, offHeapIndex, minTerm, maxTerm);
+        anyOffHeap |= fieldReader.index != null && fieldReader.index.isOffHeap();
+        FieldReader previous = fields.put(fieldInfo.name, fieldReader);
         if (previous != null) {
           throw new CorruptIndexException("duplicate field: " + fieldInfo.name, termsIn);
         }
       }
-      
-      indexIn.close();
+
+      if (anyOffHeap) {
+        // off-heap indexes read from this input until we are closed
+        this.indexIn = indexIn;
+      } else {
+        this.indexIn = null;
+        indexIn.close();
+      }
       success = true;
     } finally {
       if (!success) {
@@ -270,7 +345,7 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   @Override
   public void close() throws IOException {
     try {
-      IOUtils.close(termsIn, postingsReader);
+      IOUtils.close(indexIn, termsIn, postingsReader);
     } finally { 
       // Clear so refs to terms index is GCable even if
       // app hangs onto us:
@@ -18,6 +18,7 @@ package org.apache.lucene.codecs.blocktree;
  */
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -50,6 +51,8 @@ public final class FieldReader extends Terms implements Accountable {
       RamUsageEstimator.shallowSizeOfInstance(FieldReader.class)
       + 3 * RamUsageEstimator.shallowSizeOfInstance(BytesRef.class);
 
+  private static final long ARC_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(FST.Arc.class);
+
   final long numTerms;
   final FieldInfo fieldInfo;
   final long sumTotalTermFreq;
@@ -65,10 +68,18 @@ public final class FieldReader extends Terms implements Accountable {
   final BlockTreeTermsReader parent;
 
   final FST<BytesRef> index;
+
+  /** Direct-addressed copies of the arcs for the first two bytes of
+   *  every term, shared by all enums: slot 0 holds the root arcs and
+   *  slot 1+label the arcs leaving that root arc, or null if it has
+   *  none. Each array is indexed by label minus the label of its first
+   *  arc. Null if the index is too small for the cache to pay off. */
+  final FST.Arc<BytesRef>[][] cachedArcs;
+  private final long cachedArcsBytesUsed;
   //private boolean DEBUG;
 
   FieldReader(BlockTreeTermsReader parent, FieldInfo fieldInfo, long numTerms, BytesRef rootCode, long sumTotalTermFreq, long sumDocFreq, int docCount,
-              long indexStartFP, int longsSize, IndexInput indexIn, BytesRef minTerm, BytesRef maxTerm) throws IOException {
+              long indexStartFP, int longsSize, IndexInput indexIn, boolean offHeapIndex, BytesRef minTerm, BytesRef maxTerm) throws IOException {
     assert numTerms > 0;
     this.fieldInfo = fieldInfo;
     //DEBUG = BlockTreeTermsReader.DEBUG && fieldInfo.name.equals("id");
@@ -92,7 +103,7 @@ public final class FieldReader extends Terms implements Accountable {
       final IndexInput clone = indexIn.clone();
       //System.out.println("start=" + indexStartFP + " field=" + fieldInfo.name);
       clone.seek(indexStartFP);
-      index = new FST<>(clone, ByteSequenceOutputs.getSingleton());
+      index = new FST<>(clone, ByteSequenceOutputs.getSingleton(), offHeapIndex);
         
       /*
         if (false) {
@@ -106,6 +117,76 @@ public final class FieldReader extends Terms implements Accountable {
     } else {
       index = null;
     }
+
+    FST.Arc<BytesRef>[][] cachedArcs = null;
+    long cachedArcsBytesUsed = 0;
+    if (index != null) {
+      cachedArcs = cacheFirstLevels(index);
+      if (cachedArcs != null) {
+        cachedArcsBytesUsed = ramBytesUsed(cachedArcs);
+        // The cache is bounded by the size of the alphabet while the index
+        // grows with the number of terms: only keep it for large fields,
+        // such as IDs, where it is small compared to the index itself
+        if (cachedArcsBytesUsed > numTerms / 8) {
+          cachedArcs = null;
+          cachedArcsBytesUsed = 0;
+        }
+      }
+    }
+    this.cachedArcs = cachedArcs;
+    this.cachedArcsBytesUsed = cachedArcsBytesUsed;
+  }
+
+  @SuppressWarnings({"rawtypes","unchecked"})
+  private static FST.Arc<BytesRef>[][] cacheFirstLevels(FST<BytesRef> index) throws IOException {
+    final FST.BytesReader in = index.getBytesReader();
+    final FST.Arc<BytesRef> root = index.getFirstArc(new FST.Arc<BytesRef>());
+    final FST.Arc<BytesRef>[] rootArcs = readTargetArcs(index, root, in);
+    if (rootArcs == null) {
+      return null;
+    }
+    final FST.Arc<BytesRef>[][] cachedArcs = new FST.Arc[257][];
+    cachedArcs[0] = rootArcs;
+    for (FST.Arc<BytesRef> rootArc : rootArcs) {
+      if (rootArc != null) {
+        cachedArcs[1+rootArc.label] = readTargetArcs(index, rootArc, in);
+      }
+    }
+    return cachedArcs;
+  }
+
+  @SuppressWarnings({"rawtypes","unchecked"})
+  private static FST.Arc<BytesRef>[] readTargetArcs(FST<BytesRef> index, FST.Arc<BytesRef> follow, FST.BytesReader in) throws IOException {
+    if (FST.targetHasArcs(follow) == false) {
+      return null;
+    }
+    final FST.Arc<BytesRef>[] arcs = new FST.Arc[256];
+    final FST.Arc<BytesRef> arc = index.readFirstRealTargetArc(follow.target, new FST.Arc<BytesRef>(), in);
+    final int minLabel = arc.label;
+    while (true) {
+      assert arc.label >= minLabel && arc.label < 256 : arc.label;
+      arcs[arc.label - minLabel] = new FST.Arc<BytesRef>().copyFrom(arc);
+      if (arc.isLast()) {
+        break;
+      }
+      index.readNextRealArc(arc, in);
+    }
+    return Arrays.copyOf(arcs, arc.label - minLabel + 1);
+  }
+
+  private static long ramBytesUsed(FST.Arc<BytesRef>[][] cachedArcs) {
+    long size = RamUsageEstimator.shallowSizeOf(cachedArcs);
+    for (FST.Arc<BytesRef>[] arcs : cachedArcs) {
+      if (arcs != null) {
+        size += RamUsageEstimator.shallowSizeOf(arcs);
+        for (FST.Arc<BytesRef> arc : arcs) {
+          if (arc != null) {
+            size += ARC_BYTES_USED;
+          }
+        }
+      }
+    }
+    return size;
   }
 
   @Override
@@ -191,7 +272,7 @@ public final class FieldReader extends Terms implements Accountable {
     
   @Override
   public long ramBytesUsed() {
-    return BASE_RAM_BYTES_USED + ((index!=null)? index.ramBytesUsed() : 0);
+    return BASE_RAM_BYTES_USED + ((index!=null)? index.ramBytesUsed() : 0) + cachedArcsBytesUsed;
   }
 
   @Override
@@ -316,6 +316,25 @@ final class SegmentTermsEnum extends TermsEnum {
   }
   */
 
+  /** Follows the arc for the byte of {@code target} at {@code targetUpto},
+   *  using the field's cached arcs for the first two bytes. */
+  private FST.Arc<BytesRef> findTargetArc(BytesRef target, int targetUpto, FST.Arc<BytesRef> follow) throws IOException {
+    final int targetLabel = target.bytes[target.offset + targetUpto] & 0xFF;
+    if (targetUpto < 2 && fr.cachedArcs != null) {
+      // follow is the root arc, or the root's arc for the first byte:
+      final FST.Arc<BytesRef>[] arcs = fr.cachedArcs[targetUpto == 0 ? 0 : 1 + (target.bytes[target.offset] & 0xFF)];
+      if (arcs == null) {
+        return null;
+      }
+      final int index = targetLabel - arcs[0].label;
+      if (index < 0 || index >= arcs.length || arcs[index] == null) {
+        return null;
+      }
+      return getArc(1+targetUpto).copyFrom(arcs[index]);
+    }
+    return fr.index.findTargetArc(targetLabel, follow, getArc(1+targetUpto), fstReader);
+  }
+
   @Override
   public boolean seekExact(BytesRef target) throws IOException {
 
@@ -480,7 +499,7 @@ final class SegmentTermsEnum extends TermsEnum {
 
       final int targetLabel = target.bytes[target.offset + targetUpto] & 0xFF;
 
-      final FST.Arc<BytesRef> nextArc = fr.index.findTargetArc(targetLabel, arc, getArc(1+targetUpto), fstReader);
+      final FST.Arc<BytesRef> nextArc = findTargetArc(target, targetUpto, arc);
 
       if (nextArc == null) {
 
@@ -737,7 +756,7 @@ final class SegmentTermsEnum extends TermsEnum {
 
       final int targetLabel = target.bytes[target.offset + targetUpto] & 0xFF;
 
-      final FST.Arc<BytesRef> nextArc = fr.index.findTargetArc(targetLabel, arc, getArc(1+targetUpto), fstReader);
+      final FST.Arc<BytesRef> nextArc = findTargetArc(target, targetUpto, arc);
 
       if (nextArc == null) {
 
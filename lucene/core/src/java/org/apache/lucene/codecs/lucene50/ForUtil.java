@@ -33,12 +33,12 @@ import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.BLOCK_SIZ
  * Encode all values in normal area with fixed bit width, 
  * which is determined by the max value in this block.
  */
-final class ForUtil {
+class ForUtil {
 
   /**
    * Special number of bits per value used whenever all values to encode are equal.
    */
-  private static final int ALL_VALUES_EQUAL = 0;
+  static final int ALL_VALUES_EQUAL = 0;
 
   /**
    * Upper limit of the number of bytes that might be required to stored
@@ -88,10 +88,10 @@ final class ForUtil {
     return (int) byteCount;
   }
 
-  private final int[] encodedSizes;
-  private final PackedInts.Encoder[] encoders;
-  private final PackedInts.Decoder[] decoders;
-  private final int[] iterations;
+  final int[] encodedSizes;
+  final PackedInts.Encoder[] encoders;
+  final PackedInts.Decoder[] decoders;
+  final int[] iterations;
 
   /**
    * Create a new {@link ForUtil} instance and save state into <code>out</code>.
@@ -220,7 +220,7 @@ final class ForUtil {
     in.seek(in.getFilePointer() + encodedSize);
   }
 
-  private static boolean isAllEqual(final int[] data) {
+  static boolean isAllEqual(final int[] data) {
     final int v = data[0];
     for (int i = 1; i < BLOCK_SIZE; ++i) {
       if (data[i] != v) {
@@ -234,7 +234,7 @@ final class ForUtil {
    * Compute the number of bits required to serialize any of the longs in
    * <code>data</code>.
    */
-  private static int bitsRequired(final int[] data) {
+  static int bitsRequired(final int[] data) {
     long or = 0;
     for (int i = 0; i < BLOCK_SIZE; ++i) {
       assert data[i] >= 0;
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -138,6 +139,11 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
       }
     }
     
+    if (optimizeStorage && isSparse(count, count - missingCount)) {
+      addSparseNumericField(field, values, 0L, count - missingCount, optimizeStorage);
+      return;
+    }
+
     final long delta = maxValue - minValue;
     final int deltaBitsRequired = DirectWriter.unsignedBitsRequired(delta);
     final int tableBitsRequired = uniqueValues == null
@@ -225,6 +231,79 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
     meta.writeLong(data.getFilePointer());
   }
   
+  /** Returns true if so few documents have a value that only recording them is worth it. */
+  private static boolean isSparse(long count, long numDocsWithValue) {
+    return count >= SPARSE_MIN_COUNT
+        && numDocsWithValue > 0
+        && numDocsWithValue < count / 100;
+  }
+
+  /**
+   * Writes the doc IDs of the documents that have a value, followed by their
+   * values as a nested numeric entry. {@code null} values are missing and
+   * read back as {@code missingValue}.
+   */
+  private void addSparseNumericField(FieldInfo field, final Iterable<Number> values, long missingValue, long numDocsWithValue, boolean optimizeStorage) throws IOException {
+    meta.writeVInt(field.number);
+    meta.writeByte(Lucene50DocValuesFormat.NUMERIC);
+    meta.writeVInt(SPARSE_COMPRESSED);
+    meta.writeLong(-1L);
+    meta.writeLong(data.getFilePointer());
+    long count = 0;
+    for (Number nv : values) {
+      ++count;
+    }
+    meta.writeVLong(count);
+    meta.writeVLong(numDocsWithValue);
+    final int bitsPerDocID = DirectWriter.unsignedBitsRequired(count - 1);
+    meta.writeVInt(bitsPerDocID);
+    meta.writeLong(missingValue);
+
+    final DirectWriter docIDsWriter = DirectWriter.getInstance(data, numDocsWithValue, bitsPerDocID);
+    long docID = 0;
+    for (Number nv : values) {
+      if (nv != null) {
+        docIDsWriter.add(docID);
+      }
+      ++docID;
+    }
+    docIDsWriter.finish();
+    meta.writeLong(data.getFilePointer());
+
+    addNumericField(field, new Iterable<Number>() {
+      @Override
+      public Iterator<Number> iterator() {
+        final Iterator<Number> it = values.iterator();
+        return new Iterator<Number>() {
+          Number next;
+
+          @Override
+          public boolean hasNext() {
+            while (next == null && it.hasNext()) {
+              next = it.next();
+            }
+            return next != null;
+          }
+
+          @Override
+          public Number next() {
+            if (hasNext() == false) {
+              throw new NoSuchElementException();
+            }
+            final Number value = next;
+            next = null;
+            return value;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    }, optimizeStorage);
+  }
+
   // TODO: in some cases representing missing with minValue-1 wouldn't take up additional space and so on,
   // but this is very simple, and algorithms only check this for values of 0 anyway (doesnt slow down normal decode)
   void writeMissingBitset(Iterable<?> values) throws IOException {
@@ -457,7 +536,47 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
     meta.writeVInt(field.number);
     meta.writeByte(Lucene50DocValuesFormat.SORTED);
     addTermsDict(field, values);
-    addNumericField(field, docToOrd, false);
+    addOrdsField(field, docToOrd);
+  }
+
+  /** writes the per-document ordinals of a sorted field, where -1 means the document has no value */
+  private void addOrdsField(FieldInfo field, final Iterable<Number> docToOrd) throws IOException {
+    long count = 0;
+    long numDocsWithValue = 0;
+    for (Number ord : docToOrd) {
+      if (ord.longValue() != -1) {
+        ++numDocsWithValue;
+      }
+      ++count;
+    }
+    if (isSparse(count, numDocsWithValue)) {
+      // map missing ords to null so that they are not recorded
+      addSparseNumericField(field, new Iterable<Number>() {
+        @Override
+        public Iterator<Number> iterator() {
+          final Iterator<Number> it = docToOrd.iterator();
+          return new Iterator<Number>() {
+            @Override
+            public boolean hasNext() {
+              return it.hasNext();
+            }
+
+            @Override
+            public Number next() {
+              final Number ord = it.next();
+              return ord.longValue() == -1 ? null : ord;
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      }, -1L, numDocsWithValue, false);
+    } else {
+      addNumericField(field, docToOrd, false);
+    }
   }
 
   @Override
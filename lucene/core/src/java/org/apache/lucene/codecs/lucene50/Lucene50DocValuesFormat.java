@@ -51,6 +51,8 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *        as blocks of bitpacked integers, encoding the deviation from the expected delta.
  *    <li>Const-compressed: when there is only one possible non-missing value, only the missing
  *        bitset is encoded.
+ *    <li>Sparse-compressed: when less than 1% of documents have a value, only the documents that
+ *        have a value are recorded, and their values are written as a nested numeric entry.
  * </ul>
  * <p>
  * {@link DocValuesType#BINARY BINARY}:
@@ -68,6 +70,8 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  * <ul>
  *    <li>Sorted: a mapping of ordinals to deduplicated terms is written as Binary, 
  *        along with the per-document ordinals written using one of the numeric strategies above.
+ *        Documents without a value have an ordinal of -1, which is the missing value when the
+ *        ordinals are sparse-compressed.
  * </ul>
  * <p>
  * {@link DocValuesType#SORTED_SET SORTED_SET}:
@@ -104,11 +108,12 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *   <p>DocValues metadata (.dvm) --&gt; Header,&lt;Entry&gt;<sup>NumFields</sup>,Footer</p>
  *   <ul>
  *     <li>Entry --&gt; NumericEntry | BinaryEntry | SortedEntry | SortedSetEntry | SortedNumericEntry</li>
- *     <li>NumericEntry --&gt; GCDNumericEntry | TableNumericEntry | DeltaNumericEntry</li>
+ *     <li>NumericEntry --&gt; GCDNumericEntry | TableNumericEntry | DeltaNumericEntry | SparseNumericEntry</li>
  *     <li>GCDNumericEntry --&gt; NumericHeader,MinValue,GCD,BitsPerValue</li>
  *     <li>TableNumericEntry --&gt; NumericHeader,TableSize,{@link DataOutput#writeLong Int64}<sup>TableSize</sup>,BitsPerValue</li>
  *     <li>DeltaNumericEntry --&gt; NumericHeader,MinValue,BitsPerValue</li>
  *     <li>MonotonicNumericEntry --&gt; NumericHeader,PackedVersion,BlockSize</li>
+ *     <li>SparseNumericEntry --&gt; NumericHeader,NumDocsWithValue,BitsPerDocID,MissingValue,NumericEntry</li>
  *     <li>NumericHeader --&gt; FieldNumber,EntryType,NumericType,MissingOffset,DataOffset,Count,EndOffset</li>
  *     <li>BinaryEntry --&gt; FixedBinaryEntry | VariableBinaryEntry | PrefixBinaryEntry</li>
  *     <li>FixedBinaryEntry --&gt; BinaryHeader</li>
@@ -128,7 +133,9 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *     <li>FieldNumber,PackedVersion,MinLength,MaxLength,BlockSize,ValueCount --&gt; {@link DataOutput#writeVInt VInt}</li>
  *     <li>EntryType,CompressionType --&gt; {@link DataOutput#writeByte Byte}</li>
  *     <li>Header --&gt; {@link CodecUtil#writeIndexHeader IndexHeader}</li>
- *     <li>MinValue,GCD,MissingOffset,AddressOffset,DataOffset,EndOffset --&gt; {@link DataOutput#writeLong Int64}</li>
+ *     <li>MinValue,GCD,MissingOffset,MissingValue,AddressOffset,DataOffset,EndOffset --&gt; {@link DataOutput#writeLong Int64}</li>
+ *     <li>NumDocsWithValue --&gt; {@link DataOutput#writeVLong VLong}</li>
+ *     <li>BitsPerDocID --&gt; {@link DataOutput#writeVInt vInt}</li>
  *     <li>TableSize,BitsPerValue,TotalTableLength --&gt; {@link DataOutput#writeVInt vInt}</li>
  *     <li>Footer --&gt; {@link CodecUtil#writeFooter CodecFooter}</li>
  *   </ul>
@@ -148,6 +155,9 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *             a lookup table of unique values is written, followed by the ordinal for each document.
  *         <li>3 --&gt; monotonic-compressed. Used to implement addressing for BINARY, SORTED_SET, SORTED_NUMERIC.
  *         <li>4 --&gt; const-compressed. Used when all non-missing values are the same.
+ *         <li>5 --&gt; sparse-compressed. Used when less than 1% of documents have a value. The doc IDs
+ *             of these documents are written with bitpacking, followed by a nested NumericEntry for their
+ *             values. Other documents get MissingValue: 0 for numerics and -1 for ordinals.
  *      </ul>
  *   <p>BinaryType indicates how Binary values will be stored:
  *      <ul>
@@ -169,16 +179,19 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *      Otherwise, the binary values are of variable size, and packed integer metadata (PackedVersion,BlockSize)
  *      is written for the addresses.
  *   <p>MissingOffset points to a byte[] containing a bitset of all documents that had a value for the field.
- *      If it's -1, then there are no missing values. If it's -2, all values are missing.
+ *      If it's -1, then there are no missing values. If it's -2, all values are missing. It is not used
+ *      by sparse-compressed entries.
  *   <li><a name="dvd"></a>
  *   <p>The DocValues data or .dvd file.</p>
  *   <p>For DocValues field, this stores the actual per-document data (the heavy-lifting)</p>
  *   <p>DocValues data (.dvd) --&gt; Header,&lt;NumericData | BinaryData | SortedData&gt;<sup>NumFields</sup>,Footer</p>
  *   <ul>
- *     <li>NumericData --&gt; DeltaCompressedNumerics | TableCompressedNumerics | GCDCompressedNumerics</li>
+ *     <li>NumericData --&gt; DeltaCompressedNumerics | TableCompressedNumerics | GCDCompressedNumerics | SparseCompressedNumerics</li>
  *     <li>BinaryData --&gt;  {@link DataOutput#writeByte Byte}<sup>DataLength</sup>,Addresses</li>
  *     <li>SortedData --&gt; {@link FST FST&lt;Int64&gt;}</li>
  *     <li>DeltaCompressedNumerics,TableCompressedNumerics,GCDCompressedNumerics --&gt; {@link DirectWriter PackedInts}</li>
+ *     <li>SparseCompressedNumerics --&gt; DocIDs,NumericData</li>
+ *     <li>DocIDs --&gt; {@link DirectWriter PackedInts}</li>
  *     <li>Addresses --&gt; {@link MonotonicBlockPackedWriter MonotonicBlockPackedInts(blockSize=16k)}</li>
  *     <li>Footer --&gt; {@link CodecUtil#writeFooter CodecFooter}</li>
  *   </ul>
@@ -208,7 +221,8 @@ public final class Lucene50DocValuesFormat extends DocValuesFormat {
   static final String META_EXTENSION = "dvm";
   static final int VERSION_START = 0;
   static final int VERSION_SORTEDSET_TABLE = 1;
-  static final int VERSION_CURRENT = VERSION_SORTEDSET_TABLE;
+  static final int VERSION_SPARSE_COMPRESSED = 2;
+  static final int VERSION_CURRENT = VERSION_SPARSE_COMPRESSED;
   
   // indicates docvalues type
   static final byte NUMERIC = 0;
@@ -242,6 +256,8 @@ public final class Lucene50DocValuesFormat extends DocValuesFormat {
   static final int MONOTONIC_COMPRESSED = 3;
   /** Compressed with constant value (uses only missing bitset) */
   static final int CONST_COMPRESSED = 4;
+  /** Compressed by only recording the documents that have a value, used when values are very sparse */
+  static final int SPARSE_COMPRESSED = 5;
   
   /** Uncompressed binary, written directly (fixed length). */
   static final int BINARY_FIXED_UNCOMPRESSED = 0;
@@ -264,6 +280,9 @@ public final class Lucene50DocValuesFormat extends DocValuesFormat {
   static final int ALL_LIVE = -1;
   /** placeholder for missing offset that means all values are missing */
   static final int ALL_MISSING = -2;
+
+  /** minimum number of documents for sparse compression, so that small (eg. NRT) segments don't flip formats */
+  static final int SPARSE_MIN_COUNT = 1024;
   
   // addressing uses 16k blocks
   static final int MONOTONIC_BLOCK_SIZE = 16384;
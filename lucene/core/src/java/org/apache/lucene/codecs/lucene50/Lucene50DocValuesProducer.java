@@ -43,6 +43,7 @@ import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.ChecksumIndexInput;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.RandomAccessInput;
@@ -54,6 +55,7 @@ import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.PagedBytes;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.SparseBits;
 import org.apache.lucene.util.packed.DirectReader;
 import org.apache.lucene.util.packed.MonotonicBlockPackedReader;
 
@@ -171,7 +173,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
       throw new CorruptIndexException("sorted entry for field: " + info.name + " is corrupt", meta);
     }
-    NumericEntry n = readNumericEntry(meta);
+    NumericEntry n = readNumericEntry(info, meta);
     ords.put(info.name, n);
   }
 
@@ -192,7 +194,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
       throw new CorruptIndexException("sortedset entry for field: " + info.name + " is corrupt", meta);
     }
-    NumericEntry n1 = readNumericEntry(meta);
+    NumericEntry n1 = readNumericEntry(info, meta);
     ords.put(info.name, n1);
 
     if (meta.readVInt() != info.number) {
@@ -201,7 +203,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
       throw new CorruptIndexException("sortedset entry for field: " + info.name + " is corrupt", meta);
     }
-    NumericEntry n2 = readNumericEntry(meta);
+    NumericEntry n2 = readNumericEntry(info, meta);
     ordIndexes.put(info.name, n2);
   }
 
@@ -223,7 +225,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
       throw new CorruptIndexException("sortedset entry for field: " + info.name + " is corrupt", meta);
     }
-    NumericEntry n = readNumericEntry(meta);
+    NumericEntry n = readNumericEntry(info, meta);
     ords.put(info.name, n);
   }
 
@@ -239,7 +241,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
       }
       byte type = meta.readByte();
       if (type == Lucene50DocValuesFormat.NUMERIC) {
-        numerics.put(info.name, readNumericEntry(meta));
+        numerics.put(info.name, readNumericEntry(info, meta));
       } else if (type == Lucene50DocValuesFormat.BINARY) {
         BinaryEntry b = readBinaryEntry(meta);
         binaries.put(info.name, b);
@@ -273,14 +275,14 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
             throw new CorruptIndexException("sortednumeric entry for field: " + info.name + " is corrupt", meta);
           }
-          numerics.put(info.name, readNumericEntry(meta));
+          numerics.put(info.name, readNumericEntry(info, meta));
           if (meta.readVInt() != fieldNumber) {
             throw new CorruptIndexException("sortednumeric entry for field: " + info.name + " is corrupt", meta);
           }
           if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
             throw new CorruptIndexException("sortednumeric entry for field: " + info.name + " is corrupt", meta);
           }
-          NumericEntry ordIndex = readNumericEntry(meta);
+          NumericEntry ordIndex = readNumericEntry(info, meta);
           ordIndexes.put(info.name, ordIndex);
         } else if (ss.format == SORTED_SET_TABLE) {
           if (meta.readVInt() != info.number) {
@@ -289,7 +291,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
             throw new CorruptIndexException("sortednumeric entry for field: " + info.name + " is corrupt", meta);
           }
-          NumericEntry n = readNumericEntry(meta);
+          NumericEntry n = readNumericEntry(info, meta);
           ords.put(info.name, n);
         } else if (ss.format == SORTED_SINGLE_VALUED) {
           if (meta.readVInt() != fieldNumber) {
@@ -298,7 +300,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
             throw new CorruptIndexException("sortednumeric entry for field: " + info.name + " is corrupt", meta);
           }
-          numerics.put(info.name, readNumericEntry(meta));
+          numerics.put(info.name, readNumericEntry(info, meta));
         } else {
           throw new AssertionError();
         }
@@ -310,7 +312,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     return numFields;
   }
   
-  private NumericEntry readNumericEntry(IndexInput meta) throws IOException {
+  private NumericEntry readNumericEntry(FieldInfo info, IndexInput meta) throws IOException {
     NumericEntry entry = new NumericEntry();
     entry.format = meta.readVInt();
     entry.missingOffset = meta.readLong();
@@ -349,10 +351,32 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
         entry.packedIntsVersion = meta.readVInt();
         entry.blockSize = meta.readVInt();
         break;
+      case SPARSE_COMPRESSED:
+        entry.numDocsWithValue = meta.readVLong();
+        if (entry.count > Integer.MAX_VALUE || entry.numDocsWithValue > entry.count) {
+          throw new CorruptIndexException("illegal SPARSE_COMPRESSED count: " + entry.count + ", numDocsWithValue: " + entry.numDocsWithValue, meta);
+        }
+        entry.bitsPerValue = meta.readVInt();
+        entry.missingValue = meta.readLong();
+        break;
       default:
         throw new CorruptIndexException("Unknown format: " + entry.format + ", input=", meta);
     }
     entry.endOffset = meta.readLong();
+    if (entry.format == SPARSE_COMPRESSED) {
+      // the values of documents that have one are written as a nested numeric entry
+      if (meta.readVInt() != info.number) {
+        throw new CorruptIndexException("sparse entry for field: " + info.name + " is corrupt", meta);
+      }
+      if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
+        throw new CorruptIndexException("sparse entry for field: " + info.name + " is corrupt", meta);
+      }
+      entry.nonMissingValues = readNumericEntry(info, meta);
+      if (entry.nonMissingValues.count != entry.numDocsWithValue) {
+        throw new CorruptIndexException("sparse entry for field: " + info.name + " has " + entry.numDocsWithValue
+            + " documents with a value but " + entry.nonMissingValues.count + " values", meta);
+      }
+    }
     return entry;
   }
   
@@ -463,6 +487,15 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           public long get(long id) {
             return delta + values.get(id);
           }
+
+          @Override
+          public int get(long id, long[] arr, int off, int len) {
+            final int read = values.get(id, arr, off, len);
+            for (int i = off, end = off + read; i < end; ++i) {
+              arr[i] += delta;
+            }
+            return read;
+          }
         };
       }
       case GCD_COMPRESSED: {
@@ -475,6 +508,15 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           public long get(long id) {
             return min + mult * quotientReader.get(id);
           }
+
+          @Override
+          public int get(long id, long[] arr, int off, int len) {
+            final int read = quotientReader.get(id, arr, off, len);
+            for (int i = off, end = off + read; i < end; ++i) {
+              arr[i] = min + mult * arr[i];
+            }
+            return read;
+          }
         };
       }
       case TABLE_COMPRESSED: {
@@ -486,6 +528,27 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           public long get(long id) {
             return table[(int) ords.get(id)];
           }
+
+          @Override
+          public int get(long id, long[] arr, int off, int len) {
+            final int read = ords.get(id, arr, off, len);
+            for (int i = off, end = off + read; i < end; ++i) {
+              arr[i] = table[(int) arr[i]];
+            }
+            return read;
+          }
+        };
+      }
+      case SPARSE_COMPRESSED: {
+        final SparseDocsWithField docsWithField = getSparseDocsWithField(entry);
+        final LongValues values = getNumeric(entry.nonMissingValues);
+        final long missingValue = entry.missingValue;
+        return new LongValues() {
+          @Override
+          public long get(long id) {
+            final long index = docsWithField.indexOf((int) id);
+            return index == -1 ? missingValue : values.get(index);
+          }
         };
       }
       default:
@@ -674,7 +737,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     if (ss.format == SORTED_SINGLE_VALUED) {
       NumericEntry numericEntry = numerics.get(field.name);
       final LongValues values = getNumeric(numericEntry);
-      final Bits docsWithField = getLiveBits(numericEntry.missingOffset, maxDoc);
+      final Bits docsWithField = getDocsWithField(numericEntry, maxDoc);
       return DocValues.singleton(values, docsWithField);
     } else if (ss.format == SORTED_WITH_ADDRESSES) {
       NumericEntry numericEntry = numerics.get(field.name);
@@ -914,21 +977,45 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     }
   }
 
+  private Bits getDocsWithField(NumericEntry entry, int count) throws IOException {
+    if (entry.format == SPARSE_COMPRESSED) {
+      return getSparseDocsWithField(entry);
+    } else {
+      return getLiveBits(entry.missingOffset, count);
+    }
+  }
+
+  private SparseDocsWithField getSparseDocsWithField(NumericEntry entry) throws IOException {
+    final RandomAccessInput slice = data.randomAccessSlice(entry.offset, entry.endOffset - entry.offset);
+    final LongValues docIDs = DirectReader.getInstance(slice, entry.bitsPerValue);
+    return new SparseDocsWithField(docIDs, entry.numDocsWithValue, (int) entry.count);
+  }
+
   @Override
   public Bits getDocsWithField(FieldInfo field) throws IOException {
     switch(field.getDocValuesType()) {
       case SORTED_SET:
+        if (sortedSets.get(field.name).format == SORTED_SINGLE_VALUED
+            && ords.get(field.name).format == SPARSE_COMPRESSED) {
+          return getSparseDocsWithField(ords.get(field.name));
+        }
         return DocValues.docsWithValue(getSortedSet(field), maxDoc);
       case SORTED_NUMERIC:
+        if (sortedNumerics.get(field.name).format == SORTED_SINGLE_VALUED) {
+          return getDocsWithField(numerics.get(field.name), maxDoc);
+        }
         return DocValues.docsWithValue(getSortedNumeric(field), maxDoc);
       case SORTED:
+        if (ords.get(field.name).format == SPARSE_COMPRESSED) {
+          return getSparseDocsWithField(ords.get(field.name));
+        }
         return DocValues.docsWithValue(getSorted(field), maxDoc);
       case BINARY:
         BinaryEntry be = binaries.get(field.name);
         return getLiveBits(be.missingOffset, maxDoc);
       case NUMERIC:
         NumericEntry ne = numerics.get(field.name);
-        return getLiveBits(ne.missingOffset, maxDoc);
+        return getDocsWithField(ne, maxDoc);
       default:
         throw new AssertionError();
     }
@@ -967,6 +1054,122 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     long minValue;
     long gcd;
     long table[];
+
+    /** number of documents that have a value, for sparse-compressed entries */
+    long numDocsWithValue;
+    /** value of documents that don't have one, for sparse-compressed entries */
+    long missingValue;
+    /** values of the documents that have one, for sparse-compressed entries */
+    NumericEntry nonMissingValues;
+  }
+
+  /**
+   * Documents that have a value in a sparse-compressed entry, backed by their
+   * sorted doc IDs. Lookups remember their position, so that accessing
+   * documents in increasing order only needs to look at a few doc IDs.
+   */
+  static final class SparseDocsWithField implements SparseBits {
+    final LongValues docIDs;
+    final long numDocsWithValue;
+    final int maxDoc;
+
+    // all doc IDs before this index are less than lastTarget
+    long index;
+    int lastTarget = -1;
+
+    SparseDocsWithField(LongValues docIDs, long numDocsWithValue, int maxDoc) {
+      this.docIDs = docIDs;
+      this.numDocsWithValue = numDocsWithValue;
+      this.maxDoc = maxDoc;
+    }
+
+    /** Returns the index of the value of {@code doc}, or -1 if it has no value. */
+    long indexOf(int doc) {
+      if (doc < lastTarget) {
+        // going backwards, start over
+        index = 0;
+      }
+      lastTarget = doc;
+      index = advance(index, doc);
+      if (index < numDocsWithValue && docIDs.get(index) == doc) {
+        return index;
+      }
+      return -1;
+    }
+
+    /**
+     * Returns the first index greater than or equal to {@code from} whose doc ID
+     * is greater than or equal to {@code target}, or {@code numDocsWithValue}.
+     */
+    long advance(long from, int target) {
+      // exponential search for an upper bound...
+      long lo = from, hi = from, step = 1;
+      while (hi < numDocsWithValue && docIDs.get(hi) < target) {
+        lo = hi + 1;
+        hi += step;
+        step <<= 1;
+      }
+      hi = Math.min(hi, numDocsWithValue);
+      // ... then binary search between the last two probes
+      while (lo < hi) {
+        final long mid = (lo + hi) >>> 1;
+        if (docIDs.get(mid) < target) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+
+    @Override
+    public boolean get(int index) {
+      return indexOf(index) != -1;
+    }
+
+    @Override
+    public int length() {
+      return maxDoc;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+      return new DocIdSetIterator() {
+
+        long index = -1;
+        int doc = -1;
+
+        @Override
+        public int docID() {
+          return doc;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+          return setIndex(index + 1);
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+          return setIndex(SparseDocsWithField.this.advance(index + 1, target));
+        }
+
+        private int setIndex(long index) {
+          this.index = index;
+          if (index >= numDocsWithValue) {
+            doc = NO_MORE_DOCS;
+          } else {
+            doc = (int) docIDs.get(index);
+          }
+          return doc;
+        }
+
+        @Override
+        public long cost() {
+          return numDocsWithValue;
+        }
+      };
+    }
   }
   
   /** metadata entry for a binary docvalues field */
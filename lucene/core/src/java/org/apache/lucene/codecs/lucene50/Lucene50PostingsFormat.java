@@ -29,7 +29,11 @@ import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.PostingsReaderBase;
 import org.apache.lucene.codecs.PostingsWriterBase;
 import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader.FSTLoadMode;
 import org.apache.lucene.codecs.blocktree.BlockTreeTermsWriter;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.Fields;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.SegmentReadState;
@@ -385,10 +389,13 @@ public final class Lucene50PostingsFormat extends PostingsFormat {
 
   // Increment version to change it
   final static int VERSION_START = 0;
-  final static int VERSION_CURRENT = VERSION_START;
+  /** Blocks are encoded with patched frame of reference, see {@link Lucene50PostingsWriter#Lucene50PostingsWriter(SegmentWriteState, boolean)} */
+  final static int VERSION_PATCHED = 1;
+  final static int VERSION_CURRENT = VERSION_PATCHED;
 
   private final int minTermBlockSize;
   private final int maxTermBlockSize;
+  private final FSTLoadMode fstLoadMode;
 
   /**
    * Fixed packed block size, number of integers encoded in 
@@ -408,10 +415,28 @@ public final class Lucene50PostingsFormat extends PostingsFormat {
    *  maxBlockSize} passed to block terms dictionary.
    *  @see BlockTreeTermsWriter#BlockTreeTermsWriter(SegmentWriteState,PostingsWriterBase,int,int) */
   public Lucene50PostingsFormat(int minTermBlockSize, int maxTermBlockSize) {
+    this(minTermBlockSize, maxTermBlockSize, FSTLoadMode.AUTO);
+  }
+
+  /** Creates {@code Lucene50PostingsFormat} with custom
+   *  values for {@code minBlockSize} and {@code
+   *  maxBlockSize} passed to block terms dictionary, and
+   *  the {@link FSTLoadMode} used to open its terms index.
+   *  Unless it is {@link FSTLoadMode#AUTO}, the load mode is
+   *  recorded in the {@link FieldInfo} of every field that this
+   *  format writes, under {@link BlockTreeTermsReader#FST_LOAD_MODE_KEY},
+   *  so that segments that are opened with the instance that is
+   *  registered under the format's name honour it too.
+   *  @see BlockTreeTermsReader#BlockTreeTermsReader(PostingsReaderBase,SegmentReadState,FSTLoadMode) */
+  public Lucene50PostingsFormat(int minTermBlockSize, int maxTermBlockSize, FSTLoadMode fstLoadMode) {
     super("Lucene50");
     BlockTreeTermsWriter.validateSettings(minTermBlockSize, maxTermBlockSize);
+    if (fstLoadMode == null) {
+      throw new NullPointerException("fstLoadMode must not be null");
+    }
     this.minTermBlockSize = minTermBlockSize;
     this.maxTermBlockSize = maxTermBlockSize;
+    this.fstLoadMode = fstLoadMode;
   }
 
   @Override
@@ -429,6 +454,9 @@ public final class Lucene50PostingsFormat extends PostingsFormat {
                                                     postingsWriter,
                                                     minTermBlockSize, 
                                                     maxTermBlockSize);
+      if (fstLoadMode != FSTLoadMode.AUTO) {
+        ret = new FSTLoadModeFieldsConsumer(ret, state.fieldInfos, fstLoadMode);
+      }
       success = true;
       return ret;
     } finally {
@@ -443,7 +471,7 @@ public final class Lucene50PostingsFormat extends PostingsFormat {
     PostingsReaderBase postingsReader = new Lucene50PostingsReader(state);
     boolean success = false;
     try {
-      FieldsProducer ret = new BlockTreeTermsReader(postingsReader, state);
+      FieldsProducer ret = new BlockTreeTermsReader(postingsReader, state, fstLoadMode);
       success = true;
       return ret;
     } finally {
@@ -453,6 +481,33 @@ public final class Lucene50PostingsFormat extends PostingsFormat {
     }
   }
   
+  /** Records the {@link FSTLoadMode} in the {@link FieldInfo} of
+   *  every field that it writes. */
+  private static final class FSTLoadModeFieldsConsumer extends FieldsConsumer {
+    private final FieldsConsumer in;
+    private final FieldInfos fieldInfos;
+    private final FSTLoadMode fstLoadMode;
+
+    FSTLoadModeFieldsConsumer(FieldsConsumer in, FieldInfos fieldInfos, FSTLoadMode fstLoadMode) {
+      this.in = in;
+      this.fieldInfos = fieldInfos;
+      this.fstLoadMode = fstLoadMode;
+    }
+
+    @Override
+    public void write(Fields fields) throws IOException {
+      for (String field : fields) {
+        fieldInfos.fieldInfo(field).putAttribute(BlockTreeTermsReader.FST_LOAD_MODE_KEY, fstLoadMode.name());
+      }
+      in.write(fields);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
   final static class IntBlockTermState extends BlockTermState {
     long docStartFP = 0;
     long posStartFP = 0;
@@ -49,6 +49,7 @@ import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.PAY_CODEC
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.POS_CODEC;
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.TERMS_CODEC;
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.VERSION_CURRENT;
+import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.VERSION_PATCHED;
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.VERSION_START;
 
 /**
@@ -84,7 +85,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
     try {
       docIn = state.directory.openInput(docName, state.context);
       version = CodecUtil.checkIndexHeader(docIn, DOC_CODEC, VERSION_START, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
-      forUtil = new ForUtil(docIn);
+      forUtil = version >= VERSION_PATCHED ? new PForUtil(docIn) : new ForUtil(docIn);
       CodecUtil.retrieveChecksum(docIn);
 
       if (state.fieldInfos.hasProx()) {
@@ -402,6 +403,35 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       return doc;
     }
 
+    @Override
+    public int nextBlock(int[] docs, int[] freqs) throws IOException {
+      if (docUpto == docFreq) {
+        doc = NO_MORE_DOCS;
+        return 0;
+      }
+      if (docBufferUpto == BLOCK_SIZE) {
+        refillDocs();
+      }
+
+      // hand out what is left of the current block:
+      final int count = Math.min(docs.length, Math.min(BLOCK_SIZE - docBufferUpto, docFreq - docUpto));
+      int accum = this.accum;
+      for (int i = 0; i < count; ++i) {
+        accum += docDeltaBuffer[docBufferUpto + i];
+        docs[i] = accum;
+      }
+      if (freqs != null) {
+        System.arraycopy(freqBuffer, docBufferUpto, freqs, 0, count);
+      }
+      this.accum = accum;
+      docUpto += count;
+      docBufferUpto += count;
+
+      doc = accum;
+      freq = freqBuffer[docBufferUpto - 1];
+      return count;
+    }
+
     @Override
     public int advance(int target) throws IOException {
       // TODO: make frq block load lazy/skippable
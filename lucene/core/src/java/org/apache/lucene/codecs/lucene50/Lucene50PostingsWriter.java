@@ -25,7 +25,8 @@ import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.MAX_SKIP_
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.PAY_CODEC;
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.POS_CODEC;
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.TERMS_CODEC;
-import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.VERSION_CURRENT;
+import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.VERSION_PATCHED;
+import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.VERSION_START;
 
 import java.io.IOException;
 
@@ -94,12 +95,26 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
 
   final byte[] encoded;
 
+  private final int version;
   private final ForUtil forUtil;
   private final Lucene50SkipWriter skipWriter;
   
   /** Creates a postings writer */
   public Lucene50PostingsWriter(SegmentWriteState state) throws IOException {
+    this(state, false);
+  }
+
+  /**
+   * Expert: Creates a postings writer, which encodes blocks with patched
+   * frame of reference if {@code patched} is true. Patched blocks may store
+   * a few large values as exceptions, so that other values can use fewer bits.
+   * This makes postings lists that have outliers smaller, at a small cost
+   * when decoding blocks that have exceptions.
+   * {@link Lucene50PostingsReader} reads both encodings.
+   */
+  public Lucene50PostingsWriter(SegmentWriteState state, boolean patched) throws IOException {
     final float acceptableOverheadRatio = PackedInts.COMPACT;
+    version = patched ? VERSION_PATCHED : VERSION_START;
 
     String docFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, Lucene50PostingsFormat.DOC_EXTENSION);
     docOut = state.directory.createOutput(docFileName, state.context);
@@ -107,14 +122,14 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
     IndexOutput payOut = null;
     boolean success = false;
     try {
-      CodecUtil.writeIndexHeader(docOut, DOC_CODEC, VERSION_CURRENT, 
+      CodecUtil.writeIndexHeader(docOut, DOC_CODEC, version, 
                                    state.segmentInfo.getId(), state.segmentSuffix);
-      forUtil = new ForUtil(acceptableOverheadRatio, docOut);
+      forUtil = patched ? new PForUtil(acceptableOverheadRatio, docOut) : new ForUtil(acceptableOverheadRatio, docOut);
       if (state.fieldInfos.hasProx()) {
         posDeltaBuffer = new int[MAX_DATA_SIZE];
         String posFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, Lucene50PostingsFormat.POS_EXTENSION);
         posOut = state.directory.createOutput(posFileName, state.context);
-        CodecUtil.writeIndexHeader(posOut, POS_CODEC, VERSION_CURRENT,
+        CodecUtil.writeIndexHeader(posOut, POS_CODEC, version,
                                      state.segmentInfo.getId(), state.segmentSuffix);
 
         if (state.fieldInfos.hasPayloads()) {
@@ -136,7 +151,7 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
         if (state.fieldInfos.hasPayloads() || state.fieldInfos.hasOffsets()) {
           String payFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, Lucene50PostingsFormat.PAY_EXTENSION);
           payOut = state.directory.createOutput(payFileName, state.context);
-          CodecUtil.writeIndexHeader(payOut, PAY_CODEC, VERSION_CURRENT,
+          CodecUtil.writeIndexHeader(payOut, PAY_CODEC, version,
                                        state.segmentInfo.getId(), state.segmentSuffix);
         }
       } else {
@@ -176,7 +191,7 @@ public final class Lucene50PostingsWriter extends PushPostingsWriterBase {
 
   @Override
   public void init(IndexOutput termsOut, SegmentWriteState state) throws IOException {
-    CodecUtil.writeIndexHeader(termsOut, TERMS_CODEC, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+    CodecUtil.writeIndexHeader(termsOut, TERMS_CODEC, version, state.segmentInfo.getId(), state.segmentSuffix);
     termsOut.writeVInt(BLOCK_SIZE);
   }
 
@@ -0,0 +1,196 @@
+package org.apache.lucene.codecs.lucene50;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.packed.PackedInts;
+
+import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.BLOCK_SIZE;
+
+/**
+ * Patched frame of reference: like {@link ForUtil}, but up to
+ * {@link #MAX_EXCEPTIONS} large values of a block may be encoded as
+ * exceptions, so that the rest of the block can use fewer bits per value.
+ * <p>
+ * The first byte of a block stores the number of bits per value in its 5
+ * lowest bits and the number of exceptions in its 3 highest bits. Packed
+ * values are followed by an (index, high bits) pair of bytes per exception,
+ * which is applied on top of the decoded values.
+ */
+final class PForUtil extends ForUtil {
+
+  /** Maximum number of exceptions per block. */
+  static final int MAX_EXCEPTIONS = 7;
+
+  /** High bits of an exception are stored in a single byte. */
+  private static final int MAX_PATCHED_BITS = 8;
+
+  private final int[] patched;
+  private final int[] bitsCounts;
+
+  /**
+   * Create a new {@link PForUtil} instance and save state into <code>out</code>.
+   */
+  PForUtil(float acceptableOverheadRatio, DataOutput out) throws IOException {
+    super(acceptableOverheadRatio, out);
+    patched = new int[MAX_DATA_SIZE];
+    bitsCounts = new int[33];
+  }
+
+  /**
+   * Restore a {@link PForUtil} from a {@link DataInput}.
+   */
+  PForUtil(DataInput in) throws IOException {
+    super(in);
+    patched = null;
+    bitsCounts = null;
+  }
+
+  /**
+   * Write a block of data (<code>PFor</code> format).
+   *
+   * @param data     the data to write
+   * @param encoded  a buffer to use to encode data
+   * @param out      the destination output
+   * @throws IOException If there is a low-level I/O error
+   */
+  @Override
+  void writeBlock(int[] data, byte[] encoded, IndexOutput out) throws IOException {
+    if (isAllEqual(data)) {
+      out.writeByte((byte) ALL_VALUES_EQUAL);
+      out.writeVInt(data[0]);
+      return;
+    }
+
+    // number of values that require exactly i bits
+    Arrays.fill(bitsCounts, 0);
+    for (int i = 0; i < BLOCK_SIZE; ++i) {
+      assert data[i] >= 0;
+      bitsCounts[PackedInts.bitsRequired(data[i])]++;
+    }
+    final int maxBits = bitsRequired(data);
+    assert maxBits > 0 && maxBits < 32 : maxBits;
+
+    // pick the number of bits that minimizes the size of the block
+    int numBits = maxBits;
+    int numExceptions = 0;
+    int bestSize = encodedSizes[maxBits];
+    int exceptions = 0;
+    for (int bits = maxBits - 1; bits >= Math.max(1, maxBits - MAX_PATCHED_BITS); --bits) {
+      exceptions += bitsCounts[bits + 1];
+      if (exceptions > MAX_EXCEPTIONS) {
+        break;
+      }
+      final int size = encodedSizes[bits] + 2 * exceptions;
+      if (size < bestSize) {
+        bestSize = size;
+        numBits = bits;
+        numExceptions = exceptions;
+      }
+    }
+
+    int[] values = data;
+    if (numExceptions > 0) {
+      final int mask = (1 << numBits) - 1;
+      for (int i = 0; i < BLOCK_SIZE; ++i) {
+        patched[i] = data[i] & mask;
+      }
+      values = patched;
+    }
+
+    final PackedInts.Encoder encoder = encoders[numBits];
+    final int iters = iterations[numBits];
+    assert iters * encoder.byteValueCount() >= BLOCK_SIZE;
+    final int encodedSize = encodedSizes[numBits];
+    assert iters * encoder.byteBlockCount() >= encodedSize;
+
+    out.writeByte((byte) (numExceptions << 5 | numBits));
+
+    encoder.encode(values, 0, encoded, 0, iters);
+    out.writeBytes(encoded, encodedSize);
+
+    if (numExceptions > 0) {
+      for (int i = 0; i < BLOCK_SIZE; ++i) {
+        if (data[i] != patched[i]) {
+          out.writeByte((byte) i);
+          out.writeByte((byte) (data[i] >>> numBits));
+        }
+      }
+    }
+  }
+
+  /**
+   * Read the next block of data (<code>PFor</code> format).
+   *
+   * @param in        the input to use to read data
+   * @param encoded   a buffer that can be used to store encoded data
+   * @param decoded   where to write decoded data
+   * @throws IOException If there is a low-level I/O error
+   */
+  @Override
+  void readBlock(IndexInput in, byte[] encoded, int[] decoded) throws IOException {
+    final int token = in.readByte() & 0xFF;
+    final int numBits = token & 0x1F;
+    final int numExceptions = token >>> 5;
+
+    if (numBits == ALL_VALUES_EQUAL) {
+      final int value = in.readVInt();
+      Arrays.fill(decoded, 0, BLOCK_SIZE, value);
+      return;
+    }
+
+    final int encodedSize = encodedSizes[numBits];
+    in.readBytes(encoded, 0, encodedSize);
+
+    final PackedInts.Decoder decoder = decoders[numBits];
+    final int iters = iterations[numBits];
+    assert iters * decoder.byteValueCount() >= BLOCK_SIZE;
+
+    decoder.decode(encoded, 0, decoded, 0, iters);
+
+    for (int i = 0; i < numExceptions; ++i) {
+      final int index = in.readByte() & 0xFF;
+      decoded[index] |= (in.readByte() & 0xFF) << numBits;
+    }
+  }
+
+  /**
+   * Skip the next block of data.
+   *
+   * @param in      the input where to read data
+   * @throws IOException If there is a low-level I/O error
+   */
+  @Override
+  void skipBlock(IndexInput in) throws IOException {
+    final int token = in.readByte() & 0xFF;
+    final int numBits = token & 0x1F;
+    if (numBits == ALL_VALUES_EQUAL) {
+      in.readVInt();
+      return;
+    }
+    final int numExceptions = token >>> 5;
+    final int encodedSize = encodedSizes[numBits];
+    in.seek(in.getFilePointer() + encodedSize + 2 * numExceptions);
+  }
+
+}
@@ -0,0 +1,251 @@
+package org.apache.lucene.codecs.lucene53;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.RandomAccessInput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.StringHelper;
+
+/**
+ * A bloom filter over the terms of one field of a segment.
+ * <p>
+ * Every term sets <code>numHashes</code> bits that are derived from two
+ * murmur3 hashes of the term (double hashing). The number of bits is a
+ * power of two so that a filter can be folded in half, by OR-ing its upper
+ * half into its lower half, without re-hashing the terms: this is how
+ * filters that were sized for an upper bound of the number of terms get
+ * downsized once all terms have been added.
+ * <p>
+ * The bits are either held on the heap or read from a
+ * {@link RandomAccessInput}.
+ */
+final class BloomFilter implements Accountable {
+
+  private static final int SEED1 = 0x9747b28c;
+  private static final int SEED2 = 0x5bd1e995;
+
+  /** Smallest filter: a single long. */
+  static final int MIN_BITS_LOG2 = 6;
+  /** Largest filter: 2^31 bits, ie. 256MB. */
+  static final int MAX_BITS_LOG2 = 31;
+
+  /** The fraction of bits that are set when the number of hashes is optimal. */
+  private static final double OPTIMAL_SATURATION = 0.5;
+
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BloomFilter.class);
+
+  private final int numHashes;
+  private final int bitsLog2;
+  private final long mask;
+  private final long[] bits;
+  /** The bits if they are read off-heap, as a slice of the filters file. */
+  private final IndexInput offHeapIn;
+  private final RandomAccessInput offHeapBits;
+
+  private BloomFilter(int numHashes, int bitsLog2, long[] bits) {
+    this(numHashes, bitsLog2, bits, null, null);
+  }
+
+  private BloomFilter(int numHashes, int bitsLog2, long[] bits, IndexInput offHeapIn, RandomAccessInput offHeapBits) {
+    assert numHashes > 0 : numHashes;
+    assert bitsLog2 >= MIN_BITS_LOG2 && bitsLog2 <= MAX_BITS_LOG2 : bitsLog2;
+    this.numHashes = numHashes;
+    this.bitsLog2 = bitsLog2;
+    this.mask = (1L << bitsLog2) - 1;
+    this.bits = bits;
+    this.offHeapIn = offHeapIn;
+    this.offHeapBits = offHeapBits;
+  }
+
+  /** Create an empty filter for (at most) <code>maxNumTerms</code> terms
+   *  using about <code>bitsPerTerm</code> bits per term, but never more than
+   *  <code>maxBytes</code> bytes. */
+  static BloomFilter create(long maxNumTerms, int bitsPerTerm, long maxBytes) {
+    final double wantedBits = Math.max(1, maxNumTerms) * (double) bitsPerTerm;
+    int bitsLog2 = MIN_BITS_LOG2;
+    while (bitsLog2 < MAX_BITS_LOG2 && (1L << bitsLog2) < wantedBits && (1L << (bitsLog2 + 1)) / 8 <= maxBytes) {
+      bitsLog2++;
+    }
+    // optimal number of hashes for the wanted number of bits per term
+    final int numHashes = Math.max(1, Math.min(16, (int) Math.round(bitsPerTerm * Math.log(2))));
+    return new BloomFilter(numHashes, bitsLog2, new long[1 << (bitsLog2 - 6)]);
+  }
+
+  /** Record a term. */
+  void add(BytesRef term) {
+    assert bits != null;
+    final long hash1 = StringHelper.murmurhash3_x86_32(term, SEED1) & 0xFFFFFFFFL;
+    final long hash2 = StringHelper.murmurhash3_x86_32(term, SEED2) & 0xFFFFFFFFL;
+    for (int i = 0; i < numHashes; i++) {
+      final long bit = (hash1 + i * hash2) & mask;
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  /** Return false if the term is definitely not in the set, and true if it
+   *  may be in the set. */
+  boolean mayContain(BytesRef term) throws IOException {
+    final long hash1 = StringHelper.murmurhash3_x86_32(term, SEED1) & 0xFFFFFFFFL;
+    final long hash2 = StringHelper.murmurhash3_x86_32(term, SEED2) & 0xFFFFFFFFL;
+    for (int i = 0; i < numHashes; i++) {
+      final long bit = (hash1 + i * hash2) & mask;
+      final long word;
+      if (bits != null) {
+        word = bits[(int) (bit >>> 6)];
+      } else {
+        word = offHeapBits.readLong((bit >>> 6) << 3);
+      }
+      if ((word & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Return the fraction of bits that are set. */
+  double saturation() {
+    assert bits != null;
+    long numBitsSet = 0;
+    for (long word : bits) {
+      numBitsSet += Long.bitCount(word);
+    }
+    return (double) numBitsSet / (1L << bitsLog2);
+  }
+
+  /** Return the expected rate of false positives. */
+  double falsePositiveRate() {
+    return Math.pow(saturation(), numHashes);
+  }
+
+  /** Fold this filter into the smallest filter whose saturation does not
+   *  exceed the optimal saturation, which is when lookups are most
+   *  selective for the number of bits that they use. Returns this filter
+   *  if it can't be made smaller. */
+  BloomFilter downsize() {
+    assert bits != null;
+    long[] bits = this.bits;
+    int bitsLog2 = this.bitsLog2;
+    while (bitsLog2 > MIN_BITS_LOG2) {
+      final long[] folded = new long[bits.length >>> 1];
+      long numBitsSet = 0;
+      for (int i = 0; i < folded.length; i++) {
+        folded[i] = bits[i] | bits[i + folded.length];
+        numBitsSet += Long.bitCount(folded[i]);
+      }
+      if (numBitsSet > OPTIMAL_SATURATION * (1L << (bitsLog2 - 1))) {
+        break;
+      }
+      bits = folded;
+      bitsLog2--;
+    }
+    if (bitsLog2 == this.bitsLog2) {
+      return this;
+    }
+    return new BloomFilter(numHashes, bitsLog2, bits);
+  }
+
+  /** Return the number of bytes of the bits of this filter. */
+  long sizeInBytes() {
+    return (1L << bitsLog2) >>> 3;
+  }
+
+  /** Write the number of hashes, the number of bits and the bits. */
+  void write(DataOutput out) throws IOException {
+    assert bits != null;
+    out.writeByte((byte) numHashes);
+    out.writeByte((byte) bitsLog2);
+    for (long word : bits) {
+      out.writeLong(word);
+    }
+  }
+
+  private static int readNumHashes(DataInput in) throws IOException {
+    final int numHashes = in.readByte();
+    if (numHashes < 1 || numHashes > 16) {
+      throw new CorruptIndexException("invalid number of hashes: " + numHashes, in);
+    }
+    return numHashes;
+  }
+
+  private static int readBitsLog2(DataInput in) throws IOException {
+    final int bitsLog2 = in.readByte();
+    if (bitsLog2 < MIN_BITS_LOG2 || bitsLog2 > MAX_BITS_LOG2) {
+      throw new CorruptIndexException("invalid number of bits: 2^" + bitsLog2, in);
+    }
+    return bitsLog2;
+  }
+
+  /** Read a filter that has been written with {@link #write} into heap memory. */
+  static BloomFilter read(DataInput in) throws IOException {
+    final int numHashes = readNumHashes(in);
+    final int bitsLog2 = readBitsLog2(in);
+    final long[] bits = new long[1 << (bitsLog2 - 6)];
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = in.readLong();
+    }
+    return new BloomFilter(numHashes, bitsLog2, bits);
+  }
+
+  /** Read the header of a filter that has been written with {@link #write}
+   *  and return a filter that reads its bits from <code>in</code>. The input
+   *  is positioned after the bits. */
+  static BloomFilter readOffHeap(IndexInput in) throws IOException {
+    final int numHashes = readNumHashes(in);
+    final int bitsLog2 = readBitsLog2(in);
+    final long numBytes = (1L << bitsLog2) >>> 3;
+    final IndexInput bits = in.slice("bloom filter", in.getFilePointer(), numBytes);
+    in.seek(in.getFilePointer() + numBytes);
+    return new BloomFilter(numHashes, bitsLog2, null, bits, bits.randomAccessSlice(0, numBytes));
+  }
+
+  /** Return a filter with the same bits that can be used by one thread
+   *  while other threads use this filter: random access reads of an
+   *  {@link IndexInput} are not guaranteed to be thread-safe. */
+  BloomFilter forThread() throws IOException {
+    if (offHeapIn == null) {
+      return this;
+    }
+    final IndexInput clone = offHeapIn.clone();
+    return new BloomFilter(numHashes, bitsLog2, null, clone, clone.randomAccessSlice(0, clone.length()));
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED + (bits == null ? 0 : RamUsageEstimator.sizeOf(bits));
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(hashes=" + numHashes + ",bits=" + (1L << bitsLog2) + (bits == null ? ",offHeap" : "") + ")";
+  }
+}
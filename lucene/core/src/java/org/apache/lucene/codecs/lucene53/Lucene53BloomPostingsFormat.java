@@ -0,0 +1,503 @@
+package org.apache.lucene.codecs.lucene53;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.FilterLeafReader.FilterFields;
+import org.apache.lucene.index.FilterLeafReader.FilterTerms;
+import org.apache.lucene.index.FilterLeafReader.FilterTermsEnum;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.BufferedChecksumIndexInput;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.AttributeSource;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+
+/**
+ * Lucene 5.3 postings format for primary-key like fields, which wraps
+ * another postings format and adds a bloom filter of the terms of every
+ * field so that {@link TermsEnum#seekExact(BytesRef)} can return false
+ * without touching the terms dictionary for most terms that don't exist in
+ * a segment. This makes {@link org.apache.lucene.index.IndexWriter#updateDocument}
+ * cheaper on indexes with many segments, since the term is looked up in every
+ * segment and usually only exists in one of them.
+ * <p>
+ * Filters are sized for the number of terms of the field when it is known
+ * in advance, and for the configurable maximum number of bytes per field
+ * otherwise, such as on merges, then folded to the smallest size that keeps
+ * them selective once all terms have been added. Filters that would let most
+ * lookups through are not written at all. Segments that are opened with
+ * {@link MMapDirectory}, including compound segments, read their filters
+ * off-heap.
+ * <p>
+ * Use {@link Lucene53Codec#Lucene53Codec(org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat.Mode, java.util.Set)}
+ * to enable it for some fields.
+ * <p>
+ * Files:
+ * <ul>
+ *   <li><tt>.bf</tt>: Header, DelegatePostingsFormatName, NumFields, &lt;FieldNumber, Filter&gt;<sup>NumFields</sup>, Footer</li>
+ * </ul>
+ * <ul>
+ *   <li>Header --&gt; {@link CodecUtil#writeIndexHeader IndexHeader}</li>
+ *   <li>DelegatePostingsFormatName --&gt; {@link DataOutput#writeString String}, the name of
+ *       the {@link PostingsFormat} that writes the terms dictionary and postings</li>
+ *   <li>NumFields, FieldNumber --&gt; {@link DataOutput#writeVInt VInt}</li>
+ *   <li>Filter --&gt; NumHashes, BitsLog2, Bits<sup>2<sup>BitsLog2</sup>/64</sup></li>
+ *   <li>NumHashes, BitsLog2 --&gt; {@link DataOutput#writeByte Byte}</li>
+ *   <li>Bits --&gt; {@link DataOutput#writeLong Int64}</li>
+ *   <li>Footer --&gt; {@link CodecUtil#writeFooter CodecFooter}</li>
+ * </ul>
+ * @lucene.experimental
+ */
+public final class Lucene53BloomPostingsFormat extends PostingsFormat {
+
+  static final String BLOOM_CODEC_NAME = "Lucene53Bloom";
+  static final String BLOOM_EXTENSION = "bf";
+  static final int VERSION_START = 0;
+  static final int VERSION_CURRENT = VERSION_START;
+
+  /** Default number of bits per term, which gives about 1% of false positives. */
+  public static final int DEFAULT_BITS_PER_TERM = 10;
+
+  /** Default maximum size of the filter of a field in a segment. */
+  public static final long DEFAULT_MAX_BYTES_PER_FIELD = 64L << 20;
+
+  /** Filters that would let more than this fraction of missing terms through
+   *  are not worth their memory and are not written. */
+  static final double MAX_FALSE_POSITIVE_RATE = 0.5;
+
+  private final PostingsFormat delegate;
+  private final int bitsPerTerm;
+  private final long maxBytesPerField;
+
+  /** Creates a {@code Lucene53BloomPostingsFormat} that wraps
+   *  {@link Lucene50PostingsFormat} with default settings. */
+  public Lucene53BloomPostingsFormat() {
+    this(new Lucene50PostingsFormat(), DEFAULT_BITS_PER_TERM, DEFAULT_MAX_BYTES_PER_FIELD);
+  }
+
+  /** Creates a {@code Lucene53BloomPostingsFormat}.
+   *  @param delegate the postings format that writes the terms dictionary and postings
+   *  @param bitsPerTerm the number of bits per term of the filters, more bits
+   *         give fewer false positives
+   *  @param maxBytesPerField the maximum size of the filter of a field in a
+   *         segment, larger segments get filters with more false positives */
+  public Lucene53BloomPostingsFormat(PostingsFormat delegate, int bitsPerTerm, long maxBytesPerField) {
+    super(BLOOM_CODEC_NAME);
+    if (delegate == null) {
+      throw new NullPointerException("delegate must not be null");
+    }
+    if (bitsPerTerm < 1 || bitsPerTerm > 32) {
+      throw new IllegalArgumentException("bitsPerTerm must be between 1 and 32, got " + bitsPerTerm);
+    }
+    if (maxBytesPerField < 8) {
+      throw new IllegalArgumentException("maxBytesPerField must be at least 8, got " + maxBytesPerField);
+    }
+    this.delegate = delegate;
+    this.bitsPerTerm = bitsPerTerm;
+    this.maxBytesPerField = maxBytesPerField;
+  }
+
+  @Override
+  public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+    return new BloomFieldsConsumer(delegate.fieldsConsumer(state), state);
+  }
+
+  @Override
+  public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+    return new BloomFieldsProducer(state);
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "(delegate=" + delegate + ",bitsPerTerm=" + bitsPerTerm + ",maxBytesPerField=" + maxBytesPerField + ")";
+  }
+
+  private final class BloomFieldsConsumer extends FieldsConsumer {
+    private final FieldsConsumer delegateFieldsConsumer;
+    private final SegmentWriteState state;
+    private final Map<FieldInfo,BloomFilter> filters = new LinkedHashMap<>();
+    private boolean closed;
+
+    BloomFieldsConsumer(FieldsConsumer delegateFieldsConsumer, SegmentWriteState state) {
+      this.delegateFieldsConsumer = delegateFieldsConsumer;
+      this.state = state;
+    }
+
+    @Override
+    public void write(Fields fields) throws IOException {
+      // Fill the filters while the delegate writes the terms, rather than
+      // iterating them again. A filter is created for the number of terms of
+      // its field if it is known, for maxBytesPerField otherwise, and it is
+      // downsized as soon as the delegate moves on to another field. Merged
+      // terms may have no live docs anymore, which only costs a few false
+      // positives.
+      final Map<String,BloomFilter> fieldFilters = new LinkedHashMap<>();
+      delegateFieldsConsumer.write(new FilterFields(fields) {
+        private String lastField;
+
+        @Override
+        public Terms terms(String field) throws IOException {
+          final Terms terms = super.terms(field);
+          if (terms == null) {
+            return null;
+          }
+          if (lastField != null && lastField.equals(field) == false) {
+            fieldFilters.put(lastField, fieldFilters.get(lastField).downsize());
+          }
+          lastField = field;
+          BloomFilter filter = fieldFilters.get(field);
+          if (filter == null) {
+            final long size = terms.size();
+            filter = BloomFilter.create(size == -1 ? Long.MAX_VALUE : size, bitsPerTerm, maxBytesPerField);
+            fieldFilters.put(field, filter);
+          }
+          final BloomFilter fieldFilter = filter;
+          return new FilterTerms(terms) {
+            @Override
+            public TermsEnum iterator() throws IOException {
+              return new FilterTermsEnum(in.iterator()) {
+                @Override
+                public BytesRef next() throws IOException {
+                  final BytesRef term = in.next();
+                  if (term != null) {
+                    fieldFilter.add(term);
+                  }
+                  return term;
+                }
+              };
+            }
+          };
+        }
+      });
+
+      for (Map.Entry<String,BloomFilter> entry : fieldFilters.entrySet()) {
+        final BloomFilter filter = entry.getValue().downsize();
+        final double falsePositiveRate = filter.falsePositiveRate();
+        // a false positive rate of 0 means that the field has no terms
+        if (falsePositiveRate > 0 && falsePositiveRate <= MAX_FALSE_POSITIVE_RATE) {
+          filters.put(state.fieldInfos.fieldInfo(entry.getKey()), filter);
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      delegateFieldsConsumer.close();
+
+      final String bloomFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, BLOOM_EXTENSION);
+      try (IndexOutput out = state.directory.createOutput(bloomFileName, state.context)) {
+        CodecUtil.writeIndexHeader(out, BLOOM_CODEC_NAME, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+        out.writeString(delegate.getName());
+        out.writeVInt(filters.size());
+        for (Map.Entry<FieldInfo,BloomFilter> entry : filters.entrySet()) {
+          out.writeVInt(entry.getKey().number);
+          entry.getValue().write(out);
+        }
+        CodecUtil.writeFooter(out);
+      }
+      filters.clear();
+    }
+  }
+
+  private static final class BloomFieldsProducer extends FieldsProducer {
+    private final FieldsProducer delegateFieldsProducer;
+    private final Map<String,BloomFilter> filters = new HashMap<>();
+    /** Open input to the filters if they are read off-heap, otherwise null. */
+    private final IndexInput bloomIn;
+
+    BloomFieldsProducer(SegmentReadState state) throws IOException {
+      final String bloomFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, BLOOM_EXTENSION);
+      IndexInput in = null;
+      FieldsProducer delegateFieldsProducer = null;
+      boolean success = false;
+      try {
+        in = state.directory.openInput(bloomFileName, state.context);
+        // read the filters in place if the file is memory-mapped, which also
+        // works for compound files, otherwise verify them while loading them
+        final boolean offHeap = MMapDirectory.isMapped(in);
+        if (offHeap == false) {
+          in = new BufferedChecksumIndexInput(in);
+        }
+        CodecUtil.checkIndexHeader(in, BLOOM_CODEC_NAME, VERSION_START, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+        delegateFieldsProducer = PostingsFormat.forName(in.readString()).fieldsProducer(state);
+        final int numFields = in.readVInt();
+        for (int i = 0; i < numFields; i++) {
+          final int fieldNumber = in.readVInt();
+          final FieldInfo fieldInfo = state.fieldInfos.fieldInfo(fieldNumber);
+          if (fieldInfo == null) {
+            throw new CorruptIndexException("invalid field number: " + fieldNumber, in);
+          }
+          filters.put(fieldInfo.name, offHeap ? BloomFilter.readOffHeap(in) : BloomFilter.read(in));
+        }
+        if (offHeap) {
+          // the bits are verified by checkIntegrity
+          CodecUtil.retrieveChecksum(in);
+        } else {
+          CodecUtil.checkFooter((ChecksumIndexInput) in);
+          in.close();
+          in = null;
+        }
+        success = true;
+      } finally {
+        if (success == false) {
+          IOUtils.closeWhileHandlingException(in, delegateFieldsProducer);
+        }
+      }
+      this.delegateFieldsProducer = delegateFieldsProducer;
+      this.bloomIn = in;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return delegateFieldsProducer.iterator();
+    }
+
+    @Override
+    public Terms terms(String field) throws IOException {
+      final Terms terms = delegateFieldsProducer.terms(field);
+      final BloomFilter filter = filters.get(field);
+      if (terms == null || filter == null) {
+        return terms;
+      }
+      return new BloomFilteredTerms(terms, filter);
+    }
+
+    @Override
+    public int size() {
+      return delegateFieldsProducer.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOUtils.close(bloomIn, delegateFieldsProducer);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      long ramBytesUsed = delegateFieldsProducer.ramBytesUsed();
+      for (BloomFilter filter : filters.values()) {
+        ramBytesUsed += filter.ramBytesUsed();
+      }
+      return ramBytesUsed;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+      List<Accountable> resources = new ArrayList<>();
+      resources.addAll(Accountables.namedAccountables("bloom filter", filters));
+      resources.add(Accountables.namedAccountable("delegate", delegateFieldsProducer));
+      return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+      if (bloomIn != null) {
+        CodecUtil.checksumEntireFile(bloomIn);
+      }
+      delegateFieldsProducer.checkIntegrity();
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "(fields=" + filters.size() + ",delegate=" + delegateFieldsProducer + ")";
+    }
+  }
+
+  private static final class BloomFilteredTerms extends Terms {
+    private final Terms in;
+    private final BloomFilter filter;
+
+    BloomFilteredTerms(Terms in, BloomFilter filter) {
+      this.in = in;
+      this.filter = filter;
+    }
+
+    @Override
+    public TermsEnum iterator() throws IOException {
+      return new BloomFilteredTermsEnum(in, filter.forThread());
+    }
+
+    @Override
+    public TermsEnum intersect(CompiledAutomaton compiled, BytesRef startTerm) throws IOException {
+      return in.intersect(compiled, startTerm);
+    }
+
+    @Override
+    public long size() throws IOException {
+      return in.size();
+    }
+
+    @Override
+    public long getSumTotalTermFreq() throws IOException {
+      return in.getSumTotalTermFreq();
+    }
+
+    @Override
+    public long getSumDocFreq() throws IOException {
+      return in.getSumDocFreq();
+    }
+
+    @Override
+    public int getDocCount() throws IOException {
+      return in.getDocCount();
+    }
+
+    @Override
+    public boolean hasFreqs() {
+      return in.hasFreqs();
+    }
+
+    @Override
+    public boolean hasOffsets() {
+      return in.hasOffsets();
+    }
+
+    @Override
+    public boolean hasPositions() {
+      return in.hasPositions();
+    }
+
+    @Override
+    public boolean hasPayloads() {
+      return in.hasPayloads();
+    }
+
+    @Override
+    public BytesRef getMin() throws IOException {
+      return in.getMin();
+    }
+
+    @Override
+    public BytesRef getMax() throws IOException {
+      return in.getMax();
+    }
+
+    @Override
+    public Object getStats() throws IOException {
+      return in.getStats();
+    }
+  }
+
+  private static final class BloomFilteredTermsEnum extends TermsEnum {
+    private final TermsEnum in;
+    private final BloomFilter filter;
+
+    BloomFilteredTermsEnum(Terms terms, BloomFilter filter) throws IOException {
+      this.in = terms.iterator();
+      this.filter = filter;
+    }
+
+    @Override
+    public boolean seekExact(BytesRef text) throws IOException {
+      if (filter.mayContain(text) == false) {
+        return false;
+      }
+      return in.seekExact(text);
+    }
+
+    @Override
+    public void seekExact(BytesRef term, TermState state) throws IOException {
+      in.seekExact(term, state);
+    }
+
+    @Override
+    public SeekStatus seekCeil(BytesRef text) throws IOException {
+      return in.seekCeil(text);
+    }
+
+    @Override
+    public void seekExact(long ord) throws IOException {
+      in.seekExact(ord);
+    }
+
+    @Override
+    public BytesRef next() throws IOException {
+      return in.next();
+    }
+
+    @Override
+    public BytesRef term() throws IOException {
+      return in.term();
+    }
+
+    @Override
+    public long ord() throws IOException {
+      return in.ord();
+    }
+
+    @Override
+    public int docFreq() throws IOException {
+      return in.docFreq();
+    }
+
+    @Override
+    public long totalTermFreq() throws IOException {
+      return in.totalTermFreq();
+    }
+
+    @Override
+    public PostingsEnum postings(PostingsEnum reuse, int flags) throws IOException {
+      return in.postings(reuse, flags);
+    }
+
+    @Override
+    public TermState termState() throws IOException {
+      return in.termState();
+    }
+
+    @Override
+    public AttributeSource attributes() {
+      return in.attributes();
+    }
+  }
+}
@@ -17,6 +17,10 @@ package org.apache.lucene.codecs.lucene53;
  * limitations under the License.
  */
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.lukhnos.portmobile.util.Objects;
 
 import org.apache.lucene.codecs.Codec;
@@ -72,6 +76,7 @@ public class Lucene53Codec extends Codec {
   };
   
   private final StoredFieldsFormat storedFieldsFormat;
+  private final Set<String> bloomFilteredFields;
 
   /** 
    * Instantiates a new codec.
@@ -87,8 +92,22 @@ public class Lucene53Codec extends Codec {
    *             flushed/merged segments.
    */
   public Lucene53Codec(Mode mode) {
+    this(mode, Collections.<String>emptySet());
+  }
+
+  /** 
+   * Instantiates a new codec, specifying the stored fields compression
+   * mode to use and the fields whose terms should be indexed with
+   * {@link Lucene53BloomPostingsFormat}. This is useful for primary-key
+   * fields that are used to update documents.
+   * @param mode stored fields compression mode to use for newly 
+   *             flushed/merged segments.
+   * @param bloomFilteredFields fields that should get bloom filters
+   */
+  public Lucene53Codec(Mode mode, Set<String> bloomFilteredFields) {
     super("Lucene53");
     this.storedFieldsFormat = new Lucene50StoredFieldsFormat(Objects.requireNonNull(mode));
+    this.bloomFilteredFields = Collections.unmodifiableSet(new HashSet<>(bloomFilteredFields));
   }
   
   @Override
@@ -129,14 +148,15 @@ public class Lucene53Codec extends Codec {
   /** Returns the postings format that should be used for writing 
    *  new segments of <code>field</code>.
    *  
-   *  The default implementation always returns "Lucene50".
+   *  The default implementation returns "Lucene53Bloom" for the fields
+   *  that were passed to the constructor and "Lucene50" otherwise.
    *  <p>
    *  <b>WARNING:</b> if you subclass, you are responsible for index 
    *  backwards compatibility: future version of Lucene are only 
    *  guaranteed to be able to read the default implementation. 
    */
   public PostingsFormat getPostingsFormatForField(String field) {
-    return defaultFormat;
+    return bloomFilteredFields.contains(field) ? bloomFormat : defaultFormat;
   }
   
   /** Returns the docvalues format that should be used for writing 
@@ -158,6 +178,7 @@ public class Lucene53Codec extends Codec {
   }
 
   private final PostingsFormat defaultFormat = PostingsFormat.forName("Lucene50");
+  private final PostingsFormat bloomFormat = PostingsFormat.forName("Lucene53Bloom");
   private final DocValuesFormat defaultDVFormat = DocValuesFormat.forName("Lucene50");
 
   private final NormsFormat normsFormat = new Lucene53NormsFormat();
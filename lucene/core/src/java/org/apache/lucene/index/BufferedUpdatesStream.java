@@ -38,7 +38,6 @@ import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
-import org.apache.lucene.util.PriorityQueue;
 
 /* Tracks the stream of {@link BufferedDeletes}.
  * When DocumentsWriterPerThread flushes, its buffered
@@ -375,7 +374,6 @@ class BufferedUpdatesStream implements Accountable {
 
     TermsEnum termsEnum;
     PostingsEnum postingsEnum;
-    BytesRef term;
     boolean any;
 
     public SegmentState(IndexWriter.ReaderPool pool, SegmentCommitInfo info) throws IOException {
@@ -394,18 +392,6 @@ class BufferedUpdatesStream implements Accountable {
     }
   }
 
-  /** Does a merge sort by current term across all segments. */
-  static class SegmentQueue extends PriorityQueue<SegmentState> {
-    public SegmentQueue(int size) {
-      super(size);
-    }
-
-    @Override
-    protected boolean lessThan(SegmentState a, SegmentState b) {
-      return a.term.compareTo(b.term) < 0;
-    }
-  }
-
   /** Opens SegmentReader and inits SegmentState for each segment. */
   private SegmentState[] openSegmentStates(IndexWriter.ReaderPool pool, List<SegmentCommitInfo> infos) throws IOException {
     int numReaders = infos.size();
@@ -487,7 +473,6 @@ class BufferedUpdatesStream implements Accountable {
     FieldTermIterator iter = updates.termIterator();
 
     String field = null;
-    SegmentQueue queue = null;
 
     BytesRef term;
 
@@ -497,19 +482,13 @@ class BufferedUpdatesStream implements Accountable {
         // field changed
         field = iter.field();
 
-        queue = new SegmentQueue(numReaders);
-
-        long segTermCount = 0;
         for(int i=0;i<numReaders;i++) {
           SegmentState state = segStates[i];
           Terms terms = state.reader.fields().terms(field);
           if (terms != null) {
-            segTermCount += terms.size();
             state.termsEnum = terms.iterator();
-            state.term = state.termsEnum.next();
-            if (state.term != null) {
-              queue.add(state);
-            }
+          } else {
+            state.termsEnum = null;
           }
         }
 
@@ -522,72 +501,54 @@ class BufferedUpdatesStream implements Accountable {
 
       long delGen = iter.delGen();
 
-      while (queue.size() != 0) {
-
-        // Get next term merged across all segments
-        SegmentState state = queue.top();
-        segTermVisitedCount++;
-
-        int cmp = term.compareTo(state.term);
-
-        if (cmp < 0) {
-          break;
-        } else if (cmp == 0) {
-          // fall through
-        } else {
-          TermsEnum.SeekStatus status = state.termsEnum.seekCeil(term);
-          if (status == TermsEnum.SeekStatus.FOUND) {
-            // fallthrough
-          } else {
-            if (status == TermsEnum.SeekStatus.NOT_FOUND) {
-              state.term = state.termsEnum.term();
-              queue.updateTop();
-            } else {
-              // No more terms in this segment
-              queue.pop();
-            }
-
-            continue;
-          }
+      // Look the term up in each segment on its own: most deleted terms are
+      // primary keys that exist in at most one segment, and seekExact lets
+      // postings formats that index bloom filters skip the other segments
+      // without reading their terms dictionaries.
+      for(int i=0;i<numReaders;i++) {
+        SegmentState state = segStates[i];
+        if (state.termsEnum == null) {
+          continue;
         }
 
         assert state.delGen != delGen;
 
-        if (state.delGen < delGen) {
+        if (state.delGen > delGen) {
+          // this segment was flushed after the delete was buffered
+          continue;
+        }
 
-          // we don't need term frequencies for this
-          final Bits acceptDocs = state.rld.getLiveDocs();
-          state.postingsEnum = state.termsEnum.postings(state.postingsEnum, PostingsEnum.NONE);
+        segTermVisitedCount++;
 
-          assert state.postingsEnum != null;
+        if (state.termsEnum.seekExact(term) == false) {
+          continue;
+        }
 
-          while (true) {
-            final int docID = state.postingsEnum.nextDoc();
-            if (docID == DocIdSetIterator.NO_MORE_DOCS) {
-              break;
-            }
-            if (acceptDocs != null && acceptDocs.get(docID) == false) {
-              continue;
-            }
-            if (!state.any) {
-              state.rld.initWritableLiveDocs();
-              state.any = true;
-            }
+        // we don't need term frequencies for this
+        final Bits acceptDocs = state.rld.getLiveDocs();
+        state.postingsEnum = state.termsEnum.postings(state.postingsEnum, PostingsEnum.NONE);
+
+        assert state.postingsEnum != null;
 
-            // NOTE: there is no limit check on the docID
-            // when deleting by Term (unlike by Query)
-            // because on flush we apply all Term deletes to
-            // each segment.  So all Term deleting here is
-            // against prior segments:
-            state.rld.delete(docID);
+        while (true) {
+          final int docID = state.postingsEnum.nextDoc();
+          if (docID == DocIdSetIterator.NO_MORE_DOCS) {
+            break;
+          }
+          if (acceptDocs != null && acceptDocs.get(docID) == false) {
+            continue;
+          }
+          if (!state.any) {
+            state.rld.initWritableLiveDocs();
+            state.any = true;
           }
-        }
 
-        state.term = state.termsEnum.next();
-        if (state.term == null) {
-          queue.pop();
-        } else {
-          queue.updateTop();
+          // NOTE: there is no limit check on the docID
+          // when deleting by Term (unlike by Query)
+          // because on flush we apply all Term deletes to
+          // each segment.  So all Term deleting here is
+          // against prior segments:
+          state.rld.delete(docID);
         }
       }
     }
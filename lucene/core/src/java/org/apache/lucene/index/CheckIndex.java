@@ -17,6 +17,7 @@ package org.apache.lucene.index;
  * limitations under the License.
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintStream;
@@ -31,6 +32,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.DocValuesProducer;
@@ -56,8 +65,10 @@ import org.apache.lucene.util.CommandLineUtil;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LongBitSet;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.SuppressForbidden;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.apache.lucene.util.Version;
 import org.apache.lucene.util.automaton.Automata;
 import org.apache.lucene.util.automaton.CompiledAutomaton;
@@ -431,6 +442,25 @@ public class CheckIndex implements Closeable {
   
   private boolean checksumsOnly;
 
+  private int threadCount = 1;
+
+  /** Sets the number of threads used to check the index. Segments, and
+   *  the independent checks within a segment, are verified concurrently
+   *  when this is greater than 1. Messages of each segment are still
+   *  printed together and in segment order. Default is 1, which checks
+   *  everything in the calling thread. */
+  public void setThreadCount(int threadCount) {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("threadCount must be >= 1, got " + threadCount);
+    }
+    this.threadCount = threadCount;
+  }
+
+  /** See {@link #setThreadCount}. */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
   /** Set infoStream where messages should go.  If null, no
    *  messages are printed.  If verbose is true then more
    *  details are printed. */
@@ -473,7 +503,6 @@ public class CheckIndex implements Closeable {
   public Status checkIndex(List<String> onlySegments) throws IOException {
     ensureOpen();
     long startNS = System.nanoTime();
-    NumberFormat nf = NumberFormat.getInstance(Locale.ROOT);
     SegmentInfos sis = null;
     Status result = new Status();
     result.dir = dir;
@@ -598,163 +627,85 @@ public class CheckIndex implements Closeable {
     result.newSegments.clear();
     result.maxSegmentName = -1;
 
-    for(int i=0;i<numSegments;i++) {
-      final SegmentCommitInfo info = sis.info(i);
-      int segmentName = Integer.parseInt(info.info.name.substring(1), Character.MAX_RADIX);
-      if (segmentName > result.maxSegmentName) {
-        result.maxSegmentName = segmentName;
-      }
-      if (onlySegments != null && !onlySegments.contains(info.info.name)) {
-        continue;
-      }
-      Status.SegmentInfoStatus segInfoStat = new Status.SegmentInfoStatus();
-      result.segmentInfos.add(segInfoStat);
-      msg(infoStream, "  " + (1+i) + " of " + numSegments + ": name=" + info.info.name + " maxDoc=" + info.info.maxDoc());
-      segInfoStat.name = info.info.name;
-      segInfoStat.maxDoc = info.info.maxDoc();      
-      segInfoStat.version = info.info.getVersion();
-      
-      if (info.info.maxDoc() <= 0 && segInfoStat.version.onOrAfter(Version.LUCENE_4_5_0)) {
-        throw new RuntimeException("illegal number of documents: maxDoc=" + info.info.maxDoc());
-      }
-
-      int toLoseDocCount = info.info.maxDoc();
-
-      SegmentReader reader = null;
-
-      try {
-        msg(infoStream, "    version=" + segInfoStat.version);
-        msg(infoStream, "    id=" + StringHelper.idToString(info.info.getId()));
-        final Codec codec = info.info.getCodec();
-        msg(infoStream, "    codec=" + codec);
-        segInfoStat.codec = codec;
-        msg(infoStream, "    compound=" + info.info.getUseCompoundFile());
-        segInfoStat.compound = info.info.getUseCompoundFile();
-        msg(infoStream, "    numFiles=" + info.files().size());
-        segInfoStat.numFiles = info.files().size();
-        segInfoStat.sizeMB = info.sizeInBytes()/(1024.*1024.);
-        msg(infoStream, "    size (MB)=" + nf.format(segInfoStat.sizeMB));
-        Map<String,String> diagnostics = info.info.getDiagnostics();
-        segInfoStat.diagnostics = diagnostics;
-        if (diagnostics.size() > 0) {
-          msg(infoStream, "    diagnostics = " + diagnostics);
-        }
-
-        if (!info.hasDeletions()) {
-          msg(infoStream, "    no deletions");
-          segInfoStat.hasDeletions = false;
+    final ExecutorService executor;
+    if (threadCount > 1) {
+      executor = Executors.newFixedThreadPool(threadCount, new NamedThreadFactory("CheckIndex"));
+    } else {
+      executor = null;
+    }
+    try {
+      final List<SegmentCommitInfo> pendingInfos = new ArrayList<>();
+      final List<Future<Integer>> pendingChecks = new ArrayList<>();
+      final List<ByteArrayOutputStream> pendingOutputs = new ArrayList<>();
+      for(int i=0;i<numSegments;i++) {
+        final SegmentCommitInfo info = sis.info(i);
+        int segmentName = Integer.parseInt(info.info.name.substring(1), Character.MAX_RADIX);
+        if (segmentName > result.maxSegmentName) {
+          result.maxSegmentName = segmentName;
+        }
+        if (onlySegments != null && !onlySegments.contains(info.info.name)) {
+          continue;
+        }
+        final Status.SegmentInfoStatus segInfoStat = new Status.SegmentInfoStatus();
+        result.segmentInfos.add(segInfoStat);
+        if (executor == null) {
+          segmentChecked(result, info, checkSegment(info, i, numSegments, segInfoStat, infoStream, null));
         } else {
-          msg(infoStream, "    has deletions [delGen=" + info.getDelGen() + "]");
-          segInfoStat.hasDeletions = true;
-          segInfoStat.deletionsGen = info.getDelGen();
+          // buffer each segment's messages so that they are printed in order and not interleaved
+          final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          final PrintStream segmentStream = infoStream == null ? null : new PrintStream(bytes, false, IOUtils.UTF_8);
+          final int segmentIndex = i;
+          pendingChecks.add(executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+              try {
+                return checkSegment(info, segmentIndex, numSegments, segInfoStat, segmentStream, executor);
+              } finally {
+                if (segmentStream != null) {
+                  segmentStream.flush();
+                }
+              }
+            }
+          }));
+          pendingInfos.add(info);
+          pendingOutputs.add(bytes);
         }
-        
-        long startOpenReaderNS = System.nanoTime();
-        if (infoStream != null)
-          infoStream.print("    test: open reader.........");
-        reader = new SegmentReader(info, IOContext.DEFAULT);
-        msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startOpenReaderNS)));
-
-        segInfoStat.openReaderPassed = true;
-        
-        long startIntegrityNS = System.nanoTime();
-        if (infoStream != null)
-          infoStream.print("    test: check integrity.....");
-        reader.checkIntegrity();
-        msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startIntegrityNS)));
+      }
 
-        if (reader.maxDoc() != info.info.maxDoc()) {
-          throw new RuntimeException("SegmentReader.maxDoc() " + reader.maxDoc() + " != SegmentInfo.maxDoc " + info.info.maxDoc());
+      // report segments as soon as they and all segments before them are done
+      for (int i = 0; i < pendingChecks.size(); i++) {
+        int lostDocCount;
+        try {
+          lostDocCount = pendingChecks.get(i).get();
+        } catch (ExecutionException ee) {
+          printBuffered(infoStream, pendingOutputs.get(i));
+          IOUtils.reThrow(ee.getCause());
+          throw new AssertionError(); // unreachable: the cause is never null
+        } catch (InterruptedException ie) {
+          throw new ThreadInterruptedException(ie);
         }
-        
-        final int numDocs = reader.numDocs();
-        toLoseDocCount = numDocs;
-        
-        if (reader.hasDeletions()) {
-          if (reader.numDocs() != info.info.maxDoc() - info.getDelCount()) {
-            throw new RuntimeException("delete count mismatch: info=" + (info.info.maxDoc() - info.getDelCount()) + " vs reader=" + reader.numDocs());
-          }
-          if ((info.info.maxDoc() - reader.numDocs()) > reader.maxDoc()) {
-            throw new RuntimeException("too many deleted docs: maxDoc()=" + reader.maxDoc() + " vs del count=" + (info.info.maxDoc() - reader.numDocs()));
-          }
-          if (info.info.maxDoc() - reader.numDocs() != info.getDelCount()) {
-            throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
-          }
-        } else {
-          if (info.getDelCount() != 0) {
-            throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
+        printBuffered(infoStream, pendingOutputs.get(i));
+        segmentChecked(result, pendingInfos.get(i), lostDocCount);
+      }
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+        // on failure, checks may still be running: wait for them so that no
+        // thread reads segments once we return
+        boolean interrupted = false;
+        while (true) {
+          try {
+            if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+              break;
+            }
+          } catch (InterruptedException ie) {
+            interrupted = true;
           }
         }
-        
-        if (checksumsOnly == false) {
-          // Test Livedocs
-          segInfoStat.liveDocStatus = testLiveDocs(reader, infoStream, failFast);
-
-          // Test Fieldinfos
-          segInfoStat.fieldInfoStatus = testFieldInfos(reader, infoStream, failFast);
-        
-          // Test Field Norms
-          segInfoStat.fieldNormStatus = testFieldNorms(reader, infoStream, failFast);
-
-          // Test the Term Index
-          segInfoStat.termIndexStatus = testPostings(reader, infoStream, verbose, failFast);
-
-          // Test Stored Fields
-          segInfoStat.storedFieldStatus = testStoredFields(reader, infoStream, failFast);
-
-          // Test Term Vectors
-          segInfoStat.termVectorStatus = testTermVectors(reader, infoStream, verbose, crossCheckTermVectors, failFast);
-
-          // Test Docvalues
-          segInfoStat.docValuesStatus = testDocValues(reader, infoStream, failFast);
-
-          // Rethrow the first exception we encountered
-          //  This will cause stats for failed segments to be incremented properly
-          if (segInfoStat.liveDocStatus.error != null) {
-            throw new RuntimeException("Live docs test failed");
-          } else if (segInfoStat.fieldInfoStatus.error != null) {
-            throw new RuntimeException("Field Info test failed");
-          } else if (segInfoStat.fieldNormStatus.error != null) {
-            throw new RuntimeException("Field Norm test failed");
-          } else if (segInfoStat.termIndexStatus.error != null) {
-            throw new RuntimeException("Term Index test failed");
-          } else if (segInfoStat.storedFieldStatus.error != null) {
-            throw new RuntimeException("Stored Field test failed");
-          } else if (segInfoStat.termVectorStatus.error != null) {
-            throw new RuntimeException("Term Vector test failed");
-          }  else if (segInfoStat.docValuesStatus.error != null) {
-            throw new RuntimeException("DocValues test failed");
-          }
+        if (interrupted) {
+          Thread.currentThread().interrupt();
         }
-
-        msg(infoStream, "");
-        
-        if (verbose) {
-          msg(infoStream, "detailed segment RAM usage: ");
-          msg(infoStream, Accountables.toString(reader));
-        }
-
-      } catch (Throwable t) {
-        if (failFast) {
-          IOUtils.reThrow(t);
-        }
-        msg(infoStream, "FAILED");
-        String comment;
-        comment = "exorciseIndex() would remove reference to this segment";
-        msg(infoStream, "    WARNING: " + comment + "; full exception:");
-        if (infoStream != null)
-          t.printStackTrace(infoStream);
-        msg(infoStream, "");
-        result.totLoseDocCount += toLoseDocCount;
-        result.numBadSegments++;
-        continue;
-      } finally {
-        if (reader != null)
-          reader.close();
       }
-
-      // Keeper
-      result.newSegments.add(info.clone());
     }
 
     if (0 == result.numBadSegments) {
@@ -791,6 +742,330 @@ public class CheckIndex implements Closeable {
 
     return result;
   }
+
+  /** Records the outcome of {@link #checkSegment}. */
+  private static void segmentChecked(Status result, SegmentCommitInfo info, int lostDocCount) {
+    if (lostDocCount == -1) {
+      // Keeper
+      result.newSegments.add(info.clone());
+    } else {
+      result.totLoseDocCount += lostDocCount;
+      result.numBadSegments++;
+    }
+  }
+
+  private static void printBuffered(PrintStream infoStream, ByteArrayOutputStream bytes) throws IOException {
+    if (infoStream != null) {
+      infoStream.print(bytes.toString(IOUtils.UTF_8));
+      infoStream.flush();
+    }
+  }
+
+  /** Checks a single segment, filling in <code>segInfoStat</code>. If an
+   *  executor is given, the independent checks of this segment run on it.
+   *  Returns -1 if the segment is healthy, otherwise the number of documents
+   *  that exorciseIndex() would lose. */
+  private int checkSegment(SegmentCommitInfo info, int i, int numSegments, final Status.SegmentInfoStatus segInfoStat,
+                           final PrintStream infoStream, Executor executor) throws IOException {
+    NumberFormat nf = NumberFormat.getInstance(Locale.ROOT);
+    msg(infoStream, "  " + (1+i) + " of " + numSegments + ": name=" + info.info.name + " maxDoc=" + info.info.maxDoc());
+    segInfoStat.name = info.info.name;
+    segInfoStat.maxDoc = info.info.maxDoc();      
+    segInfoStat.version = info.info.getVersion();
+    
+    if (info.info.maxDoc() <= 0 && segInfoStat.version.onOrAfter(Version.LUCENE_4_5_0)) {
+      throw new RuntimeException("illegal number of documents: maxDoc=" + info.info.maxDoc());
+    }
+
+    int toLoseDocCount = info.info.maxDoc();
+
+    SegmentReader reader = null;
+
+    try {
+      msg(infoStream, "    version=" + segInfoStat.version);
+      msg(infoStream, "    id=" + StringHelper.idToString(info.info.getId()));
+      final Codec codec = info.info.getCodec();
+      msg(infoStream, "    codec=" + codec);
+      segInfoStat.codec = codec;
+      msg(infoStream, "    compound=" + info.info.getUseCompoundFile());
+      segInfoStat.compound = info.info.getUseCompoundFile();
+      msg(infoStream, "    numFiles=" + info.files().size());
+      segInfoStat.numFiles = info.files().size();
+      segInfoStat.sizeMB = info.sizeInBytes()/(1024.*1024.);
+      msg(infoStream, "    size (MB)=" + nf.format(segInfoStat.sizeMB));
+      Map<String,String> diagnostics = info.info.getDiagnostics();
+      segInfoStat.diagnostics = diagnostics;
+      if (diagnostics.size() > 0) {
+        msg(infoStream, "    diagnostics = " + diagnostics);
+      }
+
+      if (!info.hasDeletions()) {
+        msg(infoStream, "    no deletions");
+        segInfoStat.hasDeletions = false;
+      } else {
+        msg(infoStream, "    has deletions [delGen=" + info.getDelGen() + "]");
+        segInfoStat.hasDeletions = true;
+        segInfoStat.deletionsGen = info.getDelGen();
+      }
+      
+      long startOpenReaderNS = System.nanoTime();
+      if (infoStream != null)
+        infoStream.print("    test: open reader.........");
+      reader = new SegmentReader(info, IOContext.DEFAULT);
+      msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startOpenReaderNS)));
+
+      segInfoStat.openReaderPassed = true;
+      
+      long startIntegrityNS = System.nanoTime();
+      if (infoStream != null)
+        infoStream.print("    test: check integrity.....");
+      if (executor == null) {
+        reader.checkIntegrity();
+      } else {
+        checkIntegrity(reader, executor);
+      }
+      msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startIntegrityNS)));
+
+      if (reader.maxDoc() != info.info.maxDoc()) {
+        throw new RuntimeException("SegmentReader.maxDoc() " + reader.maxDoc() + " != SegmentInfo.maxDoc " + info.info.maxDoc());
+      }
+      
+      final int numDocs = reader.numDocs();
+      toLoseDocCount = numDocs;
+      
+      if (reader.hasDeletions()) {
+        if (reader.numDocs() != info.info.maxDoc() - info.getDelCount()) {
+          throw new RuntimeException("delete count mismatch: info=" + (info.info.maxDoc() - info.getDelCount()) + " vs reader=" + reader.numDocs());
+        }
+        if ((info.info.maxDoc() - reader.numDocs()) > reader.maxDoc()) {
+          throw new RuntimeException("too many deleted docs: maxDoc()=" + reader.maxDoc() + " vs del count=" + (info.info.maxDoc() - reader.numDocs()));
+        }
+        if (info.info.maxDoc() - reader.numDocs() != info.getDelCount()) {
+          throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
+        }
+      } else {
+        if (info.getDelCount() != 0) {
+          throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
+        }
+      }
+      
+      if (checksumsOnly == false) {
+        final SegmentReader segmentReader = reader;
+        final boolean verbose = this.verbose;
+        final boolean crossCheckTermVectors = this.crossCheckTermVectors;
+        final boolean failFast = this.failFast;
+        final List<SegmentPart> parts = new ArrayList<>();
+
+        // Test Livedocs
+        parts.add(new SegmentPart() {
+          @Override
+          public void check(PrintStream infoStream) throws IOException {
+            segInfoStat.liveDocStatus = testLiveDocs(segmentReader, infoStream, failFast);
+          }
+        });
+
+        // Test Fieldinfos
+        parts.add(new SegmentPart() {
+          @Override
+          public void check(PrintStream infoStream) throws IOException {
+            segInfoStat.fieldInfoStatus = testFieldInfos(segmentReader, infoStream, failFast);
+          }
+        });
+
+        // Test Field Norms
+        parts.add(new SegmentPart() {
+          @Override
+          public void check(PrintStream infoStream) throws IOException {
+            segInfoStat.fieldNormStatus = testFieldNorms(segmentReader, infoStream, failFast);
+          }
+        });
+
+        // Test the Term Index
+        parts.add(new SegmentPart() {
+          @Override
+          public void check(PrintStream infoStream) throws IOException {
+            segInfoStat.termIndexStatus = testPostings(segmentReader, infoStream, verbose, failFast);
+          }
+        });
+
+        // Test Stored Fields
+        parts.add(new SegmentPart() {
+          @Override
+          public void check(PrintStream infoStream) throws IOException {
+            segInfoStat.storedFieldStatus = testStoredFields(segmentReader, infoStream, failFast);
+          }
+        });
+
+        // Test Term Vectors
+        parts.add(new SegmentPart() {
+          @Override
+          public void check(PrintStream infoStream) throws IOException {
+            segInfoStat.termVectorStatus = testTermVectors(segmentReader, infoStream, verbose, crossCheckTermVectors, failFast);
+          }
+        });
+
+        // Test Docvalues
+        parts.add(new SegmentPart() {
+          @Override
+          public void check(PrintStream infoStream) throws IOException {
+            segInfoStat.docValuesStatus = testDocValues(segmentReader, infoStream, failFast);
+          }
+        });
+
+        checkParts(parts, infoStream, executor);
+
+        // Rethrow the first exception we encountered
+        //  This will cause stats for failed segments to be incremented properly
+        if (segInfoStat.liveDocStatus.error != null) {
+          throw new RuntimeException("Live docs test failed");
+        } else if (segInfoStat.fieldInfoStatus.error != null) {
+          throw new RuntimeException("Field Info test failed");
+        } else if (segInfoStat.fieldNormStatus.error != null) {
+          throw new RuntimeException("Field Norm test failed");
+        } else if (segInfoStat.termIndexStatus.error != null) {
+          throw new RuntimeException("Term Index test failed");
+        } else if (segInfoStat.storedFieldStatus.error != null) {
+          throw new RuntimeException("Stored Field test failed");
+        } else if (segInfoStat.termVectorStatus.error != null) {
+          throw new RuntimeException("Term Vector test failed");
+        }  else if (segInfoStat.docValuesStatus.error != null) {
+          throw new RuntimeException("DocValues test failed");
+        }
+      }
+
+      msg(infoStream, "");
+      
+      if (verbose) {
+        msg(infoStream, "detailed segment RAM usage: ");
+        msg(infoStream, Accountables.toString(reader));
+      }
+
+    } catch (Throwable t) {
+      if (failFast) {
+        IOUtils.reThrow(t);
+      }
+      msg(infoStream, "FAILED");
+      String comment;
+      comment = "exorciseIndex() would remove reference to this segment";
+      msg(infoStream, "    WARNING: " + comment + "; full exception:");
+      if (infoStream != null)
+        t.printStackTrace(infoStream);
+      msg(infoStream, "");
+      return toLoseDocCount;
+    } finally {
+      if (reader != null)
+        reader.close();
+    }
+
+    return -1;
+  }
+
+  /** An independent check of a segment, which writes its messages to the given stream. */
+  private interface SegmentPart {
+    void check(PrintStream infoStream) throws IOException;
+  }
+
+  /** Runs the given parts, concurrently if an executor is given. Messages
+   *  of each part are buffered and printed in the order of the parts, and
+   *  the first exception is rethrown once all parts are done. */
+  private static void checkParts(List<SegmentPart> parts, PrintStream infoStream, Executor executor) throws IOException {
+    if (executor == null || parts.size() <= 1) {
+      for (SegmentPart part : parts) {
+        part.check(infoStream);
+      }
+      return;
+    }
+
+    final List<FutureTask<Void>> tasks = new ArrayList<>();
+    final List<ByteArrayOutputStream> outputs = new ArrayList<>();
+    for (final SegmentPart part : parts) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final PrintStream partStream = infoStream == null ? null : new PrintStream(bytes, false, IOUtils.UTF_8);
+      FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          try {
+            part.check(partStream);
+          } finally {
+            if (partStream != null) {
+              partStream.flush();
+            }
+          }
+          return null;
+        }
+      });
+      tasks.add(task);
+      outputs.add(bytes);
+      executor.execute(task);
+    }
+
+    // Run the parts that no pool thread picked up yet in this thread: the
+    // pool may be busy with other segments that are themselves waiting on
+    // their parts. This is a no-op for parts that are running or done.
+    for (FutureTask<Void> task : tasks) {
+      task.run();
+    }
+
+    Throwable firstException = null;
+    for (int i = 0; i < tasks.size(); i++) {
+      try {
+        tasks.get(i).get();
+      } catch (ExecutionException ee) {
+        if (firstException == null) {
+          firstException = ee.getCause();
+        }
+      } catch (InterruptedException ie) {
+        throw new ThreadInterruptedException(ie);
+      }
+      printBuffered(infoStream, outputs.get(i));
+    }
+    IOUtils.reThrow(firstException);
+  }
+
+  /** Same as {@link CodecReader#checkIntegrity()}, but verifies the files of
+   *  the different codec components concurrently. */
+  private static void checkIntegrity(final CodecReader reader, Executor executor) throws IOException {
+    final List<SegmentPart> parts = new ArrayList<>();
+    parts.add(new SegmentPart() {
+      @Override
+      public void check(PrintStream infoStream) throws IOException {
+        reader.getPostingsReader().checkIntegrity();
+      }
+    });
+    parts.add(new SegmentPart() {
+      @Override
+      public void check(PrintStream infoStream) throws IOException {
+        if (reader.getNormsReader() != null) {
+          reader.getNormsReader().checkIntegrity();
+        }
+      }
+    });
+    parts.add(new SegmentPart() {
+      @Override
+      public void check(PrintStream infoStream) throws IOException {
+        if (reader.getDocValuesReader() != null) {
+          reader.getDocValuesReader().checkIntegrity();
+        }
+      }
+    });
+    parts.add(new SegmentPart() {
+      @Override
+      public void check(PrintStream infoStream) throws IOException {
+        if (reader.getFieldsReader() != null) {
+          reader.getFieldsReader().checkIntegrity();
+        }
+      }
+    });
+    parts.add(new SegmentPart() {
+      @Override
+      public void check(PrintStream infoStream) throws IOException {
+        if (reader.getTermVectorsReader() != null) {
+          reader.getTermVectorsReader().checkIntegrity();
+        }
+      }
+    });
+    checkParts(parts, null, executor);
+  }
   
   /**
    * Test live docs.
@@ -2206,7 +2481,7 @@ public class CheckIndex implements Closeable {
     <p>
     Run it like this:
     <pre>
-    java -ea:org.apache.lucene... org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-verbose] [-segment X] [-segment Y]
+    java -ea:org.apache.lucene... org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-verbose] [-segment X] [-segment Y] [-threadCount X]
     </pre>
     <ul>
     <li><code>-exorcise</code>: actually write a new segments_N file, removing any problematic segments. *LOSES DATA*
@@ -2216,6 +2491,10 @@ public class CheckIndex implements Closeable {
     to check more than one segment, eg <code>-segment _2
     -segment _a</code>.  You can't use this with the -exorcise
     option.
+
+    <li><code>-threadCount X</code>: number of threads used to check
+    segments, and the independent parts of each segment, concurrently.
+    Defaults to 1.
     </ul>
 
     <p><b>WARNING</b>: <code>-exorcise</code> should only be used on an emergency basis as it will cause
@@ -2249,6 +2528,7 @@ public class CheckIndex implements Closeable {
     List<String> onlySegments = new ArrayList<>();
     String indexPath = null;
     String dirImpl = null;
+    int threadCount = 1;
     int i = 0;
     while(i < args.length) {
       String arg = args[i];
@@ -2274,6 +2554,21 @@ public class CheckIndex implements Closeable {
         }
         i++;
         dirImpl = args[i];
+      } else if ("-threadCount".equals(arg)) {
+        if (i == args.length - 1) {
+          System.out.println("ERROR: missing value for -threadCount option");
+          return 1;
+        }
+        i++;
+        try {
+          threadCount = Integer.parseInt(args[i]);
+        } catch (NumberFormatException nfe) {
+          threadCount = 0;
+        }
+        if (threadCount < 1) {
+          System.out.println("ERROR: -threadCount must be a positive integer, got '" + args[i] + "'");
+          return 1;
+        }
       } else {
         if (indexPath != null) {
           System.out.println("ERROR: unexpected extra argument '" + args[i] + "'");
@@ -2286,7 +2581,7 @@ public class CheckIndex implements Closeable {
 
     if (indexPath == null) {
       System.out.println("\nERROR: index path not specified");
-      System.out.println("\nUsage: java org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-crossCheckTermVectors] [-segment X] [-segment Y] [-dir-impl X]\n" +
+      System.out.println("\nUsage: java org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-crossCheckTermVectors] [-segment X] [-segment Y] [-dir-impl X] [-threadCount X]\n" +
                          "\n" +
                          "  -exorcise: actually write a new segments_N file, removing any problematic segments\n" +
                          "  -fast: just verify file checksums, omitting logical integrity checks\n" + 
@@ -2298,6 +2593,7 @@ public class CheckIndex implements Closeable {
                          "              You can't use this with the -exorcise option\n" +
                          "  -dir-impl X: use a specific " + FSDirectory.class.getSimpleName() + " implementation. " +
                          "If no package is specified the " + FSDirectory.class.getPackage().getName() + " package will be used.\n" +
+                         "  -threadCount X: number of threads used to check segments concurrently (default 1)\n" +
                          "\n" +
                          "**WARNING**: -exorcise *LOSES DATA*. This should only be used on an emergency basis as it will cause\n" +
                          "documents (perhaps many) to be permanently removed from the index.  Always make\n" +
@@ -2349,6 +2645,7 @@ public class CheckIndex implements Closeable {
          CheckIndex checker = new CheckIndex(dir)) {
       checker.setCrossCheckTermVectors(doCrossCheckTermVectors);
       checker.setChecksumsOnly(doChecksumsOnly);
+      checker.setThreadCount(threadCount);
       checker.setInfoStream(System.out, verbose);
       
       Status result = checker.checkIndex(onlySegments);
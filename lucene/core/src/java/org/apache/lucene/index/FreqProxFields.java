@@ -75,8 +75,7 @@ class FreqProxFields extends Fields {
 
     @Override
     public long size() {
-      //return terms.termsHashPerField.bytesHash.size();
-      throw new UnsupportedOperationException();
+      return terms.bytesHash.size();
     }
 
     @Override
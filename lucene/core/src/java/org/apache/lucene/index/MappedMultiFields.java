@@ -65,7 +65,8 @@ public class MappedMultiFields extends FilterFields {
 
     @Override
     public long size() throws IOException {
-      throw new UnsupportedOperationException();
+      // unknown: terms that have no live docs anymore are not written
+      return -1;
     }
 
     @Override
@@ -22,7 +22,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.lucene.index.MultiTermsEnum.TermsEnumIndex;
 import org.apache.lucene.index.MultiTermsEnum.TermsEnumWithSlice;
@@ -32,6 +34,7 @@ import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.InPlaceMergeSorter;
 import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.PriorityQueue;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.packed.PackedInts;
 import org.apache.lucene.util.packed.PackedLongValues;
@@ -299,6 +302,18 @@ public class MultiDocValues {
    * </p>  
    */
   public static SortedDocValues getSortedValues(final IndexReader r, final String field) throws IOException {
+    return getSortedValues(r, field, null);
+  }
+
+  /** Returns a SortedDocValues for a reader's docvalues, building its {@link OrdinalMap}
+   * incrementally from the one of a {@link MultiSortedDocValues} that was returned
+   * for an earlier view of the same index, eg. before
+   * {@link DirectoryReader#openIfChanged(DirectoryReader) reopening}.
+   * Segments that both readers share are then merged without comparing
+   * their terms, which makes reopening much cheaper on high-cardinality fields.
+   * @param previous the ordinal map of the previous {@link MultiSortedDocValues} for the same field, or null
+   */
+  public static SortedDocValues getSortedValues(final IndexReader r, final String field, final OrdinalMap previous) throws IOException {
     final List<LeafReaderContext> leaves = r.leaves();
     final int size = leaves.size();
     
@@ -309,6 +324,7 @@ public class MultiDocValues {
     }
     
     boolean anyReal = false;
+    final Object[] segmentKeys = new Object[size];
     final SortedDocValues[] values = new SortedDocValues[size];
     final int[] starts = new int[size+1];
     for (int i = 0; i < size; i++) {
@@ -320,6 +336,7 @@ public class MultiDocValues {
         anyReal = true;
       }
       values[i] = v;
+      segmentKeys[i] = context.reader().getCoreCacheKey();
       starts[i] = context.docBase;
     }
     starts[size] = r.maxDoc();
@@ -327,7 +344,7 @@ public class MultiDocValues {
     if (!anyReal) {
       return null;
     } else {
-      OrdinalMap mapping = OrdinalMap.build(r.getCoreCacheKey(), values, PackedInts.DEFAULT);
+      OrdinalMap mapping = OrdinalMap.build(r.getCoreCacheKey(), segmentKeys, values, PackedInts.DEFAULT, previous);
       return new MultiSortedDocValues(values, starts, mapping);
     }
   }
@@ -339,6 +356,18 @@ public class MultiDocValues {
    * </p>  
    */
   public static SortedSetDocValues getSortedSetValues(final IndexReader r, final String field) throws IOException {
+    return getSortedSetValues(r, field, null);
+  }
+
+  /** Returns a SortedSetDocValues for a reader's docvalues, building its {@link OrdinalMap}
+   * incrementally from the one of a {@link MultiSortedSetDocValues} that was returned
+   * for an earlier view of the same index, eg. before
+   * {@link DirectoryReader#openIfChanged(DirectoryReader) reopening}.
+   * Segments that both readers share are then merged without comparing
+   * their terms, which makes reopening much cheaper on high-cardinality fields.
+   * @param previous the ordinal map of the previous {@link MultiSortedSetDocValues} for the same field, or null
+   */
+  public static SortedSetDocValues getSortedSetValues(final IndexReader r, final String field, final OrdinalMap previous) throws IOException {
     final List<LeafReaderContext> leaves = r.leaves();
     final int size = leaves.size();
     
@@ -349,6 +378,7 @@ public class MultiDocValues {
     }
     
     boolean anyReal = false;
+    final Object[] segmentKeys = new Object[size];
     final SortedSetDocValues[] values = new SortedSetDocValues[size];
     final int[] starts = new int[size+1];
     for (int i = 0; i < size; i++) {
@@ -360,6 +390,7 @@ public class MultiDocValues {
         anyReal = true;
       }
       values[i] = v;
+      segmentKeys[i] = context.reader().getCoreCacheKey();
       starts[i] = context.docBase;
     }
     starts[size] = r.maxDoc();
@@ -367,7 +398,7 @@ public class MultiDocValues {
     if (!anyReal) {
       return null;
     } else {
-      OrdinalMap mapping = OrdinalMap.build(r.getCoreCacheKey(), values, PackedInts.DEFAULT);
+      OrdinalMap mapping = OrdinalMap.build(r.getCoreCacheKey(), segmentKeys, values, PackedInts.DEFAULT, previous);
       return new MultiSortedSetDocValues(values, starts, mapping);
     }
   }
@@ -445,13 +476,23 @@ public class MultiDocValues {
      * @see #build(Object, TermsEnum[], long[], float)
      */
     public static OrdinalMap build(Object owner, SortedDocValues[] values, float acceptableOverheadRatio) throws IOException {
+      return build(owner, null, values, acceptableOverheadRatio, null);
+    }
+
+    /**
+     * Create an ordinal map that uses the number of unique values of each
+     * {@link SortedDocValues} instance as a weight, reusing the work of
+     * <code>previous</code> for segments whose keys it already knows.
+     * @see #build(Object, Object[], TermsEnum[], long[], float, OrdinalMap)
+     */
+    public static OrdinalMap build(Object owner, Object[] segmentKeys, SortedDocValues[] values, float acceptableOverheadRatio, OrdinalMap previous) throws IOException {
       final TermsEnum[] subs = new TermsEnum[values.length];
       final long[] weights = new long[values.length];
       for (int i = 0; i < values.length; ++i) {
         subs[i] = values[i].termsEnum();
         weights[i] = values[i].getValueCount();
       }
-      return build(owner, subs, weights, acceptableOverheadRatio);
+      return build(owner, segmentKeys, subs, weights, acceptableOverheadRatio, previous);
     }
 
     /**
@@ -460,13 +501,23 @@ public class MultiDocValues {
      * @see #build(Object, TermsEnum[], long[], float)
      */
     public static OrdinalMap build(Object owner, SortedSetDocValues[] values, float acceptableOverheadRatio) throws IOException {
+      return build(owner, null, values, acceptableOverheadRatio, null);
+    }
+
+    /**
+     * Create an ordinal map that uses the number of unique values of each
+     * {@link SortedSetDocValues} instance as a weight, reusing the work of
+     * <code>previous</code> for segments whose keys it already knows.
+     * @see #build(Object, Object[], TermsEnum[], long[], float, OrdinalMap)
+     */
+    public static OrdinalMap build(Object owner, Object[] segmentKeys, SortedSetDocValues[] values, float acceptableOverheadRatio, OrdinalMap previous) throws IOException {
       final TermsEnum[] subs = new TermsEnum[values.length];
       final long[] weights = new long[values.length];
       for (int i = 0; i < values.length; ++i) {
         subs[i] = values[i].termsEnum();
         weights[i] = values[i].getValueCount();
       }
-      return build(owner, subs, weights, acceptableOverheadRatio);
+      return build(owner, segmentKeys, subs, weights, acceptableOverheadRatio, previous);
     }
 
     /** 
@@ -481,19 +532,215 @@ public class MultiDocValues {
      * @throws IOException if an I/O error occurred.
      */
     public static OrdinalMap build(Object owner, TermsEnum subs[], long[] weights, float acceptableOverheadRatio) throws IOException {
+      return build(owner, null, subs, weights, acceptableOverheadRatio, null);
+    }
+
+    /**
+     * Creates an ordinal map that allows mapping ords to/from a merged
+     * space from <code>subs</code>, reusing the global ords of a previous
+     * map for the subs that it already covered.
+     * <p>
+     * Two subs that have the same key must enumerate exactly the same terms,
+     * which is the case of the core cache keys of segments with sorted or
+     * sorted set doc values since these can't be updated. Subs that are known
+     * to <code>previous</code> are merged by comparing their former global
+     * ords rather than their terms, and if all keys are the same as in
+     * <code>previous</code>, its mappings are shared with the returned map.
+     * @param owner a cache key
+     * @param segmentKeys a key for each sub, or null if the returned map
+     *             should neither use nor be usable as a previous map
+     * @param subs TermsEnums that support {@link TermsEnum#ord()}. They need
+     *             not be dense (e.g. can be FilteredTermsEnums}.
+     * @param weights a weight for each sub. This is ideally correlated with
+     *             the number of unique terms that each sub introduces compared
+     *             to the other subs
+     * @param previous a map that was built over an earlier view of the same
+     *             index, typically before a reopen, or null
+     * @throws IOException if an I/O error occurred.
+     */
+    public static OrdinalMap build(Object owner, Object[] segmentKeys, TermsEnum subs[], long[] weights, float acceptableOverheadRatio, OrdinalMap previous) throws IOException {
       if (subs.length != weights.length) {
         throw new IllegalArgumentException("subs and weights must have the same length");
       }
+      if (segmentKeys != null && segmentKeys.length != subs.length) {
+        throw new IllegalArgumentException("subs and segmentKeys must have the same length");
+      }
+      if (segmentKeys == null || previous == null || previous.segmentKeys == null) {
+        previous = null;
+      } else if (Arrays.equals(segmentKeys, previous.segmentKeys)) {
+        // nothing changed (eg. only deletes): share everything
+        return new OrdinalMap(owner, previous);
+      }
 
       // enums are not sorted, so let's sort to save memory
       final SegmentMap segmentMap = new SegmentMap(weights);
-      return new OrdinalMap(owner, subs, segmentMap, acceptableOverheadRatio);
+      return new OrdinalMap(owner, segmentKeys, subs, segmentMap, acceptableOverheadRatio, previous);
+    }
+
+    /**
+     * A {@link TermsEnum} over the union of the terms of segments that were
+     * already mapped by a previous {@link OrdinalMap}. Since both maps agree
+     * on term order, segments are merged using their previous global ords,
+     * which only requires comparing longs.
+     */
+    private static class ReusedSegmentsTermsEnum extends TermsEnum {
+
+      private static class Segment {
+        final TermsEnum termsEnum;
+        final LongValues previousGlobalOrds;
+        // index of this segment in the new segment map
+        final int index;
+        long previousGlobalOrd;
+
+        Segment(TermsEnum termsEnum, LongValues previousGlobalOrds, int index) {
+          this.termsEnum = termsEnum;
+          this.previousGlobalOrds = previousGlobalOrds;
+          this.index = index;
+        }
+      }
+
+      private static class SegmentQueue extends PriorityQueue<Segment> {
+
+        final int[] stack;
+
+        SegmentQueue(int size) {
+          super(size);
+          stack = new int[size];
+        }
+
+        @Override
+        protected boolean lessThan(Segment a, Segment b) {
+          return a.previousGlobalOrd < b.previousGlobalOrd;
+        }
+
+        /** Add the top segment as well as all segments that are positioned
+         *  on the same term to {@code tops} and return how many of them there are. */
+        int fillTop(Segment[] tops) {
+          final int size = size();
+          if (size == 0) {
+            return 0;
+          }
+          tops[0] = top();
+          int numTop = 1;
+          stack[0] = 1;
+          int stackLen = 1;
+          while (stackLen != 0) {
+            final int index = stack[--stackLen];
+            final int leftChild = index << 1;
+            for (int child = leftChild, end = Math.min(size, leftChild + 1); child <= end; ++child) {
+              final Segment segment = (Segment) getHeapArray()[child];
+              if (segment.previousGlobalOrd == tops[0].previousGlobalOrd) {
+                tops[numTop++] = segment;
+                stack[stackLen++] = child;
+              }
+            }
+          }
+          return numTop;
+        }
+      }
+
+      private final Segment[] segments;
+      private final SegmentQueue queue;
+      // segments that are positioned on the current term
+      private final Segment[] current;
+      private int numCurrent;
+      private boolean positioned;
+      private BytesRef term;
+
+      ReusedSegmentsTermsEnum(Segment[] segments) {
+        this.segments = segments;
+        queue = new SegmentQueue(segments.length);
+        current = new Segment[segments.length];
+      }
+
+      @Override
+      public BytesRef next() throws IOException {
+        if (positioned == false) {
+          // first call: position all segments
+          positioned = true;
+          for (Segment segment : segments) {
+            if (segment.termsEnum.next() != null) {
+              segment.previousGlobalOrd = segment.previousGlobalOrds.get(segment.termsEnum.ord());
+              queue.add(segment);
+            }
+          }
+        } else {
+          // advance the segments that are on the current term, which are all
+          // at the top of the queue
+          for (int i = 0; i < numCurrent; ++i) {
+            final Segment top = queue.top();
+            if (top.termsEnum.next() == null) {
+              queue.pop();
+            } else {
+              top.previousGlobalOrd = top.previousGlobalOrds.get(top.termsEnum.ord());
+              queue.updateTop();
+            }
+          }
+        }
+        numCurrent = queue.fillTop(current);
+        if (numCurrent == 0) {
+          return term = null;
+        }
+        return term = current[0].termsEnum.term();
+      }
+
+      /** Number of segments that contain the current term. */
+      int matchCount() {
+        return numCurrent;
+      }
+
+      /** Index in the new segment map of the i-th segment that contains the current term. */
+      int matchIndex(int i) {
+        return current[i].index;
+      }
+
+      /** Ord of the current term in the i-th segment that contains it. */
+      long matchOrd(int i) throws IOException {
+        return current[i].termsEnum.ord();
+      }
+
+      @Override
+      public BytesRef term() {
+        return term;
+      }
+
+      @Override
+      public SeekStatus seekCeil(BytesRef text) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public void seekExact(long ord) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long ord() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public int docFreq() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public long totalTermFreq() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public PostingsEnum postings(PostingsEnum reuse, int flags) {
+        throw new UnsupportedOperationException();
+      }
     }
 
     private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OrdinalMap.class);
 
     // cache key of whoever asked for this awful thing
     final Object owner;
+    // keys of the segments, in their original order, or null
+    final Object[] segmentKeys;
     // globalOrd -> (globalOrd - segmentOrd) where segmentOrd is the the ordinal in the first segment that contains this term
     final PackedLongValues globalOrdDeltas;
     // globalOrd -> first segment container
@@ -505,10 +752,22 @@ public class MultiDocValues {
     // ram usage
     final long ramBytesUsed;
     
-    OrdinalMap(Object owner, TermsEnum subs[], SegmentMap segmentMap, float acceptableOverheadRatio) throws IOException {
-      // create the ordinal mappings by pulling a termsenum over each sub's 
+    /** Creates a map with a different owner that shares all mappings of <code>other</code>. */
+    private OrdinalMap(Object owner, OrdinalMap other) {
+      this.owner = owner;
+      this.segmentKeys = other.segmentKeys;
+      this.globalOrdDeltas = other.globalOrdDeltas;
+      this.firstSegments = other.firstSegments;
+      this.segmentToGlobalOrds = other.segmentToGlobalOrds;
+      this.segmentMap = other.segmentMap;
+      this.ramBytesUsed = other.ramBytesUsed;
+    }
+
+    OrdinalMap(Object owner, Object[] segmentKeys, TermsEnum subs[], SegmentMap segmentMap, float acceptableOverheadRatio, OrdinalMap previous) throws IOException {
+      // create the ordinal mappings by pulling a termsenum over each sub's
       // unique terms, and walking a multitermsenum over those
       this.owner = owner;
+      this.segmentKeys = segmentKeys == null ? null : segmentKeys.clone();
       this.segmentMap = segmentMap;
       // even though we accept an overhead ratio, we keep these ones with COMPACT
       // since they are only used to resolve values given a global ord, which is
@@ -521,22 +780,85 @@ public class MultiDocValues {
       }
       long[] ordDeltaBits = new long[subs.length];
       long segmentOrds[] = new long[subs.length];
-      ReaderSlice slices[] = new ReaderSlice[subs.length];
-      TermsEnumIndex indexes[] = new TermsEnumIndex[slices.length];
-      for (int i = 0; i < slices.length; i++) {
-        slices[i] = new ReaderSlice(0, 0, i);
-        indexes[i] = new TermsEnumIndex(subs[segmentMap.newToOld(i)], i);
+
+      // segments that the previous map already knows about are merged
+      // together by ReusedSegmentsTermsEnum, which then acts as a single sub
+      final List<ReusedSegmentsTermsEnum.Segment> reused = new ArrayList<>();
+      if (previous != null) {
+        final Map<Object,Integer> previousSegments = new HashMap<>();
+        for (int i = 0; i < previous.segmentKeys.length; ++i) {
+          previousSegments.put(previous.segmentKeys[i], i);
+        }
+        for (int i = 0; i < subs.length; ++i) {
+          final Integer previousSegment = previousSegments.get(segmentKeys[segmentMap.newToOld(i)]);
+          if (previousSegment != null) {
+            reused.add(new ReusedSegmentsTermsEnum.Segment(subs[segmentMap.newToOld(i)], previous.getGlobalOrds(previousSegment), i));
+          }
+        }
+        if (reused.size() < 2) {
+          // nothing to save
+          reused.clear();
+        }
+      }
+      final ReusedSegmentsTermsEnum reusedTermsEnum;
+      final int numSlices;
+      if (reused.isEmpty()) {
+        reusedTermsEnum = null;
+        numSlices = subs.length;
+      } else {
+        reusedTermsEnum = new ReusedSegmentsTermsEnum(reused.toArray(new ReusedSegmentsTermsEnum.Segment[reused.size()]));
+        numSlices = subs.length - reused.size() + 1;
       }
+      // slice -> index in the segment map, or -1 for the reused segments
+      final int[] sliceToSegment = new int[numSlices];
+      ReaderSlice slices[] = new ReaderSlice[numSlices];
+      TermsEnumIndex indexes[] = new TermsEnumIndex[numSlices];
+      int numIndexes = 0;
+      int nextReused = 0;
+      for (int i = 0; i < subs.length; i++) {
+        if (nextReused < reused.size() && reused.get(nextReused).index == i) {
+          nextReused++;
+          continue;
+        }
+        slices[numIndexes] = new ReaderSlice(0, 0, numIndexes);
+        indexes[numIndexes] = new TermsEnumIndex(subs[segmentMap.newToOld(i)], numIndexes);
+        sliceToSegment[numIndexes] = i;
+        numIndexes++;
+      }
+      if (reusedTermsEnum != null) {
+        slices[numIndexes] = new ReaderSlice(0, 0, numIndexes);
+        indexes[numIndexes] = new TermsEnumIndex(reusedTermsEnum, numIndexes);
+        sliceToSegment[numIndexes] = -1;
+        numIndexes++;
+      }
+      assert numIndexes == numSlices;
       MultiTermsEnum mte = new MultiTermsEnum(slices);
       mte.reset(indexes);
+      final int[] matchSegments = new int[subs.length];
+      final long[] matchOrds = new long[subs.length];
       long globalOrd = 0;
-      while (mte.next() != null) {        
+      while (mte.next() != null) {
         TermsEnumWithSlice matches[] = mte.getMatchArray();
+        int matchCount = 0;
+        for (int i = 0; i < mte.getMatchCount(); i++) {
+          final int segmentIndex = sliceToSegment[matches[i].index];
+          if (segmentIndex == -1) {
+            for (int j = 0; j < reusedTermsEnum.matchCount(); ++j) {
+              matchSegments[matchCount] = reusedTermsEnum.matchIndex(j);
+              matchOrds[matchCount] = reusedTermsEnum.matchOrd(j);
+              matchCount++;
+            }
+          } else {
+            matchSegments[matchCount] = segmentIndex;
+            matchOrds[matchCount] = matches[i].terms.ord();
+            matchCount++;
+          }
+        }
         int firstSegmentIndex = Integer.MAX_VALUE;
         long globalOrdDelta = Long.MAX_VALUE;
-        for (int i = 0; i < mte.getMatchCount(); i++) {
-          int segmentIndex = matches[i].index;
-          long segmentOrd = matches[i].terms.ord();
+        for (int i = 0; i < matchCount; i++) {
+          int segmentIndex = matchSegments[i];
+          long segmentOrd = matchOrds[i];
           long delta = globalOrd - segmentOrd;
           // We compute the least segment where the term occurs. In case the
           // first segment contains most (or better all) values, this will
@@ -565,6 +887,9 @@ public class MultiDocValues {
       long ramBytesUsed = BASE_RAM_BYTES_USED + this.globalOrdDeltas.ramBytesUsed()
           + this.firstSegments.ramBytesUsed() + RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds)
           + segmentMap.ramBytesUsed();
+      if (this.segmentKeys != null) {
+        ramBytesUsed += RamUsageEstimator.shallowSizeOf(this.segmentKeys);
+      }
       for (int i = 0; i < ordDeltas.length; ++i) {
         final PackedLongValues deltas = ordDeltas[i].build();
         if (ordDeltaBits[i] == 0L) {
@@ -585,20 +910,10 @@ public class MultiDocValues {
               newDeltas.set(ord, it.next());
             }
             assert !it.hasNext();
-            segmentToGlobalOrds[i] = new LongValues() {
-              @Override
-              public long get(long ord) {
-                return ord + newDeltas.get((int) ord);
-              }
-            };
+            segmentToGlobalOrds[i] = withDeltas(newDeltas);
             ramBytesUsed += newDeltas.ramBytesUsed();
           } else {
-            segmentToGlobalOrds[i] = new LongValues() {
-              @Override
-              public long get(long ord) {
-                return ord + deltas.get(ord);
-              }
-            };
+            segmentToGlobalOrds[i] = withDeltas(deltas);
             ramBytesUsed += deltas.ramBytesUsed();
           }
           ramBytesUsed += RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds[i]);
@@ -607,6 +922,27 @@ public class MultiDocValues {
       this.ramBytesUsed = ramBytesUsed;
     }
 
+    // these are static so that the returned instances don't hold a reference
+    // to the map, which may be shared with maps built later on
+
+    private static LongValues withDeltas(final PackedInts.Mutable deltas) {
+      return new LongValues() {
+        @Override
+        public long get(long ord) {
+          return ord + deltas.get((int) ord);
+        }
+      };
+    }
+
+    private static LongValues withDeltas(final PackedLongValues deltas) {
+      return new LongValues() {
+        @Override
+        public long get(long ord) {
+          return ord + deltas.get(ord);
+        }
+      };
+    }
+
     /** 
      * Given a segment number, return a {@link LongValues} instance that maps
      * segment ordinals to global ordinals.
@@ -32,4 +32,21 @@ public abstract class NumericDocValues {
    * @return numeric value
    */
   public abstract long get(int docID);
+
+  /**
+   * Bulk get: read the values of at least one and at most <code>len</code>
+   * documents starting from <code>docID</code> into <code>arr[off:off+len]</code>
+   * and return the actual number of values that have been read. This is
+   * faster than calling {@link #get(int)} for every document on
+   * implementations that decode several values at once. The documents must
+   * exist in the segment.
+   */
+  public int get(int docID, long[] arr, int off, int len) {
+    assert len > 0 : "len must be > 0 (got " + len + ")";
+    assert off + len <= arr.length;
+    for (int i = 0; i < len; ++i) {
+      arr[off + i] = get(docID + i);
+    }
+    return len;
+  }
 }
@@ -108,4 +108,39 @@ public abstract class PostingsEnum extends DocIdSetIterator {
    *  in the byte[]). */
   public abstract BytesRef getPayload() throws IOException;
 
+  /**
+   * Expert: reads the documents that follow the current one into
+   * {@code docs}, and their frequencies into {@code freqs} unless it is
+   * {@code null}. Returns how many documents were read, which is at least 1
+   * and at most {@code docs.length}, or 0 if this enum is exhausted, in
+   * which case {@link #docID()} returns {@link DocIdSetIterator#NO_MORE_DOCS}.
+   * Otherwise this enum is positioned on the last document that was read.
+   * <p>
+   * The default implementation calls {@link #nextDoc()} and {@link #freq()}
+   * in a loop. Block-based implementations can override it in order to hand
+   * out a whole decoded block at once, which callers can then consume with a
+   * tight loop over the arrays. Implementations may return fewer documents
+   * than fit in {@code docs} even though the enum is not exhausted.
+   * <p>
+   * <b>NOTE:</b> {@code docs} must not be empty, and {@code freqs}, if not
+   * {@code null}, must be at least as large as {@code docs}.
+   *
+   * @lucene.experimental
+   */
+  public int nextBlock(int[] docs, int[] freqs) throws IOException {
+    int count = 0;
+    while (count < docs.length) {
+      final int doc = nextDoc();
+      if (doc == NO_MORE_DOCS) {
+        break;
+      }
+      docs[count] = doc;
+      if (freqs != null) {
+        freqs[count] = freq();
+      }
+      ++count;
+    }
+    return count;
+  }
+
 }
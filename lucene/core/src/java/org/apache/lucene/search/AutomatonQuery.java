@@ -27,6 +27,7 @@ import org.apache.lucene.util.AttributeSource;
 import org.apache.lucene.util.ToStringUtils;
 import org.apache.lucene.util.automaton.Automaton;
 import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.apache.lucene.util.automaton.CompiledAutomatonCache;
 import org.apache.lucene.util.automaton.Operations;
 
 /**
@@ -104,6 +105,21 @@ public class AutomatonQuery extends MultiTermQuery {
     this.compiled = new CompiledAutomaton(automaton, null, true, maxDeterminizedStates, isBinary);
   }
 
+  /**
+   * Create a new AutomatonQuery from an automaton that was already compiled,
+   * for instance by a {@link CompiledAutomatonCache}.
+   *
+   * @param term Term containing field and possibly some pattern structure. The
+   *        term text is ignored.
+   * @param entry the automaton to run and its compiled form
+   */
+  protected AutomatonQuery(final Term term, CompiledAutomatonCache.Entry entry) {
+    super(term.field());
+    this.term = term;
+    this.automaton = entry.automaton;
+    this.compiled = entry.compiled;
+  }
+
   @Override
   protected TermsEnum getTermsEnum(Terms terms, AttributeSource atts) throws IOException {
     return compiled.getTermsEnum(terms);
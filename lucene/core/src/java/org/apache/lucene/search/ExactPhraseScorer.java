@@ -109,10 +109,16 @@ final class ExactPhraseScorer extends Scorer {
     return docScorer.score(docID(), freq);
   }
 
-  /** Advance the given pos enum to the first doc on or after {@code target}.
+  /** Advance the given pos enum to the first position on or after {@code target}.
    *  Return {@code false} if the enum was exhausted before reaching
-   *  {@code target} and {@code true} otherwise. */
+   *  {@code target} and {@code true} otherwise. Positions of a document are
+   *  only decoded once this method asks for them, so terms that come after a
+   *  mismatch in the phrase never read any position. */
   private static boolean advancePosition(PostingsAndPosition posting, int target) throws IOException {
+    if (posting.upTo == 0) {
+      posting.pos = posting.postings.nextPosition();
+      posting.upTo = 1;
+    }
     while (posting.pos < target) {
       if (posting.upTo == posting.freq) {
         return false;
@@ -125,13 +131,13 @@ final class ExactPhraseScorer extends Scorer {
   }
 
   private int phraseFreq() throws IOException {
-    // reset state
+    // reset state, only the lead reads its first position eagerly
     final PostingsAndPosition[] postings = this.postings;
     for (PostingsAndPosition posting : postings) {
       posting.freq = posting.postings.freq();
-      posting.pos = posting.postings.nextPosition();
-      posting.upTo = 1;
+      posting.upTo = 0;
     }
+    advancePosition(postings[0], Integer.MIN_VALUE);
 
     int freq = 0;
     final PostingsAndPosition lead = postings[0];
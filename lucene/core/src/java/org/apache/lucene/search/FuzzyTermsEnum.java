@@ -19,6 +19,7 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -38,6 +39,7 @@ import org.apache.lucene.util.UnicodeUtil;
 import org.apache.lucene.util.automaton.Automaton;
 import org.apache.lucene.util.automaton.ByteRunAutomaton;
 import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.apache.lucene.util.automaton.CompiledAutomatonCache;
 import org.apache.lucene.util.automaton.LevenshteinAutomata;
 
 /** Subclass of TermsEnum for enumerating all terms that are similar
@@ -165,14 +167,25 @@ public class FuzzyTermsEnum extends TermsEnum {
     //System.out.println("cached automata size: " + runAutomata.size());
     if (runAutomata.size() <= maxDistance &&
         maxDistance <= LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE) {
-      LevenshteinAutomata builder = 
-        new LevenshteinAutomata(UnicodeUtil.newString(termText, realPrefixLength, termText.length - realPrefixLength), transpositions);
-
-      String prefix = UnicodeUtil.newString(termText, 0, realPrefixLength);
+      final String suffix = UnicodeUtil.newString(termText, realPrefixLength, termText.length - realPrefixLength);
+      final String prefix = UnicodeUtil.newString(termText, 0, realPrefixLength);
+      final CompiledAutomatonCache cache = CompiledAutomatonCache.getDefault();
+      LevenshteinAutomata builder = null;
       for (int i = runAutomata.size(); i <= maxDistance; i++) {
-        Automaton a = builder.toAutomaton(i, prefix);
-        //System.out.println("compute automaton n=" + i);
-        runAutomata.add(new CompiledAutomaton(a, true, false));
+        final List<Object> key = Arrays.<Object>asList("fuzzy", prefix, suffix, i, transpositions);
+        CompiledAutomatonCache.Entry entry = cache == null ? null : cache.get(key);
+        if (entry == null) {
+          if (builder == null) {
+            builder = new LevenshteinAutomata(suffix, transpositions);
+          }
+          Automaton a = builder.toAutomaton(i, prefix);
+          //System.out.println("compute automaton n=" + i);
+          entry = new CompiledAutomatonCache.Entry(a, new CompiledAutomaton(a, true, false));
+          if (cache != null) {
+            cache.putIfAbsent(key, entry);
+          }
+        }
+        runAutomata.add(entry.compiled);
       }
     }
     return runAutomata;
@@ -264,6 +264,16 @@ public class IndexSearcher {
     this.queryCache = queryCache;
   }
 
+  /**
+   * Return the query cache of this {@link IndexSearcher}, or {@code null} if
+   * query matches are never cached.
+   * @see #setQueryCache(QueryCache)
+   * @lucene.experimental
+   */
+  public QueryCache getQueryCache() {
+    return queryCache;
+  }
+
   /**
    * Set the {@link QueryCachingPolicy} to use for query caching.
    * This method should be called <b>before</b> starting using this
@@ -275,6 +285,15 @@ public class IndexSearcher {
     this.queryCachingPolicy = Objects.requireNonNull(queryCachingPolicy);
   }
 
+  /**
+   * Return the query caching policy of this {@link IndexSearcher}.
+   * @see #setQueryCachingPolicy(QueryCachingPolicy)
+   * @lucene.experimental
+   */
+  public QueryCachingPolicy getQueryCachingPolicy() {
+    return queryCachingPolicy;
+  }
+
   /**
    * Expert: Creates an array of leaf slices each holding a subset of the given leaves.
    * Each {@link LeafSlice} is executed in a single thread. By default there
@@ -346,26 +365,60 @@ public class IndexSearcher {
 
   /**
    * Count how many documents match the given query.
+   * Leaves for which {@link Weight#count(LeafReaderContext)} knows the
+   * answer are not iterated at all, hits of other leaves are collected with
+   * a {@link TotalHitCountCollector}.
    */
   public int count(Query query) throws IOException {
-    final CollectorManager<TotalHitCountCollector, Integer> collectorManager = new CollectorManager<TotalHitCountCollector, Integer>() {
-
-      @Override
-      public TotalHitCountCollector newCollector() throws IOException {
-        return new TotalHitCountCollector();
+    final Weight weight = createNormalizedWeight(query, false);
+    if (executor == null) {
+      return count(leafContexts, weight);
+    } else {
+      final List<Future<Integer>> countFutures = new ArrayList<>(leafSlices.length);
+      for (int i = 0; i < leafSlices.length; ++i) {
+        final LeafReaderContext[] leaves = leafSlices[i].leaves;
+        countFutures.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            return count(Arrays.asList(leaves), weight);
+          }
+        }));
       }
 
-      @Override
-      public Integer reduce(Collection<TotalHitCountCollector> collectors) throws IOException {
-        int total = 0;
-        for (TotalHitCountCollector collector : collectors) {
-          total += collector.getTotalHits();
+      int total = 0;
+      for (Future<Integer> future : countFutures) {
+        try {
+          total += future.get();
+        } catch (InterruptedException e) {
+          throw new ThreadInterruptedException(e);
+        } catch (ExecutionException e) {
+          throw new RuntimeException(e);
         }
-        return total;
       }
+      return total;
+    }
+  }
 
-    };
-    return search(query, collectorManager);
+  /** Count matches of {@code weight} on the given leaves, using
+   *  {@link Weight#count(LeafReaderContext)} whenever possible. */
+  private int count(List<LeafReaderContext> leaves, Weight weight) throws IOException {
+    int total = 0;
+    TotalHitCountCollector collector = null;
+    for (LeafReaderContext ctx : leaves) {
+      final int leafCount = weight.count(ctx);
+      if (leafCount != -1) {
+        total += leafCount;
+      } else {
+        if (collector == null) {
+          collector = new TotalHitCountCollector();
+        }
+        search(Collections.singletonList(ctx), weight, collector);
+      }
+    }
+    if (collector != null) {
+      total += collector.getTotalHits();
+    }
+    return total;
   }
 
   /** Finds the top <code>n</code>
@@ -83,6 +83,14 @@ import org.apache.lucene.util.RoaringDocIdSet;
  * It is better to not perform heavy computations in these methods though since
  * they are called synchronously and under a lock.
  *
+ * By default, the least-recently used query is evicted when the cache is
+ * full. When created with an {@link #LRUQueryCache(int, long, int) eviction window}
+ * greater than 1, the cache instead evicts, among the least-recently used
+ * queries, the one whose {@link DocIdSet}s took the least time to build per
+ * byte of memory. This helps keep expensive entries, such as multi-term
+ * queries that expand to many terms, in the cache longer than entries that
+ * are cheap to recompute.
+ *
  * @see QueryCachingPolicy
  * @lucene.experimental
  */
@@ -112,6 +120,7 @@ public class LRUQueryCache implements QueryCache, Accountable {
 
   private final int maxSize;
   private final long maxRamBytesUsed;
+  private final int evictionWindow;
   // maps queries that are contained in the cache to a singleton so that this
   // cache does not store several copies of the same query
   private final Map<Query, Query> uniqueQueries;
@@ -134,8 +143,24 @@ public class LRUQueryCache implements QueryCache, Accountable {
    * with at most <code>maxRamBytesUsed</code> bytes of memory.
    */
   public LRUQueryCache(int maxSize, long maxRamBytesUsed) {
+    this(maxSize, maxRamBytesUsed, 1);
+  }
+
+  /**
+   * Create a new instance that will cache at most <code>maxSize</code> queries
+   * with at most <code>maxRamBytesUsed</code> bytes of memory, and that picks
+   * the query to evict among the <code>evictionWindow</code> least-recently
+   * used queries based on the time it took to build their cached
+   * {@link DocIdSet}s per byte of memory. An eviction window of 1 gives a
+   * pure LRU cache.
+   */
+  public LRUQueryCache(int maxSize, long maxRamBytesUsed, int evictionWindow) {
+    if (evictionWindow < 1) {
+      throw new IllegalArgumentException("evictionWindow must be at least 1, got " + evictionWindow);
+    }
     this.maxSize = maxSize;
     this.maxRamBytesUsed = maxRamBytesUsed;
+    this.evictionWindow = evictionWindow;
     uniqueQueries = new LinkedHashMap<>(16, 0.75f, true);
     mostRecentlyUsedQueries = uniqueQueries.keySet();
     cache = new IdentityHashMap<>();
@@ -249,7 +274,7 @@ public class LRUQueryCache implements QueryCache, Accountable {
     return cached;
   }
 
-  synchronized void putIfAbsent(Query query, LeafReaderContext context, DocIdSet set) {
+  synchronized void putIfAbsent(Query query, LeafReaderContext context, DocIdSet set, long buildNanos) {
     // under a lock to make sure that mostRecentlyUsedQueries and cache remain sync'ed
     // we don't want to have user-provided queries as keys in our cache since queries are mutable
     query = query.clone();
@@ -277,7 +302,7 @@ public class LRUQueryCache implements QueryCache, Accountable {
         }
       });
     }
-    leafCache.putIfAbsent(query, set);
+    leafCache.putIfAbsent(query, set, buildNanos);
     evictIfNecessary();
   }
 
@@ -285,11 +310,10 @@ public class LRUQueryCache implements QueryCache, Accountable {
     // under a lock to make sure that mostRecentlyUsedQueries and cache keep sync'ed
     if (requiresEviction()) {
       
-      Iterator<Query> iterator = mostRecentlyUsedQueries.iterator();
       do {
-        final Query query = iterator.next();
+        final Query query = evictionCandidate();
         final int size = mostRecentlyUsedQueries.size();
-        iterator.remove();
+        mostRecentlyUsedQueries.remove(query);
         if (size == mostRecentlyUsedQueries.size()) {
           // size did not decrease, because the hash of the query changed since it has been
           // put into the cache
@@ -299,8 +323,41 @@ public class LRUQueryCache implements QueryCache, Accountable {
               "], query: [" + query + "]");
         }
         onEviction(query);
-      } while (iterator.hasNext() && requiresEviction());
+      } while (mostRecentlyUsedQueries.isEmpty() == false && requiresEviction());
+    }
+  }
+
+  /** Return the query to evict: the least-recently used query in a pure LRU
+   *  cache, otherwise the one among the {@code evictionWindow} least-recently
+   *  used queries whose cache entries are the cheapest to rebuild per byte. */
+  private Query evictionCandidate() {
+    final Iterator<Query> iterator = mostRecentlyUsedQueries.iterator();
+    Query candidate = iterator.next();
+    if (evictionWindow > 1) {
+      double minCost = buildNanosPerByte(candidate);
+      for (int i = 1; i < evictionWindow && iterator.hasNext(); ++i) {
+        final Query query = iterator.next();
+        final double cost = buildNanosPerByte(query);
+        if (cost < minCost) {
+          candidate = query;
+          minCost = cost;
+        }
+      }
     }
+    return candidate;
+  }
+
+  private double buildNanosPerByte(Query singleton) {
+    long buildNanos = 0;
+    long ramBytesUsed = LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY + ramBytesUsed(singleton);
+    for (LeafCache leafCache : cache.values()) {
+      final DocIdSet set = leafCache.get(singleton);
+      if (set != null) {
+        buildNanos += leafCache.buildNanos.get(singleton);
+        ramBytesUsed += HASHTABLE_RAM_BYTES_PER_ENTRY + set.ramBytesUsed();
+      }
+    }
+    return (double) buildNanos / ramBytesUsed;
   }
 
   /**
@@ -362,6 +419,9 @@ public class LRUQueryCache implements QueryCache, Accountable {
     }
     for (LeafCache leafCache : cache.values()) {
       recomputedRamBytesUsed += HASHTABLE_RAM_BYTES_PER_ENTRY * leafCache.cache.size();
+      if (leafCache.buildNanos != null) {
+        recomputedRamBytesUsed += HASHTABLE_RAM_BYTES_PER_ENTRY * leafCache.buildNanos.size();
+      }
       for (DocIdSet set : leafCache.cache.values()) {
         recomputedRamBytesUsed += set.ramBytesUsed();
       }
@@ -503,14 +563,22 @@ public class LRUQueryCache implements QueryCache, Accountable {
 
     private final Object key;
     private final Map<Query, DocIdSet> cache;
+    // time it took to build the cached sets, only tracked for cost-aware eviction
+    private final Map<Query, Long> buildNanos;
     private volatile long ramBytesUsed;
 
     LeafCache(Object key) {
       this.key = key;
       cache = new IdentityHashMap<>();
+      buildNanos = evictionWindow > 1 ? new IdentityHashMap<Query, Long>() : null;
       ramBytesUsed = 0;
     }
 
+    private long entryRamBytesUsed(DocIdSet set) {
+      final long ramBytesUsed = HASHTABLE_RAM_BYTES_PER_ENTRY + set.ramBytesUsed();
+      return buildNanos == null ? ramBytesUsed : ramBytesUsed + HASHTABLE_RAM_BYTES_PER_ENTRY;
+    }
+
     private void onDocIdSetCache(long ramBytesUsed) {
       this.ramBytesUsed += ramBytesUsed;
       LRUQueryCache.this.onDocIdSetCache(key, ramBytesUsed);
@@ -526,11 +594,14 @@ public class LRUQueryCache implements QueryCache, Accountable {
       return cache.get(query);
     }
 
-    void putIfAbsent(Query query, DocIdSet set) {
+    void putIfAbsent(Query query, DocIdSet set, long buildNanos) {
       assert query == cacheKey(query);
       if (cache.containsKey(query) == false) {
         cache.put(query, set);
-        onDocIdSetCache(HASHTABLE_RAM_BYTES_PER_ENTRY + set.ramBytesUsed());
+        if (this.buildNanos != null) {
+          this.buildNanos.put(query, buildNanos);
+        }
+        onDocIdSetCache(entryRamBytesUsed(set));
       }
     }
 
@@ -538,7 +609,10 @@ public class LRUQueryCache implements QueryCache, Accountable {
       assert query == cacheKey(query);
       DocIdSet removed = cache.remove(query);
       if (removed != null) {
-        onDocIdSetEviction(HASHTABLE_RAM_BYTES_PER_ENTRY + removed.ramBytesUsed());
+        if (buildNanos != null) {
+          buildNanos.remove(query);
+        }
+        onDocIdSetEviction(entryRamBytesUsed(removed));
       }
     }
 
@@ -573,6 +647,12 @@ public class LRUQueryCache implements QueryCache, Accountable {
       in.extractTerms(terms);
     }
 
+    @Override
+    public int count(LeafReaderContext context) throws IOException {
+      // counts come from index statistics, no need to go through the cache
+      return in.count(context);
+    }
+
     private boolean cacheEntryHasReasonableWorstCaseSize(int maxDoc) {
       // The worst-case (dense) is a bit set which needs one bit per document
       final long worstCaseRamUsage = maxDoc / 8;
@@ -594,13 +674,14 @@ public class LRUQueryCache implements QueryCache, Accountable {
       if (docIdSet == null) {
         if (cacheEntryHasReasonableWorstCaseSize(ReaderUtil.getTopLevelContext(context).reader().maxDoc())
             && policy.shouldCache(in.getQuery(), context)) {
+          final long startNanos = System.nanoTime();
           final Scorer scorer = in.scorer(context);
           if (scorer == null) {
             docIdSet = DocIdSet.EMPTY;
           } else {
             docIdSet = cacheImpl(scorer, context.reader());
           }
-          putIfAbsent(in.getQuery(), context, docIdSet);
+          putIfAbsent(in.getQuery(), context, docIdSet, System.nanoTime() - startNanos);
         } else {
           return in.scorer(context);
         }
@@ -37,6 +37,10 @@ public final class MatchAllDocsQuery extends Query {
         return new Bits.MatchAllBits(context.reader().maxDoc());
       }
       @Override
+      public int count(LeafReaderContext context) throws IOException {
+        return context.reader().numDocs();
+      }
+      @Override
       public String toString() {
         return "weight(" + MatchAllDocsQuery.this + ")";
       }
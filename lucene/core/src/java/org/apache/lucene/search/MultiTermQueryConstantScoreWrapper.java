@@ -90,17 +90,37 @@ final class MultiTermQueryConstantScoreWrapper<Q extends MultiTermQuery> extends
     return query.toString(field);
   }
 
+  /** Whether the terms that the wrapped query matches are fully described by
+   *  its field and automaton, regardless of how the automaton was built. */
+  private static boolean isKeyedByAutomaton(MultiTermQuery query) {
+    final Class<?> clazz = query.getClass();
+    return clazz == AutomatonQuery.class || clazz == PrefixQuery.class || clazz == WildcardQuery.class
+        || clazz == RegexpQuery.class || clazz == TermRangeQuery.class;
+  }
+
   @Override
   public final boolean equals(final Object o) {
     if (super.equals(o) == false) {
       return false;
     }
     final MultiTermQueryConstantScoreWrapper<?> that = (MultiTermQueryConstantScoreWrapper<?>) o;
-    return this.query.equals(that.query) && this.getBoost() == that.getBoost();
+    if (this.getBoost() != that.getBoost()) {
+      return false;
+    }
+    if (isKeyedByAutomaton(this.query) && isKeyedByAutomaton(that.query)) {
+      // eg. a prefix query and the equivalent wildcard query match the same
+      // documents, so they can share their entries in the query cache
+      return this.query.getField().equals(that.query.getField())
+          && ((AutomatonQuery) this.query).compiled.equals(((AutomatonQuery) that.query).compiled);
+    }
+    return this.query.equals(that.query);
   }
 
   @Override
   public final int hashCode() {
+    if (isKeyedByAutomaton(query)) {
+      return 31 * (31 * super.hashCode() + query.getField().hashCode()) + ((AutomatonQuery) query).compiled.hashCode();
+    }
     return 31 * super.hashCode() + query.hashCode();
   }
 
@@ -109,6 +129,23 @@ final class MultiTermQueryConstantScoreWrapper<Q extends MultiTermQuery> extends
 
   @Override
   public Weight createWeight(final IndexSearcher searcher, final boolean needsScores) throws IOException {
+    if (needsScores && searcher.getQueryCache() != null) {
+      // IndexSearcher only caches weights that don't need scores, but scores
+      // are constant here so expansions that are worth caching can still come
+      // from the query cache
+      final Weight filterWeight = searcher.createWeight(this, false);
+      return new ConstantScoreWeight(this) {
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+          final Scorer scorer = filterWeight.scorer(context);
+          if (scorer == null) {
+            return null;
+          }
+          return new ConstantScoreScorer(this, score(), scorer);
+        }
+      };
+    }
+
     return new ConstantScoreWeight(this) {
 
       /** Try to collect terms from the given terms enum and return true iff all
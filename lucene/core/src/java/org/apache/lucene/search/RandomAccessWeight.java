@@ -22,6 +22,7 @@ import java.io.IOException;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.Bits.MatchNoBits;
+import org.apache.lucene.util.SparseBits;
 
 /**
  * Base class to build {@link Weight}s that are based on random-access
@@ -29,6 +30,8 @@ import org.apache.lucene.util.Bits.MatchNoBits;
  * {@link Scorer} which consists of an approximation that matches
  * everything, and a confirmation phase that first checks live docs and
  * then the {@link Bits} returned by {@link #getMatchingDocs(LeafReaderContext)}.
+ * If these bits are {@link SparseBits}, the scorer iterates over the set bits
+ * instead.
  * @lucene.internal
  */
 public abstract class RandomAccessWeight extends ConstantScoreWeight {
@@ -53,6 +56,9 @@ public abstract class RandomAccessWeight extends ConstantScoreWeight {
     if (matchingDocs == null || matchingDocs instanceof MatchNoBits) {
       return null;
     }
+    if (matchingDocs instanceof SparseBits) {
+      return new ConstantScoreScorer(this, score(), ((SparseBits) matchingDocs).iterator());
+    }
     final DocIdSetIterator approximation = DocIdSetIterator.all(context.reader().maxDoc());
     final TwoPhaseIterator twoPhase = new TwoPhaseIterator(approximation) {
 
@@ -17,10 +17,15 @@ package org.apache.lucene.search;
  * limitations under the License.
  */
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.lucene.index.Term;
 import org.apache.lucene.util.ToStringUtils;
 import org.apache.lucene.util.automaton.Automaton;
 import org.apache.lucene.util.automaton.AutomatonProvider;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.apache.lucene.util.automaton.CompiledAutomatonCache;
 import org.apache.lucene.util.automaton.Operations;
 import org.apache.lucene.util.automaton.RegExp;
 
@@ -105,9 +110,27 @@ public class RegexpQuery extends AutomatonQuery {
    */
   public RegexpQuery(Term term, int flags, AutomatonProvider provider,
       int maxDeterminizedStates) {
-    super(term,
-          new RegExp(term.text(), flags).toAutomaton(
-                       provider, maxDeterminizedStates), maxDeterminizedStates);
+    super(term, compile(term, flags, provider, maxDeterminizedStates));
+  }
+
+  private static CompiledAutomatonCache.Entry compile(Term term, int flags, AutomatonProvider provider,
+      int maxDeterminizedStates) {
+    // named automata of custom providers might change, so only cache the default
+    final CompiledAutomatonCache cache = provider == defaultProvider ? CompiledAutomatonCache.getDefault() : null;
+    final List<Object> key = Arrays.<Object>asList("regexp", term.text(), flags, maxDeterminizedStates);
+    if (cache != null) {
+      final CompiledAutomatonCache.Entry entry = cache.get(key);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    final Automaton automaton = new RegExp(term.text(), flags).toAutomaton(provider, maxDeterminizedStates);
+    final CompiledAutomatonCache.Entry entry = new CompiledAutomatonCache.Entry(automaton,
+        new CompiledAutomaton(automaton, null, true, maxDeterminizedStates, false));
+    if (cache != null) {
+      cache.putIfAbsent(key, entry);
+    }
+    return entry;
   }
   
   /** Prints a user-readable version of this query. */
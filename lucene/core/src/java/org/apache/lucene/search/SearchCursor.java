@@ -0,0 +1,191 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.util.Bits;
+
+/**
+ * Pages through the hits of a query, one page at a time.
+ * <p>
+ * A cursor keeps the {@link Weight} of the query and the last hit that it
+ * returned, so that each call to {@link #next(int)} only creates a collector
+ * for the requested page instead of re-running the whole query setup. If the
+ * sort is {@link Sort#INDEXORDER}, which is the common case for exports, the
+ * cursor also keeps the current leaf and its {@link Scorer} and resumes
+ * iteration where the previous page stopped: every page then costs
+ * O(page size) rather than O(number of hits), and going to page 10,000 is no
+ * more expensive than going to page 2. For other sorts, pages are computed
+ * like {@link IndexSearcher#searchAfter} does. In both cases, the memory used
+ * by the cursor is bounded by the size of a page.
+ * <p>
+ * A cursor holds a reference on the {@link IndexReader} of its searcher until
+ * it is {@link #close() closed}, so that the hits stay consistent across
+ * pages. Use {@link SearchCursorManager} to keep cursors across requests and
+ * to close the ones that are not used anymore.
+ * <p>
+ * <b>NOTE</b>: instances are not thread-safe.
+ *
+ * @lucene.experimental
+ */
+public class SearchCursor implements Closeable {
+
+  private final IndexSearcher searcher;
+  private final Query query;
+  private final Sort sort;
+  private final boolean streaming;
+  private final Weight weight;
+
+  // the last hit that was returned, for sorts that can't be streamed
+  private ScoreDoc after;
+
+  // iteration state for sorts that can be streamed
+  private int totalHits = -1;
+  private int leafOrd;
+  private Scorer leafScorer;
+  private Bits leafLiveDocs;
+
+  private long lastAccessNanos;
+  private boolean closed;
+
+  /**
+   * Creates a cursor over the hits of {@code query} sorted by {@code sort},
+   * or by relevance if {@code sort} is null.
+   */
+  public SearchCursor(IndexSearcher searcher, Query query, Sort sort) throws IOException {
+    this.searcher = searcher;
+    this.query = query;
+    this.sort = sort == null || Sort.RELEVANCE.equals(sort) ? null : sort.rewrite(searcher);
+    this.streaming = Sort.INDEXORDER.equals(this.sort);
+    final boolean needsScores = this.sort == null || this.sort.needsScores();
+    this.weight = searcher.createNormalizedWeight(query, needsScores);
+    searcher.getIndexReader().incRef();
+    lastAccessNanos = System.nanoTime();
+  }
+
+  /** Returns the query that this cursor pages through. */
+  public Query getQuery() {
+    return query;
+  }
+
+  /** Returns the sort of the hits, or null if they are sorted by relevance. */
+  public Sort getSort() {
+    return sort;
+  }
+
+  /**
+   * Returns the next {@code n} hits, or fewer if there are less than
+   * {@code n} hits left, in which case the cursor is exhausted and
+   * subsequent calls return no hits. If the cursor has a sort, the
+   * returned hits are {@link FieldDoc}s and the returned instance is a
+   * {@link TopFieldDocs}.
+   */
+  public TopDocs next(int n) throws IOException {
+    ensureOpen();
+    if (n <= 0) {
+      throw new IllegalArgumentException("n must be > 0, got " + n);
+    }
+    lastAccessNanos = System.nanoTime();
+    final int numHits = Math.min(n, Math.max(1, searcher.getIndexReader().maxDoc()));
+    if (streaming) {
+      return nextInIndexOrder(numHits);
+    }
+
+    final TopDocs topDocs;
+    if (sort == null) {
+      final TopScoreDocCollector collector = TopScoreDocCollector.create(numHits, after);
+      searcher.search(searcher.leafContexts, weight, collector);
+      topDocs = collector.topDocs();
+    } else {
+      final TopFieldCollector collector = TopFieldCollector.create(sort, numHits, (FieldDoc) after, true, false, false);
+      searcher.search(searcher.leafContexts, weight, collector);
+      topDocs = collector.topDocs();
+    }
+    if (topDocs.scoreDocs.length > 0) {
+      after = topDocs.scoreDocs[topDocs.scoreDocs.length - 1];
+    }
+    return topDocs;
+  }
+
+  private TopDocs nextInIndexOrder(int numHits) throws IOException {
+    if (totalHits == -1) {
+      totalHits = searcher.count(query);
+    }
+    final List<LeafReaderContext> leaves = searcher.leafContexts;
+    FieldDoc[] hits = new FieldDoc[numHits];
+    int count = 0;
+    while (count < numHits && leafOrd < leaves.size()) {
+      final LeafReaderContext context = leaves.get(leafOrd);
+      if (leafScorer == null) {
+        leafScorer = weight.scorer(context);
+        leafLiveDocs = context.reader().getLiveDocs();
+        if (leafScorer == null) {
+          leafOrd++;
+          continue;
+        }
+      }
+      final TwoPhaseIterator twoPhase = leafScorer.asTwoPhaseIterator();
+      final DocIdSetIterator iterator = twoPhase == null ? leafScorer : twoPhase.approximation();
+      int doc;
+      while (count < numHits && (doc = iterator.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        if ((leafLiveDocs == null || leafLiveDocs.get(doc)) && (twoPhase == null || twoPhase.matches())) {
+          final int globalDoc = context.docBase + doc;
+          hits[count++] = new FieldDoc(globalDoc, Float.NaN, new Object[] { globalDoc });
+        }
+      }
+      if (count < numHits) {
+        // this leaf is exhausted
+        leafScorer = null;
+        leafLiveDocs = null;
+        leafOrd++;
+      }
+    }
+    if (count < numHits) {
+      hits = Arrays.copyOf(hits, count);
+    }
+    return new TopFieldDocs(totalHits, hits, sort.getSort(), Float.NaN);
+  }
+
+  /** Returns the number of nanoseconds since this cursor was last used. */
+  public long getIdleNanos() {
+    return System.nanoTime() - lastAccessNanos;
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new AlreadyClosedException("this SearchCursor is closed");
+    }
+  }
+
+  /** Releases the reference on the reader of the searcher. */
+  @Override
+  public void close() throws IOException {
+    if (closed == false) {
+      closed = true;
+      leafScorer = null;
+      searcher.getIndexReader().decRef();
+    }
+  }
+}
@@ -0,0 +1,251 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * Keeps {@link SearchCursor}s across search requests and closes those that
+ * are not used anymore, either because they have been idle for too long or
+ * because too many cursors are open.
+ *
+ * Use it like this:
+ *
+ * <pre class="prettyprint">
+ *   SearchCursorManager mgr = new SearchCursorManager(1000, 600.0);
+ * </pre>
+ *
+ * On the first page, create a cursor and record it, then save the returned
+ * token in the response:
+ *
+ * <pre class="prettyprint">
+ *   SearchCursor cursor = new SearchCursor(searcher, query, Sort.INDEXORDER);
+ *   TopDocs page = cursor.next(pageSize);
+ *   long token = mgr.record(cursor);
+ * </pre>
+ *
+ * On the following pages:
+ *
+ * <pre class="prettyprint">
+ *   SearchCursor cursor = mgr.acquire(token);
+ *   if (cursor != null) {
+ *     try {
+ *       TopDocs page = cursor.next(pageSize);
+ *     } finally {
+ *       mgr.release(cursor);
+ *       cursor = null;
+ *     }
+ *   } else {
+ *     // cursor was pruned, restart from the first page
+ *   }
+ * </pre>
+ *
+ * and periodically, for instance from the thread that reopens searchers:
+ *
+ * <pre class="prettyprint">
+ *   mgr.prune();
+ * </pre>
+ *
+ * A cursor can only be acquired by one thread at a time, since
+ * {@link SearchCursor} is not thread-safe: {@link #acquire} waits until the
+ * cursor is released by its current user. Cursors that are acquired are
+ * never closed by this class.
+ *
+ * @lucene.experimental
+ */
+public class SearchCursorManager implements Closeable {
+
+  static final double NANOS_PER_SEC = 1000000000.0;
+
+  private static class CursorTracker {
+    final SearchCursor cursor;
+    // true while a thread holds the cursor, between acquire and release
+    boolean acquired;
+    // the cursor was removed while acquired and must be closed on release
+    boolean closeOnRelease;
+
+    CursorTracker(SearchCursor cursor) {
+      this.cursor = cursor;
+    }
+  }
+
+  private final int maxCursors;
+  private final long maxIdleNanos;
+  // in access order, so that iteration starts with the least recently used cursor
+  private final LinkedHashMap<Long,CursorTracker> cursors = new LinkedHashMap<>(16, 0.75f, true);
+  // acquired cursors, by identity, including those that were removed while acquired
+  private final Map<SearchCursor,CursorTracker> acquired = new IdentityHashMap<>();
+  private long nextToken;
+  private boolean closed;
+
+  /**
+   * Creates a new manager that keeps at most {@code maxCursors} cursors that
+   * are not acquired, and closes cursors that have not been used for
+   * {@code maxIdleSec} seconds or more when {@link #prune()} is called.
+   */
+  public SearchCursorManager(int maxCursors, double maxIdleSec) {
+    if (maxCursors <= 0) {
+      throw new IllegalArgumentException("maxCursors must be > 0, got " + maxCursors);
+    }
+    if (maxIdleSec < 0) {
+      throw new IllegalArgumentException("maxIdleSec must be >= 0, got " + maxIdleSec);
+    }
+    this.maxCursors = maxCursors;
+    this.maxIdleNanos = (long) (maxIdleSec * NANOS_PER_SEC);
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new AlreadyClosedException("this SearchCursorManager instance is closed");
+    }
+  }
+
+  /**
+   * Records the provided cursor and returns the token to {@link #acquire} it
+   * again. If this makes the number of cursors go above the limit, the least
+   * recently used other cursors that are not acquired are closed.
+   */
+  public synchronized long record(SearchCursor cursor) throws IOException {
+    ensureOpen();
+    final long token = nextToken++;
+    final CursorTracker recorded = new CursorTracker(cursor);
+    cursors.put(token, recorded);
+    List<SearchCursor> toClose = new ArrayList<>();
+    int numToEvict = cursors.size() - maxCursors;
+    for (Iterator<CursorTracker> it = cursors.values().iterator(); numToEvict > 0 && it.hasNext(); ) {
+      final CursorTracker tracker = it.next();
+      if (tracker.acquired == false && tracker != recorded) {
+        it.remove();
+        toClose.add(tracker.cursor);
+        numToEvict--;
+      }
+    }
+    IOUtils.close(toClose);
+    return token;
+  }
+
+  /**
+   * Returns the cursor that was recorded with the given token, or null if
+   * it has been closed in the meantime. If another thread has acquired the
+   * cursor, this waits until it is released. You must call {@link #release}
+   * once you are done with it.
+   */
+  public synchronized SearchCursor acquire(long token) {
+    ensureOpen();
+    CursorTracker tracker;
+    while ((tracker = cursors.get(token)) != null && tracker.acquired) {
+      try {
+        wait();
+      } catch (InterruptedException ie) {
+        throw new ThreadInterruptedException(ie);
+      }
+      ensureOpen();
+    }
+    if (tracker == null) {
+      return null;
+    }
+    tracker.acquired = true;
+    acquired.put(tracker.cursor, tracker);
+    return tracker.cursor;
+  }
+
+  /** Releases a cursor that was returned by {@link #acquire}. */
+  public synchronized void release(SearchCursor cursor) throws IOException {
+    final CursorTracker tracker = acquired.remove(cursor);
+    if (tracker == null) {
+      throw new IllegalArgumentException("this cursor is not acquired from this manager");
+    }
+    tracker.acquired = false;
+    notifyAll();
+    if (tracker.closeOnRelease) {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Closes the cursor that was recorded with the given token, eg. once the
+   * last page has been returned. If the cursor is acquired, it is closed when
+   * it is released. Returns false if there was no such cursor.
+   */
+  public synchronized boolean remove(long token) throws IOException {
+    final CursorTracker tracker = cursors.remove(token);
+    if (tracker == null) {
+      return false;
+    }
+    if (tracker.acquired) {
+      tracker.closeOnRelease = true;
+    } else {
+      tracker.cursor.close();
+    }
+    return true;
+  }
+
+  /**
+   * Closes all cursors that are not acquired and have been idle for at least
+   * the configured time. Returns the number of closed cursors.
+   */
+  public synchronized int prune() throws IOException {
+    List<SearchCursor> toClose = new ArrayList<>();
+    for (Iterator<CursorTracker> it = cursors.values().iterator(); it.hasNext(); ) {
+      final CursorTracker tracker = it.next();
+      if (tracker.acquired == false && tracker.cursor.getIdleNanos() >= maxIdleNanos) {
+        it.remove();
+        toClose.add(tracker.cursor);
+      }
+    }
+    IOUtils.close(toClose);
+    return toClose.size();
+  }
+
+  /** Returns the number of cursors that this manager keeps. */
+  public synchronized int size() {
+    return cursors.size();
+  }
+
+  /**
+   * Closes all cursors. Cursors that are still acquired remain usable by
+   * their current users and are closed when they are released.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    closed = true;
+    List<SearchCursor> toClose = new ArrayList<>();
+    for (CursorTracker tracker : cursors.values()) {
+      if (tracker.acquired) {
+        tracker.closeOnRelease = true;
+      } else {
+        toClose.add(tracker.cursor);
+      }
+    }
+    cursors.clear();
+    // threads waiting to acquire a cursor fail now
+    notifyAll();
+    IOUtils.close(toClose);
+  }
+}
@@ -49,6 +49,7 @@ final class SloppyPhraseScorer extends Scorer {
   private boolean hasMultiTermRpts; //  
   private PhrasePositions[][] rptGroups; // in each group are PPs that repeats each other (i.e. same term), sorted by (query) offset 
   private PhrasePositions[] rptStack; // temporary stack for switching colliding repeating pps 
+  private FixedBitSet rptRequeue; // reused marks of pps to re-queue after collisions, sized to the largest rptGroup
   
   private int numMatches;
   final boolean needsScores;
@@ -146,31 +147,29 @@ final class SloppyPhraseScorer extends Scorer {
       return true; // not a repeater
     }
     PhrasePositions[] rg = rptGroups[pp.rptGroup];
-    FixedBitSet bits = new FixedBitSet(rg.length); // for re-queuing after collisions are resolved
+    final FixedBitSet bits = rptRequeue; // for re-queuing after collisions are resolved
+    int numMarked = 0;
     int k0 = pp.rptInd;
     int k;
     while((k=collide(pp)) >= 0) {
       pp = lesser(pp, rg[k]); // always advance the lesser of the (only) two colliding pps
       if (!advancePP(pp)) {
+        bits.clear(0, rg.length); // leave the marks clean for the next doc
         return false; // exhausted
       }
-      if (k != k0) { // careful: mark only those currently in the queue
-        bits = FixedBitSet.ensureCapacity(bits, k);
-        bits.set(k); // mark that pp2 need to be re-queued
+      if (k != k0 && !bits.getAndSet(k)) { // careful: mark only those currently in the queue
+        numMarked++; // mark that pp2 need to be re-queued
       }
     }
     // collisions resolved, now re-queue
     // empty (partially) the queue until seeing all pps advanced for resolving collisions
     int n = 0;
-    // TODO would be good if we can avoid calling cardinality() in each iteration!
-    int numBits = bits.length(); // larges bit we set
-    while (bits.cardinality() > 0) {
+    while (numMarked > 0) {
       PhrasePositions pp2 = pq.pop();
       rptStack[n++] = pp2;
-      if (pp2.rptGroup >= 0 
-          && pp2.rptInd < numBits  // this bit may not have been set
-          && bits.get(pp2.rptInd)) {
+      if (pp2.rptGroup == pp.rptGroup && bits.get(pp2.rptInd)) {
         bits.clear(pp2.rptInd);
+        numMarked--;
       }
     }
     // add back to queue
@@ -354,6 +353,7 @@ final class SloppyPhraseScorer extends Scorer {
    * Done only once (at first doc) and allows to initialize faster for each doc. */
   private void sortRptGroups(ArrayList<ArrayList<PhrasePositions>> rgs) {
     rptGroups = new PhrasePositions[rgs.size()][];
+    int maxGroupSize = 0;
     Comparator<PhrasePositions> cmprtr = new Comparator<PhrasePositions>() {
       @Override
       public int compare(PhrasePositions pp1, PhrasePositions pp2) {
@@ -364,10 +364,12 @@ final class SloppyPhraseScorer extends Scorer {
       PhrasePositions[] rg = rgs.get(i).toArray(new PhrasePositions[0]);
       Arrays.sort(rg, cmprtr);
       rptGroups[i] = rg;
+      maxGroupSize = Math.max(maxGroupSize, rg.length);
       for (int j=0; j<rg.length; j++) {
         rg[j].rptInd = j; // we use this index for efficient re-queuing
       }
     }
+    rptRequeue = new FixedBitSet(maxGroupSize);
   }
 
   /** Detect repetition groups. Done once - for first doc */
@@ -0,0 +1,159 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+/** {@link BulkScorer} for a single term that reads postings a block at a
+ *  time through {@link PostingsEnum#nextBlock} and collects them with a loop
+ *  over the decoded arrays, rather than a {@link PostingsEnum#nextDoc()} call
+ *  per document. Collectors get a {@link TermScorer} positioned on the
+ *  collected document, which only computes scores if they are asked for. */
+final class TermBulkScorer extends BulkScorer {
+
+  /** Matches the block size of the default postings format. */
+  static final int BLOCK_SIZE = 128;
+
+  private final PostingsEnum postingsEnum;
+  private final CurrentDoc current;
+  private final TermScorer scorer;
+  private final int[] docs = new int[BLOCK_SIZE];
+  private final int[] freqs;
+
+  // docs[upto:count] have been read from the postings but not collected yet
+  private int upto, count;
+
+  TermBulkScorer(Weight weight, PostingsEnum td, Similarity.SimScorer docScorer, boolean needsFreqs) {
+    this.postingsEnum = td;
+    this.current = new CurrentDoc(td.cost());
+    this.scorer = new TermScorer(weight, current, docScorer);
+    this.freqs = needsFreqs ? new int[BLOCK_SIZE] : null;
+  }
+
+  @Override
+  public long cost() {
+    return postingsEnum.cost();
+  }
+
+  @Override
+  public int score(LeafCollector collector, Bits acceptDocs, int min, int max) throws IOException {
+    collector.setScorer(scorer);
+    if (upto == count && postingsEnum.docID() < min - 1) {
+      // nothing buffered, use skip data to go to min
+      final int doc = postingsEnum.advance(min);
+      if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+        return DocIdSetIterator.NO_MORE_DOCS;
+      }
+      docs[0] = doc;
+      if (freqs != null) {
+        freqs[0] = postingsEnum.freq();
+      }
+      upto = 0;
+      count = 1;
+    }
+
+    final int[] docs = this.docs;
+    final int[] freqs = this.freqs;
+    while (true) {
+      for (int i = upto; i < count; ++i) {
+        final int doc = docs[i];
+        if (doc >= max) {
+          upto = i;
+          return doc;
+        }
+        if (doc >= min && (acceptDocs == null || acceptDocs.get(doc))) {
+          current.doc = doc;
+          if (freqs != null) {
+            current.freq = freqs[i];
+          }
+          collector.collect(doc);
+        }
+      }
+      upto = count = 0;
+      if (postingsEnum.docID() == DocIdSetIterator.NO_MORE_DOCS
+          || (count = postingsEnum.nextBlock(docs, freqs)) == 0) {
+        return DocIdSetIterator.NO_MORE_DOCS;
+      }
+    }
+  }
+
+  /** Only holds the doc and freq that are being collected, for the
+   *  {@link TermScorer} that collectors see, so that they can get the freq
+   *  and score of the current document, like FakeScorer does. It cannot be
+   *  iterated: {@link #nextDoc()} and {@link #advance(int)} throw
+   *  {@link UnsupportedOperationException}. */
+  private static final class CurrentDoc extends PostingsEnum {
+    private final long cost;
+    int doc = -1;
+    int freq = 1;
+
+    CurrentDoc(long cost) {
+      this.cost = cost;
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int freq() {
+      return freq;
+    }
+
+    @Override
+    public int nextPosition() {
+      return -1;
+    }
+
+    @Override
+    public int startOffset() {
+      return -1;
+    }
+
+    @Override
+    public int endOffset() {
+      return -1;
+    }
+
+    @Override
+    public BytesRef getPayload() {
+      return null;
+    }
+
+    @Override
+    public int nextDoc() {
+      throw new UnsupportedOperationException("CurrentDoc doesn't support nextDoc()");
+    }
+
+    @Override
+    public int advance(int target) {
+      throw new UnsupportedOperationException("CurrentDoc doesn't support advance(int)");
+    }
+
+    @Override
+    public long cost() {
+      return cost;
+    }
+  }
+}
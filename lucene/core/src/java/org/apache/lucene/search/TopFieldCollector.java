@@ -19,8 +19,14 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.search.FieldValueHitQueue.Entry;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.NumericUtils;
 import org.apache.lucene.util.PriorityQueue;
 
 /**
@@ -506,6 +512,349 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
   }
 
+  /*
+   * Implements a TopFieldCollector over up to MAX_PACKED_KEYS numeric, score
+   * or doc SortFields. Instead of per-slot FieldComparators and a queue of
+   * Entry objects, the sort values of each slot are stored as sortable longs
+   * in a single primitive array and ordered through a heap of slot numbers,
+   * so that collection doesn't allocate and compares don't go through
+   * virtual calls. FieldDocs are only created in topDocs().
+   */
+  static final class PackedKeysCollector extends TopFieldCollector {
+
+    private final SortField[] fields;
+    private final int numKeys;
+    private final int[] reverseMul;
+    private final boolean trackDocScores;
+    private final boolean trackMaxScore;
+    private final boolean needsScoreKey;
+
+    private final long[] keys; // keys of slot i are keys[i*numKeys:(i+1)*numKeys]
+    private final int[] docs;
+    private final float[] scores;
+    private final int[] heap; // 1-based heap of slots, least competitive first
+    private int size;
+
+    // per-leaf state, and scratch space for the keys of the current doc
+    private final NumericDocValues[] values;
+    private final Bits[] docsWithField;
+    private final long[] missingValues;
+    private final long[] current;
+
+    PackedKeysCollector(Sort sort, int numHits, boolean fillFields, boolean trackDocScores, boolean trackMaxScore) {
+      super(null, numHits, fillFields, sort.needsScores() || trackDocScores || trackMaxScore);
+      this.fields = sort.getSort();
+      this.numKeys = fields.length;
+      this.reverseMul = new int[numKeys];
+      this.missingValues = new long[numKeys];
+      boolean needsScoreKey = false;
+      for (int i = 0; i < numKeys; ++i) {
+        final SortField field = fields[i];
+        reverseMul[i] = field.getReverse() ? -1 : 1;
+        needsScoreKey |= field.getType() == SortField.Type.SCORE;
+        if (field.missingValue != null) {
+          missingValues[i] = toSortableLong(field.getType(), (Number) field.missingValue);
+        }
+      }
+      this.needsScoreKey = needsScoreKey;
+      this.trackMaxScore = trackMaxScore;
+      this.trackDocScores = trackDocScores || trackMaxScore;
+      if (trackMaxScore) {
+        maxScore = Float.MIN_NORMAL; // otherwise we would keep NaN
+      }
+      assert (long) numHits * numKeys <= ArrayUtil.MAX_ARRAY_LENGTH;
+      keys = new long[numHits * numKeys];
+      docs = new int[numHits];
+      scores = this.trackDocScores ? new float[numHits] : null;
+      heap = new int[numHits + 1];
+      values = new NumericDocValues[numKeys];
+      docsWithField = new Bits[numKeys];
+      current = new long[numKeys];
+    }
+
+    static boolean canPack(Sort sort, int numHits) {
+      final SortField[] fields = sort.getSort();
+      if (fields.length > MAX_PACKED_KEYS) {
+        return false;
+      }
+      // keys are stored in a single array of numHits * numKeys longs, and
+      // the heap needs numHits + 1 slots
+      if ((long) numHits * Math.max(1, fields.length) > ArrayUtil.MAX_ARRAY_LENGTH
+          || numHits >= ArrayUtil.MAX_ARRAY_LENGTH) {
+        return false;
+      }
+      for (SortField field : fields) {
+        if (field.getClass() != SortField.class) {
+          // eg. SortedNumericSortField, or anything that overrides getComparator
+          return false;
+        }
+        switch (field.getType()) {
+          case INT:
+          case LONG:
+          case FLOAT:
+          case DOUBLE:
+          case SCORE:
+          case DOC:
+            break;
+          default:
+            return false;
+        }
+      }
+      return true;
+    }
+
+    /** Encodes a numeric sort value so that longs compare like the values do. */
+    private static long toSortableLong(SortField.Type type, Number value) {
+      switch (type) {
+        case FLOAT:
+          return NumericUtils.floatToSortableInt(value.floatValue());
+        case DOUBLE:
+          return NumericUtils.doubleToSortableLong(value.doubleValue());
+        default:
+          return value.longValue();
+      }
+    }
+
+    private static Object fromSortableLong(SortField.Type type, long key) {
+      switch (type) {
+        case INT:
+        case DOC:
+          return (int) key;
+        case LONG:
+          return key;
+        case FLOAT:
+          return NumericUtils.sortableIntToFloat((int) key);
+        case DOUBLE:
+          return NumericUtils.sortableLongToDouble(key);
+        case SCORE:
+          // higher scores sort first
+          return NumericUtils.sortableIntToFloat((int) -key);
+        default:
+          throw new AssertionError();
+      }
+    }
+
+    /** Computes the key of {@code doc} for the sort field at index {@code i}. */
+    private long key(int i, int doc, float score) {
+      switch (fields[i].getType()) {
+        case SCORE:
+          return -(long) NumericUtils.floatToSortableInt(score);
+        case DOC:
+          return docBase + doc;
+        default:
+          final long raw = values[i].get(doc);
+          final Bits docsWithField = this.docsWithField[i];
+          // Test for raw == 0 to save Bits.get method call for
+          // the common case (doc has value and value is non-zero):
+          if (docsWithField != null && raw == 0 && !docsWithField.get(doc)) {
+            return missingValues[i];
+          }
+          switch (fields[i].getType()) {
+            case INT:
+              return (int) raw;
+            case FLOAT:
+              return NumericUtils.floatToSortableInt(Float.intBitsToFloat((int) raw));
+            case DOUBLE:
+              return NumericUtils.doubleToSortableLong(Double.longBitsToDouble(raw));
+            default:
+              return raw;
+          }
+      }
+    }
+
+    /** Returns true if slot1 sorts after slot2, ie. is less competitive. */
+    private boolean lessThan(int slot1, int slot2) {
+      final int offset1 = slot1 * numKeys, offset2 = slot2 * numKeys;
+      for (int i = 0; i < numKeys; ++i) {
+        final int cmp = reverseMul[i] * Long.compare(keys[offset1 + i], keys[offset2 + i]);
+        if (cmp != 0) {
+          return cmp > 0;
+        }
+      }
+      return docs[slot1] > docs[slot2];
+    }
+
+    private void upHeap(int i) {
+      final int node = heap[i];
+      int j = i >>> 1;
+      while (j > 0 && lessThan(node, heap[j])) {
+        heap[i] = heap[j];
+        i = j;
+        j = j >>> 1;
+      }
+      heap[i] = node;
+    }
+
+    private void downHeap(int i) {
+      final int node = heap[i];
+      int j = i << 1;
+      int k = j + 1;
+      if (k <= size && lessThan(heap[k], heap[j])) {
+        j = k;
+      }
+      while (j <= size && lessThan(heap[j], node)) {
+        heap[i] = heap[j];
+        i = j;
+        j = i << 1;
+        k = j + 1;
+        if (k <= size && lessThan(heap[k], heap[j])) {
+          j = k;
+        }
+      }
+      heap[i] = node;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+      docBase = context.docBase;
+      final LeafReader reader = context.reader();
+      for (int i = 0; i < numKeys; ++i) {
+        final SortField field = fields[i];
+        if (field.getType() == SortField.Type.SCORE || field.getType() == SortField.Type.DOC) {
+          continue;
+        }
+        values[i] = DocValues.getNumeric(reader, field.getField());
+        Bits bits = null;
+        if (field.missingValue != null) {
+          bits = DocValues.getDocsWithField(reader, field.getField());
+          // optimization to remove unneeded checks on the bit interface:
+          if (bits instanceof Bits.MatchAllBits) {
+            bits = null;
+          }
+        }
+        docsWithField[i] = bits;
+      }
+
+      return new LeafCollector() {
+
+        Scorer scorer;
+
+        @Override
+        public void setScorer(Scorer scorer) throws IOException {
+          this.scorer = scorer;
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+          ++totalHits;
+          float score = Float.NaN;
+          if (trackMaxScore || needsScoreKey) {
+            score = scorer.score();
+            if (trackMaxScore && score > maxScore) {
+              maxScore = score;
+            }
+          }
+
+          final long[] current = PackedKeysCollector.this.current;
+          if (queueFull) {
+            final int bottom = heap[1];
+            final int offset = bottom * numKeys;
+            int i = 0;
+            for (; i < numKeys; ++i) {
+              current[i] = key(i, doc, score);
+              final int cmp = reverseMul[i] * Long.compare(keys[offset + i], current[i]);
+              if (cmp < 0) {
+                return;
+              } else if (cmp > 0) {
+                break;
+              }
+            }
+            if (i == numKeys) {
+              // since docs are visited in doc Id order, if compare is 0, it means
+              // this document is larger than anything else in the queue, and
+              // therefore not competitive.
+              return;
+            }
+            // This hit is competitive - replace bottom element in queue & adjustTop
+            for (++i; i < numKeys; ++i) {
+              current[i] = key(i, doc, score);
+            }
+            System.arraycopy(current, 0, keys, offset, numKeys);
+            docs[bottom] = docBase + doc;
+            if (trackDocScores) {
+              scores[bottom] = trackMaxScore || needsScoreKey ? score : scorer.score();
+            }
+            downHeap(1);
+          } else {
+            // Startup transient: queue hasn't gathered numHits yet
+            final int slot = totalHits - 1;
+            final int offset = slot * numKeys;
+            for (int i = 0; i < numKeys; ++i) {
+              keys[offset + i] = key(i, doc, score);
+            }
+            docs[slot] = docBase + doc;
+            if (trackDocScores) {
+              scores[slot] = trackMaxScore || needsScoreKey ? score : scorer.score();
+            }
+            heap[++size] = slot;
+            upHeap(size);
+            queueFull = size == numHits;
+          }
+        }
+      };
+    }
+
+    @Override
+    protected int topDocsSize() {
+      return size;
+    }
+
+    @Override
+    public TopDocs topDocs(int start, int howMany) {
+      final int size = topDocsSize();
+      if (start < 0 || start >= size || howMany <= 0) {
+        return newTopDocs(null, start);
+      }
+      howMany = Math.min(size - start, howMany);
+      ScoreDoc[] results = new ScoreDoc[howMany];
+      // discard the least competitive hits, until we reach the requested range
+      for (int i = this.size - start - howMany; i > 0; i--) {
+        pop();
+      }
+      populateResults(results, howMany);
+      return newTopDocs(results, start);
+    }
+
+    /** Removes the least competitive slot from the heap and returns it. */
+    private int pop() {
+      final int slot = heap[1];
+      heap[1] = heap[size];
+      size--;
+      downHeap(1);
+      return slot;
+    }
+
+    @Override
+    protected void populateResults(ScoreDoc[] results, int howMany) {
+      for (int i = howMany - 1; i >= 0; i--) {
+        final int slot = pop();
+        final float score = trackDocScores ? scores[slot] : Float.NaN;
+        if (super.fillFields) {
+          final Object[] fieldValues = new Object[numKeys];
+          for (int j = 0; j < numKeys; ++j) {
+            fieldValues[j] = fromSortableLong(fields[j].getType(), keys[slot * numKeys + j]);
+          }
+          results[i] = new FieldDoc(docs[slot], score, fieldValues);
+        } else {
+          results[i] = new FieldDoc(docs[slot], score);
+        }
+      }
+    }
+
+    @Override
+    protected TopDocs newTopDocs(ScoreDoc[] results, int start) {
+      if (results == null) {
+        results = EMPTY_SCOREDOCS;
+        // Set maxScore to NaN, in case this is a maxScore tracking collector.
+        maxScore = Float.NaN;
+      }
+      return new TopFieldDocs(totalHits, results, fields, maxScore);
+    }
+  }
+
+  /** Maximum number of sort fields that {@link PackedKeysCollector} handles. */
+  static final int MAX_PACKED_KEYS = 3;
+
   private static final ScoreDoc[] EMPTY_SCOREDOCS = new ScoreDoc[0];
 
   private final boolean fillFields;
@@ -625,9 +974,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       throw new IllegalArgumentException("numHits must be > 0; please use TotalHitCountCollector if you just need the total hit count");
     }
 
-    FieldValueHitQueue<Entry> queue = FieldValueHitQueue.create(sort.fields, numHits);
-
     if (after == null) {
+      if (PackedKeysCollector.canPack(sort, numHits)) {
+        return new PackedKeysCollector(sort, numHits, fillFields, trackDocScores, trackMaxScore);
+      }
+      FieldValueHitQueue<Entry> queue = FieldValueHitQueue.create(sort.fields, numHits);
       if (trackMaxScore) {
         return new ScoringMaxScoreCollector(sort, queue, numHits, fillFields);
       } else if (trackDocScores) {
@@ -644,6 +995,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
         throw new IllegalArgumentException("after.fields has " + after.fields.length + " values but sort has " + sort.getSort().length);
       }
 
+      FieldValueHitQueue<Entry> queue = FieldValueHitQueue.create(sort.fields, numHits);
       return new PagingFieldCollector(sort, queue, after, numHits, fillFields, trackDocScores, trackMaxScore);
     }
   }
@@ -115,6 +115,27 @@ public abstract class Weight {
    */
   public abstract Scorer scorer(LeafReaderContext context) throws IOException;
 
+  /**
+   * Optional method, to return the exact number of documents that match in
+   * the given leaf without iterating over them, or {@code -1} if this number
+   * can't be computed in constant time, eg. by looking up index statistics.
+   * Unlike {@link #scorer}, the returned count must not include documents
+   * that are marked as deleted. The default implementation returns
+   * {@code -1}, so that callers fall back to collecting hits.
+   * <p>
+   * This is used by {@link IndexSearcher#count(Query)}.
+   *
+   * @param context
+   *          the {@link org.apache.lucene.index.LeafReaderContext} to count matches for.
+   *
+   * @return the number of matching live documents in this leaf, or {@code -1} if unknown
+   * @throws IOException if there is a low-level I/O error
+   * @lucene.experimental
+   */
+  public int count(LeafReaderContext context) throws IOException {
+    return -1;
+  }
+
   /**
    * Optional method, to return a {@link BulkScorer} to
    * score the query and send hits to a {@link Collector}.
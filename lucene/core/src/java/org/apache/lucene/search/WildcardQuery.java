@@ -18,12 +18,15 @@ package org.apache.lucene.search;
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.lucene.index.Term;
 import org.apache.lucene.util.ToStringUtils;
 import org.apache.lucene.util.automaton.Automata;
 import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.apache.lucene.util.automaton.CompiledAutomatonCache;
 import org.apache.lucene.util.automaton.Operations;
 
 /** Implements the wildcard search query. Supported wildcards are <code>*</code>, which
@@ -54,7 +57,7 @@ public class WildcardQuery extends AutomatonQuery {
    * Constructs a query for terms matching <code>term</code>. 
    */
   public WildcardQuery(Term term) {
-    super(term, toAutomaton(term));
+    this(term, Operations.DEFAULT_MAX_DETERMINIZED_STATES);
   }
   
   /**
@@ -65,7 +68,25 @@ public class WildcardQuery extends AutomatonQuery {
    *   space but can process more complex automata.
    */
   public WildcardQuery(Term term, int maxDeterminizedStates) {
-    super(term, toAutomaton(term), maxDeterminizedStates);
+    super(term, compile(term, maxDeterminizedStates));
+  }
+
+  private static CompiledAutomatonCache.Entry compile(Term term, int maxDeterminizedStates) {
+    final CompiledAutomatonCache cache = CompiledAutomatonCache.getDefault();
+    final List<Object> key = Arrays.<Object>asList("wildcard", term.text(), maxDeterminizedStates);
+    if (cache != null) {
+      final CompiledAutomatonCache.Entry entry = cache.get(key);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    final Automaton automaton = toAutomaton(term);
+    final CompiledAutomatonCache.Entry entry = new CompiledAutomatonCache.Entry(automaton,
+        new CompiledAutomaton(automaton, null, true, maxDeterminizedStates, false));
+    if (cache != null) {
+      cache.putIfAbsent(key, entry);
+    }
+    return entry;
   }
 
   /**
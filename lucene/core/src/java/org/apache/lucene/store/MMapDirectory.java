@@ -245,6 +245,17 @@ public class MMapDirectory extends FSDirectory {
     }
   }
 
+  /**
+   * Returns true if the given input reads from memory-mapped buffers. This
+   * is the case for inputs opened by an {@link MMapDirectory}, and for their
+   * slices, such as the files of a compound file that was opened from an
+   * {@link MMapDirectory}.
+   * @lucene.internal
+   */
+  public static boolean isMapped(IndexInput in) {
+    return in instanceof ByteBufferIndexInput;
+  }
+
   /** Maps a file into a set of buffers */
   final ByteBuffer[] map(String resourceDescription, FileChannel fc, long offset, long length) throws IOException {
     if ((length >>> chunkSizePower) >= Integer.MAX_VALUE)
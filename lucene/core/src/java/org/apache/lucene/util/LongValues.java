@@ -45,4 +45,21 @@ public abstract class LongValues extends NumericDocValues {
     return get((long) idx);
   }
 
+  /** Bulk get: read at least one and at most <code>len</code> values
+   *  starting from <code>index</code> into <code>arr[off:off+len]</code> and
+   *  return the actual number of values that have been read. */
+  public int get(long index, long[] arr, int off, int len) {
+    assert len > 0 : "len must be > 0 (got " + len + ")";
+    assert off + len <= arr.length;
+    for (int i = 0; i < len; ++i) {
+      arr[off + i] = get(index + i);
+    }
+    return len;
+  }
+
+  @Override
+  public int get(int idx, long[] arr, int off, int len) {
+    return get((long) idx, arr, off, len);
+  }
+
 }
@@ -183,6 +183,7 @@ public final class SPIClassIterator<S> implements Iterator<Class<? extends S>> {
     list.add("org.apache.lucene.codecs.memory.MemoryPostingsFormat");
     list.add("org.apache.lucene.codecs.simpletext.SimpleTextPostingsFormat");
     list.add("org.apache.lucene.codecs.autoprefix.AutoPrefixPostingsFormat");
+    list.add("org.apache.lucene.codecs.pfor.PForPostingsFormat");
     */
     list = new ArrayList<String>();
     hardCodedServices.put("org.apache.lucene.codecs.Codec", list);
@@ -195,6 +196,7 @@ public final class SPIClassIterator<S> implements Iterator<Class<? extends S>> {
     list = new ArrayList<String>();
     hardCodedServices.put("org.apache.lucene.codecs.PostingsFormat", list);
     list.add("org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat");
+    list.add("org.apache.lucene.codecs.lucene53.Lucene53BloomPostingsFormat");
   }
 
   private final Class<S> clazz;
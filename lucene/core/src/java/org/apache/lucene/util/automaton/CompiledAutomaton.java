@@ -19,14 +19,18 @@ package org.apache.lucene.util.automaton;
   
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.lucene.index.SingleTermsEnum;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.UnicodeUtil;
 
@@ -37,7 +41,9 @@ import org.apache.lucene.util.UnicodeUtil;
  *
  * @lucene.experimental
  */
-public class CompiledAutomaton {
+public class CompiledAutomaton implements Accountable {
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(CompiledAutomaton.class);
+
   /**
    * Automata are compiled into different internal forms for the
    * most efficient execution depending upon the language they accept.
@@ -233,9 +239,9 @@ public class CompiledAutomaton {
     if (this.finite) {
       commonSuffixRef = null;
     } else {
-      // NOTE: this is a very costly operation!  We should test if it's really warranted in practice... we could do a fast match
-      // by looking for a sink state (which means it has no common suffix).  Or maybe we shouldn't do it when simplify is false?:
-      BytesRef suffix = Operations.getCommonSuffixBytesRef(binary, maxDeterminizedStates);
+      // This walks the reversed automaton without determinizing it, so it can neither blow up nor
+      // throw TooComplexToDeterminizeException for automata whose reverse is hard to determinize:
+      BytesRef suffix = Operations.getCommonSuffixBytesRef(binary);
       if (suffix.length == 0) {
         commonSuffixRef = null;
       } else {
@@ -253,11 +259,9 @@ public class CompiledAutomaton {
     sinkState = findSinkState(this.automaton);
   }
 
-  private Transition transition = new Transition();
-  
   //private static final boolean DEBUG = BlockTreeTermsWriter.DEBUG;
 
-  private BytesRef addTail(int state, BytesRefBuilder term, int idx, int leadLabel) {
+  private BytesRef addTail(Transition transition, int state, BytesRefBuilder term, int idx, int leadLabel) {
     //System.out.println("addTail state=" + state + " term=" + term.utf8ToString() + " idx=" + idx + " leadLabel=" + (char) leadLabel);
     //System.out.println(automaton.toDot());
     // Find biggest transition that's < label
@@ -349,6 +353,9 @@ public class CompiledAutomaton {
    *  accepted by this Automaton). */
   public BytesRef floor(BytesRef input, BytesRefBuilder output) {
 
+    // not shared, so that compiled automata can be used by several threads
+    final Transition transition = new Transition();
+
     //if (DEBUG) System.out.println("CA.floor input=" + input.utf8ToString());
 
     int state = runAutomaton.getInitialState();
@@ -424,7 +431,7 @@ public class CompiledAutomaton {
 
         //if (DEBUG) System.out.println("  label=" + (char) label + " idx=" + idx);
 
-        return addTail(state, output, idx, label);
+        return addTail(transition, state, output, idx, label);
         
       } else {
         output.grow(1+idx);
@@ -436,6 +443,27 @@ public class CompiledAutomaton {
     }
   }
 
+  @Override
+  public long ramBytesUsed() {
+    // automaton is the one of runAutomaton
+    long bytes = BASE_RAM_BYTES_USED;
+    if (runAutomaton != null) {
+      bytes += runAutomaton.ramBytesUsed();
+    }
+    if (term != null) {
+      bytes += RamUsageEstimator.sizeOf(term.bytes);
+    }
+    if (commonSuffixRef != null) {
+      bytes += RamUsageEstimator.sizeOf(commonSuffixRef.bytes);
+    }
+    return bytes;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
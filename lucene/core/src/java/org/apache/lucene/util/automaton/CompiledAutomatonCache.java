@@ -0,0 +1,231 @@
+package org.apache.lucene.util.automaton;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A bounded cache of automata and their {@link CompiledAutomaton}, which
+ * saves queries that are created over and over again with the same pattern,
+ * such as {@link org.apache.lucene.search.RegexpQuery},
+ * {@link org.apache.lucene.search.WildcardQuery} and
+ * {@link org.apache.lucene.search.FuzzyQuery}, from parsing, determinizing
+ * and compiling the same automaton every time.
+ * <p>
+ * Keys must describe everything the automaton is built from, for instance
+ * the pattern, its flags and the maximum number of determinized states.
+ * Entries are evicted in least-recently-used order once the cache holds
+ * more than a given number of entries or of bytes. This class is
+ * thread-safe, and automata are built outside of its lock, so the same
+ * automaton may be built by several threads at the same time on a miss.
+ * <p>
+ * The {@link #getDefault() default} cache is used by the queries above. It
+ * is {@code null}, meaning that automata are not cached, unless
+ * {@link #setDefault(CompiledAutomatonCache)} is called.
+ *
+ * @lucene.experimental
+ */
+public class CompiledAutomatonCache implements Accountable {
+
+  // per entry: the map entry, the key and its two references to the entry
+  private static final long ENTRY_OVERHEAD = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+      + 8 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
+  private static volatile CompiledAutomatonCache defaultCache = null;
+
+  /**
+   * Expert: returns the cache used by queries which compile automata, or
+   * {@code null} if the cache is disabled.
+   */
+  public static CompiledAutomatonCache getDefault() {
+    return defaultCache;
+  }
+
+  /**
+   * Expert: sets the cache used by queries which compile automata, or
+   * {@code null} to disable caching.
+   */
+  public static void setDefault(CompiledAutomatonCache cache) {
+    defaultCache = cache;
+  }
+
+  /** An automaton and its compiled form. */
+  public static final class Entry implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Entry.class);
+
+    /** The automaton, as it was built from the pattern. */
+    public final Automaton automaton;
+    /** The compiled automaton. */
+    public final CompiledAutomaton compiled;
+
+    /** Sole constructor. */
+    public Entry(Automaton automaton, CompiledAutomaton compiled) {
+      this.automaton = automaton;
+      this.compiled = compiled;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      long bytes = BASE_RAM_BYTES_USED + compiled.ramBytesUsed();
+      if (automaton != compiled.automaton) {
+        bytes += automaton.ramBytesUsed();
+      }
+      return bytes;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+      return Collections.emptyList();
+    }
+  }
+
+  private final int maxSize;
+  private final long maxRamBytesUsed;
+  private final Map<List<Object>,Entry> cache;
+  private long ramBytesUsed;
+
+  private long hitCount;
+  private long missCount;
+  private long cacheCount;
+
+  /**
+   * Creates a cache which holds at most {@code maxSize} automata and
+   * {@code maxRamBytesUsed} bytes.
+   */
+  public CompiledAutomatonCache(int maxSize, long maxRamBytesUsed) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("maxSize must be >= 0, got " + maxSize);
+    }
+    if (maxRamBytesUsed < 0) {
+      throw new IllegalArgumentException("maxRamBytesUsed must be >= 0, got " + maxRamBytesUsed);
+    }
+    this.maxSize = maxSize;
+    this.maxRamBytesUsed = maxRamBytesUsed;
+    this.cache = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /** Returns the cached entry for {@code key}, or {@code null} if there is none. */
+  public synchronized Entry get(List<Object> key) {
+    final Entry entry = cache.get(key);
+    if (entry == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+    return entry;
+  }
+
+  /**
+   * Caches {@code entry} for {@code key}, unless an entry is already cached
+   * for it, and evicts the least recently used entries if the cache is full.
+   * Entries that are larger than the maximum size of the cache are not
+   * cached.
+   */
+  public synchronized void putIfAbsent(List<Object> key, Entry entry) {
+    if (cache.containsKey(key)) {
+      return;
+    }
+    final long entryBytes = ramBytesUsed(key, entry);
+    if (maxSize == 0 || entryBytes > maxRamBytesUsed) {
+      return;
+    }
+    cache.put(key, entry);
+    ramBytesUsed += entryBytes;
+    cacheCount++;
+    for (Iterator<Map.Entry<List<Object>,Entry>> it = cache.entrySet().iterator();
+        it.hasNext() && (cache.size() > maxSize || ramBytesUsed > maxRamBytesUsed); ) {
+      final Map.Entry<List<Object>,Entry> eldest = it.next();
+      ramBytesUsed -= ramBytesUsed(eldest.getKey(), eldest.getValue());
+      it.remove();
+    }
+  }
+
+  private static long ramBytesUsed(List<Object> key, Entry entry) {
+    long bytes = ENTRY_OVERHEAD + entry.ramBytesUsed();
+    for (Object o : key) {
+      if (o instanceof String) {
+        bytes += RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_CHAR * ((String) o).length();
+      }
+    }
+    return bytes;
+  }
+
+  /** Removes all entries from this cache. */
+  public synchronized void clear() {
+    cache.clear();
+    ramBytesUsed = 0;
+  }
+
+  @Override
+  public synchronized long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Returns how many times an automaton was looked up in this cache and
+   * found.
+   * @see #getMissCount()
+   */
+  public final synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns how many times an automaton was looked up in this cache and
+   * not found.
+   * @see #getHitCount()
+   */
+  public final synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /** Returns the number of automata which are currently cached. */
+  public final synchronized long getCacheSize() {
+    return cache.size();
+  }
+
+  /**
+   * Returns the number of automata which have been added to this cache,
+   * including those that have been evicted since.
+   */
+  public final synchronized long getCacheCount() {
+    return cacheCount;
+  }
+
+  /**
+   * Returns the number of automata which have been evicted in order to stay
+   * under the maximum size or RAM usage, or because the cache was cleared.
+   */
+  public final synchronized long getEvictionCount() {
+    return cacheCount - cache.size();
+  }
+}
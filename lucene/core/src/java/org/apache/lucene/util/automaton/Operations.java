@@ -36,6 +36,7 @@ import org.apache.lucene.util.IntsRef;
 import org.apache.lucene.util.IntsRefBuilder;
 import org.apache.lucene.util.RamUsageEstimator;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -684,7 +685,7 @@ final public class Operations {
     // Create state 0:
     b.createState();
 
-    LinkedList<SortedIntSet.FrozenIntSet> worklist = new LinkedList<>();
+    ArrayDeque<SortedIntSet.FrozenIntSet> worklist = new ArrayDeque<>();
     Map<SortedIntSet.FrozenIntSet,Integer> newstate = new HashMap<>();
 
     worklist.add(initialset);
@@ -1090,33 +1091,55 @@ final public class Operations {
     return b.toString();
   }
   
-  // TODO: this currently requites a determinized machine,
-  // but it need not -- we can speed it up by walking the
-  // NFA instead.  it'd still be fail fast.
   /**
-   * Returns the longest BytesRef that is a prefix of all accepted strings and
-   * visits each state at most once.  The automaton must be deterministic.
+   * Returns the longest BytesRef that is a prefix of all accepted strings.
+   * The automaton does not need to be deterministic: all states reachable
+   * by the prefix read so far are stepped forward together, and the walk
+   * stops as soon as one of them is accepting or their transitions do not
+   * all share the same single label.
    * 
    * @return common prefix, which can be an empty (length 0) BytesRef (never null)
    */
   public static BytesRef getCommonPrefixBytesRef(Automaton a) {
     BytesRefBuilder builder = new BytesRefBuilder();
-    HashSet<Integer> visited = new HashSet<>();
-    int s = 0;
-    boolean done;
+    final int numStates = a.getNumStates();
+    if (numStates == 0) {
+      return builder.get();
+    }
+    BitSet current = new BitSet(numStates);
+    BitSet next = new BitSet(numStates);
+    current.set(0);
     Transition t = new Transition();
-    do {
-      done = true;
-      visited.add(s);
-      if (a.isAccept(s) == false && a.getNumTransitions(s) == 1) {
-        a.getTransition(s, 0, t);
-        if (t.min == t.max && !visited.contains(t.dest)) {
-          builder.append((byte) t.min);
-          s = t.dest;
-          done = false;
+    // If the language is not empty, its shortest string is shorter than
+    // the number of states, and so is the common prefix:
+    walk:
+    while (builder.length() < numStates) {
+      int label = -1;
+      for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s+1)) {
+        if (a.isAccept(s)) {
+          break walk;
+        }
+        int numTransitions = a.getNumTransitions(s);
+        a.initTransition(s, t);
+        for (int i = 0; i < numTransitions; i++) {
+          a.getNextTransition(t);
+          if (t.min != t.max || (label != -1 && t.min != label)) {
+            break walk;
+          }
+          label = t.min;
+          next.set(t.dest);
         }
       }
-    } while (!done);
+      if (label == -1) {
+        // only dead states left
+        break;
+      }
+      builder.append((byte) label);
+      BitSet tmp = current;
+      current = next;
+      next = tmp;
+      next.clear();
+    }
 
     return builder.get();
   }
@@ -1153,20 +1176,27 @@ final public class Operations {
 
   /**
    * Returns the longest BytesRef that is a suffix of all accepted strings.
-   * Worst case complexity: exponential in number of states (this calls
-   * determinize).
-   * @param maxDeterminizedStates maximum number of states determinizing the
-   *  automaton can result in.  Set higher to allow more complex queries and
-   *  lower to prevent memory exhaustion.
+   * This walks the reversed automaton without determinizing it, so its cost
+   * is linear in the size of the automaton and the length of the suffix.
    * @return common suffix, which can be an empty (length 0) BytesRef (never null)
    */
-  public static BytesRef getCommonSuffixBytesRef(Automaton a, int maxDeterminizedStates) {
+  public static BytesRef getCommonSuffixBytesRef(Automaton a) {
     // reverse the language of the automaton, then reverse its common prefix.
-    Automaton r = Operations.determinize(reverse(a), maxDeterminizedStates);
-    BytesRef ref = getCommonPrefixBytesRef(r);
+    BytesRef ref = getCommonPrefixBytesRef(reverse(a));
     reverseBytes(ref);
     return ref;
   }
+
+  /**
+   * Returns the longest BytesRef that is a suffix of all accepted strings.
+   * @param maxDeterminizedStates ignored, the automaton is no longer determinized
+   * @return common suffix, which can be an empty (length 0) BytesRef (never null)
+   * @deprecated Use {@link #getCommonSuffixBytesRef(Automaton)} instead.
+   */
+  @Deprecated
+  public static BytesRef getCommonSuffixBytesRef(Automaton a, int maxDeterminizedStates) {
+    return getCommonSuffixBytesRef(a);
+  }
   
   private static void reverseBytes(BytesRef ref) {
     if (ref.length <= 1) return;
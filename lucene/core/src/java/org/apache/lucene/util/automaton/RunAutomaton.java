@@ -30,13 +30,20 @@
 package org.apache.lucene.util.automaton;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
 
 /**
  * Finite-state automaton with fast run operation.
  * 
  * @lucene.experimental
  */
-public abstract class RunAutomaton {
+public abstract class RunAutomaton implements Accountable {
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(RunAutomaton.class);
+
   final Automaton automaton;
   final int maxInterval;
   final int size;
@@ -184,6 +191,21 @@ public abstract class RunAutomaton {
     }
   }
 
+  @Override
+  public long ramBytesUsed() {
+    long bytes = BASE_RAM_BYTES_USED + automaton.ramBytesUsed() + RamUsageEstimator.sizeOf(accept)
+        + RamUsageEstimator.sizeOf(transitions) + RamUsageEstimator.sizeOf(points);
+    if (classmap != null) {
+      bytes += RamUsageEstimator.sizeOf(classmap);
+    }
+    return bytes;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
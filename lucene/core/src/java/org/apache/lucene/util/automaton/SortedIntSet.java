@@ -17,10 +17,9 @@ package org.apache.lucene.util.automaton;
  * limitations under the License.
  */
 
-import java.util.TreeMap;
-import java.util.Map;
+import java.util.Arrays;
+
 import org.apache.lucene.util.ArrayUtil;
-import org.apache.lucene.util.RamUsageEstimator;
 
 // Just holds a set of int[] states, plus a corresponding
 // int[] count per state.  Used by
@@ -31,13 +30,21 @@ final class SortedIntSet {
   int upto;
   private int hashCode;
 
+  // Sum of hash(state) over the states in the set, so that
+  // it can be maintained in O(1) as states come and go
+  private int hashSum;
+
   // If we hold more than this many states, we switch from
-  // O(N^2) linear ops to O(N log(N)) TreeMap
-  private final static int TREE_MAP_CUTOVER = 30;
+  // O(N^2) linear ops to O(1) updates on arrays indexed by
+  // state; values is then unsorted until freeze
+  private final static int DENSE_CUTOVER = 30;
 
-  private final Map<Integer,Integer> map = new TreeMap<>();
+  // Only used when useDense is true: count and position in
+  // values of each state
+  private int[] denseCounts = new int[0];
+  private int[] denseIndex = new int[0];
 
-  private boolean useTreeMap;
+  private boolean useDense;
 
   int state;
 
@@ -46,52 +53,68 @@ final class SortedIntSet {
     counts = new int[capacity];
   }
 
+  static int hash(int state) {
+    // spread the bits, since the hash of a set is the sum of
+    // the hashes of its states
+    final int h = state * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
   // Adds this state to the set
   public void incr(int num) {
-    if (useTreeMap) {
-      final Integer key = num;
-      Integer val = map.get(key);
-      if (val == null) {
-        map.put(key, 1);
-      } else {
-        map.put(key, 1+val);
+    if (useDense) {
+      if (num >= denseCounts.length) {
+        denseCounts = ArrayUtil.grow(denseCounts, 1+num);
+        denseIndex = ArrayUtil.grow(denseIndex, 1+num);
+      }
+      if (denseCounts[num]++ == 0) {
+        if (upto == values.length) {
+          values = ArrayUtil.grow(values, 1+upto);
+        }
+        denseIndex[num] = upto;
+        values[upto++] = num;
+        hashSum += hash(num);
       }
       return;
     }
 
+    // values may have grown without counts while useDense was true
     if (upto == values.length) {
       values = ArrayUtil.grow(values, 1+upto);
+    }
+    if (upto == counts.length) {
       counts = ArrayUtil.grow(counts, 1+upto);
     }
 
-    for(int i=0;i<upto;i++) {
-      if (values[i] == num) {
-        counts[i]++;
-        return;
-      } else if (num < values[i]) {
-        // insert here
-        int j = upto-1;
-        while (j >= i) {
-          values[1+j] = values[j];
-          counts[1+j] = counts[j];
-          j--;
-        }
-        values[i] = num;
-        counts[i] = 1;
-        upto++;
-        return;
-      }
+    int i = 0;
+    while (i < upto && values[i] < num) {
+      i++;
+    }
+    if (i < upto && values[i] == num) {
+      counts[i]++;
+      return;
     }
 
-    // append
-    values[upto] = num;
-    counts[upto] = 1;
+    // insert here
+    System.arraycopy(values, i, values, i+1, upto-i);
+    System.arraycopy(counts, i, counts, i+1, upto-i);
+    values[i] = num;
+    counts[i] = 1;
     upto++;
+    hashSum += hash(num);
 
-    if (upto == TREE_MAP_CUTOVER) {
-      useTreeMap = true;
-      for(int i=0;i<upto;i++) {
-        map.put(values[i], counts[i]);
+    // Inserts must switch too, not only appends, else the
+    // set can grow large while still doing linear scans
+    if (upto == DENSE_CUTOVER) {
+      useDense = true;
+      for(int j=0;j<upto;j++) {
+        final int value = values[j];
+        if (value >= denseCounts.length) {
+          denseCounts = ArrayUtil.grow(denseCounts, 1+value);
+          denseIndex = ArrayUtil.grow(denseIndex, 1+value);
+        }
+        denseCounts[value] = counts[j];
+        denseIndex[value] = j;
       }
     }
   }
@@ -99,17 +122,19 @@ final class SortedIntSet {
   // Removes this state from the set, if count decrs to 0
   public void decr(int num) {
 
-    if (useTreeMap) {
-      final int count = map.get(num);
-      if (count == 1) {
-        map.remove(num);
-      } else {
-        map.put(num, count-1);
+    if (useDense) {
+      assert denseCounts[num] > 0;
+      if (--denseCounts[num] == 0) {
+        // move the last state into the hole
+        final int index = denseIndex[num];
+        final int last = values[--upto];
+        values[index] = last;
+        denseIndex[last] = index;
+        hashSum -= hash(num);
       }
       // Fall back to simple arrays once we touch zero again
-      if (map.size() == 0) {
-        useTreeMap = false;
-        upto = 0;
+      if (upto == 0) {
+        useDense = false;
       }
       return;
     }
@@ -125,6 +150,7 @@ final class SortedIntSet {
             i++;
           }
           upto = limit;
+          hashSum -= hash(num);
         }
         return;
       }
@@ -133,29 +159,24 @@ final class SortedIntSet {
   }
 
   public void computeHash() {
-    if (useTreeMap) {
-      if (map.size() > values.length) {
-        final int size = ArrayUtil.oversize(map.size(), RamUsageEstimator.NUM_BYTES_INT);
-        values = new int[size];
-        counts = new int[size];
-      }
-      hashCode = map.size();
-      upto = 0;
-      for(int state : map.keySet()) {
-        hashCode = 683*hashCode + state;
-        values[upto++] = state;
-      }
-    } else {
-      hashCode = upto;
-      for(int i=0;i<upto;i++) {
-        hashCode = 683*hashCode + values[i];
-      }
+    hashCode = 683*upto + hashSum;
+  }
+
+  static int computeHash(int[] values) {
+    int hashSum = 0;
+    for(int value : values) {
+      hashSum += hash(value);
     }
+    return 683*values.length + hashSum;
   }
 
   public FrozenIntSet freeze(int state) {
     final int[] c = new int[upto];
     System.arraycopy(values, 0, c, 0, upto);
+    if (useDense) {
+      Arrays.sort(c);
+    }
+    assert hashCode == computeHash(c);
     return new FrozenIntSet(c, hashCode, state);
   }
 
@@ -179,9 +200,18 @@ final class SortedIntSet {
     if (other.values.length != upto) {
       return false;
     }
-    for(int i=0;i<upto;i++) {
-      if (other.values[i] != values[i]) {
-        return false;
+    if (useDense) {
+      // same size, so equal iff we hold all the other states
+      for(int value : other.values) {
+        if (value >= denseCounts.length || denseCounts[value] == 0) {
+          return false;
+        }
+      }
+    } else {
+      for(int i=0;i<upto;i++) {
+        if (other.values[i] != values[i]) {
+          return false;
+        }
       }
     }
 
@@ -195,7 +225,7 @@ final class SortedIntSet {
       if (i > 0) {
         sb.append(' ');
       }
-      sb.append(values[i]).append(':').append(counts[i]);
+      sb.append(values[i]).append(':').append(useDense ? denseCounts[values[i]] : counts[i]);
     }
     sb.append(']');
     return sb.toString();
@@ -215,7 +245,7 @@ final class SortedIntSet {
     public FrozenIntSet(int num, int state) {
       this.values = new int[] {num};
       this.state = state;
-      this.hashCode = 683+num;
+      this.hashCode = computeHash(values);
     }
 
     @Override
@@ -243,19 +273,7 @@ final class SortedIntSet {
         }
         return true;
       } else if (_other instanceof SortedIntSet) {
-        SortedIntSet other = (SortedIntSet) _other;
-        if (hashCode != other.hashCode) {
-          return false;
-        }
-        if (other.values.length != values.length) {
-          return false;
-        }
-        for(int i=0;i<values.length;i++) {
-          if (other.values[i] != values[i]) {
-            return false;
-          }
-        }
-        return true;
+        return _other.equals(this);
       }
 
       return false;
@@ -34,6 +34,7 @@ import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.store.ByteArrayDataOutput;
 import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.InputStreamDataInput;
 import org.apache.lucene.store.OutputStreamDataOutput;
 import org.apache.lucene.store.RAMOutputStream;
@@ -165,6 +166,10 @@ public final class FST<T> implements Accountable {
   /** Used at read time when the FST fits into a single byte[]. */
   final byte[] bytesArray;
 
+  /** Used at read time when the FST is read directly from an
+   *  {@link IndexInput} instead of being loaded on the heap. */
+  private final IndexInput offHeapBytes;
+
   private long startNode = -1;
 
   public final Outputs<T> outputs;
@@ -290,6 +295,7 @@ public final class FST<T> implements Accountable {
     this.outputs = outputs;
     version = VERSION_CURRENT;
     bytesArray = null;
+    offHeapBytes = null;
     bytes = new BytesStore(bytesPageBits);
     // pad: ensure no node gets address 0 which is reserved to mean
     // the stop state w/ no arcs
@@ -317,6 +323,23 @@ public final class FST<T> implements Accountable {
   /** Load a previously saved FST; maxBlockBits allows you to
    *  control the size of the byte[] pages used to hold the FST bytes. */
   public FST(DataInput in, Outputs<T> outputs, int maxBlockBits) throws IOException {
+    this(in, outputs, maxBlockBits, false);
+  }
+
+  /** Load a previously saved FST, optionally without copying its bytes
+   *  to the heap.  If <code>offHeap</code> is true and <code>in</code> is
+   *  an {@link IndexInput}, arcs are read directly from a slice of
+   *  <code>in</code>, which must then stay open as long as this FST is
+   *  used.  This is only fast if the input is memory-mapped, e.g. opened
+   *  by {@code MMapDirectory}.  Otherwise the FST is loaded on the heap
+   *  as usual.
+   *
+   * @see #isOffHeap() */
+  public FST(DataInput in, Outputs<T> outputs, boolean offHeap) throws IOException {
+    this(in, outputs, DEFAULT_MAX_BLOCK_BITS, offHeap);
+  }
+
+  private FST(DataInput in, Outputs<T> outputs, int maxBlockBits, boolean offHeap) throws IOException {
     this.outputs = outputs;
 
     if (maxBlockBits < 1 || maxBlockBits > 30) {
@@ -378,20 +401,36 @@ public final class FST<T> implements Accountable {
     }
 
     long numBytes = in.readVLong();
-    if (numBytes > 1 << maxBlockBits) {
+    if (offHeap && packed == false && in instanceof IndexInput) {
+      // read arcs in place; each BytesReader gets its own clone of the slice
+      final IndexInput indexIn = (IndexInput) in;
+      final long startFP = indexIn.getFilePointer();
+      offHeapBytes = indexIn.slice("fst", startFP, numBytes);
+      indexIn.seek(startFP + numBytes);
+      bytes = null;
+      bytesArray = null;
+    } else if (numBytes > 1 << maxBlockBits) {
       // FST is big: we need multiple pages
       bytes = new BytesStore(in, numBytes, 1<<maxBlockBits);
       bytesArray = null;
+      offHeapBytes = null;
     } else {
       // FST fits into a single block: use ByteArrayBytesStoreReader for less overhead
       bytes = null;
       bytesArray = new byte[(int) numBytes];
       in.readBytes(bytesArray, 0, bytesArray.length);
+      offHeapBytes = null;
     }
     
     cacheRootArcs();
   }
 
+  /** Returns true if the bytes of this FST are read directly from an
+   *  {@link IndexInput} rather than from the heap. */
+  public boolean isOffHeap() {
+    return offHeapBytes != null;
+  }
+
   public INPUT_TYPE getInputType() {
     return inputType;
   }
@@ -422,7 +461,7 @@ public final class FST<T> implements Accountable {
     long size = BASE_RAM_BYTES_USED;
     if (bytesArray != null) {
       size += bytesArray.length;
-    } else {
+    } else if (bytes != null) {
       size += bytes.ramBytesUsed();
     }
     if (packed) {
@@ -505,7 +544,11 @@ public final class FST<T> implements Accountable {
       int cacheRAM = (int) ramBytesUsed(arcs);
 
       // Don't cache if there are only a few arcs or if the cache would use > 20% RAM of the FST itself:
-      if (count >= FIXED_ARRAY_NUM_ARCS_SHALLOW && cacheRAM < ramBytesUsed()/5) {
+      long fstBytes = ramBytesUsed();
+      if (offHeapBytes != null) {
+        fstBytes += offHeapBytes.length();
+      }
+      if (count >= FIXED_ARRAY_NUM_ARCS_SHALLOW && cacheRAM < fstBytes/5) {
         cachedRootArcs = arcs;
         cachedArcsBytesUsed = cacheRAM;
       }
@@ -586,10 +629,15 @@ public final class FST<T> implements Accountable {
       long numBytes = bytes.getPosition();
       out.writeVLong(numBytes);
       bytes.writeTo(out);
-    } else {
-      assert bytesArray != null;
+    } else if (bytesArray != null) {
       out.writeVLong(bytesArray.length);
       out.writeBytes(bytesArray, 0, bytesArray.length);
+    } else {
+      assert offHeapBytes != null;
+      final IndexInput in = offHeapBytes.clone();
+      in.seek(0);
+      out.writeVLong(in.length());
+      out.copyBytes(in, in.length());
     }
   }
   
@@ -1350,6 +1398,8 @@ public final class FST<T> implements Accountable {
     } else {
       if (bytesArray != null) {
         return new ReverseBytesReader(bytesArray);
+      } else if (offHeapBytes != null) {
+        return new ReverseIndexInputReader(offHeapBytes.clone());
       } else {
         return bytes.getReverseReader();
       }
@@ -1483,6 +1533,7 @@ public final class FST<T> implements Accountable {
     packed = true;
     this.inputType = inputType;
     bytesArray = null;
+    offHeapBytes = null;
     bytes = new BytesStore(bytesPageBits);
     this.outputs = outputs;
   }
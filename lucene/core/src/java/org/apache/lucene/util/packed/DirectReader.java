@@ -62,11 +62,58 @@ public class DirectReader {
     }
   }
   
-  static final class DirectPackedReader1 extends LongValues {
+  /** Base class of the readers, which decodes values a word at a time in bulk. */
+  abstract static class DirectPackedReader extends LongValues {
+    // wider values don't fit often enough in a word for bulk decoding to be faster
+    static final int MAX_BULK_BITS_PER_VALUE = 16;
+
     final RandomAccessInput in;
-    
-    DirectPackedReader1(RandomAccessInput in) {
+    final int bitsPerValue;
+
+    DirectPackedReader(RandomAccessInput in, int bitsPerValue) {
       this.in = in;
+      this.bitsPerValue = bitsPerValue;
+    }
+
+    @Override
+    public int get(long index, long[] arr, int off, int len) {
+      assert len > 0 : "len must be > 0 (got " + len + ")";
+      assert off + len <= arr.length;
+      if (bitsPerValue > MAX_BULK_BITS_PER_VALUE) {
+        return super.get(index, arr, off, len);
+      }
+      try {
+        // values are packed big-endian, so a long read at the byte that holds
+        // the first bit of a value also holds the values that fully fit after it.
+        // DirectWriter pads the data with 3 bytes, so the last long that may be
+        // read starts 5 bytes before the end of the last requested value.
+        final long maxWordOffset = (((index + len) * bitsPerValue + 7) >>> 3) - 5;
+        long bitOffset = index * bitsPerValue;
+        int i = 0;
+        while (i < len) {
+          final long wordOffset = bitOffset >>> 3;
+          if (wordOffset > maxWordOffset) {
+            break;
+          }
+          final long word = in.readLong(wordOffset);
+          for (int shift = (int) (bitOffset & 7); shift + bitsPerValue <= 64 && i < len; shift += bitsPerValue) {
+            arr[off + i++] = (word << shift) >>> (64 - bitsPerValue);
+          }
+          bitOffset = (index + i) * bitsPerValue;
+        }
+        for (; i < len; ++i) {
+          arr[off + i] = get(index + i);
+        }
+        return len;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  static final class DirectPackedReader1 extends DirectPackedReader {
+    DirectPackedReader1(RandomAccessInput in) {
+      super(in, 1);
     }
 
     @Override
@@ -80,11 +127,9 @@ public class DirectReader {
     }    
   }
   
-  static final class DirectPackedReader2 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader2 extends DirectPackedReader {
     DirectPackedReader2(RandomAccessInput in) {
-      this.in = in;
+      super(in, 2);
     }
 
     @Override
@@ -98,11 +143,9 @@ public class DirectReader {
     }    
   }
   
-  static final class DirectPackedReader4 extends LongValues {
-    final RandomAccessInput in;
-
+  static final class DirectPackedReader4 extends DirectPackedReader {
     DirectPackedReader4(RandomAccessInput in) {
-      this.in = in;
+      super(in, 4);
     }
 
     @Override
@@ -116,11 +159,9 @@ public class DirectReader {
     }    
   }
     
-  static final class DirectPackedReader8 extends LongValues {
-    final RandomAccessInput in;
-
+  static final class DirectPackedReader8 extends DirectPackedReader {
     DirectPackedReader8(RandomAccessInput in) {
-      this.in = in;
+      super(in, 8);
     }
 
     @Override
@@ -133,11 +174,9 @@ public class DirectReader {
     }    
   }
   
-  static final class DirectPackedReader12 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader12 extends DirectPackedReader {
     DirectPackedReader12(RandomAccessInput in) {
-      this.in = in;
+      super(in, 12);
     }
 
     @Override
@@ -152,11 +191,9 @@ public class DirectReader {
     }    
   }
   
-  static final class DirectPackedReader16 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader16 extends DirectPackedReader {
     DirectPackedReader16(RandomAccessInput in) {
-      this.in = in;
+      super(in, 16);
     }
 
     @Override
@@ -169,11 +206,9 @@ public class DirectReader {
     }
   }
   
-  static final class DirectPackedReader20 extends LongValues {
-    final RandomAccessInput in;
-
+  static final class DirectPackedReader20 extends DirectPackedReader {
     DirectPackedReader20(RandomAccessInput in) {
-      this.in = in;
+      super(in, 20);
     }
 
     @Override
@@ -190,11 +225,9 @@ public class DirectReader {
     }
   }
   
-  static final class DirectPackedReader24 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader24 extends DirectPackedReader {
     DirectPackedReader24(RandomAccessInput in) {
-      this.in = in;
+      super(in, 24);
     }
 
     @Override
@@ -207,11 +240,9 @@ public class DirectReader {
     }
   }
   
-  static final class DirectPackedReader28 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader28 extends DirectPackedReader {
     DirectPackedReader28(RandomAccessInput in) {
-      this.in = in;
+      super(in, 28);
     }
     
     @Override
@@ -226,11 +257,9 @@ public class DirectReader {
     }    
   }
   
-  static final class DirectPackedReader32 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader32 extends DirectPackedReader {
     DirectPackedReader32(RandomAccessInput in) {
-      this.in = in;
+      super(in, 32);
     }
     
     @Override
@@ -243,11 +272,9 @@ public class DirectReader {
     }    
   }
   
-  static final class DirectPackedReader40 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader40 extends DirectPackedReader {
     DirectPackedReader40(RandomAccessInput in) {
-      this.in = in;
+      super(in, 40);
     }
     
     @Override
@@ -260,11 +287,9 @@ public class DirectReader {
     }    
   }
   
-  static final class DirectPackedReader48 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader48 extends DirectPackedReader {
     DirectPackedReader48(RandomAccessInput in) {
-      this.in = in;
+      super(in, 48);
     }
     
     @Override
@@ -277,11 +302,9 @@ public class DirectReader {
     }    
   }
   
-  static final class DirectPackedReader56 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader56 extends DirectPackedReader {
     DirectPackedReader56(RandomAccessInput in) {
-      this.in = in;
+      super(in, 56);
     }
     
     @Override
@@ -294,11 +317,9 @@ public class DirectReader {
     }    
   }
   
-  static final class DirectPackedReader64 extends LongValues {
-    final RandomAccessInput in;
-    
+  static final class DirectPackedReader64 extends DirectPackedReader {
     DirectPackedReader64(RandomAccessInput in) {
-      this.in = in;
+      super(in, 64);
     }
     
     @Override
@@ -0,0 +1,251 @@
+package org.apache.lucene.analysis;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestPooledReuseStrategy extends LuceneTestCase {
+
+  private static Analyzer newAnalyzer(PooledReuseStrategy strategy, final AtomicInteger created) {
+    return new Analyzer(strategy) {
+      @Override
+      protected TokenStreamComponents createComponents(String fieldName) {
+        created.incrementAndGet();
+        return new TokenStreamComponents(new MockTokenizer());
+      }
+    };
+  }
+
+  private static List<String> tokens(Analyzer analyzer, String field, String text) throws IOException {
+    final List<String> tokens = new ArrayList<>();
+    try (TokenStream ts = analyzer.tokenStream(field, text)) {
+      final CharTermAttribute termAtt = ts.addAttribute(CharTermAttribute.class);
+      ts.reset();
+      while (ts.incrementToken()) {
+        tokens.add(termAtt.toString());
+      }
+      ts.end();
+    }
+    return tokens;
+  }
+
+  public void testBasics() throws Exception {
+    PooledReuseStrategy strategy = new PooledReuseStrategy(2);
+    AtomicInteger created = new AtomicInteger();
+    Analyzer a = newAnalyzer(strategy, created);
+    assertEquals(Arrays.asList("foo", "bar"), tokens(a, "body", "foo bar"));
+    assertEquals(Arrays.asList("baz"), tokens(a, "body", "Baz"));
+    assertEquals(1, created.get());
+    assertEquals(1, strategy.getCreatedCount());
+    assertEquals(1, strategy.getReusedCount());
+    assertEquals(1, strategy.getPooledCount(a));
+    a.close();
+  }
+
+  public void testReusedByOtherThreads() throws Exception {
+    PooledReuseStrategy strategy = new PooledReuseStrategy(4);
+    AtomicInteger created = new AtomicInteger();
+    final Analyzer a = newAnalyzer(strategy, created);
+    final int numThreads = atLeast(3);
+    for (int i = 0; i < numThreads; ++i) {
+      final String text = "thread " + i;
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            assertEquals(text.split(" ").length, tokens(a, "body", text).size());
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      };
+      thread.start();
+      thread.join();
+    }
+    // with per-thread reuse, every thread would have created its own components
+    assertEquals(1, created.get());
+    assertEquals(numThreads - 1, strategy.getReusedCount());
+    a.close();
+  }
+
+  public void testConcurrentLeases() throws Exception {
+    final int maxPooled = TestUtil.nextInt(random(), 1, 4);
+    PooledReuseStrategy strategy = new PooledReuseStrategy(maxPooled);
+    AtomicInteger created = new AtomicInteger();
+    Analyzer a = newAnalyzer(strategy, created);
+    final int numStreams = TestUtil.nextInt(random(), 1, 8);
+    List<TokenStream> streams = new ArrayList<>();
+    for (int i = 0; i < numStreams; ++i) {
+      // streams that are not closed yet must not share components
+      TokenStream ts = a.tokenStream("body", "foo bar");
+      for (TokenStream other : streams) {
+        assertNotSame(other, ts);
+      }
+      ts.reset();
+      streams.add(ts);
+    }
+    assertEquals(numStreams, created.get());
+    for (TokenStream ts : streams) {
+      while (ts.incrementToken()) {}
+      ts.end();
+      ts.close();
+    }
+    assertEquals(Math.min(numStreams, maxPooled), strategy.getPooledCount(a));
+    assertEquals(Math.max(0, numStreams - maxPooled), strategy.getDiscardedCount());
+    a.close();
+  }
+
+  public void testDoubleClose() throws Exception {
+    PooledReuseStrategy strategy = new PooledReuseStrategy(2);
+    AtomicInteger created = new AtomicInteger();
+    Analyzer a = newAnalyzer(strategy, created);
+    TokenStream ts = a.tokenStream("body", "foo");
+    ts.reset();
+    while (ts.incrementToken()) {}
+    ts.end();
+    ts.close();
+    ts.close();
+    // the components must only have been returned to the pool once
+    assertEquals(1, strategy.getPooledCount(a));
+    TokenStream ts1 = a.tokenStream("body", "foo");
+    TokenStream ts2 = a.tokenStream("body", "bar");
+    assertNotSame(ts1, ts2);
+    assertEquals(2, created.get());
+    a.close();
+  }
+
+  public void testPerField() throws Exception {
+    PooledReuseStrategy strategy = new PooledReuseStrategy(2, true);
+    AtomicInteger created = new AtomicInteger();
+    Analyzer a = newAnalyzer(strategy, created);
+    assertEquals(1, tokens(a, "f1", "foo").size());
+    assertEquals(1, tokens(a, "f2", "foo").size());
+    assertEquals(2, created.get());
+    assertEquals(1, tokens(a, "f1", "foo").size());
+    assertEquals(1, tokens(a, "f2", "foo").size());
+    assertEquals(2, created.get());
+    assertEquals(2, strategy.getPooledCount(a));
+    a.close();
+  }
+
+  public void testDelegatingWrapper() throws Exception {
+    PooledReuseStrategy strategy = new PooledReuseStrategy(2);
+    AtomicInteger created = new AtomicInteger();
+    final Analyzer delegate = newAnalyzer(strategy, created);
+    Analyzer wrapper = new DelegatingAnalyzerWrapper(Analyzer.PER_FIELD_REUSE_STRATEGY) {
+      @Override
+      protected Analyzer getWrappedAnalyzer(String fieldName) {
+        return delegate;
+      }
+    };
+    assertEquals(2, tokens(wrapper, "body", "foo bar").size());
+    assertEquals(2, tokens(delegate, "body", "foo bar").size());
+    assertEquals(1, created.get());
+    assertEquals(1, strategy.getPooledCount(delegate));
+    wrapper.close();
+    delegate.close();
+  }
+
+  public void testClosed() throws Exception {
+    Analyzer a = newAnalyzer(new PooledReuseStrategy(1), new AtomicInteger());
+    assertEquals(1, tokens(a, "body", "foo").size());
+    a.close();
+    try {
+      a.tokenStream("body", "foo");
+      fail("did not hit exception");
+    } catch (AlreadyClosedException expected) {
+      // expected
+    }
+  }
+
+  public void testPoolsOfClosedAnalyzersAreDropped() throws Exception {
+    PooledReuseStrategy strategy = new PooledReuseStrategy(1);
+    Analyzer a1 = newAnalyzer(strategy, new AtomicInteger());
+    assertEquals(1, tokens(a1, "body", "foo").size());
+    assertEquals(1, strategy.getPooledCount(a1));
+    a1.close();
+    Analyzer a2 = newAnalyzer(strategy, new AtomicInteger());
+    assertEquals(1, tokens(a2, "body", "foo").size());
+    assertEquals(0, strategy.getPooledCount(a1));
+    assertEquals(1, strategy.getPooledCount(a2));
+    a2.close();
+  }
+
+  public void testIllegalMaxPooledComponents() {
+    try {
+      new PooledReuseStrategy(0);
+      fail("did not hit exception");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  public void testManyThreads() throws Exception {
+    final int maxPooled = TestUtil.nextInt(random(), 1, 4);
+    PooledReuseStrategy strategy = new PooledReuseStrategy(maxPooled);
+    AtomicInteger created = new AtomicInteger();
+    final Analyzer a = newAnalyzer(strategy, created);
+    final String[] texts = new String[atLeast(20)];
+    for (int i = 0; i < texts.length; ++i) {
+      texts[i] = TestUtil.randomSimpleString(random(), 1, 10) + " " + TestUtil.randomSimpleString(random(), 1, 10);
+    }
+    final List<List<String>> expected = new ArrayList<>();
+    for (String text : texts) {
+      expected.add(Arrays.asList(text.split(" ")));
+    }
+    final int iters = atLeast(100);
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[TestUtil.nextInt(random(), 2, 6)];
+    for (int i = 0; i < threads.length; ++i) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int iter = 0; iter < iters; ++iter) {
+              final int j = (iter * 31 + (int) getId()) % texts.length;
+              assertEquals(expected.get(j), tokens(a, "body", texts[j]));
+            }
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // components may be discarded and created again when there are more threads than pooled components
+    assertEquals(created.get(), strategy.getCreatedCount());
+    assertEquals(threads.length * iters, strategy.getCreatedCount() + strategy.getReusedCount());
+    assertEquals(strategy.getCreatedCount() - strategy.getDiscardedCount(), strategy.getPooledCount(a));
+    a.close();
+  }
+}
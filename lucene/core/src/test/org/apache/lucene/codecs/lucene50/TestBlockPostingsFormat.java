@@ -17,8 +17,13 @@ package org.apache.lucene.codecs.lucene50;
  * limitations under the License.
  */
 
+import java.util.TreeSet;
+
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader.FSTLoadMode;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsWriter;
 import org.apache.lucene.codecs.blocktree.FieldReader;
 import org.apache.lucene.codecs.blocktree.Stats;
 import org.apache.lucene.document.Document;
@@ -27,7 +32,11 @@ import org.apache.lucene.index.BasePostingsFormatTestCase;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.index.TermsEnum.SeekStatus;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.TestUtil;
 
 /**
@@ -65,6 +74,85 @@ public class TestBlockPostingsFormat extends BasePostingsFormatTestCase {
     d.close();
   }
 
+  /** Seeks on a large ID-like field, whose first two bytes are served
+   *  by the arcs cached by the {@link FieldReader}. */
+  public void testSeekWithCachedArcs() throws Exception {
+    Directory d = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(getCodec());
+    IndexWriter w = new IndexWriter(d, iwc);
+    final int numIDs = atLeast(30000);
+    final TreeSet<BytesRef> ids = new TreeSet<>();
+    while (ids.size() < numIDs) {
+      // small alphabet so that the cache is cheap compared to the number of terms
+      final String id = TestUtil.randomSimpleStringRange(random(), 'a', 'd', 1 + random().nextInt(12));
+      if (id.isEmpty() == false && ids.add(new BytesRef(id))) {
+        Document doc = new Document();
+        doc.add(newStringField("id", id, Field.Store.NO));
+        w.addDocument(doc);
+      }
+    }
+    w.forceMerge(1);
+
+    DirectoryReader r = DirectoryReader.open(w, true);
+    TermsEnum termsEnum = r.leaves().get(0).reader().terms("id").iterator();
+    for (BytesRef id : ids) {
+      assertTrue(termsEnum.seekExact(id));
+      assertEquals(1, termsEnum.docFreq());
+    }
+    for (int i = 0; i < 1000; i++) {
+      final BytesRef target = new BytesRef(TestUtil.randomSimpleStringRange(random(), 'a', 'e', random().nextInt(14)));
+      assertEquals(ids.contains(target), termsEnum.seekExact(target));
+      final BytesRef ceil = ids.ceiling(target);
+      final SeekStatus status = termsEnum.seekCeil(target);
+      if (ceil == null) {
+        assertEquals(SeekStatus.END, status);
+      } else {
+        assertEquals(ceil.equals(target) ? SeekStatus.FOUND : SeekStatus.NOT_FOUND, status);
+        assertEquals(ceil, termsEnum.term());
+      }
+    }
+    r.close();
+    w.close();
+    d.close();
+  }
+
+  /** The load mode of the format is recorded per field, so that readers
+   *  that look the format up by its name honour it. */
+  public void testRecordedFSTLoadMode() throws Exception {
+    final int numIDs = atLeast(1000);
+    final FSTLoadMode[] modes = new FSTLoadMode[] { FSTLoadMode.ON_HEAP, FSTLoadMode.OFF_HEAP };
+    final long[] ramBytesUsed = new long[modes.length];
+    for (int i = 0; i < modes.length; i++) {
+      Directory d = newDirectory();
+      IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+      iwc.setCodec(TestUtil.alwaysPostingsFormat(new Lucene50PostingsFormat(BlockTreeTermsWriter.DEFAULT_MIN_BLOCK_SIZE,
+                                                                            BlockTreeTermsWriter.DEFAULT_MAX_BLOCK_SIZE,
+                                                                            modes[i])));
+      IndexWriter w = new IndexWriter(d, iwc);
+      for (int j = 0; j < numIDs; j++) {
+        Document doc = new Document();
+        doc.add(newStringField("id", Integer.toString(j), Field.Store.NO));
+        w.addDocument(doc);
+      }
+      w.forceMerge(1);
+      w.close();
+
+      DirectoryReader r = DirectoryReader.open(d);
+      LeafReader leaf = r.leaves().get(0).reader();
+      assertEquals(modes[i].name(), leaf.getFieldInfos().fieldInfo("id").getAttribute(BlockTreeTermsReader.FST_LOAD_MODE_KEY));
+      FieldReader field = (FieldReader) leaf.terms("id");
+      ramBytesUsed[i] = field.ramBytesUsed();
+      TermsEnum termsEnum = field.iterator();
+      for (int j = 0; j < numIDs; j++) {
+        assertTrue(termsEnum.seekExact(new BytesRef(Integer.toString(j))));
+      }
+      r.close();
+      d.close();
+    }
+    assertTrue(ramBytesUsed[1] < ramBytesUsed[0]);
+  }
+
   private void shouldFail(int minItemsInBlock, int maxItemsInBlock) {
     try {
       new Lucene50PostingsFormat(minItemsInBlock, maxItemsInBlock);
@@ -28,22 +28,34 @@ import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.asserting.AssertingCodec;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.BaseCompressingDocValuesFormatTestCase;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.SerialMergeScheduler;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.index.TermsEnum.SeekStatus;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FieldValueQuery;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.SparseBits;
 import org.apache.lucene.util.TestUtil;
 
 /**
@@ -116,6 +128,99 @@ public class TestLucene50DocValuesFormat extends BaseCompressingDocValuesFormatT
     }
   }
   
+  public void testSparseFields() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig conf = newIndexWriterConfig(new MockAnalyzer(random()));
+    conf.setCodec(codec);
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir, conf);
+    final int numDocs = atLeast(3000);
+    final Long[] numerics = new Long[numDocs];
+    final String[] strings = new String[numDocs];
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StoredField("id", i));
+      if (random().nextInt(500) == 0) {
+        numerics[i] = random().nextLong();
+        doc.add(new NumericDocValuesField("numeric", numerics[i]));
+        doc.add(new SortedNumericDocValuesField("sorted_numeric", numerics[i]));
+      }
+      if (random().nextInt(500) == 0) {
+        strings[i] = TestUtil.randomSimpleString(random());
+        doc.add(new SortedDocValuesField("sorted", new BytesRef(strings[i])));
+        doc.add(new SortedSetDocValuesField("sorted_set", new BytesRef(strings[i])));
+      }
+      writer.addDocument(doc);
+    }
+    writer.forceMerge(1);
+    DirectoryReader reader = writer.getReader();
+    writer.close();
+
+    LeafReader leaf = getOnlySegmentReader(reader);
+    NumericDocValues numeric = leaf.getNumericDocValues("numeric");
+    SortedNumericDocValues sortedNumeric = leaf.getSortedNumericDocValues("sorted_numeric");
+    SortedDocValues sorted = leaf.getSortedDocValues("sorted");
+    SortedSetDocValues sortedSet = leaf.getSortedSetDocValues("sorted_set");
+    Bits[] docsWithField = new Bits[] {
+        leaf.getDocsWithField("numeric"), leaf.getDocsWithField("sorted_numeric"),
+        leaf.getDocsWithField("sorted"), leaf.getDocsWithField("sorted_set") };
+    int numNumerics = 0, numStrings = 0;
+    // check both sequential and random access
+    for (int iter = 0; iter < 2; iter++) {
+      for (int i = 0; i < numDocs; i++) {
+        final int docID = iter == 0 ? i : random().nextInt(numDocs);
+        final int id = leaf.document(docID).getField("id").numericValue().intValue();
+        final Long expectedNumeric = numerics[id];
+        assertEquals(expectedNumeric != null, docsWithField[0].get(docID));
+        assertEquals(expectedNumeric != null, docsWithField[1].get(docID));
+        assertEquals(expectedNumeric == null ? 0 : expectedNumeric, numeric.get(docID));
+        sortedNumeric.setDocument(docID);
+        if (expectedNumeric == null) {
+          assertEquals(0, sortedNumeric.count());
+        } else {
+          assertEquals(1, sortedNumeric.count());
+          assertEquals(expectedNumeric.longValue(), sortedNumeric.valueAt(0));
+        }
+        final String expectedString = strings[id];
+        assertEquals(expectedString != null, docsWithField[2].get(docID));
+        assertEquals(expectedString != null, docsWithField[3].get(docID));
+        sortedSet.setDocument(docID);
+        if (expectedString == null) {
+          assertEquals(-1, sorted.getOrd(docID));
+          assertEquals(SortedSetDocValues.NO_MORE_ORDS, sortedSet.nextOrd());
+        } else {
+          assertEquals(new BytesRef(expectedString), sorted.get(docID));
+          assertEquals(new BytesRef(expectedString), sortedSet.lookupOrd(sortedSet.nextOrd()));
+          assertEquals(SortedSetDocValues.NO_MORE_ORDS, sortedSet.nextOrd());
+        }
+        if (iter == 0) {
+          numNumerics += expectedNumeric == null ? 0 : 1;
+          numStrings += expectedString == null ? 0 : 1;
+        }
+      }
+    }
+
+    // docs with a value can be iterated directly
+    for (Bits bits : docsWithField) {
+      if (bits instanceof SparseBits) {
+        final DocIdSetIterator it = ((SparseBits) bits).iterator();
+        int count = 0;
+        for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+          assertTrue(bits.get(doc));
+          count++;
+        }
+        assertEquals(bits == docsWithField[0] || bits == docsWithField[1] ? numNumerics : numStrings, count);
+      }
+    }
+    IndexSearcher searcher = newSearcher(reader);
+    assertEquals(numNumerics, searcher.count(new FieldValueQuery("numeric")));
+    assertEquals(numNumerics, searcher.count(new FieldValueQuery("sorted_numeric")));
+    assertEquals(numStrings, searcher.count(new FieldValueQuery("sorted")));
+    assertEquals(numStrings, searcher.count(new FieldValueQuery("sorted_set")));
+
+    reader.close();
+    dir.close();
+  }
+
   // TODO: try to refactor this and some termsenum tests into the base class.
   // to do this we need to fix the test class to get a DVF not a Codec so we can setup
   // the postings format correctly.
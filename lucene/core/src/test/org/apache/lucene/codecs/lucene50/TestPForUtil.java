@@ -0,0 +1,125 @@
+package org.apache.lucene.codecs.lucene50;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.BLOCK_SIZE;
+import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_DATA_SIZE;
+import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_ENCODED_SIZE;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.packed.PackedInts;
+
+import com.carrotsearch.randomizedtesting.generators.RandomInts;
+
+public class TestPForUtil extends LuceneTestCase {
+
+  public void testEncodeDecode() throws IOException {
+    final int iterations = RandomInts.randomIntBetween(random(), 1, 1000);
+    final float acceptableOverheadRatio = random().nextFloat();
+    final int[] values = new int[(iterations - 1) * BLOCK_SIZE + ForUtil.MAX_DATA_SIZE];
+    for (int i = 0; i < iterations; ++i) {
+      final int bpv = random().nextInt(32);
+      if (bpv == 0) {
+        final int value = RandomInts.randomIntBetween(random(), 0, Integer.MAX_VALUE);
+        for (int j = 0; j < BLOCK_SIZE; ++j) {
+          values[i * BLOCK_SIZE + j] = value;
+        }
+      } else {
+        for (int j = 0; j < BLOCK_SIZE; ++j) {
+          values[i * BLOCK_SIZE + j] = RandomInts.randomIntBetween(random(),
+              0, (int) PackedInts.maxValue(bpv));
+        }
+        // add a few outliers
+        final int numOutliers = random().nextInt(10);
+        for (int j = 0; j < numOutliers; ++j) {
+          values[i * BLOCK_SIZE + random().nextInt(BLOCK_SIZE)] = RandomInts.randomIntBetween(random(),
+              0, Integer.MAX_VALUE >>> random().nextInt(31));
+        }
+      }
+    }
+
+    final Directory d = new RAMDirectory();
+    final long endPointer;
+
+    {
+      // encode
+      IndexOutput out = d.createOutput("test.bin", IOContext.DEFAULT);
+      final PForUtil forUtil = new PForUtil(acceptableOverheadRatio, out);
+      
+      for (int i = 0; i < iterations; ++i) {
+        final int[] block = Arrays.copyOfRange(values, i * BLOCK_SIZE, values.length);
+        forUtil.writeBlock(block, new byte[MAX_ENCODED_SIZE], out);
+        // the input must not be modified
+        assertArrayEquals(Arrays.copyOfRange(values, i * BLOCK_SIZE, values.length), block);
+      }
+      endPointer = out.getFilePointer();
+      out.close();
+    }
+
+    {
+      // decode
+      IndexInput in = d.openInput("test.bin", IOContext.READONCE);
+      final PForUtil forUtil = new PForUtil(in);
+      for (int i = 0; i < iterations; ++i) {
+        if (random().nextBoolean()) {
+          forUtil.skipBlock(in);
+          continue;
+        }
+        final int[] restored = new int[MAX_DATA_SIZE];
+        forUtil.readBlock(in, new byte[MAX_ENCODED_SIZE], restored);
+        assertArrayEquals(Arrays.copyOfRange(values, i * BLOCK_SIZE, (i + 1) * BLOCK_SIZE),
+            Arrays.copyOf(restored, BLOCK_SIZE));
+      }
+      assertEquals(endPointer, in.getFilePointer());
+      in.close();
+    }
+    
+    d.close();
+  }
+
+  public void testOutliers() throws IOException {
+    final int[] values = new int[MAX_DATA_SIZE];
+    for (int i = 0; i < BLOCK_SIZE; ++i) {
+      values[i] = random().nextInt(8);
+    }
+    values[random().nextInt(BLOCK_SIZE)] = 1 << 10;
+
+    final Directory d = new RAMDirectory();
+    IndexOutput out = d.createOutput("for.bin", IOContext.DEFAULT);
+    new ForUtil(PackedInts.COMPACT, out).writeBlock(values, new byte[MAX_ENCODED_SIZE], out);
+    final long forSize = out.getFilePointer();
+    out.close();
+    out = d.createOutput("pfor.bin", IOContext.DEFAULT);
+    new PForUtil(PackedInts.COMPACT, out).writeBlock(values, new byte[MAX_ENCODED_SIZE], out);
+    final long pforSize = out.getFilePointer();
+    out.close();
+
+    // 3 bits per value and a 2-bytes exception instead of 11 bits per value
+    assertEquals(forSize - 8 * BLOCK_SIZE / 8 + 2, pforSize);
+    d.close();
+  }
+
+}
@@ -0,0 +1,143 @@
+package org.apache.lucene.codecs.lucene53;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat.Mode;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.BasePostingsFormatTestCase;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
+
+/**
+ * Tests Lucene53BloomPostingsFormat
+ */
+public class TestLucene53BloomPostingsFormat extends BasePostingsFormatTestCase {
+  private final Codec codec = TestUtil.alwaysPostingsFormat(new Lucene53BloomPostingsFormat());
+
+  @Override
+  protected Codec getCodec() {
+    return codec;
+  }
+
+  public void testNoFalseNegatives() throws Exception {
+    final int numTerms = atLeast(10000);
+    final BloomFilter filter = BloomFilter.create(numTerms, Lucene53BloomPostingsFormat.DEFAULT_BITS_PER_TERM, Long.MAX_VALUE);
+    final Set<BytesRef> terms = new HashSet<>();
+    while (terms.size() < numTerms) {
+      terms.add(new BytesRef(TestUtil.randomSimpleString(random(), 1, 20)));
+    }
+    for (BytesRef term : terms) {
+      filter.add(term);
+    }
+    final BloomFilter downsized = filter.downsize();
+    assertTrue(downsized.sizeInBytes() <= filter.sizeInBytes());
+    // a filter that could not be folded may be slightly more saturated
+    assertTrue(downsized == filter || downsized.saturation() <= 0.5);
+
+    Directory dir = newDirectory();
+    try (IndexOutput out = dir.createOutput("bloom", IOContext.DEFAULT)) {
+      downsized.write(out);
+    }
+    try (IndexInput in = dir.openInput("bloom", IOContext.DEFAULT)) {
+      final BloomFilter onHeap = BloomFilter.read(in.clone());
+      final BloomFilter offHeap = BloomFilter.readOffHeap(in);
+      assertEquals(in.length(), in.getFilePointer());
+      for (BytesRef term : terms) {
+        assertTrue(filter.mayContain(term));
+        assertTrue(downsized.mayContain(term));
+        assertTrue(onHeap.mayContain(term));
+        assertTrue(offHeap.mayContain(term));
+      }
+
+      // the measured rate of false positives should be close to the expected one
+      int falsePositives = 0;
+      final int numLookups = 10000;
+      for (int i = 0; i < numLookups; i++) {
+        final BytesRef term = new BytesRef(TestUtil.randomSimpleString(random(), 21, 30));
+        final boolean mayContain = downsized.mayContain(term);
+        assertEquals(mayContain, onHeap.mayContain(term));
+        assertEquals(mayContain, offHeap.mayContain(term));
+        if (mayContain) {
+          falsePositives++;
+        }
+      }
+      assertTrue("falsePositives=" + falsePositives, falsePositives < numLookups * Math.max(0.05, 2 * downsized.falsePositiveRate()));
+    }
+    dir.close();
+  }
+
+  public void testMaxBytes() {
+    final BloomFilter filter = BloomFilter.create(1000000, Lucene53BloomPostingsFormat.DEFAULT_BITS_PER_TERM, 1024);
+    assertTrue(filter.sizeInBytes() <= 1024);
+  }
+
+  public void testUpdateDocuments() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(new Lucene53Codec(Mode.BEST_SPEED, Collections.singleton("id")));
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 2, 100));
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numIDs = atLeast(200);
+    final int numUpdates = atLeast(1000);
+    final boolean[] exists = new boolean[numIDs];
+    for (int i = 0; i < numUpdates; i++) {
+      final int id = random().nextInt(numIDs);
+      Document doc = new Document();
+      doc.add(newStringField("id", Integer.toString(id), Field.Store.NO));
+      if (random().nextInt(10) == 0) {
+        w.deleteDocuments(new Term("id", Integer.toString(id)));
+        exists[id] = false;
+      } else {
+        w.updateDocument(new Term("id", Integer.toString(id)), doc);
+        exists[id] = true;
+      }
+      if (random().nextInt(100) == 0) {
+        w.commit();
+      }
+    }
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    IndexSearcher searcher = newSearcher(reader);
+    int numDocs = 0;
+    for (int id = 0; id < numIDs; id++) {
+      final int count = searcher.count(new TermQuery(new Term("id", Integer.toString(id))));
+      assertEquals(exists[id] ? 1 : 0, count);
+      numDocs += count;
+    }
+    assertEquals(numDocs, reader.numDocs());
+    reader.close();
+    w.close();
+    dir.close();
+  }
+}
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LineFileDocs;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.LockObtainFailedException;
 import org.apache.lucene.analysis.Analyzer;
@@ -171,6 +172,59 @@ public class TestCheckIndex extends LuceneTestCase {
     analyzer.close();
   }
   
+  public void testMultipleThreads() throws IOException {
+    LineFileDocs lf = new LineFileDocs(random());
+    Directory dir = newDirectory();
+    Analyzer analyzer = new MockAnalyzer(random());
+    IndexWriterConfig iwc = newIndexWriterConfig(analyzer);
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 10, 50));
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter iw = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; i++) {
+      iw.addDocument(lf.nextDoc());
+      if (random().nextInt(20) == 0) {
+        iw.deleteDocuments(new Term("docid", Integer.toString(random().nextInt(i + 1))));
+      }
+    }
+    iw.commit();
+    iw.close();
+    lf.close();
+
+    final boolean checksumsOnly = random().nextBoolean();
+    String[] outputs = new String[2];
+    CheckIndex.Status[] statuses = new CheckIndex.Status[2];
+    for (int i = 0; i < 2; i++) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+      CheckIndex checker = new CheckIndex(dir);
+      checker.setInfoStream(new PrintStream(bos, true, IOUtils.UTF_8));
+      checker.setChecksumsOnly(checksumsOnly);
+      checker.setThreadCount(i == 0 ? 1 : TestUtil.nextInt(random(), 2, 8));
+      statuses[i] = checker.checkIndex();
+      checker.close();
+      // timings differ from run to run
+      outputs[i] = bos.toString(IOUtils.UTF_8).replaceAll("[0-9.]+ sec", "");
+    }
+
+    assertTrue(statuses[1].clean);
+    assertEquals(outputs[0], outputs[1]);
+    assertEquals(statuses[0].segmentInfos.size(), statuses[1].segmentInfos.size());
+    for (int i = 0; i < statuses[0].segmentInfos.size(); i++) {
+      CheckIndex.Status.SegmentInfoStatus expected = statuses[0].segmentInfos.get(i);
+      CheckIndex.Status.SegmentInfoStatus actual = statuses[1].segmentInfos.get(i);
+      assertEquals(expected.name, actual.name);
+      assertTrue(actual.openReaderPassed);
+      if (checksumsOnly == false) {
+        assertEquals(expected.termIndexStatus.termCount, actual.termIndexStatus.termCount);
+        assertEquals(expected.storedFieldStatus.docCount, actual.storedFieldStatus.docCount);
+        assertEquals(expected.docValuesStatus.totalValueFields, actual.docValuesStatus.totalValueFields);
+      }
+    }
+    assertEquals(statuses[0].newSegments.size(), statuses[1].newSegments.size());
+    dir.close();
+    analyzer.close();
+  }
+
   public void testObtainsLock() throws IOException {
     Directory dir = newDirectory();
     IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null));
@@ -23,8 +23,10 @@ import java.util.HashMap;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.MultiDocValues.MultiSortedDocValues;
 import org.apache.lucene.index.MultiDocValues.MultiSortedSetDocValues;
 import org.apache.lucene.index.MultiDocValues.OrdinalMap;
@@ -38,9 +40,11 @@ import org.apache.lucene.util.TestUtil;
 public class TestOrdinalMap extends LuceneTestCase {
 
   private static final Field ORDINAL_MAP_OWNER_FIELD;
+  private static final Field ORDINAL_MAP_SEGMENT_KEYS_FIELD;
   static {
     try {
       ORDINAL_MAP_OWNER_FIELD = OrdinalMap.class.getDeclaredField("owner");
+      ORDINAL_MAP_SEGMENT_KEYS_FIELD = OrdinalMap.class.getDeclaredField("segmentKeys");
     } catch (Exception e) {
       throw new Error();
     }
@@ -55,6 +59,11 @@ public class TestOrdinalMap extends LuceneTestCase {
       if (o instanceof OrdinalMap) {
         fieldValues = new HashMap<>(fieldValues);
         fieldValues.remove(ORDINAL_MAP_OWNER_FIELD);
+        // only the array is accounted, not the keys
+        final Object[] segmentKeys = (Object[]) fieldValues.get(ORDINAL_MAP_SEGMENT_KEYS_FIELD);
+        if (segmentKeys != null) {
+          fieldValues.put(ORDINAL_MAP_SEGMENT_KEYS_FIELD, new Object[segmentKeys.length]);
+        }
       }
       return super.accumulateObject(o, shallowSize, fieldValues, queue);
     }
@@ -99,4 +108,88 @@ public class TestOrdinalMap extends LuceneTestCase {
     dir.close();
   }
 
+  public void testIncrementalBuild() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig cfg = new IndexWriterConfig(new MockAnalyzer(random()));
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir, cfg);
+    final int maxTermLength = TestUtil.nextInt(random(), 1, 4);
+    DirectoryReader reader = null;
+    OrdinalMap previousSorted = null;
+    OrdinalMap previousSortedSet = null;
+    final int iters = atLeast(5);
+    for (int iter = 0; iter < iters; ++iter) {
+      final int numDocs = TestUtil.nextInt(random(), 1, 200);
+      for (int i = 0; i < numDocs; ++i) {
+        Document d = new Document();
+        d.add(new StringField("id", Integer.toString(random().nextInt(1000)), Store.NO));
+        if (random().nextBoolean()) {
+          d.add(new SortedDocValuesField("sdv", new BytesRef(TestUtil.randomSimpleString(random(), maxTermLength))));
+        }
+        final int numSortedSet = random().nextInt(3);
+        for (int j = 0; j < numSortedSet; ++j) {
+          d.add(new SortedSetDocValuesField("ssdv", new BytesRef(TestUtil.randomSimpleString(random(), maxTermLength))));
+        }
+        iw.addDocument(d);
+        if (rarely()) {
+          iw.commit();
+        }
+      }
+      if (random().nextBoolean()) {
+        iw.deleteDocuments(new Term("id", Integer.toString(random().nextInt(1000))));
+      }
+      if (rarely()) {
+        iw.forceMerge(TestUtil.nextInt(random(), 1, 3));
+      }
+      if (reader != null) {
+        reader.close();
+      }
+      reader = iw.getReader();
+
+      SortedDocValues sdv = MultiDocValues.getSortedValues(reader, "sdv", previousSorted);
+      if (sdv instanceof MultiSortedDocValues) {
+        SortedDocValues[] values = ((MultiSortedDocValues) sdv).values;
+        long[] valueCounts = new long[values.length];
+        for (int i = 0; i < values.length; ++i) {
+          valueCounts[i] = values[i].getValueCount();
+        }
+        OrdinalMap map = ((MultiSortedDocValues) sdv).mapping;
+        OrdinalMap expected = ((MultiSortedDocValues) MultiDocValues.getSortedValues(reader, "sdv")).mapping;
+        assertSameMapping(valueCounts, expected, map);
+        assertEquals(RamUsageTester.sizeOf(map, ORDINAL_MAP_ACCUMULATOR), map.ramBytesUsed());
+        previousSorted = map;
+      }
+      SortedSetDocValues ssdv = MultiDocValues.getSortedSetValues(reader, "ssdv", previousSortedSet);
+      if (ssdv instanceof MultiSortedSetDocValues) {
+        SortedSetDocValues[] values = ((MultiSortedSetDocValues) ssdv).values;
+        long[] valueCounts = new long[values.length];
+        for (int i = 0; i < values.length; ++i) {
+          valueCounts[i] = values[i].getValueCount();
+        }
+        OrdinalMap map = ((MultiSortedSetDocValues) ssdv).mapping;
+        OrdinalMap expected = ((MultiSortedSetDocValues) MultiDocValues.getSortedSetValues(reader, "ssdv")).mapping;
+        assertSameMapping(valueCounts, expected, map);
+        assertEquals(RamUsageTester.sizeOf(map, ORDINAL_MAP_ACCUMULATOR), map.ramBytesUsed());
+        previousSortedSet = map;
+      }
+    }
+    reader.close();
+    iw.close();
+    dir.close();
+  }
+
+  private static void assertSameMapping(long[] valueCounts, OrdinalMap expected, OrdinalMap actual) {
+    assertEquals(expected.getValueCount(), actual.getValueCount());
+    for (long globalOrd = 0; globalOrd < expected.getValueCount(); ++globalOrd) {
+      assertEquals(expected.getFirstSegmentNumber(globalOrd), actual.getFirstSegmentNumber(globalOrd));
+      assertEquals(expected.getFirstSegmentOrd(globalOrd), actual.getFirstSegmentOrd(globalOrd));
+    }
+    for (int i = 0; i < valueCounts.length; ++i) {
+      final LongValues expectedGlobalOrds = expected.getGlobalOrds(i);
+      final LongValues actualGlobalOrds = actual.getGlobalOrds(i);
+      for (long segmentOrd = 0; segmentOrd < valueCounts[i]; ++segmentOrd) {
+        assertEquals(expectedGlobalOrds.get(segmentOrd), actualGlobalOrds.get(segmentOrd));
+      }
+    }
+  }
+
 }
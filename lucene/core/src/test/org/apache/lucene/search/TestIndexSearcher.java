@@ -29,6 +29,7 @@ import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.store.Directory;
@@ -165,4 +166,49 @@ public class TestIndexSearcher extends LuceneTestCase {
     dir.close();
   }
 
+  public void testCountWithDeletions() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Store.NO));
+      if (random().nextBoolean()) {
+        doc.add(new StringField("foo", "bar", Store.NO));
+      }
+      w.addDocument(doc);
+    }
+    for (int i = 0; i < numDocs; ++i) {
+      if (random().nextInt(10) == 0) {
+        w.deleteDocuments(new Term("id", Integer.toString(i)));
+      }
+    }
+    final IndexReader reader = w.getReader();
+    w.close();
+    final IndexSearcher searcher = newSearcher(reader);
+    for (Query query : new Query[] {
+        new TermQuery(new Term("foo", "bar")),
+        new TermQuery(new Term("foo", "baz")),
+        new MatchAllDocsQuery() }) {
+      assertEquals(searcher.search(query, 1).totalHits, searcher.count(query));
+
+      final Weight weight = searcher.createNormalizedWeight(query, false);
+      for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+        final int count = weight.count(context);
+        if (count != -1) {
+          final BulkScorer scorer = weight.bulkScorer(context);
+          final TotalHitCountCollector leafCollector = new TotalHitCountCollector();
+          if (scorer != null) {
+            scorer.score(leafCollector.getLeafCollector(context), context.reader().getLiveDocs());
+          }
+          assertEquals(leafCollector.getTotalHits(), count);
+        } else {
+          assertTrue(query instanceof TermQuery && context.reader().hasDeletions());
+        }
+      }
+    }
+    reader.close();
+    dir.close();
+  }
+
 }
@@ -53,6 +53,7 @@ import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.RamUsageTester;
 import org.apache.lucene.util.TestUtil;
+import org.apache.lucene.util.ThreadInterruptedException;
 
 import com.carrotsearch.randomizedtesting.generators.RandomPicks;
 
@@ -225,6 +226,76 @@ public class TestLRUQueryCache extends LuceneTestCase {
     dir.close();
   }
 
+  public void testCostAwareEviction() throws Exception {
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+
+    Document doc = new Document();
+    StringField f = new StringField("color", "blue", Store.NO);
+    doc.add(f);
+    w.addDocument(doc);
+    f.setStringValue("red");
+    w.addDocument(doc);
+    f.setStringValue("green");
+    w.addDocument(doc);
+    final DirectoryReader reader = w.getReader();
+    final IndexSearcher searcher = newSearcher(reader);
+    final LRUQueryCache queryCache = new LRUQueryCache(2, 100000, 2);
+
+    final Query slow = new SlowQuery();
+    final Query red = new TermQuery(new Term("color", "red"));
+    final Query green = new TermQuery(new Term("color", "green"));
+
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+    searcher.search(new ConstantScoreQuery(slow), 1);
+    searcher.search(new ConstantScoreQuery(red), 1);
+    assertEquals(Arrays.asList(slow, red), queryCache.cachedQueries());
+
+    // slow is the least-recently used query, but it is much more expensive
+    // to rebuild than red, so red gets evicted
+    searcher.search(new ConstantScoreQuery(green), 1);
+    assertEquals(Arrays.asList(slow, green), queryCache.cachedQueries());
+    queryCache.assertConsistent();
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  public void testScoringMultiTermQueries() throws Exception {
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+
+    Document doc = new Document();
+    StringField f = new StringField("color", "blue", Store.NO);
+    doc.add(f);
+    w.addDocument(doc);
+    f.setStringValue("red");
+    w.addDocument(doc);
+    f.setStringValue("green");
+    w.addDocument(doc);
+    final DirectoryReader reader = w.getReader();
+    final IndexSearcher searcher = newSearcher(reader);
+    final LRUQueryCache queryCache = new LRUQueryCache(1000000, 10000000);
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+
+    // constant-score multi-term queries are cached even when scores are needed
+    assertEquals(1, searcher.search(new RegexpQuery(new Term("color", "re.*")), 1).totalHits);
+    assertEquals(1, queryCache.cachedQueries().size());
+
+    // regular expressions that compile to the same automaton share their cache entries
+    final long hitCount = queryCache.getHitCount();
+    assertEquals(1, searcher.search(new RegexpQuery(new Term("color", "r(e)(.*)")), 1).totalHits);
+    assertEquals(1, queryCache.cachedQueries().size());
+    assertTrue(queryCache.getHitCount() > hitCount);
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
   public void testClearFilter() throws IOException {
     Directory dir = newDirectory();
     final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
@@ -377,6 +448,50 @@ public class TestLRUQueryCache extends LuceneTestCase {
 
   }
 
+  private static class SlowQuery extends Query {
+
+    private static int COUNTER = 0;
+    private final int id;
+
+    SlowQuery() {
+      id = COUNTER++;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, boolean needsScores) throws IOException {
+      return new ConstantScoreWeight(this) {
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            throw new ThreadInterruptedException(e);
+          }
+          return new ConstantScoreScorer(this, score(), DocIdSetIterator.all(context.reader().maxDoc()));
+        }
+      };
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof SlowQuery == false) {
+        return false;
+      }
+      return id == ((SlowQuery) obj).id;
+    }
+
+    @Override
+    public int hashCode() {
+      return id;
+    }
+
+    @Override
+    public String toString(String field) {
+      return "SlowQuery";
+    }
+
+  }
+
   // Test what happens when the cache contains only filters and doc id sets
   // that require very little memory. In that case most of the memory is taken
   // by the cache itself, not cache entries, and we want to make sure that
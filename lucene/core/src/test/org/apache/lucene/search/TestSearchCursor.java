@@ -0,0 +1,225 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestSearchCursor extends LuceneTestCase {
+
+  private Directory dir;
+  private IndexReader reader;
+  private IndexSearcher searcher;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    dir = newDirectory();
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(300);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+      doc.add(newTextField("body", random().nextInt(3) == 0 ? "foo foo bar" : random().nextBoolean() ? "foo" : "bar", Field.Store.NO));
+      doc.add(new NumericDocValuesField("num", random().nextInt(50)));
+      iw.addDocument(doc);
+      if (random().nextInt(20) == 0) {
+        iw.deleteDocuments(new Term("id", Integer.toString(random().nextInt(i + 1))));
+      }
+    }
+    reader = iw.getReader();
+    iw.close();
+    searcher = newSearcher(reader);
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    reader.close();
+    dir.close();
+    super.tearDown();
+  }
+
+  public void testRelevance() throws IOException {
+    assertSameAsSearchAfter(new TermQuery(new Term("body", "foo")), null);
+  }
+
+  public void testIndexOrder() throws IOException {
+    assertSameAsSearchAfter(new TermQuery(new Term("body", "foo")), Sort.INDEXORDER);
+    assertSameAsSearchAfter(new MatchAllDocsQuery(), Sort.INDEXORDER);
+  }
+
+  public void testFieldSort() throws IOException {
+    assertSameAsSearchAfter(new TermQuery(new Term("body", "bar")), new Sort(new SortField("num", SortField.Type.LONG)));
+  }
+
+  private void assertSameAsSearchAfter(Query query, Sort sort) throws IOException {
+    final int pageSize = TestUtil.nextInt(random(), 1, 50);
+    SearchCursor cursor = new SearchCursor(searcher, query, sort);
+    ScoreDoc after = null;
+    while (true) {
+      final TopDocs expected = sort == null
+          ? searcher.searchAfter(after, query, pageSize)
+          : searcher.searchAfter(after, query, pageSize, sort);
+      final TopDocs actual = cursor.next(pageSize);
+      assertEquals(expected.totalHits, actual.totalHits);
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; i++) {
+        assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+        if (sort != null) {
+          assertArrayEquals(((FieldDoc) expected.scoreDocs[i]).fields, ((FieldDoc) actual.scoreDocs[i]).fields);
+        }
+      }
+      if (expected.scoreDocs.length == 0) {
+        break;
+      }
+      after = expected.scoreDocs[expected.scoreDocs.length - 1];
+    }
+    // exhausted cursors keep returning no hits
+    assertEquals(0, cursor.next(pageSize).scoreDocs.length);
+    cursor.close();
+  }
+
+  public void testCursorHoldsReader() throws IOException {
+    final int refCount = searcher.getIndexReader().getRefCount();
+    SearchCursor cursor = new SearchCursor(searcher, new MatchAllDocsQuery(), Sort.INDEXORDER);
+    assertEquals(refCount + 1, searcher.getIndexReader().getRefCount());
+    cursor.close();
+    assertEquals(refCount, searcher.getIndexReader().getRefCount());
+    // double close is a no-op
+    cursor.close();
+    assertEquals(refCount, searcher.getIndexReader().getRefCount());
+  }
+
+  public void testManagerEvictsLeastRecentlyUsed() throws IOException {
+    SearchCursorManager mgr = new SearchCursorManager(2, 600.0);
+    final long token1 = mgr.record(new SearchCursor(searcher, new MatchAllDocsQuery(), Sort.INDEXORDER));
+    final long token2 = mgr.record(new SearchCursor(searcher, new MatchAllDocsQuery(), Sort.INDEXORDER));
+    // token1 is now the most recently used one
+    SearchCursor cursor1 = mgr.acquire(token1);
+    assertNotNull(cursor1);
+    mgr.release(cursor1);
+    final long token3 = mgr.record(new SearchCursor(searcher, new MatchAllDocsQuery(), Sort.INDEXORDER));
+    assertEquals(2, mgr.size());
+    assertNull(mgr.acquire(token2));
+
+    // acquired cursors are never evicted
+    cursor1 = mgr.acquire(token1);
+    SearchCursor cursor3 = mgr.acquire(token3);
+    final long token4 = mgr.record(new SearchCursor(searcher, new MatchAllDocsQuery(), Sort.INDEXORDER));
+    assertEquals(3, mgr.size());
+    mgr.release(cursor1);
+    mgr.release(cursor3);
+    assertTrue(mgr.remove(token4));
+    assertFalse(mgr.remove(token4));
+
+    final int refCount = searcher.getIndexReader().getRefCount();
+    mgr.close();
+    assertEquals(refCount - 2, searcher.getIndexReader().getRefCount());
+  }
+
+  public void testManagerPrunesIdleCursors() throws IOException {
+    SearchCursorManager mgr = new SearchCursorManager(10, 0.0);
+    final long token = mgr.record(new SearchCursor(searcher, new MatchAllDocsQuery(), Sort.INDEXORDER));
+    SearchCursor cursor = mgr.acquire(token);
+    // acquired cursors are never pruned
+    assertEquals(0, mgr.prune());
+    mgr.release(cursor);
+    assertEquals(1, mgr.prune());
+    assertNull(mgr.acquire(token));
+    mgr.close();
+  }
+
+  public void testCloseManagerWhileAcquired() throws IOException {
+    SearchCursorManager mgr = new SearchCursorManager(10, 600.0);
+    final int refCount = searcher.getIndexReader().getRefCount();
+    final long token = mgr.record(new SearchCursor(searcher, new MatchAllDocsQuery(), Sort.INDEXORDER));
+    SearchCursor cursor = mgr.acquire(token);
+    mgr.close();
+    // still usable
+    cursor.next(10);
+    assertEquals(refCount + 1, searcher.getIndexReader().getRefCount());
+    mgr.release(cursor);
+    assertEquals(refCount, searcher.getIndexReader().getRefCount());
+  }
+
+  public void testAcquireIsExclusive() throws Exception {
+    final SearchCursorManager mgr = new SearchCursorManager(10, 600.0);
+    final long token = mgr.record(new SearchCursor(searcher, new MatchAllDocsQuery(), Sort.INDEXORDER));
+    final SearchCursor cursor = mgr.acquire(token);
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicReference<SearchCursor> acquiredByThread = new AtomicReference<>();
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        started.countDown();
+        SearchCursor c = mgr.acquire(token);
+        acquiredByThread.set(c);
+        try {
+          mgr.release(c);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    thread.start();
+    started.await();
+    // the other thread cannot get the cursor until it is released
+    thread.join(100);
+    assertTrue(thread.isAlive());
+    assertNull(acquiredByThread.get());
+    mgr.release(cursor);
+    thread.join();
+    assertSame(cursor, acquiredByThread.get());
+
+    // releasing a cursor that is not acquired fails
+    try {
+      mgr.release(cursor);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+    mgr.close();
+  }
+
+  public void testRemoveWhileAcquired() throws IOException {
+    SearchCursorManager mgr = new SearchCursorManager(10, 600.0);
+    final int refCount = searcher.getIndexReader().getRefCount();
+    final long token = mgr.record(new SearchCursor(searcher, new MatchAllDocsQuery(), Sort.INDEXORDER));
+    SearchCursor cursor = mgr.acquire(token);
+    assertTrue(mgr.remove(token));
+    assertNull(mgr.acquire(token));
+    // still usable until released
+    cursor.next(10);
+    assertEquals(refCount + 1, searcher.getIndexReader().getRefCount());
+    mgr.release(cursor);
+    assertEquals(refCount, searcher.getIndexReader().getRefCount());
+    mgr.close();
+  }
+}
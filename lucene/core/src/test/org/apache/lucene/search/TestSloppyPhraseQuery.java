@@ -340,4 +340,38 @@ public class TestSloppyPhraseQuery extends LuceneTestCase {
      ir.close();
      dir.close();
   }
+
+  /** the repetition bookkeeping is reused from one doc to the next, including
+   *  docs where the repeating pps are exhausted before a match is found */
+  public void testRepetitionsAcrossDocs() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
+    FieldType customType = new FieldType(TextField.TYPE_NOT_STORED);
+    Field f = new Field("f", "", customType);
+    Document doc = new Document();
+    doc.add(f);
+    for (String text : new String[] { "A A", "A X A", "A A A", "H A X A Y A", "A", "A Y A Y A" }) {
+      f.setStringValue(text);
+      iw.addDocument(doc);
+    }
+    IndexReader ir = iw.getReader();
+    iw.close();
+    IndexSearcher is = newSearcher(ir);
+
+    PhraseQuery.Builder builder = new PhraseQuery.Builder();
+    builder.add(new Term("f", "A"));
+    builder.add(new Term("f", "A"));
+    builder.add(new Term("f", "A"));
+    builder.setSlop(1);
+    PhraseQuery pq = builder.build();
+    // "A A A"~1
+    assertEquals(1, is.search(pq, 10).totalHits);
+    builder.setSlop(2);
+    pq = builder.build();
+    // "A A A"~2
+    assertEquals(3, is.search(pq, 10).totalHits);
+    assertSaneScoring(pq, is);
+    ir.close();
+    dir.close();
+  }
 }
@@ -209,4 +209,65 @@ public class TestTermScorer extends LuceneTestCase {
     // should not fail this time since norms are not necessary
     weight.scorer(forbiddenNorms.getContext()).nextDoc();
   }
+
+  public void testBulkScorerMatchesScorer() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir,
+        newIndexWriterConfig(new MockAnalyzer(random())).setMergePolicy(newLogMergePolicy()));
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      final int r = random().nextInt(5);
+      doc.add(newTextField(FIELD, r == 0 ? "foo foo" : r == 1 ? "foo" : "bar", Field.Store.NO));
+      w.addDocument(doc);
+    }
+    IndexSearcher searcher = newSearcher(w.getReader());
+    w.close();
+
+    Weight weight = searcher.createNormalizedWeight(new TermQuery(new Term(FIELD, "foo")), true);
+    for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+      final List<TestHit> expected = new ArrayList<>();
+      Scorer scorer = weight.scorer(context);
+      if (scorer == null) {
+        assertNull(weight.bulkScorer(context));
+        continue;
+      }
+      for (int doc = scorer.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = scorer.nextDoc()) {
+        expected.add(new TestHit(doc, scorer.score()));
+      }
+
+      final List<TestHit> actual = new ArrayList<>();
+      LeafCollector collector = new LeafCollector() {
+        private Scorer scorer;
+
+        @Override
+        public void setScorer(Scorer scorer) {
+          this.scorer = scorer;
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+          assertEquals(doc, scorer.docID());
+          actual.add(new TestHit(doc, scorer.score()));
+        }
+      };
+      // score in random windows to exercise the buffered block across calls
+      BulkScorer bulkScorer = weight.bulkScorer(context);
+      int min = 0;
+      while (min != DocIdSetIterator.NO_MORE_DOCS) {
+        final int max = min + 1 + random().nextInt(200);
+        final int next = bulkScorer.score(collector, null, min, max);
+        assertTrue(next >= max);
+        min = next == DocIdSetIterator.NO_MORE_DOCS || random().nextBoolean() ? next : max;
+      }
+
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).doc, actual.get(i).doc);
+        assertEquals(expected.get(i).score, actual.get(i).score, 0f);
+      }
+    }
+    searcher.getIndexReader().close();
+    dir.close();
+  }
 }
@@ -18,12 +18,18 @@ package org.apache.lucene.search;
  */
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.FieldValueHitQueue.Entry;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 
 public class TestTopFieldCollector extends LuceneTestCase {
   private IndexSearcher is;
@@ -167,4 +173,96 @@ public class TestTopFieldCollector extends LuceneTestCase {
       assertTrue(Float.isNaN(td.getMaxScore()));
     }
   }  
+
+  public void testPackedKeysMatchComparators() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
+    int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newTextField("body", random().nextBoolean() ? "a b" : "a", Field.Store.NO));
+      if (random().nextInt(5) != 0) {
+        doc.add(new NumericDocValuesField("int", random().nextInt(20) - 10));
+      }
+      if (random().nextInt(5) != 0) {
+        doc.add(new NumericDocValuesField("long", random().nextInt(40) - 20L));
+      }
+      if (random().nextInt(5) != 0) {
+        doc.add(new FloatDocValuesField("float", (random().nextInt(40) - 20) / 4f));
+      }
+      if (random().nextInt(5) != 0) {
+        doc.add(new DoubleDocValuesField("double", (random().nextInt(40) - 20) / 8d));
+      }
+      iw.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      iw.deleteDocuments(new TermQuery(new Term("body", "b")));
+    }
+    IndexReader reader = iw.getReader();
+    iw.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    final String[] fields = { "int", "long", "float", "double", null, null };
+    final SortField.Type[] types = { SortField.Type.INT, SortField.Type.LONG, SortField.Type.FLOAT,
+        SortField.Type.DOUBLE, SortField.Type.SCORE, SortField.Type.DOC };
+    final Object[] missingValues = { 5, 7L, -1.5f, 100d, null, null };
+    final int iters = atLeast(50);
+    for (int iter = 0; iter < iters; ++iter) {
+      final int numFields = TestUtil.nextInt(random(), 1, 3);
+      final SortField[] packed = new SortField[numFields];
+      final SortField[] generic = new SortField[numFields];
+      for (int i = 0; i < numFields; ++i) {
+        final int t = random().nextInt(types.length);
+        final boolean reverse = random().nextBoolean();
+        packed[i] = new SortField(fields[t], types[t], reverse);
+        // subclassing SortField disables the packed keys collector
+        generic[i] = new SortField(fields[t], types[t], reverse) {};
+        if (missingValues[t] != null && random().nextBoolean()) {
+          packed[i].setMissingValue(missingValues[t]);
+          generic[i].setMissingValue(missingValues[t]);
+        }
+      }
+      final Query query = random().nextBoolean() ? new MatchAllDocsQuery() : new TermQuery(new Term("body", "b"));
+      final int numHits = TestUtil.nextInt(random(), 1, numDocs);
+      final boolean fillFields = random().nextBoolean();
+      final boolean trackDocScores = random().nextBoolean();
+      final boolean trackMaxScore = random().nextBoolean();
+
+      TopFieldCollector expected = TopFieldCollector.create(new Sort(generic), numHits, fillFields, trackDocScores, trackMaxScore);
+      TopFieldCollector actual = TopFieldCollector.create(new Sort(packed), numHits, fillFields, trackDocScores, trackMaxScore);
+      searcher.search(query, expected);
+      searcher.search(query, actual);
+      final int start = random().nextBoolean() ? 0 : random().nextInt(numHits);
+      TopDocs expectedDocs = expected.topDocs(start);
+      TopDocs actualDocs = actual.topDocs(start);
+
+      assertEquals(expectedDocs.totalHits, actualDocs.totalHits);
+      assertEquals(expectedDocs.getMaxScore(), actualDocs.getMaxScore(), 0f);
+      assertEquals(expectedDocs.scoreDocs.length, actualDocs.scoreDocs.length);
+      for (int i = 0; i < expectedDocs.scoreDocs.length; ++i) {
+        FieldDoc expectedDoc = (FieldDoc) expectedDocs.scoreDocs[i];
+        FieldDoc actualDoc = (FieldDoc) actualDocs.scoreDocs[i];
+        assertEquals(expectedDoc.doc, actualDoc.doc);
+        assertEquals(expectedDoc.score, actualDoc.score, 0f);
+        if (fillFields) {
+          assertArrayEquals(expectedDoc.fields, actualDoc.fields);
+        } else {
+          assertNull(actualDoc.fields);
+        }
+      }
+    }
+
+    reader.close();
+    dir.close();
+  }
+
+
+  public void testPackedKeysTooManyHits() throws Exception {
+    Sort sort = new Sort(new SortField("int", SortField.Type.INT), new SortField("long", SortField.Type.LONG),
+        new SortField("double", SortField.Type.DOUBLE));
+    assertTrue(TopFieldCollector.PackedKeysCollector.canPack(sort, 10));
+    // numHits * numKeys would overflow an int
+    assertFalse(TopFieldCollector.PackedKeysCollector.canPack(sort, Integer.MAX_VALUE / 2));
+    assertFalse(TopFieldCollector.PackedKeysCollector.canPack(new Sort(SortField.FIELD_DOC), Integer.MAX_VALUE));
+  }
 }
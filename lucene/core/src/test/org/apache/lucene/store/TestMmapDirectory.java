@@ -31,4 +31,26 @@ public class TestMmapDirectory extends BaseDirectoryTestCase {
     m.setPreload(random().nextBoolean());
     return m;
   }
+
+  public void testIsMapped() throws Exception {
+    try (Directory dir = getDirectory(createTempDir("testIsMapped"))) {
+      try (IndexOutput out = dir.createOutput("file", newIOContext(random()))) {
+        out.writeLong(42L);
+      }
+      try (IndexInput in = dir.openInput("file", newIOContext(random()))) {
+        assertTrue(MMapDirectory.isMapped(in));
+        assertTrue(MMapDirectory.isMapped(in.clone()));
+        // eg. a file of a compound file
+        assertTrue(MMapDirectory.isMapped(in.slice("slice", 2, 4)));
+      }
+    }
+    try (Directory dir = new RAMDirectory()) {
+      try (IndexOutput out = dir.createOutput("file", newIOContext(random()))) {
+        out.writeLong(42L);
+      }
+      try (IndexInput in = dir.openInput("file", newIOContext(random()))) {
+        assertFalse(MMapDirectory.isMapped(in));
+      }
+    }
+  }
 }
@@ -249,8 +249,37 @@ public class TestAutomaton extends LuceneTestCase {
     a.addTransition(init, fini, 'm');
     a.addTransition(fini, fini, 'm');
     a.finishState();
-    assertEquals(0, Operations.getCommonSuffixBytesRef(a,
-      DEFAULT_MAX_DETERMINIZED_STATES).length);
+    assertEquals(0, Operations.getCommonSuffixBytesRef(a).length);
+  }
+
+  public void testCommonPrefixBytesRefNonDeterministic() throws Exception {
+    Automaton a = Operations.union(Automata.makeString("abc"), Automata.makeString("abd"));
+    assertFalse(a.isDeterministic());
+    assertEquals(new BytesRef("ab"), Operations.getCommonPrefixBytesRef(a));
+  }
+
+  public void testCommonSuffixBytesRefNonDeterministic() throws Exception {
+    Automaton a = Operations.union(Automata.makeString("xbc"), Automata.makeString("ybc"));
+    assertEquals(new BytesRef("bc"), Operations.getCommonSuffixBytesRef(a));
+  }
+
+  /** Walking the NFA must give the same common prefix as walking its determinized form */
+  public void testCommonPrefixBytesRefRandom() throws Exception {
+    int iters = atLeast(100);
+    for(int iter=0;iter<iters;iter++) {
+      Automaton a = AutomatonTestUtil.randomAutomaton(random());
+      a = Operations.removeDeadStates(new UTF32ToUTF8().convert(a));
+      Automaton det = Operations.determinize(a, Integer.MAX_VALUE);
+      assertEquals(Operations.getCommonPrefixBytesRef(det), Operations.getCommonPrefixBytesRef(a));
+      Automaton reverseDet = Operations.determinize(Operations.reverse(a), Integer.MAX_VALUE);
+      BytesRef expectedSuffix = Operations.getCommonPrefixBytesRef(reverseDet);
+      BytesRef actualSuffix = Operations.getCommonSuffixBytesRef(a);
+      assertEquals(expectedSuffix.length, actualSuffix.length);
+      for(int i=0;i<actualSuffix.length;i++) {
+        assertEquals(expectedSuffix.bytes[expectedSuffix.offset + expectedSuffix.length - 1 - i],
+                     actualSuffix.bytes[actualSuffix.offset + i]);
+      }
+    }
   }
 
   public void testReverseRandom1() throws Exception {
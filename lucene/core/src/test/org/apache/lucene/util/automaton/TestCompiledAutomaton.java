@@ -160,4 +160,13 @@ public class TestCompiledAutomaton extends LuceneTestCase {
     CompiledAutomaton ca = new CompiledAutomaton(a, null, true, Integer.MAX_VALUE, false);
     assertEquals(CompiledAutomaton.AUTOMATON_TYPE.SINGLE, ca.type);
   }
+
+  public void testCommonSuffixOfHardToReverseAutomaton() throws Exception {
+    // the reverse of this automaton can only be determinized into
+    // more than DEFAULT_MAX_DETERMINIZED_STATES states, which the
+    // common suffix must not require
+    Automaton a = new RegExp("[ab]{14}a[ab]*c").toAutomaton();
+    CompiledAutomaton c = new CompiledAutomaton(a, null, true, Operations.DEFAULT_MAX_DETERMINIZED_STATES, false);
+    assertEquals(new BytesRef("c"), c.commonSuffixRef);
+  }
 }
@@ -0,0 +1,144 @@
+package org.apache.lucene.util.automaton;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.RegexpQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestCompiledAutomatonCache extends LuceneTestCase {
+
+  private static CompiledAutomatonCache.Entry newEntry(String regexp) {
+    Automaton a = new RegExp(regexp).toAutomaton();
+    return new CompiledAutomatonCache.Entry(a, new CompiledAutomaton(a));
+  }
+
+  public void testHitsAndMisses() {
+    CompiledAutomatonCache cache = new CompiledAutomatonCache(10, Long.MAX_VALUE);
+    List<Object> key = Arrays.<Object>asList("regexp", "ab*c", 0);
+    assertNull(cache.get(key));
+    assertEquals(0, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    CompiledAutomatonCache.Entry entry = newEntry("ab*c");
+    cache.putIfAbsent(key, entry);
+    assertSame(entry, cache.get(Arrays.<Object>asList("regexp", "ab*c", 0)));
+    assertNull(cache.get(Arrays.<Object>asList("regexp", "ab*c", 1)));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(1, cache.getCacheSize());
+    assertTrue(cache.ramBytesUsed() > entry.ramBytesUsed());
+
+    // the first entry wins
+    cache.putIfAbsent(key, newEntry("ab*c"));
+    assertSame(entry, cache.get(key));
+    assertEquals(1, cache.getCacheCount());
+
+    cache.clear();
+    assertEquals(0, cache.getCacheSize());
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(0, cache.ramBytesUsed());
+  }
+
+  public void testEvictions() {
+    final int maxSize = TestUtil.nextInt(random(), 1, 20);
+    CompiledAutomatonCache cache = new CompiledAutomatonCache(maxSize, Long.MAX_VALUE);
+    for (int i = 0; i < 50; i++) {
+      cache.putIfAbsent(Arrays.<Object>asList(i), newEntry("a{" + i + "}b*"));
+      assertEquals(Math.min(i + 1, maxSize), cache.getCacheSize());
+    }
+    assertEquals(50 - maxSize, cache.getEvictionCount());
+    // least recently used entries were evicted
+    assertNull(cache.get(Arrays.<Object>asList(49 - maxSize)));
+    assertNotNull(cache.get(Arrays.<Object>asList(50 - maxSize)));
+
+    final long maxRamBytesUsed = TestUtil.nextLong(random(), 1, 50000);
+    cache = new CompiledAutomatonCache(Integer.MAX_VALUE, maxRamBytesUsed);
+    for (int i = 0; i < 50; i++) {
+      cache.putIfAbsent(Arrays.<Object>asList(i), newEntry("a{" + i + "}b*"));
+      assertTrue(cache.ramBytesUsed() <= maxRamBytesUsed);
+    }
+  }
+
+  public void testQueries() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    for (int i = 0; i < 100; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("field", "term" + i, Field.Store.NO));
+      w.addDocument(doc);
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    final Query[] queries = new Query[] {
+        new RegexpQuery(new Term("field", "te[r-t]m[1-3]*")),
+        new WildcardQuery(new Term("field", "t?rm*5")),
+        new FuzzyQuery(new Term("field", "terma4"))
+    };
+
+    CompiledAutomatonCache previous = CompiledAutomatonCache.getDefault();
+    CompiledAutomatonCache cache = new CompiledAutomatonCache(100, Long.MAX_VALUE);
+    CompiledAutomatonCache.setDefault(cache);
+    try {
+      for (int iter = 0; iter < 3; iter++) {
+        Query[] cachedQueries = new Query[] {
+            new RegexpQuery(new Term("field", "te[r-t]m[1-3]*")),
+            new WildcardQuery(new Term("field", "t?rm*5")),
+            new FuzzyQuery(new Term("field", "terma4"))
+        };
+        for (int i = 0; i < queries.length; i++) {
+          assertEquals(queries[i], cachedQueries[i]);
+          assertEquals(searcher.count(queries[i]), searcher.count(cachedQueries[i]));
+        }
+      }
+      assertTrue(cache.getCacheSize() > 0);
+      assertTrue(cache.getHitCount() > 0);
+
+      // named automata of custom providers are not cached
+      final long cacheCount = cache.getCacheCount();
+      new RegexpQuery(new Term("field", "<foo>"), RegExp.ALL, new AutomatonProvider() {
+        @Override
+        public Automaton getAutomaton(String name) {
+          return Automata.makeString("term1");
+        }
+      }, Operations.DEFAULT_MAX_DETERMINIZED_STATES);
+      assertEquals(cacheCount, cache.getCacheCount());
+    } finally {
+      CompiledAutomatonCache.setDefault(previous);
+    }
+
+    reader.close();
+    dir.close();
+  }
+}
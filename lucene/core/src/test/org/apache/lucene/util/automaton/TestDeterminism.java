@@ -18,6 +18,7 @@ package org.apache.lucene.util.automaton;
  */
 
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 
 import static org.apache.lucene.util.automaton.Operations.DEFAULT_MAX_DETERMINIZED_STATES;
 
@@ -47,6 +48,18 @@ public class TestDeterminism extends LuceneTestCase {
     }
   }
   
+  /** sets of NFA states that are too large to be scanned linearly */
+  public void testLargeStateSets() throws Exception {
+    int n = TestUtil.nextInt(random(), 6, 9);
+    // determinizing the reverse of [ab]*a[ab]{n}, whose DFA has
+    // 2^(n+1) states, visits sets of thousands of them
+    Automaton a = Operations.reverse(new RegExp("[ab]*a[ab]{" + n + "}").toAutomaton());
+    Automaton b = Operations.determinize(a, DEFAULT_MAX_DETERMINIZED_STATES);
+    assertTrue(b.isDeterministic());
+    assertTrue(Operations.sameLanguage(AutomatonTestUtil.determinizeSimple(a), b));
+    assertTrue(Operations.sameLanguage(new RegExp("[ab]{" + n + "}a[ab]*").toAutomaton(), b));
+  }
+  
   private static void assertAutomaton(Automaton a) {
     a = Operations.determinize(Operations.removeDeadStates(a), DEFAULT_MAX_DETERMINIZED_STATES);
 
@@ -59,6 +59,7 @@ import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.MockDirectoryWrapper;
+import org.apache.lucene.store.RAMOutputStream;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.IntsRef;
@@ -1599,6 +1600,67 @@ public class TestFSTs extends LuceneTestCase {
     }
   }
 
+  public void testOffHeap() throws Exception {
+    final int numTerms = atLeast(1000);
+    final Set<BytesRef> terms = new HashSet<>();
+    while (terms.size() < numTerms) {
+      terms.add(new BytesRef(TestUtil.randomSimpleString(random(), 1, 20)));
+    }
+    final List<BytesRef> termsList = new ArrayList<>(terms);
+    Collections.sort(termsList);
+
+    final PositiveIntOutputs outputs = PositiveIntOutputs.getSingleton();
+    final Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, outputs);
+    final IntsRefBuilder input = new IntsRefBuilder();
+    for(int i=0;i<termsList.size();i++) {
+      builder.add(Util.toIntsRef(termsList.get(i), input), (long) i);
+    }
+    final FST<Long> fst = builder.finish();
+
+    final Directory dir = newDirectory();
+    try (IndexOutput out = dir.createOutput("fst", IOContext.DEFAULT)) {
+      out.writeVInt(42);
+      fst.save(out);
+      out.writeVInt(43);
+    }
+
+    try (IndexInput in = dir.openInput("fst", IOContext.DEFAULT)) {
+      assertEquals(42, in.readVInt());
+      final FST<Long> offHeap = new FST<>(in, outputs, true);
+      // the input must be positioned after the FST:
+      assertEquals(43, in.readVInt());
+      assertTrue(offHeap.isOffHeap());
+      assertFalse(fst.isOffHeap());
+      assertTrue(offHeap.ramBytesUsed() < fst.ramBytesUsed());
+
+      for(int i=0;i<termsList.size();i++) {
+        assertEquals(Long.valueOf(i), Util.get(offHeap, termsList.get(i)));
+      }
+      assertNull(Util.get(offHeap, new BytesRef("not a simple string")));
+
+      final BytesRefFSTEnum<Long> fstEnum = new BytesRefFSTEnum<>(offHeap);
+      for(int i=0;i<termsList.size();i++) {
+        final InputOutput<Long> io = fstEnum.next();
+        assertEquals(termsList.get(i), io.input);
+        assertEquals(Long.valueOf(i), io.output);
+      }
+      assertNull(fstEnum.next());
+
+      // an off-heap FST saves the same bytes as the original one
+      final RAMOutputStream expected = new RAMOutputStream();
+      fst.save(expected);
+      final RAMOutputStream actual = new RAMOutputStream();
+      offHeap.save(actual);
+      assertEquals(expected.getFilePointer(), actual.getFilePointer());
+      final byte[] expectedBytes = new byte[(int) expected.getFilePointer()];
+      final byte[] actualBytes = new byte[expectedBytes.length];
+      expected.writeTo(expectedBytes, 0);
+      actual.writeTo(actualBytes, 0);
+      assertArrayEquals(expectedBytes, actualBytes);
+    }
+    dir.close();
+  }
+
   public void testIllegallyModifyRootArc() throws Exception {
     assumeTrue("test relies on assertions", assertsAreEnabled);
 
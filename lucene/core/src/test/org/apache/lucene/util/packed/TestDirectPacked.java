@@ -26,6 +26,7 @@ import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 import org.apache.lucene.util.packed.DirectReader;
 import org.apache.lucene.util.packed.DirectWriter;
 
@@ -102,6 +103,18 @@ public class TestDirectPacked extends LuceneTestCase {
       for (int j = 0; j < original.length; j++) {
         assertEquals("bpv=" + bpv, original[j], reader.get(j));
       }
+      // bulk gets, including the last values which are decoded close to the padding
+      long[] buffer = new long[TestUtil.nextInt(random(), 1, 200)];
+      for (int start = original.length == 0 ? 0 : random().nextInt(original.length); start < original.length; ) {
+        final int off = random().nextInt(buffer.length);
+        final int len = Math.min(TestUtil.nextInt(random(), 1, buffer.length - off), original.length - start);
+        final int read = reader.get(start, buffer, off, len);
+        assertTrue(read >= 1 && read <= len);
+        for (int j = 0; j < read; j++) {
+          assertEquals("bpv=" + bpv, original[start + j], buffer[off + j]);
+        }
+        start += read;
+      }
       input.close();
     }
   }
@@ -0,0 +1,244 @@
+package org.apache.lucene.facet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.facet.RandomSamplingFacetsCollector.XORShift64Random;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * Collects a random sample of the hits for subsequent faceting. Unlike
+ * {@link RandomSamplingFacetsCollector}, which records all hits and samples
+ * them afterwards, this collector samples while collecting: each hit is kept
+ * independently with probability {@link #getSamplingRate()}, and only the kept
+ * hits are recorded, and later visited by the {@link Facets} implementations.
+ * <p>
+ * Since the number of hits is not known in advance, the sampling rate starts
+ * at 1 and is halved, dropping about half of the recorded hits, every time
+ * more than twice the requested sample size is recorded. The sample thus
+ * holds all the hits if there are at most {@code sampleSize} of them, and
+ * between {@code sampleSize} and twice as many hits on average otherwise.
+ * <p>
+ * Counts computed on the sample can be amortized with
+ * {@link #amortizeFacetCounts}, and {@link #getStandardError} estimates how
+ * far the amortized counts may be from the exact ones: a count of {@code c}
+ * in a sample of rate {@code p} has a relative error of about
+ * {@code 1/sqrt(c)}, so the sample size should be chosen such that the
+ * facet values of interest are counted a few hundred times.
+ * <p>
+ * Note that {@link FacetsCollector.MatchingDocs#totalHits} is the number of
+ * hits of the segment before sampling, and that this collector does not
+ * collect the scores of matching docs (i.e.
+ * {@link FacetsCollector.MatchingDocs#scores}) is {@code null}.
+ *
+ * @lucene.experimental
+ */
+public class AdaptiveSamplingFacetsCollector extends FacetsCollector {
+
+  private final int sampleSize;
+  private final XORShift64Random random;
+  private final List<SampledDocs> segments = new ArrayList<>();
+
+  /** Hits are kept if their random value has at least this many trailing zeros. */
+  private int level;
+  private int numSampled;
+
+  /**
+   * Constructor with the given sample size and default seed.
+   *
+   * @see #AdaptiveSamplingFacetsCollector(int, long)
+   */
+  public AdaptiveSamplingFacetsCollector(int sampleSize) {
+    this(sampleSize, 0);
+  }
+
+  /**
+   * Constructor with the given sample size and seed.
+   *
+   * @param sampleSize
+   *          The minimum number of hits to sample. If the query has fewer
+   *          hits, all of them are collected.
+   * @param seed
+   *          The random seed. If {@code 0} then a seed will be chosen for you.
+   */
+  public AdaptiveSamplingFacetsCollector(int sampleSize, long seed) {
+    super(false);
+    if (sampleSize < 1) {
+      throw new IllegalArgumentException("sampleSize must be >= 1, got " + sampleSize);
+    }
+    this.sampleSize = sampleSize;
+    this.random = new XORShift64Random(seed);
+  }
+
+  @Override
+  protected Docs createDocs(int maxDoc) {
+    final SampledDocs docs = new SampledDocs();
+    segments.add(docs);
+    return new Docs() {
+      @Override
+      public void addDoc(int docId) throws IOException {
+        final int docLevel = Long.numberOfTrailingZeros(random.randomLong());
+        if (docLevel >= level) {
+          docs.add(docId, docLevel);
+          if (++numSampled > 2 * sampleSize) {
+            raiseLevel();
+          }
+        }
+      }
+
+      @Override
+      public DocIdSet getDocIdSet() {
+        return docs;
+      }
+    };
+  }
+
+  /** Halves the sampling rate and drops the recorded hits which are no longer sampled. */
+  private void raiseLevel() {
+    while (numSampled > 2 * sampleSize) {
+      level++;
+      numSampled = 0;
+      for (SampledDocs docs : segments) {
+        numSampled += docs.prune(level);
+      }
+    }
+  }
+
+  /** Returns the total number of hits, before sampling. */
+  public int getTotalHits() {
+    int totalHits = 0;
+    for (MatchingDocs md : getMatchingDocs()) {
+      totalHits += md.totalHits;
+    }
+    return totalHits;
+  }
+
+  /** Returns the number of sampled hits. */
+  public int getSampleSize() {
+    return numSampled;
+  }
+
+  /** Returns the probability with which each hit was sampled. */
+  public double getSamplingRate() {
+    return Math.scalb(1.0, -level);
+  }
+
+  /**
+   * Returns the estimated standard error of the amortized count of a facet
+   * value which was counted {@code sampledCount} times in the sample. The exact
+   * count lies within 2 standard errors of the amortized count with a
+   * probability of about 95%.
+   */
+  public double getStandardError(double sampledCount) {
+    final double rate = getSamplingRate();
+    return Math.sqrt(sampledCount * (1 - rate)) / rate;
+  }
+
+  /**
+   * Note: if you use a counting {@link Facets} implementation, you can amortize the
+   * sampled counts by calling this method. Uses the {@link FacetsConfig} and
+   * the {@link IndexSearcher} to determine the upper bound for each facet value.
+   */
+  public FacetResult amortizeFacetCounts(FacetResult res, FacetsConfig config, IndexSearcher searcher) throws IOException {
+    if (res == null || level == 0) {
+      return res;
+    }
+
+    return RandomSamplingFacetsCollector.amortizeFacetCounts(res, config, searcher, getSamplingRate());
+  }
+
+  /** The sampled hits of a segment, in order, with the level at which they are dropped. */
+  private static final class SampledDocs extends DocIdSet {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(SampledDocs.class);
+
+    private int[] docs = new int[16];
+    private byte[] levels = new byte[16];
+    private int size;
+
+    void add(int doc, int level) {
+      if (size == docs.length) {
+        docs = ArrayUtil.grow(docs, size + 1);
+        levels = ArrayUtil.grow(levels, docs.length);
+      }
+      docs[size] = doc;
+      levels[size] = (byte) level;
+      size++;
+    }
+
+    /** Drops the docs whose level is less than {@code level} and returns the number of remaining docs. */
+    int prune(int level) {
+      int newSize = 0;
+      for (int i = 0; i < size; i++) {
+        if (levels[i] >= level) {
+          docs[newSize] = docs[i];
+          levels[newSize] = levels[i];
+          newSize++;
+        }
+      }
+      size = newSize;
+      return size;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+      final int[] docs = this.docs;
+      final int size = this.size;
+      return new DocIdSetIterator() {
+        int i = -1;
+        int doc = -1;
+
+        @Override
+        public int docID() {
+          return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+          if (++i >= size) {
+            return doc = NO_MORE_DOCS;
+          }
+          return doc = docs[i];
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+          return slowAdvance(target);
+        }
+
+        @Override
+        public long cost() {
+          return size;
+        }
+      };
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(docs) + RamUsageEstimator.sizeOf(levels);
+    }
+  }
+
+}
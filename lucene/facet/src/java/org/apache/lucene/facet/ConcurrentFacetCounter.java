@@ -0,0 +1,94 @@
+package org.apache.lucene.facet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/** Counts the segments of {@link MatchingDocs} concurrently.
+ *  Each task counts one segment into buffers that no other
+ *  running task uses: it borrows them from the buffers that
+ *  are not in use by a task, or creates new ones, and
+ *  returns them once done, so that there are at most as
+ *  many buffers as tasks that run concurrently.  The
+ *  buffers are merged once all segments are counted.
+ *
+ *  @param <T> type of the buffers that a task counts into
+ *  @lucene.internal */
+public abstract class ConcurrentFacetCounter<T> {
+
+  /** Sole constructor. */
+  protected ConcurrentFacetCounter() {
+  }
+
+  /** Creates empty buffers for a task. */
+  protected abstract T newBuffers();
+
+  /** Counts the hits of one segment into the given buffers. */
+  protected abstract void count(T buffers, MatchingDocs hits) throws IOException;
+
+  /** Adds the counts of the given buffers to the final counts. */
+  protected abstract void merge(T buffers);
+
+  /** Counts all segments on the given executor, then merges
+   *  the buffers of all tasks. */
+  public final void count(List<MatchingDocs> matchingDocs, ExecutorService executor) throws IOException {
+    final Queue<T> freeBuffers = new ConcurrentLinkedQueue<>();
+    final List<Future<?>> futures = new ArrayList<>();
+    for(final MatchingDocs hits : matchingDocs) {
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          T buffers = freeBuffers.poll();
+          if (buffers == null) {
+            buffers = newBuffers();
+          }
+          try {
+            count(buffers, hits);
+          } finally {
+            freeBuffers.add(buffers);
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+        IOUtils.reThrow(e.getCause());
+      }
+    }
+    for (T buffers : freeBuffers) {
+      merge(buffers);
+    }
+  }
+}
@@ -176,4 +176,18 @@ public final class DrillDownQuery extends Query {
   Map<String,Integer> getDims() {
     return drillDownDims;
   }
+
+  /** Returns a copy of this query that does not drill down
+   *  on the given dimension.  Used by DrillSideways */
+  DrillDownQuery withoutDim(String dim) {
+    DrillDownQuery query = new DrillDownQuery(config, baseQuery);
+    for (Map.Entry<String,Integer> ent : drillDownDims.entrySet()) {
+      if (ent.getKey().equals(dim) == false) {
+        query.drillDownDims.put(ent.getKey(), query.dimQueries.size());
+        query.dimQueries.add(dimQueries.get(ent.getValue()));
+      }
+    }
+    query.setBoost(getBoost());
+    return query;
+  }
 }
@@ -18,8 +18,16 @@ package org.apache.lucene.facet;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
@@ -28,6 +36,7 @@ import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.search.FilterCollector;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
@@ -38,6 +47,8 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.ThreadInterruptedException;
 
 /**     
  * Computes drill down and sideways counts for the provided
@@ -72,6 +83,10 @@ public class DrillSideways {
   /** {@link FacetsConfig} passed to constructor. */
   protected final FacetsConfig config;
 
+  /** {@link ExecutorService} passed to constructor; can
+   *  be null. */
+  protected final ExecutorService executor;
+
   /** Create a new {@code DrillSideways} instance. */
   public DrillSideways(IndexSearcher searcher, FacetsConfig config, TaxonomyReader taxoReader) {
     this(searcher, config, taxoReader, null);
@@ -88,10 +103,21 @@ public class DrillSideways {
    *  SortedSetDocValuesFacetField} and others were indexed
    *  with {@link FacetField}. */
   public DrillSideways(IndexSearcher searcher, FacetsConfig config, TaxonomyReader taxoReader, SortedSetDocValuesReaderState state) {
+    this(searcher, config, taxoReader, state, null);
+  }
+
+  /** Create a new {@code DrillSideways} instance that uses
+   *  the provided {@link ExecutorService} to run the queries
+   *  of {@link #search(DrillDownQuery, CollectorManager)} and
+   *  to count facets concurrently.  Since these queries wait
+   *  for the searcher to complete, the executor should not be
+   *  the (bounded) executor of the {@link IndexSearcher}. */
+  public DrillSideways(IndexSearcher searcher, FacetsConfig config, TaxonomyReader taxoReader, SortedSetDocValuesReaderState state, ExecutorService executor) {
     this.searcher = searcher;
     this.config = config;
     this.taxoReader = taxoReader;
     this.state = state;
+    this.executor = executor;
   }
 
   /** Subclass can override to customize per-dim Facets
@@ -102,19 +128,19 @@ public class DrillSideways {
     Map<String,Facets> drillSidewaysFacets = new HashMap<>();
 
     if (taxoReader != null) {
-      drillDownFacets = new FastTaxonomyFacetCounts(taxoReader, config, drillDowns);
+      drillDownFacets = new FastTaxonomyFacetCounts(taxoReader, config, drillDowns, executor);
       if (drillSideways != null) {
         for(int i=0;i<drillSideways.length;i++) {
           drillSidewaysFacets.put(drillSidewaysDims[i],
-                                  new FastTaxonomyFacetCounts(taxoReader, config, drillSideways[i]));
+                                  new FastTaxonomyFacetCounts(taxoReader, config, drillSideways[i], executor));
         }
       }
     } else {
-      drillDownFacets = new SortedSetDocValuesFacetCounts(state, drillDowns);
+      drillDownFacets = new SortedSetDocValuesFacetCounts(state, drillDowns, executor);
       if (drillSideways != null) {
         for(int i=0;i<drillSideways.length;i++) {
           drillSidewaysFacets.put(drillSidewaysDims[i],
-                                  new SortedSetDocValuesFacetCounts(state, drillSideways[i]));
+                                  new SortedSetDocValuesFacetCounts(state, drillSideways[i], executor));
         }
       }
     }
@@ -172,6 +198,101 @@ public class DrillSideways {
     return new DrillSidewaysResult(buildFacetsResult(drillDownCollector, drillSidewaysCollectors, drillDownDims.keySet().toArray(new String[drillDownDims.size()])), null);
   }
 
+  /**
+   * Search, collecting hits with the provided {@link
+   * CollectorManager}, and computing drill down and sideways
+   * counts.  If this instance has no executor, this is the
+   * same as {@link #search(DrillDownQuery, Collector)} with a
+   * single collector.  Otherwise, instead of computing all
+   * counts in a single pass, the drill-down query and, for
+   * each drill-down dimension, the drill-down query without
+   * that dimension are run concurrently on the executor, each
+   * with {@link IndexSearcher#search(Query, CollectorManager)},
+   * so that the searcher can also collect them concurrently.
+   */
+  public <C extends Collector, R> ConcurrentDrillSidewaysResult<R> search(final DrillDownQuery query, CollectorManager<C, R> hitCollectorManager) throws IOException {
+    if (executor == null) {
+      final C hitCollector = hitCollectorManager.newCollector();
+      final DrillSidewaysResult r = search(query, hitCollector);
+      return new ConcurrentDrillSidewaysResult<>(r.facets, null, hitCollectorManager.reduce(Collections.singletonList(hitCollector)));
+    }
+
+    final Map<String,Integer> drillDownDims = query.getDims();
+    final String[] dims = drillDownDims.keySet().toArray(new String[drillDownDims.size()]);
+    final HitsAndFacetsCollectorManager<C, R> drillDownManager = new HitsAndFacetsCollectorManager<>(hitCollectorManager);
+    final FacetsCollector[] drillSidewaysCollectors = new FacetsCollector[dims.length];
+
+    final List<Callable<Void>> tasks = new ArrayList<>();
+    tasks.add(new Callable<Void>() {
+      @Override
+      public Void call() throws IOException {
+        searcher.search(query, drillDownManager);
+        return null;
+      }
+    });
+    for (int i = 0; i < dims.length; i++) {
+      final int dim = i;
+      final Query drillSidewaysQuery = query.withoutDim(dims[i]);
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          drillSidewaysCollectors[dim] = searcher.search(drillSidewaysQuery, new FacetsCollectorManager());
+          return null;
+        }
+      });
+    }
+
+    try {
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    } catch (ExecutionException e) {
+      IOUtils.reThrow(e.getCause());
+    }
+
+    final Facets facets;
+    if (dims.length == 0) {
+      facets = buildFacetsResult(drillDownManager.drillDowns, null, null);
+    } else {
+      facets = buildFacetsResult(drillDownManager.drillDowns, drillSidewaysCollectors, dims);
+    }
+    return new ConcurrentDrillSidewaysResult<>(facets, null, drillDownManager.hits);
+  }
+
+  /** Collects hits with the provided {@link CollectorManager}
+   *  and drill-down hits for faceting at the same time. */
+  private static class HitsAndFacetsCollectorManager<C extends Collector, R> implements CollectorManager<Collector, Void> {
+
+    private final CollectorManager<C, R> hitCollectorManager;
+    private final FacetsCollectorManager facetsCollectorManager = new FacetsCollectorManager();
+    private final List<C> hitCollectors = new ArrayList<>();
+    private final List<FacetsCollector> facetsCollectors = new ArrayList<>();
+    R hits;
+    FacetsCollector drillDowns;
+
+    HitsAndFacetsCollectorManager(CollectorManager<C, R> hitCollectorManager) {
+      this.hitCollectorManager = hitCollectorManager;
+    }
+
+    @Override
+    public synchronized Collector newCollector() throws IOException {
+      final C hitCollector = hitCollectorManager.newCollector();
+      final FacetsCollector facetsCollector = facetsCollectorManager.newCollector();
+      hitCollectors.add(hitCollector);
+      facetsCollectors.add(facetsCollector);
+      return MultiCollector.wrap(hitCollector, facetsCollector);
+    }
+
+    @Override
+    public synchronized Void reduce(Collection<Collector> collectors) throws IOException {
+      hits = hitCollectorManager.reduce(hitCollectors);
+      drillDowns = facetsCollectorManager.reduce(facetsCollectors);
+      return null;
+    }
+  }
+
   /**
    * Search, sorting by {@link Sort}, and computing
    * drill down and sideways counts.
@@ -249,5 +370,19 @@ public class DrillSideways {
       this.hits = hits;
     }
   }
+
+  /** Result of {@link #search(DrillDownQuery, CollectorManager)},
+   *  which also holds the reduced result of the {@link
+   *  CollectorManager}. */
+  public static class ConcurrentDrillSidewaysResult<R> extends DrillSidewaysResult {
+    /** Result of {@link CollectorManager#reduce}. */
+    public final R collectorResult;
+
+    /** Sole constructor. */
+    public ConcurrentDrillSidewaysResult(Facets facets, TopDocs hits, R collectorResult) {
+      super(facets, hits);
+      this.collectorResult = collectorResult;
+    }
+  }
 }
 
@@ -0,0 +1,80 @@
+package org.apache.lucene.facet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
+import org.apache.lucene.search.CollectorManager;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * A {@link CollectorManager} that creates one {@link FacetsCollector}
+ * per slice of leaves and merges their {@link MatchingDocs} into a
+ * single {@link FacetsCollector}. Use it with
+ * {@link IndexSearcher#search(org.apache.lucene.search.Query, CollectorManager)}
+ * to collect hits for faceting concurrently when the searcher has an
+ * executor, then pass the result to one of the {@link Facets}
+ * implementations, some of which can also count segments concurrently.
+ *
+ * @lucene.experimental
+ */
+public class FacetsCollectorManager implements CollectorManager<FacetsCollector, FacetsCollector> {
+
+  private final boolean keepScores;
+
+  /** Default constructor */
+  public FacetsCollectorManager() {
+    this(false);
+  }
+
+  /** Create this; if {@code keepScores} is true then
+   *  scores of all hits are kept, see {@link FacetsCollector#FacetsCollector(boolean)}. */
+  public FacetsCollectorManager(boolean keepScores) {
+    this.keepScores = keepScores;
+  }
+
+  @Override
+  public FacetsCollector newCollector() throws IOException {
+    return new FacetsCollector(keepScores);
+  }
+
+  @Override
+  public FacetsCollector reduce(Collection<FacetsCollector> collectors) throws IOException {
+    if (collectors.size() == 1) {
+      return collectors.iterator().next();
+    }
+    final FacetsCollector merged = new FacetsCollector(keepScores);
+    final List<MatchingDocs> matchingDocs = merged.getMatchingDocs();
+    for (FacetsCollector collector : collectors) {
+      matchingDocs.addAll(collector.getMatchingDocs());
+    }
+    // keep leaves in index order, like a single collector would
+    Collections.sort(matchingDocs, new Comparator<MatchingDocs>() {
+      @Override
+      public int compare(MatchingDocs a, MatchingDocs b) {
+        return Integer.compare(a.context.ord, b.context.ord);
+      }
+    });
+    return merged;
+  }
+}
@@ -50,7 +50,7 @@ public class RandomSamplingFacetsCollector extends FacetsCollector {
    * <p>
    * Has a period of 2^64-1
    */
-  private static class XORShift64Random {
+  static class XORShift64Random {
     
     private long x;
     
@@ -229,6 +229,13 @@ public class RandomSamplingFacetsCollector extends FacetsCollector {
       return res;
     }
     
+    return amortizeFacetCounts(res, config, searcher, samplingRate);
+  }
+
+  /** Divides the counts of a {@link FacetResult} that was computed on a
+   *  sample of the given rate by that rate, capping each count at the
+   *  number of documents that have the facet value. */
+  static FacetResult amortizeFacetCounts(FacetResult res, FacetsConfig config, IndexSearcher searcher, double samplingRate) throws IOException {
     LabelAndValue[] fixedLabelValues = new LabelAndValue[res.labelValues.length];
     IndexReader reader = searcher.getIndexReader();
     DimConfig dimConfig = config.getDimConfig(res.dim);
@@ -95,9 +95,10 @@ public class DoubleRangeFacetCounts extends RangeFacetCounts {
     LongRangeCounter counter = new LongRangeCounter(longRanges);
 
     int missingCount = 0;
+    // values of the default value source can be read in bulk
+    final String valueField = valueSource.getClass() == DoubleFieldSource.class ? ((DoubleFieldSource) valueSource).getField() : null;
+
     for (MatchingDocs hits : matchingDocs) {
-      FunctionValues fv = valueSource.getValues(Collections.emptyMap(), hits.context);
-      
       totCount += hits.totalHits;
       final DocIdSetIterator fastMatchDocs;
       if (fastMatchQuery != null) {
@@ -114,7 +115,12 @@ public class DoubleRangeFacetCounts extends RangeFacetCounts {
       }
 
       DocIdSetIterator docs = hits.bits.iterator();
+      if (valueField != null) {
+        missingCount += countDocValues(hits.context.reader(), valueField, true, docs, fastMatchDocs, counter);
+        continue;
+      }
 
+      FunctionValues fv = valueSource.getValues(Collections.emptyMap(), hits.context);
       for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; ) {
         if (fastMatchDocs != null) {
           int fastMatchDoc = fastMatchDocs.docID();
@@ -172,6 +172,29 @@ final class LongRangeCounter {
     }
   }
 
+  /** Adds the first {@code count} values of {@code values}. */
+  public void add(long[] values, int count) {
+    final long[] boundaries = this.boundaries;
+    final int[] leafCounts = this.leafCounts;
+    for (int i = 0; i < count; i++) {
+      final long v = values[i];
+      // Find the first boundary that is >= v. Unlike add(long), the number
+      // of iterations only depends on the number of boundaries, and the
+      // comparison only selects the next base, which the JIT can compile
+      // without a branch that mispredicts on every other value.
+      int base = 0;
+      int length = boundaries.length;
+      while (length > 1) {
+        final int half = length >>> 1;
+        if (boundaries[base + half - 1] < v) {
+          base += half;
+        }
+        length -= half;
+      }
+      leafCounts[base]++;
+    }
+  }
+
   /** Fills counts corresponding to the original input
    *  ranges, returning the missing count (how many hits
    *  didn't match any ranges). */
@@ -76,9 +76,10 @@ public class LongRangeFacetCounts extends RangeFacetCounts {
     LongRangeCounter counter = new LongRangeCounter(ranges);
 
     int missingCount = 0;
+    // values of the default value source can be read in bulk
+    final String valueField = valueSource.getClass() == LongFieldSource.class ? ((LongFieldSource) valueSource).getField() : null;
+
     for (MatchingDocs hits : matchingDocs) {
-      FunctionValues fv = valueSource.getValues(Collections.emptyMap(), hits.context);
-      
       totCount += hits.totalHits;
       final DocIdSetIterator fastMatchDocs;
       if (fastMatchQuery != null) {
@@ -94,7 +95,13 @@ public class LongRangeFacetCounts extends RangeFacetCounts {
         fastMatchDocs = null;
       }
 
-      DocIdSetIterator docs = hits.bits.iterator();      
+      DocIdSetIterator docs = hits.bits.iterator();
+      if (valueField != null) {
+        missingCount += countDocValues(hits.context.reader(), valueField, false, docs, fastMatchDocs, counter);
+        continue;
+      }
+
+      FunctionValues fv = valueSource.getValues(Collections.emptyMap(), hits.context);
       for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; ) {
         if (fastMatchDocs != null) {
           int fastMatchDoc = fastMatchDocs.docID();
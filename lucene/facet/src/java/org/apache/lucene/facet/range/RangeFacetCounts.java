@@ -24,7 +24,13 @@ import java.util.List;
 import org.apache.lucene.facet.FacetResult;
 import org.apache.lucene.facet.Facets;
 import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.NumericUtils;
 
 /** Base class for range faceting.
  *
@@ -56,6 +62,85 @@ abstract class RangeFacetCounts extends Facets {
     counts = new int[ranges.length];
   }
 
+  /** Number of hits whose values are read and counted at once. */
+  private static final int BUFFER_SIZE = 1024;
+
+  /**
+   * Counts the hits of a segment by reading their values directly from the
+   * numeric doc values of {@code valueField}, in batches, instead of going
+   * through a {@link org.apache.lucene.queries.function.FunctionValues} for
+   * every hit. If {@code doubles} is true, the values are the bits of
+   * doubles, which are converted to sortable longs. Only the hits which
+   * {@code fastMatchDocs} matches, if not null, are counted. Returns the
+   * number of counted hits which have no value.
+   */
+  static int countDocValues(LeafReader reader, String valueField, boolean doubles,
+      DocIdSetIterator docs, DocIdSetIterator fastMatchDocs, LongRangeCounter counter) throws IOException {
+    if (fastMatchDocs == null && reader.getFieldInfos().fieldInfo(valueField) == null) {
+      // no document of this segment has a value: all hits are missing
+      int missingCount = 0;
+      while (docs.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+        missingCount++;
+      }
+      return missingCount;
+    }
+
+    final NumericDocValues values = DocValues.getNumeric(reader, valueField);
+    final Bits docsWithField = DocValues.getDocsWithField(reader, valueField);
+    final int[] docBuffer = new int[BUFFER_SIZE];
+    final long[] valueBuffer = new long[BUFFER_SIZE];
+    int missingCount = 0;
+    int upto = 0;
+    for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; ) {
+      if (fastMatchDocs != null) {
+        int fastMatchDoc = fastMatchDocs.docID();
+        if (fastMatchDoc < doc) {
+          fastMatchDoc = fastMatchDocs.advance(doc);
+        }
+
+        if (doc != fastMatchDoc) {
+          doc = docs.advance(fastMatchDoc);
+          continue;
+        }
+      }
+      docBuffer[upto++] = doc;
+      if (upto == BUFFER_SIZE) {
+        missingCount += countBuffer(values, docsWithField, doubles, docBuffer, valueBuffer, upto, counter);
+        upto = 0;
+      }
+      doc = docs.nextDoc();
+    }
+    if (upto > 0) {
+      missingCount += countBuffer(values, docsWithField, doubles, docBuffer, valueBuffer, upto, counter);
+    }
+    return missingCount;
+  }
+
+  private static int countBuffer(NumericDocValues values, Bits docsWithField, boolean doubles,
+      int[] docs, long[] buffer, int count, LongRangeCounter counter) {
+    if (docs[count - 1] - docs[0] == count - 1) {
+      // consecutive docs: read their values in bulk
+      for (int i = 0; i < count; ) {
+        i += values.get(docs[i], buffer, i, count - i);
+      }
+    } else {
+      for (int i = 0; i < count; i++) {
+        buffer[i] = values.get(docs[i]);
+      }
+    }
+
+    int numValues = 0;
+    for (int i = 0; i < count; i++) {
+      final long value = buffer[i];
+      // Skip missing docs:
+      if (value != 0 || docsWithField.get(docs[i])) {
+        buffer[numValues++] = doubles ? NumericUtils.doubleToSortableLong(Double.longBitsToDouble(value)) : value;
+      }
+    }
+    counter.add(buffer, numValues);
+    return count - numValues;
+  }
+
   @Override
   public FacetResult getTopChildren(int topN, String dim, String... path) {
     if (dim.equals(field) == false) {
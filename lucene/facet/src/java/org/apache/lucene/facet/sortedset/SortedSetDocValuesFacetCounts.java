@@ -23,7 +23,9 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.lucene.facet.ConcurrentFacetCounter;
 import org.apache.lucene.facet.FacetResult;
 import org.apache.lucene.facet.Facets;
 import org.apache.lucene.facet.FacetsCollector;
@@ -39,8 +41,10 @@ import org.apache.lucene.index.MultiDocValues.MultiSortedSetDocValues;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
 
 /** Compute facets counts from previously
  *  indexed {@link SortedSetDocValuesFacetField},
@@ -70,12 +74,22 @@ public class SortedSetDocValuesFacetCounts extends Facets {
    *  hits, topCount labels per dimension. */
   public SortedSetDocValuesFacetCounts(SortedSetDocValuesReaderState state, FacetsCollector hits)
       throws IOException {
+    this(state, hits, null);
+  }
+
+  /** Sparse faceting: returns any dimension that had any
+   *  hits, topCount labels per dimension.  If {@code
+   *  executor} is not null, segments are counted
+   *  concurrently, each thread into its own counts, which
+   *  are summed at the end. */
+  public SortedSetDocValuesFacetCounts(SortedSetDocValuesReaderState state, FacetsCollector hits, ExecutorService executor)
+      throws IOException {
     this.state = state;
     this.field = state.getField();
     dv = state.getDocValues();    
     counts = new int[state.getSize()];
     //System.out.println("field=" + field);
-    count(hits.getMatchingDocs());
+    count(hits.getMatchingDocs(), executor);
   }
 
   @Override
@@ -144,10 +158,10 @@ public class SortedSetDocValuesFacetCounts extends Facets {
   }
 
   /** Does all the "real work" of tallying up the counts. */
-  private final void count(List<MatchingDocs> matchingDocs) throws IOException {
+  private final void count(List<MatchingDocs> matchingDocs, ExecutorService executor) throws IOException {
     //System.out.println("ssdv count");
 
-    MultiDocValues.OrdinalMap ordinalMap;
+    final MultiDocValues.OrdinalMap ordinalMap;
 
     // TODO: is this right?  really, we need a way to
     // verify that this ordinalMap "matches" the leaves in
@@ -158,94 +172,145 @@ public class SortedSetDocValuesFacetCounts extends Facets {
       ordinalMap = null;
     }
     
-    IndexReader origReader = state.getOrigReader();
-
-    for(MatchingDocs hits : matchingDocs) {
-
-      LeafReader reader = hits.context.reader();
-      //System.out.println("  reader=" + reader);
-      // LUCENE-5090: make sure the provided reader context "matches"
-      // the top-level reader passed to the
-      // SortedSetDocValuesReaderState, else cryptic
-      // AIOOBE can happen:
-      if (ReaderUtil.getTopLevelContext(hits.context).reader() != origReader) {
-        throw new IllegalStateException("the SortedSetDocValuesReaderState provided to this class does not match the reader being searched; you must create a new SortedSetDocValuesReaderState every time you open a new IndexReader");
-      }
-      
-      SortedSetDocValues segValues = reader.getSortedSetDocValues(field);
-      if (segValues == null) {
-        continue;
+    if (executor == null || matchingDocs.size() <= 1) {
+      final CountBuffers buffers = new CountBuffers(counts);
+      for(MatchingDocs hits : matchingDocs) {
+        count(buffers, hits, ordinalMap);
       }
+    } else {
+      new ConcurrentFacetCounter<CountBuffers>() {
+        @Override
+        protected CountBuffers newBuffers() {
+          return new CountBuffers(new int[counts.length]);
+        }
 
-      DocIdSetIterator docs = hits.bits.iterator();
-
-      // TODO: yet another option is to count all segs
-      // first, only in seg-ord space, and then do a
-      // merge-sort-PQ in the end to only "resolve to
-      // global" those seg ords that can compete, if we know
-      // we just want top K?  ie, this is the same algo
-      // that'd be used for merging facets across shards
-      // (distributed faceting).  but this has much higher
-      // temp ram req'ts (sum of number of ords across all
-      // segs)
-      if (ordinalMap != null) {
-        final int segOrd = hits.context.ord;
-        final LongValues ordMap = ordinalMap.getGlobalOrds(segOrd);
-
-        int numSegOrds = (int) segValues.getValueCount();
-
-        if (hits.totalHits < numSegOrds/10) {
-          //System.out.println("    remap as-we-go");
-          // Remap every ord to global ord as we iterate:
-          int doc;
-          while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-            //System.out.println("    doc=" + doc);
-            segValues.setDocument(doc);
-            int term = (int) segValues.nextOrd();
-            while (term != SortedSetDocValues.NO_MORE_ORDS) {
-              //System.out.println("      segOrd=" + segOrd + " ord=" + term + " globalOrd=" + ordinalMap.getGlobalOrd(segOrd, term));
-              counts[(int) ordMap.get(term)]++;
-              term = (int) segValues.nextOrd();
-            }
-          }
-        } else {
-          //System.out.println("    count in seg ord first");
-
-          // First count in seg-ord space:
-          final int[] segCounts = new int[numSegOrds];
-          int doc;
-          while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-            //System.out.println("    doc=" + doc);
-            segValues.setDocument(doc);
-            int term = (int) segValues.nextOrd();
-            while (term != SortedSetDocValues.NO_MORE_ORDS) {
-              //System.out.println("      ord=" + term);
-              segCounts[term]++;
-              term = (int) segValues.nextOrd();
-            }
+        @Override
+        protected void count(CountBuffers buffers, MatchingDocs hits) throws IOException {
+          SortedSetDocValuesFacetCounts.this.count(buffers, hits, ordinalMap);
+        }
+
+        @Override
+        protected void merge(CountBuffers buffers) {
+          final int[] threadCounts = buffers.counts;
+          for (int ord = 0; ord < threadCounts.length; ord++) {
+            counts[ord] += threadCounts[ord];
           }
+        }
+      }.count(matchingDocs, executor);
+    }
+  }
+
+  /** Counts in global ordinals, plus scratch space to first
+   *  count a segment in segment ordinals.  The scratch
+   *  counts are all zero between two segments. */
+  private static final class CountBuffers {
+    final int[] counts;
+    int[] segCounts = new int[0];
+
+    CountBuffers(int[] counts) {
+      this.counts = counts;
+    }
+  }
 
-          // Then, migrate to global ords:
-          for(int ord=0;ord<numSegOrds;ord++) {
-            int count = segCounts[ord];
-            if (count != 0) {
-              //System.out.println("    migrate segOrd=" + segOrd + " ord=" + ord + " globalOrd=" + ordinalMap.getGlobalOrd(segOrd, ord));
-              counts[(int) ordMap.get(ord)] += count;
-            }
+  /** Tallies up the counts of one segment into {@code buffers.counts}. */
+  private void count(CountBuffers buffers, MatchingDocs hits, MultiDocValues.OrdinalMap ordinalMap) throws IOException {
+    final int[] counts = buffers.counts;
+    IndexReader origReader = state.getOrigReader();
+
+    LeafReader reader = hits.context.reader();
+    //System.out.println("  reader=" + reader);
+    // LUCENE-5090: make sure the provided reader context "matches"
+    // the top-level reader passed to the
+    // SortedSetDocValuesReaderState, else cryptic
+    // AIOOBE can happen:
+    if (ReaderUtil.getTopLevelContext(hits.context).reader() != origReader) {
+      throw new IllegalStateException("the SortedSetDocValuesReaderState provided to this class does not match the reader being searched; you must create a new SortedSetDocValuesReaderState every time you open a new IndexReader");
+    }
+    
+    SortedSetDocValues segValues = reader.getSortedSetDocValues(field);
+    if (segValues == null) {
+      return;
+    }
+
+    DocIdSetIterator docs = hits.bits.iterator();
+
+    // TODO: yet another option is to count all segs
+    // first, only in seg-ord space, and then do a
+    // merge-sort-PQ in the end to only "resolve to
+    // global" those seg ords that can compete, if we know
+    // we just want top K?  ie, this is the same algo
+    // that'd be used for merging facets across shards
+    // (distributed faceting).  but this has much higher
+    // temp ram req'ts (sum of number of ords across all
+    // segs)
+    final LongValues ordMap = ordinalMap == null ? null : ordinalMap.getGlobalOrds(hits.context.ord);
+
+    if (ordMap != null && ordMap != LongValues.IDENTITY) {
+      int numSegOrds = (int) segValues.getValueCount();
+
+      // Counting in seg-ord space costs a pass over all seg
+      // ords to migrate the counts, but then looks up each
+      // distinct seg ord once and in order, instead of
+      // randomly accessing the ord map for every hit, so it
+      // is faster unless hits are very sparse:
+      if (hits.totalHits < numSegOrds/100) {
+        //System.out.println("    remap as-we-go");
+        // Remap every ord to global ord as we iterate:
+        int doc;
+        while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          //System.out.println("    doc=" + doc);
+          segValues.setDocument(doc);
+          int term = (int) segValues.nextOrd();
+          while (term != SortedSetDocValues.NO_MORE_ORDS) {
+            //System.out.println("      ord=" + term + " globalOrd=" + ordMap.get(term));
+            counts[(int) ordMap.get(term)]++;
+            term = (int) segValues.nextOrd();
           }
         }
       } else {
-        // No ord mapping (e.g., single segment index):
-        // just aggregate directly into counts:
+        //System.out.println("    count in seg ord first");
+
+        // First count in seg-ord space, reusing the scratch
+        // counts of previous segments:
+        if (buffers.segCounts.length < numSegOrds) {
+          buffers.segCounts = new int[ArrayUtil.oversize(numSegOrds, RamUsageEstimator.NUM_BYTES_INT)];
+        }
+        final int[] segCounts = buffers.segCounts;
         int doc;
         while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          //System.out.println("    doc=" + doc);
           segValues.setDocument(doc);
           int term = (int) segValues.nextOrd();
           while (term != SortedSetDocValues.NO_MORE_ORDS) {
-            counts[term]++;
+            //System.out.println("      ord=" + term);
+            segCounts[term]++;
             term = (int) segValues.nextOrd();
           }
         }
+
+        // Then, migrate to global ords, clearing the scratch
+        // counts for the next segment:
+        for(int ord=0;ord<numSegOrds;ord++) {
+          int count = segCounts[ord];
+          if (count != 0) {
+            //System.out.println("    migrate ord=" + ord + " globalOrd=" + ordMap.get(ord));
+            counts[(int) ordMap.get(ord)] += count;
+            segCounts[ord] = 0;
+          }
+        }
+      }
+    } else {
+      // No ord mapping (e.g., single segment index), or
+      // seg ords are the same as global ords: just
+      // aggregate directly into counts:
+      int doc;
+      while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        segValues.setDocument(doc);
+        int term = (int) segValues.nextOrd();
+        while (term != SortedSetDocValues.NO_MORE_ORDS) {
+          counts[term]++;
+          term = (int) segValues.nextOrd();
+        }
       }
     }
   }
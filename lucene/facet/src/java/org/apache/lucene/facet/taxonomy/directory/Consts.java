@@ -27,4 +27,6 @@ abstract class Consts {
   static final String FIELD_PAYLOADS = "$payloads$";
   static final String PAYLOAD_PARENT = "p";
   static final BytesRef PAYLOAD_PARENT_BYTES_REF = new BytesRef(PAYLOAD_PARENT);
+  /** Parent ordinal + 1 of each category; older taxonomies only have the payloads. */
+  static final String FIELD_PARENT_ORDINAL_NDV = "$parent$";
 }
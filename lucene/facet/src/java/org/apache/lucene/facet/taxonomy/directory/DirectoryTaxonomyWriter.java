@@ -17,6 +17,7 @@ import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.facet.FacetsConfig;
@@ -102,6 +103,7 @@ public class DirectoryTaxonomyWriter implements TaxonomyWriter {
 
   private SinglePositionTokenStream parentStream = new SinglePositionTokenStream(Consts.PAYLOAD_PARENT);
   private Field parentStreamField;
+  private NumericDocValuesField parentOrdinalField;
   private Field fullPathField;
   private int cacheMissesUntilFill = 11;
   private boolean shouldFillCache = true;
@@ -193,6 +195,7 @@ public class DirectoryTaxonomyWriter implements TaxonomyWriter {
     FieldType ft = new FieldType(TextField.TYPE_NOT_STORED);
     ft.setOmitNorms(true);
     parentStreamField = new Field(Consts.FIELD_PAYLOADS, parentStream, ft);
+    parentOrdinalField = new NumericDocValuesField(Consts.FIELD_PARENT_ORDINAL_NDV, 0);
     fullPathField = new StringField(Consts.FULL, "", Field.Store.YES);
 
     nextID = indexWriter.maxDoc();
@@ -487,6 +490,12 @@ public class DirectoryTaxonomyWriter implements TaxonomyWriter {
     parentStream.set(Math.max(parent + 1, 1));
     Document d = new Document();
     d.add(parentStreamField);
+    // Also store the parent in doc values, which readers can load much
+    // faster than the payloads. We add 1 so that the default value of 0
+    // only occurs for the root, and identifies categories that were
+    // added by older versions and merged with newer ones.
+    parentOrdinalField.setLongValue(parent + 1);
+    d.add(parentOrdinalField);
 
     fullPathField.setStringValue(FacetsConfig.pathToString(categoryPath.components, categoryPath.length));
     d.add(fullPathField);
@@ -5,7 +5,9 @@ import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.ArrayUtil;
 
@@ -126,6 +128,10 @@ class TaxonomyIndexArrays extends ParallelTaxonomyArrays {
       return;
     }
     
+    if (initParentsFromDocValues(reader, first)) {
+      return;
+    }
+
     // it's ok to use MultiFields because we only iterate on one posting list.
     // breaking it to loop over the leaves() only complicates code for no
     // apparent gain.
@@ -159,6 +165,41 @@ class TaxonomyIndexArrays extends ParallelTaxonomyArrays {
     }
   }
   
+  /**
+   * Reads the parents of the new categories from doc values, in bulk and
+   * only from the segments that contain new categories. Returns false if
+   * some of these categories were added before parents were stored in doc
+   * values, in which case they must be read from the payloads.
+   */
+  private boolean initParentsFromDocValues(IndexReader reader, int first) throws IOException {
+    final long[] buffer = new long[1024];
+    for (LeafReaderContext ctx : reader.leaves()) {
+      final int maxDoc = ctx.reader().maxDoc();
+      if (ctx.docBase + maxDoc <= first) {
+        continue;
+      }
+      final NumericDocValues values = ctx.reader().getNumericDocValues(Consts.FIELD_PARENT_ORDINAL_NDV);
+      if (values == null) {
+        return false;
+      }
+      int doc = Math.max(first - ctx.docBase, 0);
+      while (doc < maxDoc) {
+        final int count = values.get(doc, buffer, 0, Math.min(buffer.length, maxDoc - doc));
+        for (int i = 0; i < count; i++) {
+          final int ordinal = ctx.docBase + doc + i;
+          // parents are stored + 1: only the root has 0, other categories
+          // have no value if they were merged from an older segment
+          if (buffer[i] == 0 && ordinal != 0) {
+            return false;
+          }
+          parents[ordinal] = (int) buffer[i] - 1;
+        }
+        doc += count;
+      }
+    }
+    return true;
+  }
+
   /**
    * Adds the given ordinal/parent info and returns either a new instance if the
    * underlying array had to grow, or this instance otherwise.
@@ -0,0 +1,86 @@
+package org.apache.lucene.facet.taxonomy.writercache;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.facet.taxonomy.FacetLabel;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * {@link TaxonomyWriterCache} which maintains in memory all the mappings from
+ * category to ordinal in a {@link ConcurrentHashMap}. Unlike
+ * {@link Cl2oTaxonomyWriterCache}, lookups do not take any lock, so threads
+ * which index documents with categories that already exist never wait for
+ * each other, nor for threads which add new categories. This comes at the
+ * cost of more memory per category.
+ * 
+ * @lucene.experimental
+ */
+public class ConcurrentTaxonomyWriterCache implements TaxonomyWriterCache {
+
+  private volatile ConcurrentHashMap<FacetLabel,Integer> cache;
+
+  /** Creates this with a default initial capacity. */
+  public ConcurrentTaxonomyWriterCache() {
+    this(1024);
+  }
+
+  /** Creates this with room for {@code initialCapacity} categories before it needs to grow. */
+  public ConcurrentTaxonomyWriterCache(int initialCapacity) {
+    this.cache = new ConcurrentHashMap<>(initialCapacity);
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+
+  @Override
+  public void close() {
+    cache = null;
+  }
+
+  @Override
+  public boolean isFull() {
+    // This cache is never full
+    return false;
+  }
+
+  @Override
+  public int get(FacetLabel categoryPath) {
+    Integer res = cache.get(categoryPath);
+    if (res == null) {
+      return -1;
+    }
+    return res.intValue();
+  }
+
+  @Override
+  public boolean put(FacetLabel categoryPath, int ordinal) {
+    cache.put(categoryPath, ordinal);
+    // Tell the caller we didn't clear part of the cache, so it doesn't
+    // have to flush its on-disk index now
+    return false;
+  }
+
+  /** Returns the number of categories in this cache. */
+  public int size() {
+    return cache == null ? 0 : cache.size();
+  }
+
+}
@@ -0,0 +1,128 @@
+package org.apache.lucene.facet;
+
+import java.util.Random;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
+import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.TestUtil;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class TestAdaptiveSamplingFacetsCollector extends FacetTestCase {
+
+  public void testAdaptiveSampling() throws Exception {
+    Directory dir = newDirectory();
+    Directory taxoDir = newDirectory();
+
+    Random random = random();
+    DirectoryTaxonomyWriter taxoWriter = new DirectoryTaxonomyWriter(taxoDir);
+    RandomIndexWriter writer = new RandomIndexWriter(random, dir);
+
+    FacetsConfig config = new FacetsConfig();
+
+    final int numCategories = 10;
+    int numDocs = atLeast(10000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("EvenOdd", (i % 2 == 0) ? "even" : "odd", Store.NO));
+      doc.add(new FacetField("iMod10", Integer.toString(i % numCategories)));
+      writer.addDocument(config.build(taxoWriter, doc));
+    }
+
+    // NRT open
+    IndexSearcher searcher = newSearcher(writer.getReader());
+    TaxonomyReader taxoReader = new DirectoryTaxonomyReader(taxoWriter);
+    IOUtils.close(writer, taxoWriter);
+
+    // no hits: nothing is sampled, and there are no divisions by zero
+    AdaptiveSamplingFacetsCollector noHits = new AdaptiveSamplingFacetsCollector(numDocs / 10, random.nextLong());
+    searcher.search(new TermQuery(new Term("EvenOdd", "NeverMatches")), noHits);
+    assertEquals(0, noHits.getTotalHits());
+    assertEquals(0, noHits.getSampleSize());
+    assertEquals(1.0, noHits.getSamplingRate(), 0.0);
+
+    // fewer hits than the sample size: all hits are collected
+    Query query = new TermQuery(new Term("EvenOdd", "even"));
+    AdaptiveSamplingFacetsCollector all = new AdaptiveSamplingFacetsCollector(numDocs, random.nextLong());
+    FacetsCollector fc = new FacetsCollector();
+    searcher.search(query, MultiCollector.wrap(fc, all));
+    assertEquals((numDocs + 1) / 2, all.getTotalHits());
+    assertEquals(all.getTotalHits(), all.getSampleSize());
+    assertEquals(1.0, all.getSamplingRate(), 0.0);
+    FacetResult expected = new FastTaxonomyFacetCounts(taxoReader, config, fc).getTopChildren(10, "iMod10");
+    FacetResult actual = new FastTaxonomyFacetCounts(taxoReader, config, all).getTopChildren(10, "iMod10");
+    assertEquals(expected, all.amortizeFacetCounts(actual, config, searcher));
+
+    // more hits than the sample size
+    final int sampleSize = TestUtil.nextInt(random, 100, numDocs / 10);
+    AdaptiveSamplingFacetsCollector sampling = new AdaptiveSamplingFacetsCollector(sampleSize, random.nextLong());
+    fc = new FacetsCollector();
+    searcher.search(new MatchAllDocsQuery(), MultiCollector.wrap(fc, sampling));
+    assertEquals(numDocs, sampling.getTotalHits());
+    assertTrue(sampling.getSamplingRate() < 1.0);
+    assertTrue(sampling.getSampleSize() <= 2 * sampleSize);
+
+    int numSampled = 0;
+    for (MatchingDocs md : sampling.getMatchingDocs()) {
+      final DocIdSetIterator it = md.bits.iterator();
+      int lastDoc = -1;
+      for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+        assertTrue(doc > lastDoc);
+        lastDoc = doc;
+        numSampled++;
+      }
+    }
+    assertEquals(sampling.getSampleSize(), numSampled);
+
+    // amortized counts should be within a few standard errors of the exact counts
+    expected = new FastTaxonomyFacetCounts(taxoReader, config, fc).getTopChildren(10, "iMod10");
+    FacetResult sampled = new FastTaxonomyFacetCounts(taxoReader, config, sampling).getTopChildren(10, "iMod10");
+    FacetResult amortized = sampling.amortizeFacetCounts(sampled, config, searcher);
+    for (int i = 0; i < sampled.labelValues.length; i++) {
+      final String label = sampled.labelValues[i].label;
+      final double error = sampling.getStandardError(sampled.labelValues[i].value.doubleValue());
+      assertEquals(label, amortized.labelValues[i].label);
+      int exactCount = -1;
+      for (LabelAndValue lv : expected.labelValues) {
+        if (lv.label.equals(label)) {
+          exactCount = lv.value.intValue();
+        }
+      }
+      assertEquals(exactCount, amortized.labelValues[i].value.doubleValue(), 6 * error + 1);
+    }
+
+    IOUtils.close(searcher.getIndexReader(), taxoReader, dir, taxoDir);
+  }
+
+}
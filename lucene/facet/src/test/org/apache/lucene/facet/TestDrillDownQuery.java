@@ -242,4 +242,14 @@ public class TestDrillDownQuery extends FacetTestCase {
     Query rewrite = q.rewrite(reader).rewrite(reader);
     assertEquals(base, rewrite);
   }
+
+  public void testWithoutDimKeepsBoost() throws Exception {
+    DrillDownQuery q = new DrillDownQuery(config, new MatchAllDocsQuery());
+    q.add("a", "1");
+    q.add("b", "2");
+    q.setBoost(3f);
+    DrillDownQuery withoutDim = q.withoutDim("a");
+    assertEquals(3f, withoutDim.getBoost(), 0f);
+    assertEquals(1, withoutDim.getDims().size());
+  }
 }
@@ -20,18 +20,22 @@ package org.apache.lucene.facet;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.DrillSideways.ConcurrentDrillSidewaysResult;
 import org.apache.lucene.facet.DrillSideways.DrillSidewaysResult;
 import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
@@ -47,6 +51,7 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.FilteredQuery;
@@ -59,6 +64,7 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
@@ -67,6 +73,7 @@ import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InPlaceMergeSorter;
 import org.apache.lucene.util.InfoStream;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.TestUtil;
 
 public class TestDrillSideways extends FacetTestCase {
@@ -249,6 +256,69 @@ public class TestDrillSideways extends FacetTestCase {
     IOUtils.close(searcher.getIndexReader(), taxoReader, taxoWriter, dir, taxoDir);
   }
 
+  public void testConcurrent() throws Exception {
+    Directory dir = newDirectory();
+    Directory taxoDir = newDirectory();
+    DirectoryTaxonomyWriter taxoWriter = new DirectoryTaxonomyWriter(taxoDir, IndexWriterConfig.OpenMode.CREATE);
+    FacetsConfig config = new FacetsConfig();
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir);
+
+    String[] authors = new String[] {"Bob", "Lisa", "Susan", "Frank"};
+    int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("content", random().nextBoolean() ? "a" : "b", Field.Store.NO));
+      doc.add(new FacetField("Author", authors[random().nextInt(authors.length)]));
+      doc.add(new FacetField("Year", Integer.toString(TestUtil.nextInt(random(), 2000, 2010))));
+      writer.addDocument(config.build(taxoWriter, doc));
+    }
+
+    // NRT open
+    IndexSearcher searcher = newSearcher(writer.getReader());
+    TaxonomyReader taxoReader = new DirectoryTaxonomyReader(taxoWriter);
+    ExecutorService executor = Executors.newFixedThreadPool(TestUtil.nextInt(random(), 2, 4), new NamedThreadFactory("TestDrillSideways"));
+    DrillSideways ds = new DrillSideways(searcher, config, taxoReader);
+    DrillSideways concurrentDs = new DrillSideways(searcher, config, taxoReader, null, executor);
+    CollectorManager<TopScoreDocCollector, TopDocs> hitsManager = new CollectorManager<TopScoreDocCollector, TopDocs>() {
+      @Override
+      public TopScoreDocCollector newCollector() {
+        return TopScoreDocCollector.create(10);
+      }
+
+      @Override
+      public TopDocs reduce(Collection<TopScoreDocCollector> collectors) throws IOException {
+        TopDocs[] topDocs = new TopDocs[collectors.size()];
+        int i = 0;
+        for (TopScoreDocCollector collector : collectors) {
+          topDocs[i++] = collector.topDocs();
+        }
+        return TopDocs.merge(10, topDocs);
+      }
+    };
+
+    int iters = atLeast(10);
+    for (int iter = 0; iter < iters; iter++) {
+      DrillDownQuery ddq = new DrillDownQuery(config, random().nextBoolean() ? null : new TermQuery(new Term("content", "a")));
+      int numDrillDowns = random().nextInt(3);
+      for (int i = 0; i < numDrillDowns; i++) {
+        if (random().nextBoolean()) {
+          ddq.add("Author", authors[random().nextInt(authors.length)]);
+        } else {
+          ddq.add("Year", Integer.toString(TestUtil.nextInt(random(), 2000, 2010)));
+        }
+      }
+      DrillSidewaysResult expected = ds.search(ddq, 10);
+      ConcurrentDrillSidewaysResult<TopDocs> actual = concurrentDs.search(ddq, hitsManager);
+      assertEquals(expected.hits.totalHits, actual.collectorResult.totalHits);
+      assertEquals(expected.facets.getTopChildren(10, "Author"), actual.facets.getTopChildren(10, "Author"));
+      assertEquals(expected.facets.getTopChildren(10, "Year"), actual.facets.getTopChildren(10, "Year"));
+    }
+
+    TestUtil.shutdownExecutorService(executor);
+    writer.close();
+    IOUtils.close(searcher.getIndexReader(), taxoReader, taxoWriter, dir, taxoDir);
+  }
+
   public void testSometimesInvalidDrillDown() throws Exception {
     Directory dir = newDirectory();
     Directory taxoDir = newDirectory();
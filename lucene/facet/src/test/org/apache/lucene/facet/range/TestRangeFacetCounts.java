@@ -31,6 +31,7 @@ import org.apache.lucene.document.FloatDocValuesField;
 import org.apache.lucene.document.FloatField;
 import org.apache.lucene.document.LongField;
 import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.facet.DrillDownQuery;
 import org.apache.lucene.facet.DrillSideways;
 import org.apache.lucene.facet.DrillSideways.DrillSidewaysResult;
@@ -63,6 +64,7 @@ import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Bits;
@@ -847,6 +849,62 @@ public class TestRangeFacetCounts extends FacetTestCase {
     IOUtils.close(r, d);
   }
 
+  /** Counts read in bulk from doc values must match counts computed through {@link FunctionValues}. */
+  public void testBulkCountsManyRanges() throws Exception {
+    Directory d = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), d);
+    int numDocs = atLeast(5000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("even", i % 2 == 0 ? "yes" : "no", Field.Store.NO));
+      if (random().nextInt(10) != 0) {
+        long v = TestUtil.nextLong(random(), -1000, 1000);
+        doc.add(new NumericDocValuesField("long", v));
+        doc.add(new DoubleDocValuesField("double", v / 7.0));
+      }
+      w.addDocument(doc);
+      if (random().nextInt(1000) == 0) {
+        // some segments may have no values at all
+        for (int j = 0; j < 10; j++) {
+          w.addDocument(new Document());
+        }
+        w.commit();
+      }
+    }
+
+    IndexReader r = w.getReader();
+    w.close();
+    IndexSearcher s = newSearcher(r);
+
+    LongRange[] longRanges = new LongRange[atLeast(100)];
+    DoubleRange[] doubleRanges = new DoubleRange[longRanges.length];
+    for (int i = 0; i < longRanges.length; i++) {
+      long min = TestUtil.nextLong(random(), -1100, 1100);
+      long max = min + 2 + random().nextInt(500);
+      boolean minInclusive = random().nextBoolean();
+      boolean maxInclusive = random().nextBoolean();
+      longRanges[i] = new LongRange("r" + i, min, minInclusive, max, maxInclusive);
+      doubleRanges[i] = new DoubleRange("r" + i, min / 7.0, minInclusive, max / 7.0, maxInclusive);
+    }
+
+    for (Query query : new Query[] {new MatchAllDocsQuery(), new TermQuery(new Term("even", "yes"))}) {
+      FacetsCollector fc = new FacetsCollector();
+      s.search(query, fc);
+      Query fastMatchQuery = random().nextBoolean() ? null : new TermQuery(new Term("even", "no"));
+
+      // subclasses of the default value sources are counted through FunctionValues
+      Facets expected = new LongRangeFacetCounts("long", new LongFieldSource("long") {}, fc, fastMatchQuery, longRanges);
+      Facets actual = new LongRangeFacetCounts("long", new LongFieldSource("long"), fc, fastMatchQuery, longRanges);
+      assertEquals(expected.getTopChildren(longRanges.length, "long"), actual.getTopChildren(longRanges.length, "long"));
+
+      expected = new DoubleRangeFacetCounts("double", new DoubleFieldSource("double") {}, fc, fastMatchQuery, doubleRanges);
+      actual = new DoubleRangeFacetCounts("double", new DoubleFieldSource("double"), fc, fastMatchQuery, doubleRanges);
+      assertEquals(expected.getTopChildren(doubleRanges.length, "double"), actual.getTopChildren(doubleRanges.length, "double"));
+    }
+
+    IOUtils.close(r, d);
+  }
+
   private static class UsedQuery extends Query {
 
     private final AtomicBoolean used;
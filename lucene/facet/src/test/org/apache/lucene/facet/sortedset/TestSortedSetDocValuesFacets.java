@@ -19,9 +19,15 @@ package org.apache.lucene.facet.sortedset;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.facet.DrillDownQuery;
@@ -29,18 +35,27 @@ import org.apache.lucene.facet.FacetResult;
 import org.apache.lucene.facet.FacetTestCase;
 import org.apache.lucene.facet.Facets;
 import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
 import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiDocValues.MultiSortedSetDocValues;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.SlowCompositeReaderWrapper;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.TestUtil;
 
 public class TestSortedSetDocValuesFacets extends FacetTestCase {
@@ -95,6 +110,170 @@ public class TestSortedSetDocValuesFacets extends FacetTestCase {
     IOUtils.close(searcher.getIndexReader(), dir);
   }
 
+  public void testConcurrentCounts() throws Exception {
+    String[] tokens = getRandomTokens(10);
+    Directory indexDir = newDirectory();
+
+    RandomIndexWriter w = new RandomIndexWriter(random(), indexDir);
+    FacetsConfig config = new FacetsConfig();
+    int numDocs = atLeast(1000);
+    int numDims = TestUtil.nextInt(random(), 1, 7);
+    List<TestDoc> testDocs = getRandomDocs(tokens, numDocs, numDims);
+    for(TestDoc testDoc : testDocs) {
+      Document doc = new Document();
+      doc.add(newStringField("content", testDoc.content, Field.Store.NO));
+      for(int j=0;j<numDims;j++) {
+        if (testDoc.dims[j] != null) {
+          doc.add(new SortedSetDocValuesFacetField("dim" + j, testDoc.dims[j]));
+        }
+      }
+      w.addDocument(config.build(doc));
+    }
+
+    // NRT open
+    IndexSearcher searcher = newSearcher(w.getReader());
+    SortedSetDocValuesReaderState state = new DefaultSortedSetDocValuesReaderState(searcher.getIndexReader());
+    ExecutorService executor = Executors.newFixedThreadPool(TestUtil.nextInt(random(), 2, 4), new NamedThreadFactory("TestSortedSetDocValuesFacets"));
+
+    int iters = atLeast(20);
+    for(int iter=0;iter<iters;iter++) {
+      Query query = new TermQuery(new Term("content", tokens[random().nextInt(tokens.length)]));
+      FacetsCollector fc = new FacetsCollector();
+      searcher.search(query, fc);
+      FacetsCollector concurrentFc = searcher.search(query, new FacetsCollectorManager());
+      Facets expected = new SortedSetDocValuesFacetCounts(state, fc);
+      Facets actual = new SortedSetDocValuesFacetCounts(state, concurrentFc, executor);
+      assertEquals(expected.getAllDims(10), actual.getAllDims(10));
+    }
+
+    TestUtil.shutdownExecutorService(executor);
+    w.close();
+    IOUtils.close(searcher.getIndexReader(), indexDir);
+  }
+
+  private static void assertCounts(Map<String,Integer> expected, FacetResult result) {
+    int totCount = 0;
+    for (int count : expected.values()) {
+      totCount += count;
+    }
+    assertEquals(totCount, result.value.intValue());
+    assertEquals(expected.size(), result.childCount);
+    assertEquals(expected.size(), result.labelValues.length);
+    for (LabelAndValue labelValue : result.labelValues) {
+      assertEquals(labelValue.label, expected.get(labelValue.label), labelValue.value);
+    }
+  }
+
+  /** Segments with many hits are counted in segment ordinals,
+   *  into scratch counts that are reused across segments: make
+   *  sure they grow, and are cleared between segments. */
+  public void testSegmentOrdinalsAcrossSegments() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    FacetsConfig config = new FacetsConfig();
+    config.setMultiValued("a", true);
+
+    Map<String,Integer> expected = new HashMap<>();
+    // few values, then more, then few again
+    int[] numValues = new int[] {10, atLeast(300), 20, TestUtil.nextInt(random(), 1, 100)};
+    for (int numValue : numValues) {
+      int offset = random().nextInt(1000);
+      int numDocs = TestUtil.nextInt(random(), numValue, 2 * numValue);
+      for (int i = 0; i < numDocs; i++) {
+        Set<String> values = new HashSet<>();
+        int count = TestUtil.nextInt(random(), 1, 3);
+        for (int j = 0; j < count; j++) {
+          values.add("v" + (offset + random().nextInt(numValue)));
+        }
+        Document doc = new Document();
+        for (String value : values) {
+          doc.add(new SortedSetDocValuesFacetField("a", value));
+          Integer oldCount = expected.get(value);
+          expected.put(value, oldCount == null ? 1 : oldCount + 1);
+        }
+        w.addDocument(config.build(doc));
+      }
+      w.commit();
+    }
+    w.close();
+
+    DirectoryReader r = DirectoryReader.open(dir);
+    assertTrue(r.leaves().size() >= numValues.length);
+    IndexSearcher searcher = newSearcher(r, false);
+    SortedSetDocValuesReaderState state = new DefaultSortedSetDocValuesReaderState(r);
+    FacetsCollector c = new FacetsCollector();
+    searcher.search(new MatchAllDocsQuery(), c);
+
+    assertCounts(expected, new SortedSetDocValuesFacetCounts(state, c).getTopChildren(expected.size() + 1, "a"));
+
+    // a single thread reuses the same scratch counts for all segments too
+    ExecutorService executor = Executors.newFixedThreadPool(1, new NamedThreadFactory("TestSortedSetDocValuesFacets"));
+    assertCounts(expected, new SortedSetDocValuesFacetCounts(state, c, executor).getTopChildren(expected.size() + 1, "a"));
+    TestUtil.shutdownExecutorService(executor);
+
+    IOUtils.close(r, dir);
+  }
+
+  /** Segments whose ordinals are the global ordinals are counted
+   *  directly into the global counts. */
+  public void testIdentityOrdinals() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    FacetsConfig config = new FacetsConfig();
+    config.setMultiValued("a", true);
+
+    // every doc of the first segment has all values, and every doc of
+    // the second one has the first values, so the ordinals of both are
+    // the global ordinals
+    int numValues = TestUtil.nextInt(random(), 2, 200);
+    int numPrefixValues = TestUtil.nextInt(random(), 1, numValues);
+    int numDocs0 = TestUtil.nextInt(random(), 1, 20);
+    int numDocs1 = TestUtil.nextInt(random(), 1, 20);
+    Map<String,Integer> expected = new HashMap<>();
+    for (int segment = 0; segment < 2; segment++) {
+      int numDocs = segment == 0 ? numDocs0 : numDocs1;
+      int numDocValues = segment == 0 ? numValues : numPrefixValues;
+      for (int i = 0; i < numDocs; i++) {
+        Document doc = new Document();
+        for (int j = 0; j < numDocValues; j++) {
+          String value = String.format(Locale.ROOT, "v%03d", j);
+          doc.add(new SortedSetDocValuesFacetField("a", value));
+          Integer oldCount = expected.get(value);
+          expected.put(value, oldCount == null ? 1 : oldCount + 1);
+        }
+        w.addDocument(config.build(doc));
+      }
+      w.commit();
+    }
+
+    DirectoryReader r = DirectoryReader.open(dir);
+    SortedSetDocValuesReaderState state = new DefaultSortedSetDocValuesReaderState(r);
+    MultiSortedSetDocValues dv = (MultiSortedSetDocValues) state.getDocValues();
+    for (int i = 0; i < r.leaves().size(); i++) {
+      assertSame(LongValues.IDENTITY, dv.mapping.getGlobalOrds(i));
+    }
+    FacetsCollector c = new FacetsCollector();
+    newSearcher(r, false).search(new MatchAllDocsQuery(), c);
+    assertCounts(expected, new SortedSetDocValuesFacetCounts(state, c).getTopChildren(numValues + 1, "a"));
+    r.close();
+
+    // a single segment has no ordinal map at all
+    w.forceMerge(1);
+    w.close();
+    r = DirectoryReader.open(dir);
+    assertEquals(1, r.leaves().size());
+    state = new DefaultSortedSetDocValuesReaderState(r);
+    c = new FacetsCollector();
+    newSearcher(r, false).search(new MatchAllDocsQuery(), c);
+    assertCounts(expected, new SortedSetDocValuesFacetCounts(state, c).getTopChildren(numValues + 1, "a"));
+
+    IOUtils.close(r, dir);
+  }
+
   // LUCENE-5090
   @SuppressWarnings("unused")
   public void testStaleState() throws Exception {
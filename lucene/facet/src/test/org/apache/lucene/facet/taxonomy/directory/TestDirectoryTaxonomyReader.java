@@ -533,4 +533,42 @@ public class TestDirectoryTaxonomyReader extends FacetTestCase {
     dir.close();
   }
   
+  @Test
+  public void testParentsAfterReopen() throws Exception {
+    // parents are read from doc values, only for the new categories on reopen
+    Directory dir = newDirectory();
+    DirectoryTaxonomyWriter writer = new DirectoryTaxonomyWriter(dir);
+    DirectoryTaxonomyReader reader = new DirectoryTaxonomyReader(writer);
+    int numRounds = atLeast(5);
+    for (int round = 0; round < numRounds; round++) {
+      int numCategories = atLeast(200);
+      for (int i = 0; i < numCategories; i++) {
+        String[] components = new String[1 + random().nextInt(3)];
+        for (int j = 0; j < components.length; j++) {
+          components[j] = Integer.toString(random().nextInt(100));
+        }
+        writer.addCategory(new FacetLabel(components));
+      }
+      if (random().nextBoolean()) {
+        writer.commit();
+      }
+      DirectoryTaxonomyReader newReader = TaxonomyReader.openIfChanged(reader);
+      if (newReader != null) {
+        reader.close();
+        reader = newReader;
+      }
+
+      int[] parents = reader.getParallelTaxonomyArrays().parents();
+      assertEquals(reader.getSize(), parents.length);
+      assertEquals(TaxonomyReader.INVALID_ORDINAL, parents[TaxonomyReader.ROOT_ORDINAL]);
+      for (int ord = 1; ord < parents.length; ord++) {
+        FacetLabel path = reader.getPath(ord);
+        assertEquals(reader.getOrdinal(path.subpath(path.length - 1)), parents[ord]);
+      }
+    }
+    reader.close();
+    writer.close();
+    dir.close();
+  }
+  
 }
@@ -0,0 +1,100 @@
+package org.apache.lucene.facet.taxonomy.writercache;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.lucene.facet.FacetTestCase;
+import org.apache.lucene.facet.taxonomy.FacetLabel;
+import org.apache.lucene.util.TestUtil;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class TestConcurrentTaxonomyWriterCache extends FacetTestCase {
+
+  public void testGetPut() throws Exception {
+    ConcurrentTaxonomyWriterCache cache = new ConcurrentTaxonomyWriterCache(TestUtil.nextInt(random(), 1, 100));
+    FacetLabel a = new FacetLabel("a");
+    FacetLabel ab = new FacetLabel("a", "b");
+    assertEquals(-1, cache.get(a));
+    assertEquals(0, cache.size());
+
+    assertFalse(cache.put(a, 1));
+    assertFalse(cache.put(ab, 2));
+    assertEquals(1, cache.get(a));
+    assertEquals(2, cache.get(new FacetLabel("a", "b")));
+    assertEquals(-1, cache.get(new FacetLabel("b")));
+    assertEquals(2, cache.size());
+    // the cache is never full, whatever its initial capacity
+    assertFalse(cache.isFull());
+
+    // a category is mapped to the last ordinal it was put with
+    assertFalse(cache.put(a, 3));
+    assertEquals(3, cache.get(a));
+    assertEquals(2, cache.size());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(-1, cache.get(a));
+    assertEquals(-1, cache.get(ab));
+    assertFalse(cache.put(ab, 4));
+    assertEquals(4, cache.get(ab));
+
+    cache.close();
+    assertEquals(0, cache.size());
+  }
+
+  public void testConcurrentPuts() throws Exception {
+    final ConcurrentTaxonomyWriterCache cache = new ConcurrentTaxonomyWriterCache(TestUtil.nextInt(random(), 1, 100));
+    final int numCategories = atLeast(10000);
+    Thread[] threads = new Thread[TestUtil.nextInt(random(), 2, 8)];
+    final CountDownLatch start = new CountDownLatch(1);
+    for (int i = 0; i < threads.length; i++) {
+      final int threadID = i;
+      final int numThreads = threads.length;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException ie) {
+            throw new RuntimeException(ie);
+          }
+          // every thread puts its own categories, and looks up all categories
+          for (int ord = threadID; ord < numCategories; ord += numThreads) {
+            assertFalse(cache.put(new FacetLabel("a", Integer.toString(ord)), ord));
+            assertEquals(ord, cache.get(new FacetLabel("a", Integer.toString(ord))));
+            int other = (ord + 1) % numCategories;
+            int otherOrd = cache.get(new FacetLabel("a", Integer.toString(other)));
+            assertTrue(otherOrd == -1 || otherOrd == other);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(numCategories, cache.size());
+    for (int ord = 0; ord < numCategories; ord++) {
+      assertEquals(ord, cache.get(new FacetLabel("a", Integer.toString(ord))));
+    }
+    cache.close();
+  }
+
+}
@@ -32,6 +32,8 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
@@ -57,7 +59,9 @@ import org.apache.lucene.util.automaton.CharacterRunAutomaton;
 /**
  * Simple highlighter that does not analyze fields nor use
  * term vectors. Instead it requires 
- * {@link IndexOptions#DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS}.
+ * {@link IndexOptions#DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS}, or
+ * the offsets of the field's tokens to be stored in a {@link TokenOffsetsField}
+ * for the field, which keeps them out of the postings lists.
  * <p>
  * PostingsHighlighter treats the single original document as the whole corpus, and then scores individual
  * passages as if they were documents in this corpus. It uses a {@link BreakIterator} to find 
@@ -487,6 +491,7 @@ public class PostingsHighlighter {
     // otherwise, we will just advance() existing enums to the new document in the same segment.
     PostingsEnum postings[] = null;
     TermsEnum termsEnum = null;
+    BinaryDocValues tokenOffsets = null;
     int lastLeaf = -1;
     
     for (int i = 0; i < docids.length; i++) {
@@ -504,18 +509,30 @@ public class PostingsHighlighter {
       
       // if the segment has changed, we must initialize new enums.
       if (leaf != lastLeaf) {
-        Terms t = r.terms(field);
-        if (t != null) {
-          if (!t.hasOffsets()) {
-            // no offsets available
-            throw new IllegalArgumentException("field '" + field + "' was indexed without offsets, cannot highlight");
-          }
-          termsEnum = t.iterator();
-          postings = new PostingsEnum[terms.length];
+        final String tokenOffsetsField = TokenOffsetsField.fieldName(field);
+        FieldInfo fieldInfo = r.getFieldInfos().fieldInfo(tokenOffsetsField);
+        if (fieldInfo != null && fieldInfo.getDocValuesType() == DocValuesType.BINARY) {
+          tokenOffsets = r.getBinaryDocValues(tokenOffsetsField);
         } else {
-          termsEnum = null;
+          tokenOffsets = null;
+          Terms t = r.terms(field);
+          if (t != null) {
+            if (!t.hasOffsets()) {
+              // no offsets available
+              throw new IllegalArgumentException("field '" + field + "' was indexed without offsets, cannot highlight");
+            }
+            termsEnum = t.iterator();
+            postings = new PostingsEnum[terms.length];
+          } else {
+            termsEnum = null;
+          }
         }
       }
+      if (tokenOffsets != null) {
+        // offsets are stored per document: enums can't be reused across documents
+        termsEnum = new TokenOffsetsTermsEnum(tokenOffsets.get(doc - subContext.docBase), doc - subContext.docBase);
+        postings = new PostingsEnum[terms.length];
+      }
       if (termsEnum == null) {
         continue; // no terms for this field, nothing to do
       }
@@ -0,0 +1,183 @@
+package org.apache.lucene.search.postingshighlight;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.StringHelper;
+
+/**
+ * Stores the offsets of the tokens of a document's text so that
+ * {@link PostingsHighlighter} can highlight it without offsets in the
+ * postings or term vectors.
+ * <p>
+ * The tokens are grouped per unique term, and the whole document is
+ * stored as a single binary doc value. The highlighter reads it with
+ * one lookup per document. The field is created with the name of the
+ * indexed text field, which then only needs
+ * {@link IndexOptions#DOCS_AND_FREQS} or less, but the doc value is
+ * stored under {@link #fieldName(String)} so that the text field can
+ * still have doc values of its own. Pass the analyzer and values you
+ * index:
+ * <pre class="prettyprint">
+ *   document.add(new TextField("body", text, Field.Store.YES));
+ *   document.add(new TokenOffsetsField("body", analyzer, text));
+ * </pre>
+ * @lucene.experimental
+ */
+public class TokenOffsetsField extends BinaryDocValuesField {
+
+  /** Suffix of the name of the doc values field that stores the offsets. */
+  public static final String FIELD_SUFFIX = "$offsets";
+
+  /**
+   * Analyzes <code>values</code> and records the offsets of its tokens.
+   * Offsets of multiple values are computed like {@link org.apache.lucene.index.IndexWriter}
+   * does, using {@link Analyzer#getOffsetGap(String)}.
+   * @param name name of the indexed text field
+   * @param analyzer the analyzer used to index the field
+   * @param values the values of the field for this document
+   * @throws IllegalArgumentException if the field name is null or if offsets go backwards
+   */
+  public TokenOffsetsField(String name, Analyzer analyzer, String... values) throws IOException {
+    super(fieldName(name), encode(name, analyzer, values));
+  }
+
+  /** Returns the name of the doc values field that stores the token
+   *  offsets of the indexed text field <code>field</code>. */
+  public static String fieldName(String field) {
+    if (field == null) {
+      throw new IllegalArgumentException("name cannot be null");
+    }
+    return field + FIELD_SUFFIX;
+  }
+
+  /*
+   * Format: for every unique term in sorted order,
+   *   VInt(prefix length shared with previous term), VInt(suffix length), suffix bytes,
+   *   VInt(freq), VInt(numBytes), then freq times VInt(start delta), VInt(end - start)
+   * where start deltas are relative to the previous occurrence of the same term.
+   */
+  static BytesRef encode(String name, Analyzer analyzer, String... values) throws IOException {
+    final BytesRefHash terms = new BytesRefHash();
+    int[] freqs = new int[8];
+    int[][] offsets = new int[8][];
+    int offset = 0;
+    int lastStartOffset = 0;
+    for (String value : values) {
+      try (TokenStream ts = analyzer.tokenStream(name, value)) {
+        final TermToBytesRefAttribute termAtt = ts.getAttribute(TermToBytesRefAttribute.class);
+        final OffsetAttribute offsetAtt = ts.addAttribute(OffsetAttribute.class);
+        ts.reset();
+        while (ts.incrementToken()) {
+          final int startOffset = offset + offsetAtt.startOffset();
+          final int endOffset = offset + offsetAtt.endOffset();
+          if (startOffset < lastStartOffset || endOffset < startOffset) {
+            throw new IllegalArgumentException("startOffset must be non-negative, and endOffset must be >= startOffset, and offsets must not go backwards "
+                + "startOffset=" + startOffset + ",endOffset=" + endOffset + ",lastStartOffset=" + lastStartOffset + " for field '" + name + "'");
+          }
+          lastStartOffset = startOffset;
+          int id = terms.add(termAtt.getBytesRef());
+          if (id < 0) {
+            id = -id - 1;
+          } else if (id == freqs.length) {
+            freqs = ArrayUtil.grow(freqs);
+            final int[][] newOffsets = new int[freqs.length][];
+            System.arraycopy(offsets, 0, newOffsets, 0, id);
+            offsets = newOffsets;
+          }
+          if (offsets[id] == null) {
+            offsets[id] = new int[4];
+          } else if (offsets[id].length < 2 * (freqs[id] + 1)) {
+            offsets[id] = ArrayUtil.grow(offsets[id], 2 * (freqs[id] + 1));
+          }
+          offsets[id][2 * freqs[id]] = startOffset;
+          offsets[id][2 * freqs[id] + 1] = endOffset;
+          freqs[id]++;
+        }
+        ts.end();
+        offset += offsetAtt.endOffset() + analyzer.getOffsetGap(name);
+      }
+    }
+
+    final int numTerms = terms.size();
+    final int[] sortedIds = terms.sort(BytesRef.getUTF8SortedAsUnicodeComparator());
+    byte[] buffer = new byte[0];
+    ByteArrayDataOutput out = new ByteArrayDataOutput(buffer);
+    final BytesRef previousTerm = new BytesRef();
+    final BytesRef term = new BytesRef();
+    for (int i = 0; i < numTerms; ++i) {
+      final int id = sortedIds[i];
+      terms.get(id, term);
+      final int freq = freqs[id];
+      // worst case: 5 bytes per vint
+      final int maxBytes = 5 * 4 + term.length + 10 * freq;
+      if (buffer.length - out.getPosition() < maxBytes) {
+        final int position = out.getPosition();
+        buffer = ArrayUtil.grow(buffer, position + maxBytes);
+        out = new ByteArrayDataOutput(buffer, position, buffer.length - position);
+      }
+      final int prefix = StringHelper.bytesDifference(previousTerm, term);
+      out.writeVInt(prefix);
+      out.writeVInt(term.length - prefix);
+      out.writeBytes(term.bytes, term.offset + prefix, term.length - prefix);
+      out.writeVInt(freq);
+      int numBytes = 0;
+      int lastStart = 0;
+      for (int j = 0; j < freq; ++j) {
+        final int start = offsets[id][2 * j];
+        final int end = offsets[id][2 * j + 1];
+        numBytes += vIntSize(start - lastStart) + vIntSize(end - start);
+        lastStart = start;
+      }
+      out.writeVInt(numBytes);
+      lastStart = 0;
+      for (int j = 0; j < freq; ++j) {
+        final int start = offsets[id][2 * j];
+        final int end = offsets[id][2 * j + 1];
+        out.writeVInt(start - lastStart);
+        out.writeVInt(end - start);
+        lastStart = start;
+      }
+      previousTerm.bytes = term.bytes;
+      previousTerm.offset = term.offset;
+      previousTerm.length = term.length;
+    }
+    return new BytesRef(buffer, 0, out.getPosition());
+  }
+
+  private static int vIntSize(int i) {
+    assert i >= 0;
+    int size = 1;
+    while ((i & ~0x7F) != 0) {
+      i >>>= 7;
+      size++;
+    }
+    return size;
+  }
+}
@@ -0,0 +1,187 @@
+package org.apache.lucene.search.postingshighlight;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+
+/**
+ * Exposes the terms of a single document that were encoded by
+ * {@link TokenOffsetsField}, with postings that only contain this
+ * document and the offsets of its tokens.
+ */
+final class TokenOffsetsTermsEnum extends TermsEnum {
+
+  private final BytesRef data;
+  private final int doc;
+  private final ByteArrayDataInput in = new ByteArrayDataInput();
+  private final BytesRefBuilder term = new BytesRefBuilder();
+  private boolean positioned;
+  private int freq;
+  private int offsetsStart, offsetsLength;
+
+  TokenOffsetsTermsEnum(BytesRef data, int doc) {
+    this.data = data;
+    this.doc = doc;
+    in.reset(data.bytes, data.offset, data.length);
+  }
+
+  @Override
+  public BytesRef next() throws IOException {
+    if (positioned) {
+      in.setPosition(offsetsStart + offsetsLength);
+    }
+    if (in.eof()) {
+      positioned = false;
+      return null;
+    }
+    final int prefix = in.readVInt();
+    final int suffix = in.readVInt();
+    term.setLength(prefix);
+    term.grow(prefix + suffix);
+    in.readBytes(term.bytes(), prefix, suffix);
+    term.setLength(prefix + suffix);
+    freq = in.readVInt();
+    offsetsLength = in.readVInt();
+    offsetsStart = in.getPosition();
+    positioned = true;
+    return term.get();
+  }
+
+  @Override
+  public SeekStatus seekCeil(BytesRef text) throws IOException {
+    if (positioned == false || term.get().compareTo(text) > 0) {
+      // terms are prefix-coded, so we can only go forward
+      in.reset(data.bytes, data.offset, data.length);
+      positioned = false;
+      if (next() == null) {
+        return SeekStatus.END;
+      }
+    }
+    while (true) {
+      final int cmp = term.get().compareTo(text);
+      if (cmp == 0) {
+        return SeekStatus.FOUND;
+      } else if (cmp > 0) {
+        return SeekStatus.NOT_FOUND;
+      } else if (next() == null) {
+        return SeekStatus.END;
+      }
+    }
+  }
+
+  @Override
+  public void seekExact(long ord) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public BytesRef term() {
+    return term.get();
+  }
+
+  @Override
+  public long ord() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int docFreq() {
+    return 1;
+  }
+
+  @Override
+  public long totalTermFreq() {
+    return freq;
+  }
+
+  @Override
+  public PostingsEnum postings(PostingsEnum reuse, int flags) {
+    return new TokenOffsetsPostingsEnum(data.bytes, offsetsStart, offsetsLength, doc, freq);
+  }
+
+  private static final class TokenOffsetsPostingsEnum extends PostingsEnum {
+
+    private final ByteArrayDataInput in;
+    private final int doc;
+    private final int freq;
+    private int currentDoc = -1;
+    private int lastStartOffset;
+    private int startOffset = -1, endOffset = -1;
+
+    TokenOffsetsPostingsEnum(byte[] bytes, int offset, int length, int doc, int freq) {
+      this.in = new ByteArrayDataInput(bytes, offset, length);
+      this.doc = doc;
+      this.freq = freq;
+    }
+
+    @Override
+    public int nextPosition() throws IOException {
+      assert currentDoc == doc;
+      startOffset = lastStartOffset + in.readVInt();
+      endOffset = startOffset + in.readVInt();
+      lastStartOffset = startOffset;
+      return -1;
+    }
+
+    @Override
+    public int freq() {
+      return freq;
+    }
+
+    @Override
+    public int startOffset() {
+      return startOffset;
+    }
+
+    @Override
+    public int endOffset() {
+      return endOffset;
+    }
+
+    @Override
+    public BytesRef getPayload() {
+      return null;
+    }
+
+    @Override
+    public int docID() {
+      return currentDoc;
+    }
+
+    @Override
+    public int nextDoc() {
+      return advance(currentDoc + 1);
+    }
+
+    @Override
+    public int advance(int target) {
+      return currentDoc = target <= doc && currentDoc < doc ? doc : NO_MORE_DOCS;
+    }
+
+    @Override
+    public long cost() {
+      return 1;
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package org.apache.lucene.search.postingshighlight;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.analysis.MockTokenizer;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestTokenOffsetsField extends LuceneTestCase {
+
+  public void testBasics() throws Exception {
+    Directory dir = newDirectory();
+    Analyzer analyzer = new MockAnalyzer(random());
+    IndexWriterConfig iwc = newIndexWriterConfig(analyzer);
+    iwc.setMergePolicy(newLogMergePolicy());
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir, iwc);
+
+    FieldType freqsType = new FieldType(TextField.TYPE_STORED);
+    freqsType.setIndexOptions(IndexOptions.DOCS_AND_FREQS);
+    for (String text : new String[] {
+        "This is a test. Just a test highlighting from postings. Feel free to ignore.",
+        "Highlighting the first term. Hope it works."}) {
+      Document doc = new Document();
+      doc.add(new Field("body", text, freqsType));
+      doc.add(new TokenOffsetsField("body", analyzer, text));
+      iw.addDocument(doc);
+    }
+
+    IndexReader ir = iw.getReader();
+    iw.close();
+
+    IndexSearcher searcher = newSearcher(ir);
+    PostingsHighlighter highlighter = new PostingsHighlighter();
+    Query query = new TermQuery(new Term("body", "highlighting"));
+    TopDocs topDocs = searcher.search(query, 10, Sort.INDEXORDER);
+    assertEquals(2, topDocs.totalHits);
+    String snippets[] = highlighter.highlight("body", query, searcher, topDocs);
+    assertEquals(2, snippets.length);
+    assertEquals("Just a test <b>highlighting</b> from postings. ", snippets[0]);
+    assertEquals("<b>Highlighting</b> the first term. ", snippets[1]);
+
+    ir.close();
+    dir.close();
+  }
+
+  public void testMultiValued() throws Exception {
+    Directory dir = newDirectory();
+    // use simpleanalyzer for more natural tokenization (else "test." is a token)
+    Analyzer analyzer = new MockAnalyzer(random(), MockTokenizer.SIMPLE, true);
+    IndexWriterConfig iwc = newIndexWriterConfig(analyzer);
+    iwc.setMergePolicy(newLogMergePolicy());
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir, iwc);
+
+    FieldType freqsType = new FieldType(TextField.TYPE_STORED);
+    freqsType.setIndexOptions(IndexOptions.DOCS_AND_FREQS);
+    Document doc = new Document();
+    doc.add(new Field("body", "This is a test.", freqsType));
+    doc.add(new Field("body", "Test a one sentence document.", freqsType));
+    doc.add(new TokenOffsetsField("body", analyzer, "This is a test.", "Test a one sentence document."));
+    iw.addDocument(doc);
+
+    IndexReader ir = iw.getReader();
+    iw.close();
+
+    IndexSearcher searcher = newSearcher(ir);
+    PostingsHighlighter highlighter = new PostingsHighlighter();
+    Query query = new TermQuery(new Term("body", "test"));
+    TopDocs topDocs = searcher.search(query, 10, Sort.INDEXORDER);
+    assertEquals(1, topDocs.totalHits);
+    String snippets[] = highlighter.highlight("body", query, searcher, topDocs, 2);
+    assertEquals(1, snippets.length);
+    assertEquals("This is a <b>test</b>. <b>Test</b> a one sentence document.", snippets[0]);
+
+    ir.close();
+    dir.close();
+  }
+
+  /** Binary doc values of the text field itself are not token offsets */
+  public void testUnrelatedBinaryDocValues() throws Exception {
+    Directory dir = newDirectory();
+    Analyzer analyzer = new MockAnalyzer(random());
+    IndexWriterConfig iwc = newIndexWriterConfig(analyzer);
+    iwc.setMergePolicy(newLogMergePolicy());
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir, iwc);
+
+    FieldType offsetsType = new FieldType(TextField.TYPE_STORED);
+    offsetsType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+    Document doc = new Document();
+    doc.add(new Field("body", "This is a test. Just a test highlighting from postings.", offsetsType));
+    doc.add(new BinaryDocValuesField("body", new BytesRef("not token offsets")));
+    iw.addDocument(doc);
+
+    IndexReader ir = iw.getReader();
+    iw.close();
+
+    IndexSearcher searcher = newSearcher(ir);
+    PostingsHighlighter highlighter = new PostingsHighlighter();
+    Query query = new TermQuery(new Term("body", "highlighting"));
+    TopDocs topDocs = searcher.search(query, 10, Sort.INDEXORDER);
+    assertEquals(1, topDocs.totalHits);
+    String snippets[] = highlighter.highlight("body", query, searcher, topDocs);
+    assertEquals(1, snippets.length);
+    assertEquals("Just a test <b>highlighting</b> from postings.", snippets[0]);
+
+    ir.close();
+    dir.close();
+  }
+
+  /** Token offsets must give the same highlights as offsets in the postings lists */
+  public void testSameAsPostingsOffsets() throws Exception {
+    Analyzer analyzer = new MockAnalyzer(random());
+    String[] words = new String[TestUtil.nextInt(random(), 5, 50)];
+    for (int i = 0; i < words.length; ++i) {
+      words[i] = TestUtil.randomSimpleString(random(), 1, 6);
+    }
+
+    Directory postingsDir = newDirectory();
+    Directory tokenOffsetsDir = newDirectory();
+    // same doc ids in both indexes
+    IndexWriterConfig iwc = newIndexWriterConfig(analyzer);
+    iwc.setMergePolicy(newLogMergePolicy());
+    RandomIndexWriter postingsWriter = new RandomIndexWriter(random(), postingsDir, iwc);
+    iwc = newIndexWriterConfig(analyzer);
+    iwc.setMergePolicy(newLogMergePolicy());
+    RandomIndexWriter tokenOffsetsWriter = new RandomIndexWriter(random(), tokenOffsetsDir, iwc);
+
+    FieldType offsetsType = new FieldType(TextField.TYPE_STORED);
+    offsetsType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+    FieldType freqsType = new FieldType(TextField.TYPE_STORED);
+    freqsType.setIndexOptions(IndexOptions.DOCS_AND_FREQS);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      StringBuilder text = new StringBuilder();
+      final int numWords = random().nextInt(100);
+      for (int j = 0; j < numWords; ++j) {
+        text.append(words[random().nextInt(words.length)]);
+        text.append(random().nextInt(10) == 0 ? ". " : " ");
+      }
+      Document doc = new Document();
+      doc.add(new Field("body", text.toString(), offsetsType));
+      postingsWriter.addDocument(doc);
+      doc = new Document();
+      doc.add(new Field("body", text.toString(), freqsType));
+      doc.add(new TokenOffsetsField("body", analyzer, text.toString()));
+      tokenOffsetsWriter.addDocument(doc);
+    }
+
+    IndexReader postingsReader = postingsWriter.getReader();
+    IndexReader tokenOffsetsReader = tokenOffsetsWriter.getReader();
+    postingsWriter.close();
+    tokenOffsetsWriter.close();
+
+    IndexSearcher postingsSearcher = newSearcher(postingsReader);
+    IndexSearcher tokenOffsetsSearcher = newSearcher(tokenOffsetsReader);
+    PostingsHighlighter highlighter = new PostingsHighlighter();
+    final int numQueries = atLeast(20);
+    for (int i = 0; i < numQueries; ++i) {
+      BooleanQuery query = new BooleanQuery();
+      final int numClauses = TestUtil.nextInt(random(), 1, 3);
+      for (int j = 0; j < numClauses; ++j) {
+        query.add(new TermQuery(new Term("body", words[random().nextInt(words.length)])), BooleanClause.Occur.SHOULD);
+      }
+      TopDocs topDocs = postingsSearcher.search(query, 10, Sort.INDEXORDER);
+      String[] expected = highlighter.highlight("body", query, postingsSearcher, topDocs);
+      String[] actual = highlighter.highlight("body", query, tokenOffsetsSearcher, topDocs);
+      assertArrayEquals(expected, actual);
+    }
+
+    postingsReader.close();
+    tokenOffsetsReader.close();
+    postingsDir.close();
+    tokenOffsetsDir.close();
+  }
+}
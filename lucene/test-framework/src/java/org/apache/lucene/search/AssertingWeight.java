@@ -64,6 +64,13 @@ class AssertingWeight extends Weight {
     return AssertingScorer.wrap(new Random(random.nextLong()), inScorer, needsScores);
   }
 
+  @Override
+  public int count(LeafReaderContext context) throws IOException {
+    final int count = in.count(context);
+    assert count >= -1 && count <= context.reader().numDocs() : count;
+    return count;
+  }
+
   @Override
   public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
     BulkScorer inScorer = in.bulkScorer(context);